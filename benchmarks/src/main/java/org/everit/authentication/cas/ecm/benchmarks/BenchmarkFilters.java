@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.util.Optional;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.everit.authentication.cas.ecm.internal.CasAuthenticationFilter;
+import org.everit.authentication.cas.ecm.internal.CasAuthenticationFilterConfiguration;
+import org.everit.authentication.cas.ecm.internal.CasAuthenticationMetricsCollector;
+import org.everit.authentication.cas.ecm.internal.CasHttpClient;
+import org.everit.authentication.cas.ecm.internal.CasResponseParser;
+import org.everit.authentication.cas.ecm.internal.CircuitBreaker;
+import org.everit.authentication.cas.ecm.internal.HeapServiceTicketIndex;
+import org.everit.authentication.cas.ecm.internal.JsonCasResponseParser;
+import org.everit.authentication.cas.ecm.internal.LoginUrlCache;
+import org.everit.authentication.cas.ecm.internal.PathMatcher;
+import org.everit.authentication.cas.ecm.internal.SaxCasResponseParser;
+import org.everit.authentication.cas.ecm.internal.SaxParserPool;
+import org.everit.authentication.cas.ecm.internal.ServiceTicketCache;
+import org.everit.authentication.cas.ecm.internal.ServiceTicketSessionRegistry;
+import org.everit.authentication.cas.ecm.internal.StaxCasResponseParser;
+import org.everit.authentication.cas.ecm.internal.StringPool;
+import org.everit.authentication.cas.ecm.internal.ValidationEndpoints;
+
+/**
+ * Creates the CAS authentication filters and parsers measured by the benchmarks with the default
+ * configuration of the component.
+ */
+public final class BenchmarkFilters {
+
+  public static final String PARSER_JSON = "JSON";
+
+  public static final String PARSER_SAX = "SAX";
+
+  public static final String PARSER_STAX = "STAX";
+
+  public static final String REQUEST_PARAM_NAME_LOGOUT_REQUEST = "logoutRequest";
+
+  public static final String REQUEST_PARAM_NAME_SERVICE_TICKET = "ticket";
+
+  public static final long RESOURCE_ID = 1L;
+
+  private static final int SAX_PARSER_POOL_SIZE = 16;
+
+  private static final long SERVICE_TICKET_CACHE_TIME_TO_LIVE = 10000;
+
+  /**
+   * Creates a {@link CasAuthenticationFilter}.
+   *
+   * @param casServiceTicketValidatorUrl
+   *          The service ticket validation URL of the (stub) CAS server.
+   * @param responseParser
+   *          The parser of the validation responses.
+   * @param casHttpClient
+   *          The HTTP client used to call the CAS server.
+   * @param serviceTicketCacheMaxSize
+   *          The size of the service ticket cache, zero disables the cache.
+   * @param parameterFastPathEnabled
+   *          Whether the raw query string is scanned before the request parameters are parsed.
+   */
+  public static CasAuthenticationFilter createFilter(final String casServiceTicketValidatorUrl,
+      final CasResponseParser responseParser, final CasHttpClient casHttpClient,
+      final int serviceTicketCacheMaxSize, final boolean parameterFastPathEnabled) {
+    CasAuthenticationFilterConfiguration configuration = new CasAuthenticationFilterConfiguration(
+        new ValidationEndpoints(new String[] { casServiceTicketValidatorUrl }, 0, 0),
+        REQUEST_PARAM_NAME_SERVICE_TICKET,
+        REQUEST_PARAM_NAME_LOGOUT_REQUEST,
+        parameterFastPathEnabled,
+        PathMatcher.compile(null),
+        PathMatcher.compile(null),
+        "/failed.html",
+        responseParser,
+        new LoginUrlCache("https://localhost:8443/cas/login", 0),
+        PathMatcher.compile(null),
+        false,
+        0);
+    return new CasAuthenticationFilter(
+        configuration,
+        (uniqueIdentifier) -> Optional.of(RESOURCE_ID),
+        () -> "org.everit.authentication.http.session.AuthenticatedResourceId",
+        casHttpClient,
+        new ServiceTicketCache(serviceTicketCacheMaxSize, SERVICE_TICKET_CACHE_TIME_TO_LIVE),
+        new ServiceTicketSessionRegistry(new HeapServiceTicketIndex(), true),
+        null,
+        null,
+        null,
+        null,
+        new CircuitBreaker(0, 0, 0, 0, 0, (state) -> {
+        }),
+        new CasAuthenticationMetricsCollector(),
+        null,
+        new StringPool(0));
+  }
+
+  /**
+   * Creates a response parser.
+   *
+   * @param parser
+   *          {@link #PARSER_SAX}, {@link #PARSER_STAX} or {@link #PARSER_JSON}.
+   */
+  public static CasResponseParser createResponseParser(final String parser) {
+    switch (parser) {
+      case PARSER_SAX:
+        return new SaxCasResponseParser(
+            new SaxParserPool(SAXParserFactory.newInstance(), SAX_PARSER_POOL_SIZE));
+      case PARSER_STAX:
+        return new StaxCasResponseParser();
+      case PARSER_JSON:
+        return new JsonCasResponseParser(new StaxCasResponseParser());
+      default:
+        throw new IllegalArgumentException("Unknown parser [" + parser + "]");
+    }
+  }
+
+  private BenchmarkFilters() {
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.everit.authentication.cas.ecm.CasSessionState;
+import org.everit.authentication.cas.ecm.internal.CasAuthenticationFilter;
+import org.everit.authentication.cas.ecm.internal.CasHttpClient;
+import org.everit.authentication.cas.ecm.internal.CasSessionAttribute;
+import org.everit.authentication.cas.ecm.internal.ServiceTicketSessionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of the CAS authentication filter for the requests that contain neither a
+ * service ticket nor a logout request, sent in a session that is already authenticated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilterPassThroughBenchmark {
+
+  private static final String REQUEST_URL = "http://localhost:8080/hello";
+
+  private static final String SERVICE_TICKET = "ST-1-benchmark-cas";
+
+  private CasAuthenticationFilter casAuthenticationFilter;
+
+  private CasHttpClient casHttpClient;
+
+  private FilterChain filterChain;
+
+  private HttpServletRequest httpServletRequest;
+
+  private HttpServletResponse httpServletResponse;
+
+  /**
+   * Creates the filter and an authenticated session.
+   */
+  @Setup
+  public void setup() {
+    casHttpClient = new CasHttpClient(1, 0, 1000, 1000);
+    casAuthenticationFilter = BenchmarkFilters.createFilter("http://localhost:1/cas",
+        BenchmarkFilters.createResponseParser(BenchmarkFilters.PARSER_STAX), casHttpClient, 0,
+        true);
+
+    HttpSession httpSession = ServletStubs.session("authenticated-session");
+    ServiceTicketSessionRegistry serviceTicketSessionRegistry =
+        casAuthenticationFilter.getServiceTicketSessionRegistry();
+    httpSession.setAttribute(CasAuthenticationFilter.SESSION_ATTR_NAME_STATE,
+        new CasSessionAttribute(
+            new CasSessionState(SERVICE_TICKET, "benchmark", 1, Collections.emptyMap(), null),
+            serviceTicketSessionRegistry.getRegistrationToken()));
+    serviceTicketSessionRegistry.register(SERVICE_TICKET, httpSession);
+
+    httpServletRequest = ServletStubs.request(REQUEST_URL, "page=1&size=20",
+        Collections.singletonMap("page", "1"), httpSession);
+    httpServletResponse = ServletStubs.response();
+    filterChain = ServletStubs.filterChain();
+  }
+
+  @TearDown
+  public void tearDown() {
+    casHttpClient.close();
+  }
+
+  @Benchmark
+  public void passThrough() throws IOException, ServletException {
+    casAuthenticationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
+  }
+
+}
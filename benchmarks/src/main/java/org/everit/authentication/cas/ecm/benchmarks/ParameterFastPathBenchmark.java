@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.everit.authentication.cas.ecm.internal.CasAuthenticationFilter;
+import org.everit.authentication.cas.ecm.internal.CasHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the filter with and without the parameter fast path on requests that have a long query
+ * string but neither a service ticket nor a logout request. Every invocation uses a new request
+ * that decodes its query string on the first parameter access, like the containers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParameterFastPathBenchmark {
+
+  private static final String QUERY_STRING = "search=authentication%20cas&page=3&size=50"
+      + "&sort=lastModified%2Cdesc&filter=status%3Aactive&filter=owner%3Ajohndoe"
+      + "&ticketType=all&locale=en_US&timestamp=1420070400000&referrer=%2Fdashboard";
+
+  private static final String REQUEST_URL = "http://localhost:8080/search";
+
+  @Param({ "true", "false" })
+  public boolean parameterFastPathEnabled;
+
+  private CasAuthenticationFilter casAuthenticationFilter;
+
+  private CasHttpClient casHttpClient;
+
+  private FilterChain filterChain;
+
+  private HttpServletResponse httpServletResponse;
+
+  private HttpSession httpSession;
+
+  /**
+   * Creates the filter.
+   */
+  @Setup
+  public void setup() {
+    casHttpClient = new CasHttpClient(1, 0, 1000, 1000);
+    casAuthenticationFilter = BenchmarkFilters.createFilter("http://localhost:1/cas",
+        BenchmarkFilters.createResponseParser(BenchmarkFilters.PARSER_STAX), casHttpClient, 0,
+        parameterFastPathEnabled);
+    httpSession = ServletStubs.session("benchmark-session");
+    httpServletResponse = ServletStubs.response();
+    filterChain = ServletStubs.filterChain();
+  }
+
+  @TearDown
+  public void tearDown() {
+    casHttpClient.close();
+  }
+
+  @Benchmark
+  public void doFilter() throws IOException, ServletException {
+    casAuthenticationFilter.doFilter(
+        ServletStubs.parsingRequest(REQUEST_URL, QUERY_STRING, httpSession),
+        httpServletResponse, filterChain);
+  }
+
+}
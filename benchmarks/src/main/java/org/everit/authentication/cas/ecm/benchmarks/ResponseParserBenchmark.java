@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.everit.authentication.cas.ecm.internal.CasResponseParser;
+import org.everit.authentication.cas.ecm.internal.CasValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the parser engines on the service ticket validation responses and the logout requests.
+ * The JSON engine parses the logout requests with the StAX engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseParserBenchmark {
+
+  @Param({ BenchmarkFilters.PARSER_SAX, BenchmarkFilters.PARSER_STAX,
+      BenchmarkFilters.PARSER_JSON })
+  public String parser;
+
+  private CasResponseParser responseParser;
+
+  private byte[] serviceValidateResponse;
+
+  @Benchmark
+  public String parseLogoutRequest() throws IOException {
+    return responseParser.parseLogoutRequest(StubCasServer.LOGOUT_REQUEST);
+  }
+
+  @Benchmark
+  public CasValidationResult parseServiceValidateResponse() throws IOException {
+    return responseParser.parseServiceValidateResponse(serviceValidateResponse);
+  }
+
+  /**
+   * Creates the parser and the response in the format of the parser.
+   */
+  @Setup
+  public void setup() {
+    responseParser = BenchmarkFilters.createResponseParser(parser);
+    String response = BenchmarkFilters.PARSER_JSON.equals(parser)
+        ? StubCasServer.JSON_RESPONSE
+        : StubCasServer.XML_RESPONSE;
+    serviceValidateResponse = response.getBytes(StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.everit.authentication.cas.ecm.internal.CasAuthenticationFilter;
+import org.everit.authentication.cas.ecm.internal.CasHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the service ticket validation through the filter against the in-process
+ * {@link StubCasServer}, with the different parser engines and with or without the service ticket
+ * cache. The same service ticket is validated repeatedly, so an enabled cache is always hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ServiceTicketValidationBenchmark {
+
+  private static final String REQUEST_URL = "http://localhost:8080/hello";
+
+  private static final String SERVICE_TICKET = "ST-1-benchmark-cas";
+
+  @Param({ BenchmarkFilters.PARSER_SAX, BenchmarkFilters.PARSER_STAX,
+      BenchmarkFilters.PARSER_JSON })
+  public String parser;
+
+  @Param({ "0", "1000" })
+  public int serviceTicketCacheMaxSize;
+
+  private CasAuthenticationFilter casAuthenticationFilter;
+
+  private CasHttpClient casHttpClient;
+
+  private FilterChain filterChain;
+
+  private HttpServletResponse httpServletResponse;
+
+  private StubCasServer stubCasServer;
+
+  /**
+   * Starts the stub CAS server and creates the filter.
+   */
+  @Setup
+  public void setup() throws IOException {
+    stubCasServer = new StubCasServer();
+    casHttpClient = new CasHttpClient(4, 0, 1000, 1000);
+    String casServiceTicketValidatorUrl = stubCasServer.getServiceValidateUrl();
+    if (BenchmarkFilters.PARSER_JSON.equals(parser)) {
+      casServiceTicketValidatorUrl += "?format=JSON";
+    }
+    casAuthenticationFilter = BenchmarkFilters.createFilter(casServiceTicketValidatorUrl,
+        BenchmarkFilters.createResponseParser(parser), casHttpClient, serviceTicketCacheMaxSize,
+        true);
+    httpServletResponse = ServletStubs.response();
+    filterChain = ServletStubs.filterChain();
+  }
+
+  /**
+   * Stops the stub CAS server.
+   */
+  @TearDown
+  public void tearDown() {
+    casHttpClient.close();
+    stubCasServer.stop();
+  }
+
+  /**
+   * Validates the service ticket in a new session.
+   */
+  @Benchmark
+  public void validateServiceTicket() throws IOException, ServletException {
+    HttpServletRequest httpServletRequest = ServletStubs.request(REQUEST_URL,
+        BenchmarkFilters.REQUEST_PARAM_NAME_SERVICE_TICKET + "=" + SERVICE_TICKET,
+        Collections.singletonMap(BenchmarkFilters.REQUEST_PARAM_NAME_SERVICE_TICKET,
+            SERVICE_TICKET),
+        null);
+    casAuthenticationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
+  }
+
+}
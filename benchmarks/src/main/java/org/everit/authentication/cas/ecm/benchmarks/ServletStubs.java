@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Proxy;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Minimal servlet API stand-ins for the benchmarks, based on dynamic proxies. Only the methods used
+ * by the CAS authentication filter are implemented, the others return the default value of their
+ * return type.
+ */
+public final class ServletStubs {
+
+  private static Object defaultValue(final Class<?> returnType) {
+    if (returnType == boolean.class) {
+      return Boolean.FALSE;
+    } else if (returnType == int.class) {
+      return 0;
+    } else if (returnType == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  /**
+   * Creates a filter chain that does nothing.
+   */
+  public static FilterChain filterChain() {
+    return (request, response) -> {
+      // the application is not part of the benchmark
+    };
+  }
+
+  /**
+   * Creates a GET request that decodes its query string on the first parameter access, as the
+   * containers do.
+   *
+   * @param requestUrl
+   *          The URL of the request without query string.
+   * @param queryString
+   *          The raw query string.
+   * @param httpSession
+   *          The session of the request.
+   */
+  public static HttpServletRequest parsingRequest(final String requestUrl,
+      final String queryString, final HttpSession httpSession) {
+    Map<String, String> parameters = new HashMap<>();
+    HttpServletRequest delegate = request(requestUrl, queryString, parameters, httpSession);
+    boolean[] parsed = new boolean[1];
+    return (HttpServletRequest) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+        new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+          if ("getParameter".equals(method.getName()) && !parsed[0]) {
+            parseQueryString(queryString, parameters);
+            parsed[0] = true;
+          }
+          return method.invoke(delegate, args);
+        });
+  }
+
+  private static void parseQueryString(final String queryString,
+      final Map<String, String> parameters) throws UnsupportedEncodingException {
+    for (String parameter : queryString.split("&")) {
+      int separator = parameter.indexOf('=');
+      String name = separator < 0 ? parameter : parameter.substring(0, separator);
+      String value = separator < 0 ? "" : parameter.substring(separator + 1);
+      parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8.name()),
+          URLDecoder.decode(value, StandardCharsets.UTF_8.name()));
+    }
+  }
+
+  /**
+   * Creates a GET request.
+   *
+   * @param requestUrl
+   *          The URL of the request without query string.
+   * @param queryString
+   *          The raw query string or <code>null</code>.
+   * @param parameters
+   *          The decoded request parameters.
+   * @param httpSession
+   *          The session of the request or <code>null</code> to create a new session on demand.
+   */
+  public static HttpServletRequest request(final String requestUrl, final String queryString,
+      final Map<String, String> parameters, final HttpSession httpSession) {
+    HttpSession[] session = new HttpSession[] { httpSession };
+    ServletContext servletContext = servletContext();
+    return (HttpServletRequest) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+        new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getParameter":
+              return parameters.get(args[0]);
+            case "getQueryString":
+              return queryString;
+            case "getMethod":
+              return "GET";
+            case "getRequestURL":
+              return new StringBuffer(requestUrl);
+            case "getServletContext":
+              return servletContext;
+            case "getSession":
+              if ((session[0] == null) && ((args == null) || Boolean.TRUE.equals(args[0]))) {
+                session[0] = session("benchmark-session");
+              }
+              return session[0];
+            default:
+              return defaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  /**
+   * Creates a response that ignores everything.
+   */
+  public static HttpServletResponse response() {
+    return (HttpServletResponse) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+        new Class<?>[] { HttpServletResponse.class },
+        (proxy, method, args) -> defaultValue(method.getReturnType()));
+  }
+
+  private static ServletContext servletContext() {
+    return (ServletContext) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+        new Class<?>[] { ServletContext.class },
+        (proxy, method, args) -> defaultValue(method.getReturnType()));
+  }
+
+  /**
+   * Creates a session that stores its attributes in a map.
+   */
+  public static HttpSession session(final String sessionId) {
+    Map<String, Object> attributes = new ConcurrentHashMap<>();
+    return (HttpSession) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+        new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getId":
+              return sessionId;
+            case "getAttribute":
+              return attributes.get(args[0]);
+            case "getAttributeNames":
+              return Collections.enumeration(attributes.keySet());
+            case "setAttribute":
+              attributes.put((String) args[0], args[1]);
+              return null;
+            case "removeAttribute":
+              attributes.remove(args[0]);
+              return null;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return defaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  private ServletStubs() {
+  }
+
+}
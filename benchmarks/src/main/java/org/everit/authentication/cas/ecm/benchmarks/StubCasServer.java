@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in of the CAS server that accepts every service ticket. It answers the service
+ * ticket validation requests in XML format, or in JSON format if the request contains the
+ * <code>format=JSON</code> parameter.
+ */
+public class StubCasServer {
+
+  public static final String PRINCIPAL = "johndoe";
+
+  public static final String JSON_RESPONSE = "{\"serviceResponse\":{\"authenticationSuccess\":{"
+      + "\"user\":\"" + PRINCIPAL + "\",\"attributes\":{\"firstname\":[\"John\"],"
+      + "\"lastname\":[\"Doe\"],\"email\":[\"johndoe@everit.biz\"]}}}}";
+
+  public static final String LOGOUT_REQUEST = "<samlp:LogoutRequest "
+      + "xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" "
+      + "xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"LR-1-benchmark\" "
+      + "Version=\"2.0\" IssueInstant=\"2015-01-01T00:00:00Z\">"
+      + "<saml:NameID>@NOT_USED@</saml:NameID>"
+      + "<samlp:SessionIndex>ST-1-benchmark-cas</samlp:SessionIndex>"
+      + "</samlp:LogoutRequest>";
+
+  private static final String SERVICE_VALIDATE_PATH = "/cas/serviceValidate";
+
+  private static final int STATUS_OK = 200;
+
+  public static final String XML_RESPONSE = "<cas:serviceResponse "
+      + "xmlns:cas=\"http://www.yale.edu/tp/cas\">\n"
+      + "  <cas:authenticationSuccess>\n"
+      + "    <cas:user>" + PRINCIPAL + "</cas:user>\n"
+      + "    <cas:attributes>\n"
+      + "      <cas:firstname>John</cas:firstname>\n"
+      + "      <cas:lastname>Doe</cas:lastname>\n"
+      + "      <cas:email>johndoe@everit.biz</cas:email>\n"
+      + "    </cas:attributes>\n"
+      + "  </cas:authenticationSuccess>\n"
+      + "</cas:serviceResponse>\n";
+
+  private final HttpServer httpServer;
+
+  /**
+   * Constructor. Starts the server on a random port of the loopback interface.
+   */
+  public StubCasServer() throws IOException {
+    // the headers and the body are written separately, Nagle's algorithm would delay the body
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    httpServer.createContext(SERVICE_VALIDATE_PATH, this::serviceValidate);
+    httpServer.start();
+  }
+
+  public String getServiceValidateUrl() {
+    return "http://localhost:" + httpServer.getAddress().getPort() + SERVICE_VALIDATE_PATH;
+  }
+
+  private void serviceValidate(final HttpExchange httpExchange) throws IOException {
+    String query = httpExchange.getRequestURI().getRawQuery();
+    boolean json = (query != null) && query.contains("format=JSON");
+    byte[] body = (json ? JSON_RESPONSE : XML_RESPONSE).getBytes(StandardCharsets.UTF_8);
+    httpExchange.getResponseHeaders().set("Content-Type",
+        json ? "application/json;charset=UTF-8" : "application/xml;charset=UTF-8");
+    httpExchange.sendResponseHeaders(STATUS_OK, body.length);
+    try (OutputStream out = httpExchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  public void stop() {
+    httpServer.stop(0);
+  }
+
+}
@@ -20,37 +20,285 @@ package org.everit.authentication.cas.ecm;
  */
 public final class CasAuthenticationConstants {
 
+  public static final String ATTR_ASYNC_VALIDATION_ENABLED = "async.validation.enabled";
+
+  public static final String ATTR_ASYNC_VALIDATION_QUEUE_SIZE = "async.validation.queue.size";
+
+  public static final String ATTR_ASYNC_VALIDATION_THREAD_COUNT = "async.validation.thread.count";
+
+  public static final String ATTR_ATTRIBUTE_POOL_MAX_SIZE = "attribute.pool.max.size";
+
   public static final String ATTR_AUTHENTICATION_SESSION_ATTRIBUTE_NAMES =
       "authenticationSessionAttributeNames.target";
 
+  public static final String ATTR_CAS_LOGIN_URL = "cas.login.url";
+
+  public static final String ATTR_CAS_LOGOUT_PROPAGATOR = "casLogoutPropagator.target";
+
+  public static final String ATTR_CAS_PROXY_URL = "cas.proxy.url";
+
   public static final String ATTR_CAS_SERVICE_TICKET_VALIDATION_URL =
       "cas.service.ticket.validation.url";
 
+  public static final String ATTR_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD =
+      "circuit.breaker.failure.rate.threshold";
+
+  public static final String ATTR_CIRCUIT_BREAKER_OPEN_DURATION = "circuit.breaker.open.duration";
+
+  public static final String ATTR_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD =
+      "circuit.breaker.slow.call.duration.threshold";
+
+  public static final String ATTR_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD =
+      "circuit.breaker.slow.call.rate.threshold";
+
+  public static final String ATTR_CIRCUIT_BREAKER_WINDOW_SIZE = "circuit.breaker.window.size";
+
+  public static final String ATTR_EXCLUDE_PATH_PATTERNS = "exclude.path.patterns";
+
   public static final String ATTR_FAILURE_URL = "failure.url";
 
+  public static final String ATTR_GATEWAY_ENABLED = "gateway.enabled";
+
+  public static final String ATTR_GATEWAY_WINDOW = "gateway.window";
+
+  public static final String ATTR_HTTP_CONNECT_TIMEOUT = "http.connect.timeout";
+
+  public static final String ATTR_HTTP_IDLE_CONNECTION_EVICTION_TIME =
+      "http.idle.connection.eviction.time";
+
+  public static final String ATTR_HTTP_MAX_CONNECTIONS_PER_ROUTE =
+      "http.max.connections.per.route";
+
+  public static final String ATTR_HTTP_READ_TIMEOUT = "http.read.timeout";
+
+  public static final String ATTR_INCLUDE_PATH_PATTERNS = "include.path.patterns";
+
+  public static final String ATTR_JMX_ENABLED = "jmx.enabled";
+
+  public static final String ATTR_LOGIN_URL_CACHE_MAX_SIZE = "login.url.cache.max.size";
+
+  public static final String ATTR_LOGOUT_INDEX_SNAPSHOT_DIRECTORY =
+      "logout.index.snapshot.directory";
+
+  public static final String ATTR_LOGOUT_INDEX_SNAPSHOT_INTERVAL =
+      "logout.index.snapshot.interval";
+
+  public static final String ATTR_LOGOUT_PROPAGATION_BATCH_SIZE =
+      "logout.propagation.batch.size";
+
+  public static final String ATTR_LOGOUT_PROPAGATION_DEDUPLICATION_SIZE =
+      "logout.propagation.deduplication.size";
+
+  public static final String ATTR_LOGOUT_PROPAGATION_FLUSH_INTERVAL =
+      "logout.propagation.flush.interval";
+
+  public static final String ATTR_LOGOUT_REQUEST_BATCH_SIZE = "logout.request.batch.size";
+
+  public static final String ATTR_LOGOUT_REQUEST_QUEUE_SIZE = "logout.request.queue.size";
+
+  public static final String ATTR_PARAMETER_FAST_PATH_ENABLED = "parameter.fast.path.enabled";
+
+  public static final String ATTR_PROTECTED_PATH_PATTERNS = "protected.path.patterns";
+
+  public static final String ATTR_PROXY_CALLBACK_URL = "proxy.callback.url";
+
+  public static final String ATTR_PROXY_TICKET_CACHE_MAX_SIZE = "proxy.ticket.cache.max.size";
+
+  public static final String ATTR_PROXY_TICKET_CACHE_TIME_TO_LIVE =
+      "proxy.ticket.cache.time.to.live";
+
   public static final String ATTR_REQ_PARAM_NAME_LOGOUT_REQUEST = "requestParamNameLogoutRequest";
 
   public static final String ATTR_REQ_PARAM_NAME_SERVICE_TICKET = "requestParamNameServiceTicket";
 
+  public static final String ATTR_RESOURCE_ID_CACHE_MAX_SIZE = "resource.id.cache.max.size";
+
+  public static final String ATTR_RESOURCE_ID_CACHE_NEGATIVE_TIME_TO_LIVE =
+      "resource.id.cache.negative.time.to.live";
+
+  public static final String ATTR_RESOURCE_ID_CACHE_TIME_TO_LIVE =
+      "resource.id.cache.time.to.live";
+
   public static final String ATTR_RESOURCE_ID_RESOLVER = "resourceIdResolver.target";
 
+  public static final String ATTR_RESPONSE_FORMAT = "response.format";
+
+  public static final String ATTR_RESPONSE_PARSER = "response.parser";
+
   public static final String ATTR_SAX_PARSER_FACTORY = "saxParserFactory.target";
 
+  public static final String ATTR_SAX_PARSER_POOL_SIZE = "sax.parser.pool.size";
+
+  public static final String ATTR_SERVICE_TICKET_CACHE_MAX_SIZE = "service.ticket.cache.max.size";
+
+  public static final String ATTR_SERVICE_TICKET_CACHE_TIME_TO_LIVE =
+      "service.ticket.cache.time.to.live";
+
+  public static final String ATTR_SESSION_INDEX_STORAGE = "session.index.storage";
+
+  public static final String ATTR_VALIDATION_ENDPOINT_EJECTION_DURATION =
+      "validation.endpoint.ejection.duration";
+
+  public static final String ATTR_VALIDATION_ENDPOINT_EJECTION_THRESHOLD =
+      "validation.endpoint.ejection.threshold";
+
+  public static final String ATTR_VALIDATION_MAX_CONCURRENT_CALLS =
+      "validation.max.concurrent.calls";
+
+  public static final boolean DEFAULT_ASYNC_VALIDATION_ENABLED = false;
+
+  public static final int DEFAULT_ASYNC_VALIDATION_QUEUE_SIZE = 100;
+
+  public static final int DEFAULT_ASYNC_VALIDATION_THREAD_COUNT = 10;
+
+  public static final int DEFAULT_ATTRIBUTE_POOL_MAX_SIZE = 10000;
+
+  public static final String DEFAULT_CAS_LOGIN_URL = "https://localhost:8443/cas/login";
+
+  public static final String DEFAULT_CAS_PROXY_URL = "https://localhost:8443/cas/proxy";
+
   public static final String DEFAULT_CAS_SERVICE_TICKET_VALIDATION_URL =
       "https://localhost:8443/cas/serviceValidate";
 
+  public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = 50;
+
+  public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = 30000;
+
+  public static final long DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD = 5000;
+
+  public static final int DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD = 100;
+
+  public static final int DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE = 0;
+
   public static final String DEFAULT_FAILURE_URL = "/failed.html";
 
+  public static final boolean DEFAULT_GATEWAY_ENABLED = false;
+
+  public static final long DEFAULT_GATEWAY_WINDOW = 300000;
+
+  public static final int DEFAULT_HTTP_CONNECT_TIMEOUT = 5000;
+
+  public static final long DEFAULT_HTTP_IDLE_CONNECTION_EVICTION_TIME = 30000;
+
+  public static final int DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+  public static final int DEFAULT_HTTP_READ_TIMEOUT = 10000;
+
+  public static final boolean DEFAULT_JMX_ENABLED = true;
+
+  public static final int DEFAULT_LOGIN_URL_CACHE_MAX_SIZE = 1000;
+
+  public static final String DEFAULT_LOGOUT_INDEX_SNAPSHOT_DIRECTORY = "";
+
+  public static final long DEFAULT_LOGOUT_INDEX_SNAPSHOT_INTERVAL = 60000;
+
+  public static final int DEFAULT_LOGOUT_PROPAGATION_BATCH_SIZE = 100;
+
+  public static final int DEFAULT_LOGOUT_PROPAGATION_DEDUPLICATION_SIZE = 10000;
+
+  public static final long DEFAULT_LOGOUT_PROPAGATION_FLUSH_INTERVAL = 100;
+
+  public static final int DEFAULT_LOGOUT_REQUEST_BATCH_SIZE = 100;
+
+  public static final int DEFAULT_LOGOUT_REQUEST_QUEUE_SIZE = 0;
+
+  public static final boolean DEFAULT_PARAMETER_FAST_PATH_ENABLED = true;
+
+  public static final String DEFAULT_PROXY_CALLBACK_URL = "";
+
+  public static final int DEFAULT_PROXY_TICKET_CACHE_MAX_SIZE = 1000;
+
+  public static final long DEFAULT_PROXY_TICKET_CACHE_TIME_TO_LIVE = 0;
+
   public static final String DEFAULT_REQ_PARAM_NAME_LOGOUT_REQUEST = "logoutRequest";
 
   public static final String DEFAULT_REQ_PARAM_NAME_SERVICE_TICKET = "ticket";
 
+  public static final int DEFAULT_RESOURCE_ID_CACHE_MAX_SIZE = 0;
+
+  public static final long DEFAULT_RESOURCE_ID_CACHE_NEGATIVE_TIME_TO_LIVE = 10000;
+
+  public static final long DEFAULT_RESOURCE_ID_CACHE_TIME_TO_LIVE = 300000;
+
+  public static final String DEFAULT_RESPONSE_FORMAT =
+      CasAuthenticationConstants.RESPONSE_FORMAT_XML;
+
+  public static final String DEFAULT_RESPONSE_PARSER =
+      CasAuthenticationConstants.RESPONSE_PARSER_SAX;
+
+  public static final int DEFAULT_SAX_PARSER_POOL_SIZE = 16;
+
   public static final String DEFAULT_SERVICE_DESCRIPTION_CAS_AUTHENTICATION =
       "Default CAS Authentication Component";
 
+  public static final int DEFAULT_SERVICE_TICKET_CACHE_MAX_SIZE = 0;
+
+  public static final long DEFAULT_SERVICE_TICKET_CACHE_TIME_TO_LIVE = 10000;
+
+  public static final String DEFAULT_SESSION_INDEX_STORAGE =
+      CasAuthenticationConstants.SESSION_INDEX_STORAGE_HEAP;
+
+  public static final long DEFAULT_VALIDATION_ENDPOINT_EJECTION_DURATION = 30000;
+
+  public static final int DEFAULT_VALIDATION_ENDPOINT_EJECTION_THRESHOLD = 3;
+
+  public static final int DEFAULT_VALIDATION_MAX_CONCURRENT_CALLS = 100;
+
+  /**
+   * Value of the {@link #ATTR_RESPONSE_FORMAT} attribute: the service ticket validation responses
+   * are requested in JSON format (CAS protocol 3, <code>format=JSON</code>).
+   */
+  public static final String RESPONSE_FORMAT_JSON = "JSON";
+
+  /**
+   * Value of the {@link #ATTR_RESPONSE_FORMAT} attribute: the service ticket validation responses
+   * are requested in XML format.
+   */
+  public static final String RESPONSE_FORMAT_XML = "XML";
+
+  /**
+   * Value of the {@link #ATTR_RESPONSE_PARSER} attribute: the XML documents are parsed by the
+   * injected {@link javax.xml.parsers.SAXParserFactory}.
+   */
+  public static final String RESPONSE_PARSER_SAX = "SAX";
+
+  /**
+   * Value of the {@link #ATTR_RESPONSE_PARSER} attribute: the XML documents are parsed by a pull
+   * based StAX reader that stops reading as soon as the needed element is found.
+   */
+  public static final String RESPONSE_PARSER_STAX = "STAX";
+
   public static final String SERVICE_FACTORYPID_CAS_AUTHENTICATION =
       "org.everit.authentication.cas.ecm.CasAuthentication";
 
+  /**
+   * Service property that holds the current state of the circuit breaker of the service ticket
+   * validation: <code>CLOSED</code>, <code>OPEN</code> or <code>HALF_OPEN</code>.
+   */
+  public static final String SERVICE_PROPERTY_CIRCUIT_BREAKER_STATE = "cas.circuit.breaker.state";
+
+  /**
+   * Service property of the registered {@link javax.servlet.Filter} that tells the HTTP Whiteboard
+   * implementation if the filter supports asynchronous requests.
+   */
+  public static final String SERVICE_PROPERTY_FILTER_ASYNC_SUPPORTED =
+      "osgi.http.whiteboard.filter.asyncSupported";
+
+  /**
+   * Value of the {@link #ATTR_SESSION_INDEX_STORAGE} attribute: the service ticket to session
+   * mapping used by the single logout is stored on the Java heap.
+   */
+  public static final String SESSION_INDEX_STORAGE_HEAP = "HEAP";
+
+  /**
+   * Value of the {@link #ATTR_SESSION_INDEX_STORAGE} attribute: the service ticket to session
+   * mapping used by the single logout is stored in fixed size records of direct buffers outside of
+   * the Java heap. No references to the sessions are kept, a logged out session is invalidated when
+   * it is used the next time. The sessions of a principal cannot be invalidated through JMX and the
+   * logout index snapshot contains only the passivated sessions.
+   */
+  public static final String SESSION_INDEX_STORAGE_OFF_HEAP = "OFF_HEAP";
+
   private CasAuthenticationConstants() {
   }
 
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+/**
+ * Metrics of a CAS authentication component, registered as an OSGi service next to the filter
+ * with the same service properties. The counters are cumulative since the activation of the
+ * component. The times are in microseconds and cover the calls to the CAS server.
+ */
+public interface CasAuthenticationMetrics {
+
+  /**
+   * The number of the received CAS logout requests.
+   */
+  long getLogoutRequestCount();
+
+  /**
+   * The number of the successfully validated service tickets whose principal could not be mapped
+   * to a Resource ID by the {@link org.everit.resource.resolver.ResourceIdResolver}.
+   */
+  long getUnmappedPrincipalCount();
+
+  /**
+   * The number of the service ticket validation calls to the CAS server.
+   */
+  long getValidationCount();
+
+  /**
+   * The number of the service tickets that could not be validated: the CAS server rejected them,
+   * the CAS server could not be called or the call was rejected by the circuit breaker or the
+   * bulkhead.
+   */
+  long getValidationFailureCount();
+
+  /**
+   * The number of the service ticket validation calls in progress.
+   */
+  long getValidationsInFlight();
+
+  /**
+   * The number of the service tickets that authenticated a session, including the ones served from
+   * the service ticket cache.
+   */
+  long getValidationSuccessCount();
+
+  /**
+   * The longest service ticket validation call in microseconds.
+   */
+  long getValidationTimeMax();
+
+  /**
+   * The mean duration of the service ticket validation calls in microseconds.
+   */
+  double getValidationTimeMean();
+
+  /**
+   * The duration of the service ticket validation calls at the given percentile in microseconds.
+   *
+   * @param percentile
+   *          The percentile between 0 and 100, for e.g. 99.9.
+   */
+  long getValidationTimePercentile(double percentile);
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.util.Collection;
+
+/**
+ * Listener of the CAS logouts received through a {@link CasLogoutPropagator}.
+ */
+@FunctionalInterface
+public interface CasLogoutListener {
+
+  /**
+   * Called when a batch of CAS logouts is received from a peer node.
+   *
+   * @param serviceTickets
+   *          The service tickets of the logged out sessions.
+   */
+  void logoutReceived(Collection<String> serviceTickets);
+
+}
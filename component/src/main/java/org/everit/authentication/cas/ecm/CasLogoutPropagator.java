@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.util.Collection;
+
+/**
+ * Channel that propagates the CAS logout requests between the nodes of a cluster. The CAS server
+ * sends the logout request of a service ticket to one node only, while the session of the service
+ * ticket may live on another node. The CAS Authentication components that reference a propagator
+ * publish the service tickets of the received logout requests and invalidate the sessions of the
+ * service tickets received from the peers.
+ * <p>
+ * The batching and the deduplication of the service tickets are done by the CAS Authentication
+ * component, the implementations are responsible only for the transport. The implementations must
+ * be thread-safe.
+ * </p>
+ */
+public interface CasLogoutPropagator {
+
+  /**
+   * Registers a listener that is notified about the logouts received from the peers.
+   */
+  void addCasLogoutListener(CasLogoutListener casLogoutListener);
+
+  /**
+   * Sends a batch of service tickets of the logged out sessions to the peers.
+   *
+   * @param serviceTickets
+   *          The service tickets to send.
+   */
+  void propagate(Collection<String> serviceTickets);
+
+  /**
+   * Removes a listener registered by {@link #addCasLogoutListener(CasLogoutListener)}.
+   */
+  void removeCasLogoutListener(CasLogoutListener casLogoutListener);
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+/**
+ * Constants of the CAS Logout Propagator component.
+ */
+public final class CasLogoutPropagatorConstants {
+
+  public static final String ATTR_MULTICAST_GROUP = "multicast.group";
+
+  public static final String ATTR_MULTICAST_PORT = "multicast.port";
+
+  public static final String ATTR_MULTICAST_TIME_TO_LIVE = "multicast.time.to.live";
+
+  public static final String ATTR_TRANSPORT = "transport";
+
+  public static final String DEFAULT_MULTICAST_GROUP = "239.255.27.1";
+
+  public static final int DEFAULT_MULTICAST_PORT = 45588;
+
+  public static final int DEFAULT_MULTICAST_TIME_TO_LIVE = 1;
+
+  public static final String DEFAULT_SERVICE_DESCRIPTION_CAS_LOGOUT_PROPAGATOR =
+      "Default CAS Logout Propagator Component";
+
+  public static final String DEFAULT_TRANSPORT = CasLogoutPropagatorConstants.TRANSPORT_MULTICAST;
+
+  public static final String SERVICE_FACTORYPID_CAS_LOGOUT_PROPAGATOR =
+      "org.everit.authentication.cas.ecm.CasLogoutPropagator";
+
+  /**
+   * Value of the {@link #ATTR_TRANSPORT} attribute: the logouts are delivered only to the CAS
+   * Authentication components of the same JVM. Useful for testing.
+   */
+  public static final String TRANSPORT_LOCAL = "LOCAL";
+
+  /**
+   * Value of the {@link #ATTR_TRANSPORT} attribute: the logouts are sent to the peers in UDP
+   * multicast datagrams.
+   */
+  public static final String TRANSPORT_MULTICAST = "MULTICAST";
+
+  private CasLogoutPropagatorConstants() {
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implemented by the CAS authentication filter to allow waiting for the processing of the CAS
+ * logout requests that are queued and processed asynchronously in batches.
+ */
+public interface CasLogoutRequestProcessor {
+
+  /**
+   * Waits until the CAS logout requests received before the call are processed.
+   *
+   * @param timeout
+   *          The maximum time to wait.
+   * @param unit
+   *          The time unit of the timeout.
+   * @return <code>true</code> if the logout requests are processed, <code>false</code> if the
+   *         timeout elapsed before.
+   * @throws InterruptedException
+   *           If the current thread is interrupted while waiting.
+   */
+  boolean awaitLogoutRequests(long timeout, TimeUnit unit) throws InterruptedException;
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * Requests proxy tickets from the CAS server with the proxy granting ticket of a CAS authenticated
+ * session, so the application can call other CAS protected services in the name of the user.
+ */
+public interface CasProxyTicketProvider {
+
+  /**
+   * Returns a proxy ticket for the target service.
+   *
+   * @param httpSession
+   *          The session authenticated by the CAS authentication component.
+   * @param targetService
+   *          The service URL of the target service.
+   * @return The proxy ticket or <code>null</code> if the session has no proxy granting ticket or
+   *         the CAS server refused to issue a proxy ticket.
+   * @throws IOException
+   *           If the CAS server cannot be called.
+   */
+  String getProxyTicket(HttpSession httpSession, String targetService) throws IOException;
+
+}
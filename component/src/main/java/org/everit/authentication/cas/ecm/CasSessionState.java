@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The CAS state of an authenticated session, stored in a single session attribute: the validated
+ * service ticket, the principal, the Resource ID, the attributes released by the CAS server and
+ * the proxy granting ticket.
+ * <p>
+ * The attributes are stored with as few objects as possible: the names are kept in a sorted array,
+ * a single value is stored as it is and multiple values are stored in an array. The state is
+ * written with a compact binary encoding that starts with a version byte, so the passivation of
+ * the sessions does not go through the reflective Java serialization of several objects.
+ * </p>
+ */
+public final class CasSessionState implements Externalizable {
+
+  private static final int NULL_LENGTH = -1;
+
+  private static final long serialVersionUID = 1L;
+
+  private static final byte VERSION = 1;
+
+  private static int readCount(final DataInput in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) {
+      throw new StreamCorruptedException("Invalid count [" + count + "]");
+    }
+    return count;
+  }
+
+  private static String readString(final DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    if (length < 0) {
+      throw new StreamCorruptedException("Invalid string length [" + length + "]");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(final DataOutput out, final String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private String[] attributeNames;
+
+  /**
+   * The values of the attribute names with the same index: a {@link String} or a
+   * <code>String[]</code>.
+   */
+  private Object[] attributeValues;
+
+  private String principal;
+
+  private String proxyGrantingTicket;
+
+  private long resourceId;
+
+  private String serviceTicket;
+
+  /**
+   * Constructor used by the deserialization.
+   */
+  public CasSessionState() {
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param serviceTicket
+   *          The validated service ticket.
+   * @param principal
+   *          The validated principal (username).
+   * @param resourceId
+   *          The Resource ID of the principal.
+   * @param attributes
+   *          The attributes released for the principal. The name and value instances are stored
+   *          as they are, so the caller can share them between the sessions.
+   * @param proxyGrantingTicket
+   *          The proxy granting ticket or <code>null</code>.
+   */
+  public CasSessionState(final String serviceTicket, final String principal,
+      final long resourceId, final Map<String, List<String>> attributes,
+      final String proxyGrantingTicket) {
+    this.serviceTicket = Objects.requireNonNull(serviceTicket, "serviceTicket cannot be null");
+    this.principal = Objects.requireNonNull(principal, "principal cannot be null");
+    this.resourceId = resourceId;
+    this.proxyGrantingTicket = proxyGrantingTicket;
+    Objects.requireNonNull(attributes, "attributes cannot be null");
+    attributeNames = attributes.keySet().toArray(new String[attributes.size()]);
+    Arrays.sort(attributeNames);
+    attributeValues = new Object[attributeNames.length];
+    for (int i = 0; i < attributeNames.length; i++) {
+      List<String> values = attributes.get(attributeNames[i]);
+      attributeValues[i] = values.size() == 1
+          ? values.get(0)
+          : values.toArray(new String[values.size()]);
+    }
+  }
+
+  /**
+   * Returns the values of an attribute released for the principal.
+   *
+   * @return The values or an empty list if the attribute was not released.
+   */
+  public List<String> getAttribute(final String name) {
+    int index = Arrays.binarySearch(attributeNames, name);
+    return index < 0 ? Collections.emptyList() : valuesAt(index);
+  }
+
+  /**
+   * Returns the attributes released for the principal ordered by their names.
+   */
+  public Map<String, List<String>> getAttributes() {
+    Map<String, List<String>> attributes = new LinkedHashMap<>(attributeNames.length * 2);
+    for (int i = 0; i < attributeNames.length; i++) {
+      attributes.put(attributeNames[i], valuesAt(i));
+    }
+    return Collections.unmodifiableMap(attributes);
+  }
+
+  public String getPrincipal() {
+    return principal;
+  }
+
+  /**
+   * Returns the proxy granting ticket or <code>null</code> if it was not requested or received.
+   */
+  public String getProxyGrantingTicket() {
+    return proxyGrantingTicket;
+  }
+
+  public long getResourceId() {
+    return resourceId;
+  }
+
+  public String getServiceTicket() {
+    return serviceTicket;
+  }
+
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException {
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new InvalidClassException(CasSessionState.class.getName(),
+          "Unsupported version [" + version + "]");
+    }
+    serviceTicket = readString(in);
+    principal = readString(in);
+    resourceId = in.readLong();
+    proxyGrantingTicket = readString(in);
+    int attributeCount = readCount(in);
+    attributeNames = new String[attributeCount];
+    attributeValues = new Object[attributeCount];
+    for (int i = 0; i < attributeCount; i++) {
+      attributeNames[i] = readString(in);
+      int valueCount = readCount(in);
+      if (valueCount == 1) {
+        attributeValues[i] = readString(in);
+      } else {
+        String[] values = new String[valueCount];
+        for (int j = 0; j < valueCount; j++) {
+          values[j] = readString(in);
+        }
+        attributeValues[i] = values;
+      }
+    }
+  }
+
+  private List<String> valuesAt(final int index) {
+    Object value = attributeValues[index];
+    if (value instanceof String) {
+      return Collections.singletonList((String) value);
+    }
+    return Collections.unmodifiableList(Arrays.asList((String[]) value));
+  }
+
+  /**
+   * Writes the state: the version, the tickets, the principal and the Resource ID, then the number
+   * of the attributes and the name, the number of the values and the values of each attribute.
+   */
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    out.writeByte(VERSION);
+    writeString(out, serviceTicket);
+    writeString(out, principal);
+    out.writeLong(resourceId);
+    writeString(out, proxyGrantingTicket);
+    out.writeInt(attributeNames.length);
+    for (int i = 0; i < attributeNames.length; i++) {
+      writeString(out, attributeNames[i]);
+      Object value = attributeValues[i];
+      if (value instanceof String) {
+        out.writeInt(1);
+        writeString(out, (String) value);
+      } else {
+        String[] values = (String[]) value;
+        out.writeInt(values.length);
+        for (String element : values) {
+          writeString(out, element);
+        }
+      }
+    }
+  }
+
+}
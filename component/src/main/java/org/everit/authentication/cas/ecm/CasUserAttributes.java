@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * Provides the attributes of the principal (for e.g. email address, groups) that the CAS server
+ * released in the response of the service ticket validation of a session.
+ */
+public interface CasUserAttributes {
+
+  /**
+   * Returns the values of an attribute of the principal of the session.
+   *
+   * @param httpSession
+   *          The session authenticated by the CAS authentication component.
+   * @param name
+   *          The name of the attribute.
+   * @return The values of the attribute or an empty list if the attribute was not released.
+   */
+  List<String> getAttribute(HttpSession httpSession, String name);
+
+  /**
+   * Returns all attributes of the principal of the session.
+   *
+   * @param httpSession
+   *          The session authenticated by the CAS authentication component.
+   * @return The attributes ordered by their names or an empty map if no attributes were released.
+   */
+  Map<String, List<String>> getAttributes(HttpSession httpSession);
+
+}
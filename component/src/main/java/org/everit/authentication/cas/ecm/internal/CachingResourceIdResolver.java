@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.everit.resource.resolver.ResourceIdResolver;
+
+/**
+ * {@link ResourceIdResolver} decorator that caches the resolved Resource IDs. The cache is split
+ * into lock stripes selected by the hash of the unique identifier, each stripe is a bounded LRU
+ * map.
+ * The unresolved unique identifiers ({@link Optional#empty()} results) are cached with their own
+ * time to live, so the unmapped principals do not hit the underlying resolver on every attempt.
+ */
+public class CachingResourceIdResolver implements ResourceIdResolver {
+
+  /**
+   * Cached result of the underlying resolver.
+   */
+  private static final class CachedResourceId {
+
+    private final long expiresAt;
+
+    private final Optional<Long> resourceId;
+
+    CachedResourceId(final Optional<Long> resourceId, final long expiresAt) {
+      this.resourceId = resourceId;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  /**
+   * Bounded LRU map of a lock stripe.
+   */
+  private static final class Stripe extends LinkedHashMap<String, CachedResourceId> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LongAdder evictionCount;
+
+    private final int maxSize;
+
+    Stripe(final int maxSize, final LongAdder evictionCount) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+      this.evictionCount = evictionCount;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, CachedResourceId> eldest) {
+      if (size() > maxSize) {
+        evictionCount.increment();
+        return true;
+      }
+      return false;
+    }
+
+  }
+
+  private static final int STRIPE_COUNT = 16;
+
+  private final ResourceIdResolver delegate;
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final long negativeTimeToLiveNanos;
+
+  private final Stripe[] stripes;
+
+  private final long timeToLiveNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate
+   *          The resolver to cache the results of.
+   * @param maxSize
+   *          The maximum number of cached unique identifiers.
+   * @param timeToLive
+   *          The time in milliseconds while a resolved Resource ID is cached.
+   * @param negativeTimeToLive
+   *          The time in milliseconds while an unresolved unique identifier is cached.
+   */
+  public CachingResourceIdResolver(final ResourceIdResolver delegate, final int maxSize,
+      final long timeToLive, final long negativeTimeToLive) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    negativeTimeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(negativeTimeToLive);
+
+    int stripeMaxSize = Math.max(1, (maxSize + STRIPE_COUNT - 1) / STRIPE_COUNT);
+    stripes = new Stripe[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new Stripe(stripeMaxSize, evictionCount);
+    }
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  @Override
+  public Optional<Long> getResourceId(final String uniqueIdentifier) {
+    Stripe stripe = stripe(uniqueIdentifier);
+    long now = System.nanoTime();
+    CachedResourceId cachedResourceId;
+    synchronized (stripe) {
+      cachedResourceId = stripe.get(uniqueIdentifier);
+      if ((cachedResourceId != null) && ((cachedResourceId.expiresAt - now) <= 0)) {
+        stripe.remove(uniqueIdentifier);
+        evictionCount.increment();
+        cachedResourceId = null;
+      }
+    }
+    if (cachedResourceId != null) {
+      hitCount.increment();
+      return cachedResourceId.resourceId;
+    }
+
+    missCount.increment();
+    Optional<Long> resourceId = delegate.getResourceId(uniqueIdentifier);
+    long expiresAt = now + (resourceId.isPresent() ? timeToLiveNanos : negativeTimeToLiveNanos);
+    synchronized (stripe) {
+      stripe.put(uniqueIdentifier, new CachedResourceId(resourceId, expiresAt));
+    }
+    return resourceId;
+  }
+
+  /**
+   * Returns the number of the cached unique identifiers.
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+  private Stripe stripe(final String uniqueIdentifier) {
+    int hash = uniqueIdentifier.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+  }
+
+}
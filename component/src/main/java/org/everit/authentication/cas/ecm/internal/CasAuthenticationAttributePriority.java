@@ -36,6 +36,98 @@ public final class CasAuthenticationAttributePriority {
 
   public static final int P8_SAX_PARSER_FACTORY = 8;
 
+  public static final int P9_HTTP_MAX_CONNECTIONS_PER_ROUTE = 9;
+
+  public static final int P10_HTTP_IDLE_CONNECTION_EVICTION_TIME = 10;
+
+  public static final int P11_HTTP_CONNECT_TIMEOUT = 11;
+
+  public static final int P12_HTTP_READ_TIMEOUT = 12;
+
+  public static final int P13_SERVICE_TICKET_CACHE_MAX_SIZE = 13;
+
+  public static final int P14_SERVICE_TICKET_CACHE_TIME_TO_LIVE = 14;
+
+  public static final int P15_RESOURCE_ID_CACHE_MAX_SIZE = 15;
+
+  public static final int P16_RESOURCE_ID_CACHE_TIME_TO_LIVE = 16;
+
+  public static final int P17_RESOURCE_ID_CACHE_NEGATIVE_TIME_TO_LIVE = 17;
+
+  public static final int P18_ASYNC_VALIDATION_ENABLED = 18;
+
+  public static final int P19_ASYNC_VALIDATION_THREAD_COUNT = 19;
+
+  public static final int P20_ASYNC_VALIDATION_QUEUE_SIZE = 20;
+
+  public static final int P21_VALIDATION_MAX_CONCURRENT_CALLS = 21;
+
+  public static final int P22_CIRCUIT_BREAKER_WINDOW_SIZE = 22;
+
+  public static final int P23_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = 23;
+
+  public static final int P24_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD = 24;
+
+  public static final int P25_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD = 25;
+
+  public static final int P26_CIRCUIT_BREAKER_OPEN_DURATION = 26;
+
+  public static final int P27_RESPONSE_PARSER = 27;
+
+  public static final int P28_SAX_PARSER_POOL_SIZE = 28;
+
+  public static final int P29_RESPONSE_FORMAT = 29;
+
+  public static final int P30_SESSION_INDEX_STORAGE = 30;
+
+  public static final int P31_CAS_LOGOUT_PROPAGATOR = 31;
+
+  public static final int P32_LOGOUT_PROPAGATION_BATCH_SIZE = 32;
+
+  public static final int P33_LOGOUT_PROPAGATION_FLUSH_INTERVAL = 33;
+
+  public static final int P34_LOGOUT_PROPAGATION_DEDUPLICATION_SIZE = 34;
+
+  public static final int P35_LOGOUT_REQUEST_QUEUE_SIZE = 35;
+
+  public static final int P36_LOGOUT_REQUEST_BATCH_SIZE = 36;
+
+  public static final int P37_PARAMETER_FAST_PATH_ENABLED = 37;
+
+  public static final int P38_INCLUDE_PATH_PATTERNS = 38;
+
+  public static final int P39_EXCLUDE_PATH_PATTERNS = 39;
+
+  public static final int P40_JMX_ENABLED = 40;
+
+  public static final int P41_VALIDATION_ENDPOINT_EJECTION_THRESHOLD = 41;
+
+  public static final int P42_VALIDATION_ENDPOINT_EJECTION_DURATION = 42;
+
+  public static final int P43_PROXY_CALLBACK_URL = 43;
+
+  public static final int P44_CAS_PROXY_URL = 44;
+
+  public static final int P45_PROXY_TICKET_CACHE_MAX_SIZE = 45;
+
+  public static final int P46_PROXY_TICKET_CACHE_TIME_TO_LIVE = 46;
+
+  public static final int P47_ATTRIBUTE_POOL_MAX_SIZE = 47;
+
+  public static final int P48_LOGOUT_INDEX_SNAPSHOT_DIRECTORY = 48;
+
+  public static final int P49_LOGOUT_INDEX_SNAPSHOT_INTERVAL = 49;
+
+  public static final int P50_CAS_LOGIN_URL = 50;
+
+  public static final int P51_GATEWAY_ENABLED = 51;
+
+  public static final int P52_GATEWAY_WINDOW = 52;
+
+  public static final int P53_PROTECTED_PATH_PATTERNS = 53;
+
+  public static final int P54_LOGIN_URL_CACHE_MAX_SIZE = 54;
+
   private CasAuthenticationAttributePriority() {
   }
 }
@@ -15,18 +15,30 @@
  */
 package org.everit.authentication.cas.ecm.internal;
 
-import java.util.Dictionary;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EventListener;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Filter;
+import javax.servlet.Servlet;
 import javax.servlet.ServletContextListener;
 import javax.servlet.http.HttpSessionAttributeListener;
 import javax.servlet.http.HttpSessionListener;
 import javax.xml.parsers.SAXParserFactory;
 
-import org.everit.authentication.cas.CasAuthentication;
 import org.everit.authentication.cas.ecm.CasAuthenticationConstants;
+import org.everit.authentication.cas.ecm.CasAuthenticationMetrics;
+import org.everit.authentication.cas.ecm.CasLogoutPropagator;
+import org.everit.authentication.cas.ecm.CasProxyTicketProvider;
+import org.everit.authentication.cas.ecm.CasUserAttributes;
 import org.everit.authentication.http.session.AuthenticationSessionAttributeNames;
 import org.everit.osgi.ecm.annotation.Activate;
 import org.everit.osgi.ecm.annotation.Component;
@@ -34,6 +46,10 @@ import org.everit.osgi.ecm.annotation.ConfigurationPolicy;
 import org.everit.osgi.ecm.annotation.Deactivate;
 import org.everit.osgi.ecm.annotation.ManualService;
 import org.everit.osgi.ecm.annotation.ServiceRef;
+import org.everit.osgi.ecm.annotation.Update;
+import org.everit.osgi.ecm.annotation.attribute.BooleanAttribute;
+import org.everit.osgi.ecm.annotation.attribute.IntegerAttribute;
+import org.everit.osgi.ecm.annotation.attribute.LongAttribute;
 import org.everit.osgi.ecm.annotation.attribute.StringAttribute;
 import org.everit.osgi.ecm.annotation.attribute.StringAttributes;
 import org.everit.osgi.ecm.component.ComponentContext;
@@ -47,19 +63,54 @@ import aQute.bnd.annotation.headers.ProvideCapability;
 /**
  * ECM component for {@link Filter}, {@link ServletContextListener}, {@link HttpSessionListener}
  * {@link HttpSessionAttributeListener} and {@link EventListener} interfaces based on
- * {@link CasAuthentication}. The following cases are handled by this component:
+ * {@link CasAuthenticationFilter}. The following cases are handled by this component:
  * <ul>
  * <li><b>CAS service ticket validation</b>: If the request contains a CAS service ticket, it will
  * be validated on the CAS server by invoking its service ticket validation URL. If the ticket is
  * valid and the returned principal (username) can be mapped to a Resource ID, then the Resource ID
- * will be assigned to the session.</li>
+ * will be assigned to the session. The validation requests are sent through a pooled HTTP client
+ * owned by the component, that keeps the connections to the CAS server alive between the
+ * validations.</li>
  * <li><b>CAS logout request processing</b>: If the request is a CAS logout request, then the
  * session assigned to the service ticket (received in the logout request) will be invalidated. The
  * CAS server sends the logout request asynchronously to the clients, therefore the session of the
  * logout request is not the same as the session of the user. The mapping of service tickets and
- * sessions are handled by the {@link org.everit.authentication.cas.CasHttpSessionRegistry}.</li>
+ * sessions are handled by the {@link CasAuthenticationFilter}. If a {@link CasLogoutPropagator}
+ * is referenced, the logout requests are propagated to the peer nodes of the cluster in batches,
+ * because the CAS server sends the logout request to one node only.</li>
  * </ul>
  * <p>
+ * The validation times and the outcomes of the validations and logout requests are published as a
+ * {@link CasAuthenticationMetrics} service and, together with the live state of the instance, in
+ * a {@link CasAuthenticationMXBean}.
+ * </p>
+ * <p>
+ * If a proxy callback URL is configured, the component registers a {@link Servlet} that receives
+ * the proxy granting tickets from the CAS server at that URL and a {@link CasProxyTicketProvider}
+ * service that requests proxy tickets with the proxy granting tickets of the sessions.
+ * </p>
+ * <p>
+ * The attributes of the principals released by the CAS server are available through the
+ * registered {@link CasUserAttributes} service.
+ * </p>
+ * <p>
+ * If protected path patterns are configured, the unauthenticated requests of those paths are
+ * redirected to the CAS login URL. In gateway mode the unauthenticated browsers are sent to the
+ * CAS login URL with <code>gateway=true</code> once per gateway window.
+ * </p>
+ * <p>
+ * If a logout index snapshot directory is configured, the service tickets of the tracked sessions
+ * are written to a {@link LogoutIndexSnapshot} periodically and the snapshot is read back when the
+ * component is activated, so the sessions restored by the session manager after a restart can
+ * still be logged out by the CAS server.
+ * </p>
+ * <p>
+ * The attributes that only affect the processing of the requests (the URLs, the request parameter
+ * names, the path patterns, the response format and parser and the SAXParserFactory reference) are
+ * dynamic: their changes are applied without unregistering the services and without losing the
+ * tracked sessions.
+ * </p>
+ * <p>
  * It is recommended to use this component in pair with
  * <a href="https://github.com/everit-org/authentication-http-session">authentication-http-session
  * </a>
@@ -84,54 +135,447 @@ import aQute.bnd.annotation.headers.ProvideCapability;
     ServletContextListener.class,
     HttpSessionListener.class,
     HttpSessionAttributeListener.class,
-    EventListener.class })
+    EventListener.class,
+    CasAuthenticationMetrics.class,
+    Servlet.class,
+    CasProxyTicketProvider.class,
+    CasUserAttributes.class })
 public class CasAuthenticationComponent {
 
+  private static final String LOGOUT_INDEX_SNAPSHOT_FILE_NAME = "logout-index.snapshot";
+
+  /**
+   * The time in milliseconds while a proxy granting ticket received by the callback URL waits for
+   * the response of the service ticket validation.
+   */
+  private static final long PROXY_GRANTING_TICKET_TIME_TO_LIVE = 60000;
+
+  /**
+   * The time in milliseconds the deactivation waits for the running service ticket validations
+   * before the HTTP client is closed.
+   */
+  private static final long VALIDATION_EXECUTOR_TERMINATION_TIMEOUT = 10000;
+
+  private boolean asyncValidationEnabled;
+
+  private int asyncValidationQueueSize;
+
+  private int asyncValidationThreadCount;
+
+  private int attributePoolMaxSize;
+
   private AuthenticationSessionAttributeNames authenticationSessionAttributeNames;
 
+  private CasAuthenticationFilter casAuthenticationFilter;
+
+  private CasHttpClient casHttpClient;
+
+  private String casLoginUrl;
+
+  private CasLogoutPropagator casLogoutPropagator;
+
+  private String casProxyUrl;
+
   /**
-   * The service ticket validation URL of the CAS server.
+   * The service ticket validation URLs of the CAS servers.
    */
-  private String casServiceTicketValidatorUrl;
+  private String[] casServiceTicketValidatorUrls;
+
+  private int circuitBreakerFailureRateThreshold;
+
+  private long circuitBreakerOpenDuration;
+
+  private long circuitBreakerSlowCallDurationThreshold;
+
+  private int circuitBreakerSlowCallRateThreshold;
+
+  private int circuitBreakerWindowSize;
+
+  private ComponentContext<CasAuthenticationComponent> componentContext;
+
+  private String[] excludePathPatterns;
   /**
    * The URL where the user will be redirected in case of failures.
    */
   private String failureUrl;
 
+  private boolean gatewayEnabled;
+
+  private long gatewayWindow;
+
+  private int httpConnectTimeout;
+
+  private long httpIdleConnectionEvictionTime;
+
+  private int httpMaxConnectionsPerRoute;
+
+  private int httpReadTimeout;
+
+  private String[] includePathPatterns;
+
+  private boolean jmxEnabled;
+
+  private int loginUrlCacheMaxSize;
+
+  private String logoutIndexSnapshotDirectory;
+
+  private long logoutIndexSnapshotInterval;
+
+  private LogoutIndexSnapshotWriter logoutIndexSnapshotWriter;
+
+  private LogoutPropagation logoutPropagation;
+
+  private int logoutPropagationBatchSize;
+
+  private int logoutPropagationDeduplicationSize;
+
+  private long logoutPropagationFlushInterval;
+
+  private int logoutRequestBatchSize;
+
+  private LogoutRequestQueue logoutRequestQueue;
+
+  private int logoutRequestQueueSize;
+
+  private CasAuthenticationManagement management;
+
+  private ServiceRegistration<CasAuthenticationMetrics> metricsServiceRegistration;
+
+  private boolean parameterFastPathEnabled;
+
+  private String[] protectedPathPatterns;
+
+  private ServiceRegistration<Servlet> proxyCallbackServletRegistration;
+
+  private String proxyCallbackUrl;
+
+  private int proxyTicketCacheMaxSize;
+
+  private long proxyTicketCacheTimeToLive;
+
+  private ServiceRegistration<CasProxyTicketProvider> proxyTicketProviderRegistration;
+
   private String requestParamNameLogoutRequest;
 
   private String requestParamNameServiceTicket;
 
+  private int resourceIdCacheMaxSize;
+
+  private long resourceIdCacheNegativeTimeToLive;
+
+  private long resourceIdCacheTimeToLive;
+
   private ResourceIdResolver resourceIdResolver;
 
+  private String responseFormat;
+
+  private String responseParser;
+
+  /**
+   * The response format, the response parser and the SAX parser pool size the current response
+   * parser was created with.
+   */
+  private List<Object> responseParserSettings;
+
   private SAXParserFactory saxParserFactory;
 
+  private SaxParserPool saxParserPool;
+
+  private int saxParserPoolSize;
+
+  private Hashtable<String, Object> serviceProperties;
+
   private ServiceRegistration<?> serviceRegistration;
 
+  private int serviceTicketCacheMaxSize;
+
+  private long serviceTicketCacheTimeToLive;
+
+  private String sessionIndexStorage;
+
+  private ServiceRegistration<CasUserAttributes> userAttributesServiceRegistration;
+
+  private long validationEndpointEjectionDuration;
+
+  private int validationEndpointEjectionThreshold;
+
+  private ExecutorService validationExecutor;
+
+  private int validationMaxConcurrentCalls;
+
   /**
    * Activate method of component.
    */
   @Activate
   public void activate(final ComponentContext<CasAuthenticationComponent> componentContext) {
-    Dictionary<String, Object> serviceProperties =
-        new Hashtable<>(componentContext.getProperties());
+    this.componentContext = componentContext;
+    serviceProperties = new Hashtable<>(componentContext.getProperties());
+
+    Path logoutIndexSnapshotFile = null;
+    LogoutIndexSnapshot logoutIndexSnapshot = null;
+    IOException logoutIndexSnapshotReadFailure = null;
+    if (!logoutIndexSnapshotDirectory.trim().isEmpty()) {
+      logoutIndexSnapshotFile =
+          Paths.get(logoutIndexSnapshotDirectory.trim(), LOGOUT_INDEX_SNAPSHOT_FILE_NAME);
+      try {
+        logoutIndexSnapshot = LogoutIndexSnapshot.read(logoutIndexSnapshotFile);
+      } catch (IOException e) {
+        // a damaged snapshot must not prevent the authentication, the file is replaced by the
+        // next snapshot
+        logoutIndexSnapshotReadFailure = e;
+        logoutIndexSnapshot =
+            new LogoutIndexSnapshot(Collections.emptyMap(), Collections.emptySet());
+      }
+    }
+
+    // the configuration is validated before any thread or connection is created
+    CasAuthenticationFilterConfiguration filterConfiguration = createFilterConfiguration(null);
+    ServiceTicketSessionRegistry serviceTicketSessionRegistry =
+        createServiceTicketSessionRegistry();
+
+    try {
+      casHttpClient = new CasHttpClient(
+          httpMaxConnectionsPerRoute,
+          httpIdleConnectionEvictionTime,
+          httpConnectTimeout,
+          httpReadTimeout);
+      casHttpClient.setRouteCount(filterConfiguration.getValidationEndpoints().size());
+
+      if (asyncValidationEnabled) {
+        validationExecutor = ValidationExecutors.newValidationExecutor(
+            asyncValidationThreadCount, asyncValidationQueueSize);
+        serviceProperties.put(CasAuthenticationConstants.SERVICE_PROPERTY_FILTER_ASYNC_SUPPORTED,
+            Boolean.TRUE);
+      }
+
+      ResourceIdResolver cachingResourceIdResolver = resourceIdResolver;
+      if (resourceIdCacheMaxSize > 0) {
+        cachingResourceIdResolver = new CachingResourceIdResolver(
+            resourceIdResolver,
+            resourceIdCacheMaxSize,
+            resourceIdCacheTimeToLive,
+            resourceIdCacheNegativeTimeToLive);
+      }
+
+      CircuitBreaker circuitBreaker = new CircuitBreaker(
+          circuitBreakerWindowSize,
+          circuitBreakerFailureRateThreshold,
+          circuitBreakerSlowCallDurationThreshold,
+          circuitBreakerSlowCallRateThreshold,
+          circuitBreakerOpenDuration,
+          this::updateCircuitBreakerState);
+      serviceProperties.put(CasAuthenticationConstants.SERVICE_PROPERTY_CIRCUIT_BREAKER_STATE,
+          circuitBreaker.getState().name());
+
+      Semaphore validationBulkhead = null;
+      if (validationMaxConcurrentCalls > 0) {
+        validationBulkhead = new Semaphore(validationMaxConcurrentCalls);
+      }
+
+      if (casLogoutPropagator != null) {
+        logoutPropagation = new LogoutPropagation(casLogoutPropagator, logoutPropagationBatchSize,
+            logoutPropagationFlushInterval, logoutPropagationDeduplicationSize);
+      }
+
+      if (logoutRequestQueueSize > 0) {
+        logoutRequestQueue = new LogoutRequestQueue(logoutRequestQueueSize, logoutRequestBatchSize);
+      }
+
+      CasAuthenticationMetricsCollector metrics = new CasAuthenticationMetricsCollector();
+
+      ProxyGrantingTicketStore proxyGrantingTicketStore = null;
+      if (!proxyCallbackUrl.trim().isEmpty()) {
+        proxyGrantingTicketStore = new ProxyGrantingTicketStore(proxyCallbackUrl.trim(),
+            PROXY_GRANTING_TICKET_TIME_TO_LIVE);
+      }
+
+      casAuthenticationFilter = new CasAuthenticationFilter(
+          filterConfiguration,
+          cachingResourceIdResolver,
+          authenticationSessionAttributeNames,
+          casHttpClient,
+          new ServiceTicketCache(serviceTicketCacheMaxSize, serviceTicketCacheTimeToLive),
+          serviceTicketSessionRegistry,
+          logoutPropagation,
+          logoutRequestQueue,
+          validationExecutor,
+          validationBulkhead,
+          circuitBreaker,
+          metrics,
+          proxyGrantingTicketStore,
+          new StringPool(attributePoolMaxSize));
+
+      if (logoutIndexSnapshotReadFailure != null) {
+        casAuthenticationFilter.log("Ignored the unreadable CAS logout index snapshot ["
+            + logoutIndexSnapshotFile + "], the logout index starts empty",
+            logoutIndexSnapshotReadFailure);
+      }
+      if (logoutIndexSnapshot != null) {
+        casAuthenticationFilter.getServiceTicketSessionRegistry().restore(logoutIndexSnapshot);
+        logoutIndexSnapshotWriter = new LogoutIndexSnapshotWriter(logoutIndexSnapshotFile,
+            logoutIndexSnapshotInterval, casAuthenticationFilter::createLogoutIndexSnapshot,
+            casAuthenticationFilter::log);
+      }
 
-    CasAuthentication casAuthentication = new CasAuthentication(
-        casServiceTicketValidatorUrl,
+      if (jmxEnabled) {
+        management = new CasAuthenticationManagement(componentContext.getProperties(),
+            casAuthenticationFilter, cachingResourceIdResolver, circuitBreaker, metrics);
+        management.register(CasAuthenticationManagement.getName(componentContext.getProperties(),
+            casAuthenticationFilter));
+      }
+
+      synchronized (this) {
+        serviceRegistration = componentContext.registerService(
+            new String[] {
+                Filter.class.getName(),
+                HttpSessionListener.class.getName(),
+                HttpSessionAttributeListener.class.getName(),
+                EventListener.class.getName() },
+            casAuthenticationFilter,
+            serviceProperties);
+      }
+      metricsServiceRegistration = componentContext.registerService(CasAuthenticationMetrics.class,
+          metrics, new Hashtable<>(componentContext.getProperties()));
+      userAttributesServiceRegistration = componentContext.registerService(
+          CasUserAttributes.class, new SessionCasUserAttributes(),
+          new Hashtable<>(componentContext.getProperties()));
+      if (proxyGrantingTicketStore != null) {
+        registerProxyServices(proxyGrantingTicketStore);
+      }
+      if (logoutPropagation != null) {
+        logoutPropagation.open(casAuthenticationFilter::invalidateSession);
+      }
+      if (logoutRequestQueue != null) {
+        logoutRequestQueue.start(casAuthenticationFilter::processLogoutRequests);
+      }
+    } catch (RuntimeException | Error e) {
+      deactivate();
+      throw e;
+    }
+  }
+
+  /**
+   * Registers the proxy callback servlet and the proxy ticket provider.
+   */
+  private void registerProxyServices(final ProxyGrantingTicketStore proxyGrantingTicketStore) {
+    proxyCallbackServletRegistration = componentContext.registerService(Servlet.class,
+        new ProxyGrantingTicketCallbackServlet(proxyGrantingTicketStore),
+        new Hashtable<>(componentContext.getProperties()));
+    CasAuthenticationFilter filter = casAuthenticationFilter;
+    proxyTicketProviderRegistration = componentContext.registerService(
+        CasProxyTicketProvider.class,
+        new DefaultCasProxyTicketProvider(casProxyUrl, casHttpClient,
+            () -> filter.getConfiguration().getResponseParser(),
+            new ProxyTicketCache(proxyTicketCacheMaxSize, proxyTicketCacheTimeToLive)),
+        new Hashtable<>(componentContext.getProperties()));
+  }
+
+  /**
+   * Copies a service property computed by the component to the new service properties.
+   */
+  private void copyServiceProperty(final String key,
+      final Hashtable<String, Object> newServiceProperties) {
+    Object value = serviceProperties.get(key);
+    if (value != null) {
+      newServiceProperties.put(key, value);
+    }
+  }
+
+  /**
+   * Creates the configuration of the filter. The validation endpoints and the response parser of
+   * the previous configuration are kept if their settings did not change, so the endpoint
+   * statistics and the pooled parsers survive the update.
+   */
+  private CasAuthenticationFilterConfiguration createFilterConfiguration(
+      final CasAuthenticationFilterConfiguration previousConfiguration) {
+    return new CasAuthenticationFilterConfiguration(
+        createValidationEndpoints(previousConfiguration),
         requestParamNameServiceTicket,
         requestParamNameLogoutRequest,
+        parameterFastPathEnabled,
+        PathMatcher.compile(includePathPatterns),
+        PathMatcher.compile(excludePathPatterns),
         failureUrl,
-        resourceIdResolver,
-        authenticationSessionAttributeNames,
-        saxParserFactory);
+        createResponseParser(previousConfiguration),
+        new LoginUrlCache(casLoginUrl, loginUrlCacheMaxSize),
+        PathMatcher.compile(protectedPathPatterns),
+        gatewayEnabled,
+        gatewayWindow);
+  }
 
-    serviceRegistration = componentContext.registerService(
-        new String[] {
-            Filter.class.getName(),
-            HttpSessionListener.class.getName(),
-            EventListener.class.getName() },
-        casAuthentication,
-        serviceProperties);
+  private CasResponseParser createResponseParser(
+      final CasAuthenticationFilterConfiguration previousConfiguration) {
+    List<Object> settings = Arrays.asList(responseFormat, responseParser, saxParserPoolSize);
+    if ((previousConfiguration != null) && settings.equals(responseParserSettings)) {
+      return previousConfiguration.getResponseParser();
+    }
+    CasResponseParser casResponseParser = createResponseParser();
+    responseParserSettings = settings;
+    return casResponseParser;
+  }
+
+  private CasResponseParser createResponseParser() {
+    CasResponseParser xmlResponseParser = createXmlResponseParser();
+    if (CasAuthenticationConstants.RESPONSE_FORMAT_XML.equals(responseFormat)) {
+      return xmlResponseParser;
+    } else if (CasAuthenticationConstants.RESPONSE_FORMAT_JSON.equals(responseFormat)) {
+      return new JsonCasResponseParser(xmlResponseParser);
+    }
+    throw new IllegalArgumentException("Unknown response format [" + responseFormat + "], "
+        + "supported values are " + CasAuthenticationConstants.RESPONSE_FORMAT_XML + " and "
+        + CasAuthenticationConstants.RESPONSE_FORMAT_JSON);
+  }
+
+  /**
+   * Creates the registry of the sessions. In off-heap mode the sessions are not tracked, so the
+   * registry does not keep an on-heap entry per session.
+   */
+  private ServiceTicketSessionRegistry createServiceTicketSessionRegistry() {
+    if (CasAuthenticationConstants.SESSION_INDEX_STORAGE_HEAP.equals(sessionIndexStorage)) {
+      return new ServiceTicketSessionRegistry(new HeapServiceTicketIndex(), true);
+    } else if (CasAuthenticationConstants.SESSION_INDEX_STORAGE_OFF_HEAP
+        .equals(sessionIndexStorage)) {
+      return new ServiceTicketSessionRegistry(new OffHeapServiceTicketIndex(), false);
+    }
+    throw new IllegalArgumentException("Unknown session index storage [" + sessionIndexStorage
+        + "], supported values are " + CasAuthenticationConstants.SESSION_INDEX_STORAGE_HEAP
+        + " and " + CasAuthenticationConstants.SESSION_INDEX_STORAGE_OFF_HEAP);
+  }
+
+  /**
+   * Appends the <code>format=JSON</code> parameter to the configured validator URLs if the JSON
+   * response format is selected.
+   */
+  private ValidationEndpoints createValidationEndpoints(
+      final CasAuthenticationFilterConfiguration previousConfiguration) {
+    String[] urls = new String[casServiceTicketValidatorUrls.length];
+    for (int i = 0; i < urls.length; i++) {
+      String url = casServiceTicketValidatorUrls[i].trim();
+      if (CasAuthenticationConstants.RESPONSE_FORMAT_JSON.equals(responseFormat)) {
+        url = url + (url.indexOf('?') < 0 ? "?" : "&") + "format=JSON";
+      }
+      urls[i] = url;
+    }
+    if ((previousConfiguration != null)
+        && previousConfiguration.getValidationEndpoints().hasSettings(urls,
+            validationEndpointEjectionThreshold, validationEndpointEjectionDuration)) {
+      return previousConfiguration.getValidationEndpoints();
+    }
+    return new ValidationEndpoints(urls, validationEndpointEjectionThreshold,
+        validationEndpointEjectionDuration);
+  }
+
+  private CasResponseParser createXmlResponseParser() {
+    if (CasAuthenticationConstants.RESPONSE_PARSER_SAX.equals(responseParser)) {
+      saxParserPool = new SaxParserPool(saxParserFactory, saxParserPoolSize);
+      return new SaxCasResponseParser(saxParserPool);
+    } else if (CasAuthenticationConstants.RESPONSE_PARSER_STAX.equals(responseParser)) {
+      saxParserPool = null;
+      return new StaxCasResponseParser();
+    }
+    throw new IllegalArgumentException("Unknown response parser [" + responseParser + "], "
+        + "supported values are " + CasAuthenticationConstants.RESPONSE_PARSER_SAX + " and "
+        + CasAuthenticationConstants.RESPONSE_PARSER_STAX);
   }
 
   /**
@@ -139,9 +583,95 @@ public class CasAuthenticationComponent {
    */
   @Deactivate
   public void deactivate() {
-    if (serviceRegistration != null) {
-      serviceRegistration.unregister();
+    if (logoutIndexSnapshotWriter != null) {
+      logoutIndexSnapshotWriter.close();
+      logoutIndexSnapshotWriter = null;
+    }
+    synchronized (this) {
+      if (serviceRegistration != null) {
+        serviceRegistration.unregister();
+        serviceRegistration = null;
+      }
+    }
+    if (metricsServiceRegistration != null) {
+      metricsServiceRegistration.unregister();
+      metricsServiceRegistration = null;
+    }
+    if (userAttributesServiceRegistration != null) {
+      userAttributesServiceRegistration.unregister();
+      userAttributesServiceRegistration = null;
+    }
+    if (proxyCallbackServletRegistration != null) {
+      proxyCallbackServletRegistration.unregister();
+      proxyCallbackServletRegistration = null;
+    }
+    if (proxyTicketProviderRegistration != null) {
+      proxyTicketProviderRegistration.unregister();
+      proxyTicketProviderRegistration = null;
     }
+    if (management != null) {
+      management.unregister();
+      management = null;
+    }
+    if (logoutRequestQueue != null) {
+      logoutRequestQueue.close();
+      logoutRequestQueue = null;
+    }
+    if (logoutPropagation != null) {
+      logoutPropagation.close();
+      logoutPropagation = null;
+    }
+    if (validationExecutor != null) {
+      shutdownValidationExecutor();
+      validationExecutor = null;
+    }
+    saxParserPool = null;
+    casAuthenticationFilter = null;
+    componentContext = null;
+    if (casHttpClient != null) {
+      casHttpClient.close();
+      casHttpClient = null;
+    }
+  }
+
+  @BooleanAttribute(attributeId = CasAuthenticationConstants.ATTR_ASYNC_VALIDATION_ENABLED,
+      defaultValue = CasAuthenticationConstants.DEFAULT_ASYNC_VALIDATION_ENABLED,
+      priority = CasAuthenticationAttributePriority.P18_ASYNC_VALIDATION_ENABLED,
+      label = "Asynchronous validation",
+      description = "If true, the service tickets are validated on a dedicated thread pool and the "
+          + "container thread is released while waiting for the CAS server. The filter must be "
+          + "registered with async support for this to take effect.")
+  public void setAsyncValidationEnabled(final boolean asyncValidationEnabled) {
+    this.asyncValidationEnabled = asyncValidationEnabled;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_ASYNC_VALIDATION_QUEUE_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_ASYNC_VALIDATION_QUEUE_SIZE,
+      priority = CasAuthenticationAttributePriority.P20_ASYNC_VALIDATION_QUEUE_SIZE,
+      label = "Asynchronous validation queue size",
+      description = "The maximum number of asynchronous validations waiting for a free thread. "
+          + "If the queue is full, the validation is performed on the container thread.")
+  public void setAsyncValidationQueueSize(final int asyncValidationQueueSize) {
+    this.asyncValidationQueueSize = asyncValidationQueueSize;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_ASYNC_VALIDATION_THREAD_COUNT,
+      defaultValue = CasAuthenticationConstants.DEFAULT_ASYNC_VALIDATION_THREAD_COUNT,
+      priority = CasAuthenticationAttributePriority.P19_ASYNC_VALIDATION_THREAD_COUNT,
+      label = "Asynchronous validation thread count",
+      description = "The maximum number of threads validating service tickets asynchronously.")
+  public void setAsyncValidationThreadCount(final int asyncValidationThreadCount) {
+    this.asyncValidationThreadCount = asyncValidationThreadCount;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_ATTRIBUTE_POOL_MAX_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_ATTRIBUTE_POOL_MAX_SIZE,
+      priority = CasAuthenticationAttributePriority.P47_ATTRIBUTE_POOL_MAX_SIZE,
+      label = "Attribute pool max size",
+      description = "The maximum number of distinct attribute names and values released by the CAS "
+          + "server that are shared between the sessions. Zero disables the sharing.")
+  public void setAttributePoolMaxSize(final int attributePoolMaxSize) {
+    this.attributePoolMaxSize = attributePoolMaxSize;
   }
 
   @ServiceRef(attributeId = CasAuthenticationConstants.ATTR_AUTHENTICATION_SESSION_ATTRIBUTE_NAMES,
@@ -154,30 +684,365 @@ public class CasAuthenticationComponent {
     this.authenticationSessionAttributeNames = authenticationSessionAttributeNames;
   }
 
+  @ServiceRef(attributeId = CasAuthenticationConstants.ATTR_CAS_LOGOUT_PROPAGATOR,
+      optional = true,
+      attributePriority = CasAuthenticationAttributePriority.P31_CAS_LOGOUT_PROPAGATOR,
+      label = "CasLogoutPropagator OSGi filter",
+      description = "OSGi Service filter expression for CasLogoutPropagator instance. If set, the "
+          + "CAS logout requests are propagated to the peer nodes of the cluster.")
+  public void setCasLogoutPropagator(final CasLogoutPropagator casLogoutPropagator) {
+    this.casLogoutPropagator = casLogoutPropagator;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_CAS_LOGIN_URL,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CAS_LOGIN_URL,
+      priority = CasAuthenticationAttributePriority.P50_CAS_LOGIN_URL,
+      label = "CAS login URL",
+      description = "The login URL of the CAS server where the unauthenticated users of the "
+          + "protected paths and the browsers in gateway mode are redirected.",
+      dynamic = true)
+  public void setCasLoginUrl(final String casLoginUrl) {
+    this.casLoginUrl = casLoginUrl;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_CAS_PROXY_URL,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CAS_PROXY_URL,
+      priority = CasAuthenticationAttributePriority.P44_CAS_PROXY_URL,
+      label = "CAS proxy URL",
+      description = "The URL of the CAS server where the proxy tickets are requested with the "
+          + "proxy granting tickets.")
+  public void setCasProxyUrl(final String casProxyUrl) {
+    this.casProxyUrl = casProxyUrl;
+  }
+
   @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_CAS_SERVICE_TICKET_VALIDATION_URL,
       defaultValue = CasAuthenticationConstants.DEFAULT_CAS_SERVICE_TICKET_VALIDATION_URL,
       priority = CasAuthenticationAttributePriority.P2_CAS_SERVICE_TICKET_VALIDATION_URL,
-      label = "CAS service ticket validation URL",
-      description = "The URL provided by the CAS server for service ticket validation. "
-          + "HTTPS protocol (and java keystore configuration) is recommended for security reasons.")
-  public void setCasServiceTicketValidatorUrl(final String casServiceTicketValidatorUrl) {
-    this.casServiceTicketValidatorUrl = casServiceTicketValidatorUrl;
+      label = "CAS service ticket validation URLs",
+      description = "The URLs provided by the CAS servers for service ticket validation. "
+          + "HTTPS protocol (and java keystore configuration) is recommended for security reasons. "
+          + "If more URLs are specified, each validation is sent to the one with the lowest "
+          + "expected latency and repeated on the next one if the connection fails.",
+      dynamic = true)
+  public void setCasServiceTicketValidatorUrls(final String[] casServiceTicketValidatorUrls) {
+    this.casServiceTicketValidatorUrls = casServiceTicketValidatorUrls;
+  }
+
+  @IntegerAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD,
+      priority = CasAuthenticationAttributePriority.P23_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD,
+      label = "Circuit breaker failure rate threshold",
+      description = "The percentage of failed service ticket validations (connection errors, "
+          + "timeouts, unexpected responses) in the window that opens the circuit.")
+  public void setCircuitBreakerFailureRateThreshold(
+      final int circuitBreakerFailureRateThreshold) {
+    this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_CIRCUIT_BREAKER_OPEN_DURATION,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION,
+      priority = CasAuthenticationAttributePriority.P26_CIRCUIT_BREAKER_OPEN_DURATION,
+      label = "Circuit breaker open duration",
+      description = "The time in milliseconds while the validations fail fast after the circuit "
+          + "opened. After that a trial validation is sent to the CAS server.")
+  public void setCircuitBreakerOpenDuration(final long circuitBreakerOpenDuration) {
+    this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+  }
+
+  @LongAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD, // CS_DISABLE_LINE_LENGTH
+      priority = CasAuthenticationAttributePriority.P24_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD, // CS_DISABLE_LINE_LENGTH
+      label = "Circuit breaker slow call duration threshold",
+      description = "The duration in milliseconds above a service ticket validation is "
+          + "considered slow.")
+  public void setCircuitBreakerSlowCallDurationThreshold(
+      final long circuitBreakerSlowCallDurationThreshold) {
+    this.circuitBreakerSlowCallDurationThreshold = circuitBreakerSlowCallDurationThreshold;
+  }
+
+  @IntegerAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD,
+      priority = CasAuthenticationAttributePriority.P25_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD,
+      label = "Circuit breaker slow call rate threshold",
+      description = "The percentage of slow service ticket validations in the window that opens "
+          + "the circuit.")
+  public void setCircuitBreakerSlowCallRateThreshold(
+      final int circuitBreakerSlowCallRateThreshold) {
+    this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_CIRCUIT_BREAKER_WINDOW_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE,
+      priority = CasAuthenticationAttributePriority.P22_CIRCUIT_BREAKER_WINDOW_SIZE,
+      label = "Circuit breaker window size",
+      description = "The number of the last service ticket validations the failure and slow call "
+          + "rates are calculated from. Zero (the default) disables the circuit breaker.")
+  public void setCircuitBreakerWindowSize(final int circuitBreakerWindowSize) {
+    this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_EXCLUDE_PATH_PATTERNS,
+      priority = CasAuthenticationAttributePriority.P39_EXCLUDE_PATH_PATTERNS,
+      label = "Exclude path patterns",
+      description = "The requests matching these URL patterns (/exact/path, /prefix/* or "
+          + "*.extension, relative to the context path) bypass the CAS processing, for e.g. the "
+          + "static resources.",
+      dynamic = true)
+  public void setExcludePathPatterns(final String[] excludePathPatterns) {
+    this.excludePathPatterns = excludePathPatterns;
   }
 
   @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_FAILURE_URL,
       defaultValue = CasAuthenticationConstants.DEFAULT_FAILURE_URL,
       priority = CasAuthenticationAttributePriority.P3_FAILURE_URL, label = "Failure URL",
       description = "The URL where the user will be redirected in case of failed request "
-          + "processing.")
+          + "processing.",
+      dynamic = true)
   public void setFailureUrl(final String failureUrl) {
     this.failureUrl = failureUrl;
   }
 
+  @BooleanAttribute(attributeId = CasAuthenticationConstants.ATTR_GATEWAY_ENABLED,
+      defaultValue = CasAuthenticationConstants.DEFAULT_GATEWAY_ENABLED,
+      priority = CasAuthenticationAttributePriority.P51_GATEWAY_ENABLED,
+      label = "Gateway enabled",
+      description = "If true, the unauthenticated browsers are redirected to the CAS login URL "
+          + "with gateway=true, so the users with a single sign-on session are authenticated "
+          + "transparently and the others stay guests. Only GET requests that are not AJAX "
+          + "requests are redirected.",
+      dynamic = true)
+  public void setGatewayEnabled(final boolean gatewayEnabled) {
+    this.gatewayEnabled = gatewayEnabled;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_GATEWAY_WINDOW,
+      defaultValue = CasAuthenticationConstants.DEFAULT_GATEWAY_WINDOW,
+      priority = CasAuthenticationAttributePriority.P52_GATEWAY_WINDOW,
+      label = "Gateway window",
+      description = "The time in milliseconds while a browser is not redirected to the CAS "
+          + "server again after a gateway redirect. It is remembered in a cookie, so the "
+          + "browsers that do not accept cookies are redirected on every request.",
+      dynamic = true)
+  public void setGatewayWindow(final long gatewayWindow) {
+    this.gatewayWindow = gatewayWindow;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_HTTP_CONNECT_TIMEOUT,
+      defaultValue = CasAuthenticationConstants.DEFAULT_HTTP_CONNECT_TIMEOUT,
+      priority = CasAuthenticationAttributePriority.P11_HTTP_CONNECT_TIMEOUT,
+      label = "HTTP connect timeout",
+      description = "The timeout in milliseconds until a connection is established with the CAS "
+          + "server or a pooled connection is leased.")
+  public void setHttpConnectTimeout(final int httpConnectTimeout) {
+    this.httpConnectTimeout = httpConnectTimeout;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_HTTP_IDLE_CONNECTION_EVICTION_TIME,
+      defaultValue = CasAuthenticationConstants.DEFAULT_HTTP_IDLE_CONNECTION_EVICTION_TIME,
+      priority = CasAuthenticationAttributePriority.P10_HTTP_IDLE_CONNECTION_EVICTION_TIME,
+      label = "HTTP idle connection eviction time",
+      description = "The time in milliseconds after the idle pooled connections to the CAS server "
+          + "are closed. Zero or negative value disables the eviction.")
+  public void setHttpIdleConnectionEvictionTime(final long httpIdleConnectionEvictionTime) {
+    this.httpIdleConnectionEvictionTime = httpIdleConnectionEvictionTime;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+      priority = CasAuthenticationAttributePriority.P9_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+      label = "HTTP max connections per route",
+      description = "The maximum number of kept-alive connections to the CAS server used for "
+          + "service ticket validation.")
+  public void setHttpMaxConnectionsPerRoute(final int httpMaxConnectionsPerRoute) {
+    this.httpMaxConnectionsPerRoute = httpMaxConnectionsPerRoute;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_HTTP_READ_TIMEOUT,
+      defaultValue = CasAuthenticationConstants.DEFAULT_HTTP_READ_TIMEOUT,
+      priority = CasAuthenticationAttributePriority.P12_HTTP_READ_TIMEOUT,
+      label = "HTTP read timeout",
+      description = "The socket timeout in milliseconds while waiting for the response of the "
+          + "CAS server.")
+  public void setHttpReadTimeout(final int httpReadTimeout) {
+    this.httpReadTimeout = httpReadTimeout;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_INCLUDE_PATH_PATTERNS,
+      priority = CasAuthenticationAttributePriority.P38_INCLUDE_PATH_PATTERNS,
+      label = "Include path patterns",
+      description = "If set, only the requests matching these URL patterns (/exact/path, /prefix/* "
+          + "or *.extension, relative to the context path) are processed by the CAS filter. If "
+          + "empty, every request is processed that is not excluded.",
+      dynamic = true)
+  public void setIncludePathPatterns(final String[] includePathPatterns) {
+    this.includePathPatterns = includePathPatterns;
+  }
+
+  @BooleanAttribute(attributeId = CasAuthenticationConstants.ATTR_JMX_ENABLED,
+      defaultValue = CasAuthenticationConstants.DEFAULT_JMX_ENABLED,
+      priority = CasAuthenticationAttributePriority.P40_JMX_ENABLED,
+      label = "JMX enabled",
+      description = "If true, an MXBean is registered in the platform MBean server that shows the "
+          + "configuration, the tracked sessions, the cache statistics, the validation times and "
+          + "the circuit breaker state, and can flush the caches and invalidate the sessions of a "
+          + "principal.")
+  public void setJmxEnabled(final boolean jmxEnabled) {
+    this.jmxEnabled = jmxEnabled;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGIN_URL_CACHE_MAX_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGIN_URL_CACHE_MAX_SIZE,
+      priority = CasAuthenticationAttributePriority.P54_LOGIN_URL_CACHE_MAX_SIZE,
+      label = "Login URL cache max size",
+      description = "The maximum number of CAS login URLs cached by the service URLs, so the "
+          + "service URL is not encoded again on every redirect to the CAS server. Zero disables "
+          + "the cache.",
+      dynamic = true)
+  public void setLoginUrlCacheMaxSize(final int loginUrlCacheMaxSize) {
+    this.loginUrlCacheMaxSize = loginUrlCacheMaxSize;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGOUT_INDEX_SNAPSHOT_DIRECTORY,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_INDEX_SNAPSHOT_DIRECTORY,
+      priority = CasAuthenticationAttributePriority.P48_LOGOUT_INDEX_SNAPSHOT_DIRECTORY,
+      label = "Logout index snapshot directory",
+      description = "The directory where the snapshot of the single logout index is written "
+          + "periodically and read back when the component is activated, so the CAS logout "
+          + "requests of the sessions restored after a restart are not lost. Each component "
+          + "instance needs its own directory. An unreadable snapshot is logged and ignored. "
+          + "Empty value disables the snapshot.")
+  public void setLogoutIndexSnapshotDirectory(final String logoutIndexSnapshotDirectory) {
+    this.logoutIndexSnapshotDirectory = logoutIndexSnapshotDirectory;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGOUT_INDEX_SNAPSHOT_INTERVAL,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_INDEX_SNAPSHOT_INTERVAL,
+      priority = CasAuthenticationAttributePriority.P49_LOGOUT_INDEX_SNAPSHOT_INTERVAL,
+      label = "Logout index snapshot interval",
+      description = "The time in milliseconds between the writes of the single logout index "
+          + "snapshot. A final snapshot is written when the component is deactivated.")
+  public void setLogoutIndexSnapshotInterval(final long logoutIndexSnapshotInterval) {
+    this.logoutIndexSnapshotInterval = logoutIndexSnapshotInterval;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGOUT_PROPAGATION_BATCH_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_PROPAGATION_BATCH_SIZE,
+      priority = CasAuthenticationAttributePriority.P32_LOGOUT_PROPAGATION_BATCH_SIZE,
+      label = "Logout propagation batch size",
+      description = "The maximum number of service tickets sent to the peer nodes in one batch.")
+  public void setLogoutPropagationBatchSize(final int logoutPropagationBatchSize) {
+    this.logoutPropagationBatchSize = logoutPropagationBatchSize;
+  }
+
+  @IntegerAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_LOGOUT_PROPAGATION_DEDUPLICATION_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_PROPAGATION_DEDUPLICATION_SIZE,
+      priority = CasAuthenticationAttributePriority.P34_LOGOUT_PROPAGATION_DEDUPLICATION_SIZE,
+      label = "Logout propagation deduplication size",
+      description = "The number of recently propagated service tickets remembered, so a service "
+          + "ticket is processed only once even if it is received several times.")
+  public void setLogoutPropagationDeduplicationSize(
+      final int logoutPropagationDeduplicationSize) {
+    this.logoutPropagationDeduplicationSize = logoutPropagationDeduplicationSize;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGOUT_PROPAGATION_FLUSH_INTERVAL,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_PROPAGATION_FLUSH_INTERVAL,
+      priority = CasAuthenticationAttributePriority.P33_LOGOUT_PROPAGATION_FLUSH_INTERVAL,
+      label = "Logout propagation flush interval",
+      description = "The time in milliseconds after the pending service tickets are sent to the "
+          + "peer nodes even if the batch is not full.")
+  public void setLogoutPropagationFlushInterval(final long logoutPropagationFlushInterval) {
+    this.logoutPropagationFlushInterval = logoutPropagationFlushInterval;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGOUT_REQUEST_BATCH_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_REQUEST_BATCH_SIZE,
+      priority = CasAuthenticationAttributePriority.P36_LOGOUT_REQUEST_BATCH_SIZE,
+      label = "Logout request batch size",
+      description = "The maximum number of queued CAS logout requests processed in one batch.")
+  public void setLogoutRequestBatchSize(final int logoutRequestBatchSize) {
+    this.logoutRequestBatchSize = logoutRequestBatchSize;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_LOGOUT_REQUEST_QUEUE_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_LOGOUT_REQUEST_QUEUE_SIZE,
+      priority = CasAuthenticationAttributePriority.P35_LOGOUT_REQUEST_QUEUE_SIZE,
+      label = "Logout request queue size",
+      description = "The maximum number of CAS logout requests queued for asynchronous batch "
+          + "processing. The logout requests are acknowledged as soon as they are queued. If the "
+          + "queue is full, the logout request is processed on the container thread. Zero "
+          + "disables the queue.")
+  public void setLogoutRequestQueueSize(final int logoutRequestQueueSize) {
+    this.logoutRequestQueueSize = logoutRequestQueueSize;
+  }
+
+  @BooleanAttribute(attributeId = CasAuthenticationConstants.ATTR_PARAMETER_FAST_PATH_ENABLED,
+      defaultValue = CasAuthenticationConstants.DEFAULT_PARAMETER_FAST_PATH_ENABLED,
+      priority = CasAuthenticationAttributePriority.P37_PARAMETER_FAST_PATH_ENABLED,
+      label = "Parameter fast path",
+      description = "If true, the raw query string is scanned for the service ticket and logout "
+          + "request parameters first and the request parameters are parsed by the container "
+          + "only if the query string contains them or the request is a form POST. "
+          + "Percent-encoded parameter names in the query string are decoded before they are "
+          + "compared.",
+      dynamic = true)
+  public void setParameterFastPathEnabled(final boolean parameterFastPathEnabled) {
+    this.parameterFastPathEnabled = parameterFastPathEnabled;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_PROTECTED_PATH_PATTERNS,
+      priority = CasAuthenticationAttributePriority.P53_PROTECTED_PATH_PATTERNS,
+      label = "Protected path patterns",
+      description = "The unauthenticated requests matching these URL patterns (/exact/path, "
+          + "/prefix/* or *.extension, relative to the context path) are redirected to the CAS "
+          + "login URL. If empty, the users are not redirected to the CAS login.",
+      dynamic = true)
+  public void setProtectedPathPatterns(final String[] protectedPathPatterns) {
+    this.protectedPathPatterns = protectedPathPatterns;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_PROXY_CALLBACK_URL,
+      defaultValue = CasAuthenticationConstants.DEFAULT_PROXY_CALLBACK_URL,
+      priority = CasAuthenticationAttributePriority.P43_PROXY_CALLBACK_URL,
+      label = "Proxy callback URL",
+      description = "The absolute HTTPS URL where the CAS server delivers the proxy granting "
+          + "tickets. The registered callback Servlet must be reachable at this URL. Empty value "
+          + "disables the proxy support.")
+  public void setProxyCallbackUrl(final String proxyCallbackUrl) {
+    this.proxyCallbackUrl = proxyCallbackUrl;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_PROXY_TICKET_CACHE_MAX_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_PROXY_TICKET_CACHE_MAX_SIZE,
+      priority = CasAuthenticationAttributePriority.P45_PROXY_TICKET_CACHE_MAX_SIZE,
+      label = "Proxy ticket cache max size",
+      description = "The maximum number of proxy tickets cached per proxy granting ticket and "
+          + "target service.")
+  public void setProxyTicketCacheMaxSize(final int proxyTicketCacheMaxSize) {
+    this.proxyTicketCacheMaxSize = proxyTicketCacheMaxSize;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_PROXY_TICKET_CACHE_TIME_TO_LIVE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_PROXY_TICKET_CACHE_TIME_TO_LIVE,
+      priority = CasAuthenticationAttributePriority.P46_PROXY_TICKET_CACHE_TIME_TO_LIVE,
+      label = "Proxy ticket cache time to live",
+      description = "The time in milliseconds while an issued proxy ticket is reused for the same "
+          + "target service. Zero disables the reuse. Enable it only if the CAS server accepts "
+          + "the proxy tickets several times, by default they are single-use.")
+  public void setProxyTicketCacheTimeToLive(final long proxyTicketCacheTimeToLive) {
+    this.proxyTicketCacheTimeToLive = proxyTicketCacheTimeToLive;
+  }
+
   @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_REQ_PARAM_NAME_LOGOUT_REQUEST,
       defaultValue = CasAuthenticationConstants.DEFAULT_REQ_PARAM_NAME_LOGOUT_REQUEST,
       priority = CasAuthenticationAttributePriority.P5_REQ_PARAM_NAME_LOGOUT_REQUEST,
       label = "Logout request param name",
-      description = "The request parameter name of the logout request.")
+      description = "The request parameter name of the logout request.",
+      dynamic = true)
   public void setRequestParamNameLogoutRequest(final String requestParamNameLogoutRequest) {
     this.requestParamNameLogoutRequest = requestParamNameLogoutRequest;
   }
@@ -186,11 +1051,42 @@ public class CasAuthenticationComponent {
       defaultValue = CasAuthenticationConstants.DEFAULT_REQ_PARAM_NAME_SERVICE_TICKET,
       priority = CasAuthenticationAttributePriority.P4_REQ_PARAM_NAME_SERVICE_TICKET,
       label = "Service ticket param name",
-      description = "The request parameter name of the service ticket.")
+      description = "The request parameter name of the service ticket.",
+      dynamic = true)
   public void setRequestParamNameServiceTicket(final String requestParamNameServiceTicket) {
     this.requestParamNameServiceTicket = requestParamNameServiceTicket;
   }
 
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_RESOURCE_ID_CACHE_MAX_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_RESOURCE_ID_CACHE_MAX_SIZE,
+      priority = CasAuthenticationAttributePriority.P15_RESOURCE_ID_CACHE_MAX_SIZE,
+      label = "Resource ID cache max size",
+      description = "The maximum number of principals whose Resource ID (or the lack of it) is "
+          + "cached in front of the ResourceIdResolver. Zero disables the cache.")
+  public void setResourceIdCacheMaxSize(final int resourceIdCacheMaxSize) {
+    this.resourceIdCacheMaxSize = resourceIdCacheMaxSize;
+  }
+
+  @LongAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_RESOURCE_ID_CACHE_NEGATIVE_TIME_TO_LIVE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_RESOURCE_ID_CACHE_NEGATIVE_TIME_TO_LIVE,
+      priority = CasAuthenticationAttributePriority.P17_RESOURCE_ID_CACHE_NEGATIVE_TIME_TO_LIVE,
+      label = "Resource ID cache negative time to live",
+      description = "The time in milliseconds while a principal that cannot be mapped to a "
+          + "Resource ID is cached.")
+  public void setResourceIdCacheNegativeTimeToLive(final long resourceIdCacheNegativeTimeToLive) {
+    this.resourceIdCacheNegativeTimeToLive = resourceIdCacheNegativeTimeToLive;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_RESOURCE_ID_CACHE_TIME_TO_LIVE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_RESOURCE_ID_CACHE_TIME_TO_LIVE,
+      priority = CasAuthenticationAttributePriority.P16_RESOURCE_ID_CACHE_TIME_TO_LIVE,
+      label = "Resource ID cache time to live",
+      description = "The time in milliseconds while the Resource ID of a principal is cached.")
+  public void setResourceIdCacheTimeToLive(final long resourceIdCacheTimeToLive) {
+    this.resourceIdCacheTimeToLive = resourceIdCacheTimeToLive;
+  }
+
   @ServiceRef(attributeId = CasAuthenticationConstants.ATTR_RESOURCE_ID_RESOLVER, defaultValue = "",
       attributePriority = CasAuthenticationAttributePriority.P7_RESOURCE_ID_RESOLVER,
       label = "ResourceIdResolver OSGi filter",
@@ -199,12 +1095,198 @@ public class CasAuthenticationComponent {
     this.resourceIdResolver = resourceIdResolver;
   }
 
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_RESPONSE_FORMAT,
+      defaultValue = CasAuthenticationConstants.DEFAULT_RESPONSE_FORMAT,
+      priority = CasAuthenticationAttributePriority.P29_RESPONSE_FORMAT,
+      label = "Response format",
+      description = "The format of the service ticket validation responses requested from the CAS "
+          + "server. XML: the default format. JSON: CAS protocol 3 JSON format, read by a "
+          + "streaming parser. Logout requests are always parsed as XML.",
+      dynamic = true)
+  public void setResponseFormat(final String responseFormat) {
+    this.responseFormat = responseFormat;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_RESPONSE_PARSER,
+      defaultValue = CasAuthenticationConstants.DEFAULT_RESPONSE_PARSER,
+      priority = CasAuthenticationAttributePriority.P27_RESPONSE_PARSER,
+      label = "Response parser",
+      description = "The engine that parses the service ticket validation responses and the "
+          + "logout requests. SAX: the injected SAXParserFactory is used. STAX: a pull based "
+          + "reader is used that stops reading as soon as the needed element is found.",
+      dynamic = true)
+  public void setResponseParser(final String responseParser) {
+    this.responseParser = responseParser;
+  }
+
   @ServiceRef(attributeId = CasAuthenticationConstants.ATTR_SAX_PARSER_FACTORY, defaultValue = "",
       attributePriority = CasAuthenticationAttributePriority.P8_SAX_PARSER_FACTORY,
       label = "SAXParserFactory OSGi filter",
-      description = "OSGi Service filter expression for SAXParserFactory instance.")
+      description = "OSGi Service filter expression for SAXParserFactory instance.",
+      dynamic = true)
   public void setSaxParserFactory(final SAXParserFactory saxParserFactory) {
     this.saxParserFactory = saxParserFactory;
+    // a replaced factory is bound while the component is active
+    SaxParserPool currentSaxParserPool = saxParserPool;
+    if ((currentSaxParserPool != null) && (saxParserFactory != null)) {
+      currentSaxParserPool.setSaxParserFactory(saxParserFactory);
+    }
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_SAX_PARSER_POOL_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_SAX_PARSER_POOL_SIZE,
+      priority = CasAuthenticationAttributePriority.P28_SAX_PARSER_POOL_SIZE,
+      label = "SAX parser pool size",
+      description = "The maximum number of idle SAXParser instances reused for parsing the CAS "
+          + "responses and logout requests. Zero disables the pooling.")
+  public void setSaxParserPoolSize(final int saxParserPoolSize) {
+    this.saxParserPoolSize = saxParserPoolSize;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_SERVICE_TICKET_CACHE_MAX_SIZE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_SERVICE_TICKET_CACHE_MAX_SIZE,
+      priority = CasAuthenticationAttributePriority.P13_SERVICE_TICKET_CACHE_MAX_SIZE,
+      label = "Service ticket cache max size",
+      description = "The maximum number of validated service tickets kept in memory to "
+          + "authenticate repeated requests with the same ticket without validating it again on "
+          + "the CAS server. A ticket is served only to the session that validated it, so a "
+          + "repeated request without the session cookie is validated again and fails. Zero "
+          + "disables the cache.")
+  public void setServiceTicketCacheMaxSize(final int serviceTicketCacheMaxSize) {
+    this.serviceTicketCacheMaxSize = serviceTicketCacheMaxSize;
+  }
+
+  @LongAttribute(attributeId = CasAuthenticationConstants.ATTR_SERVICE_TICKET_CACHE_TIME_TO_LIVE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_SERVICE_TICKET_CACHE_TIME_TO_LIVE,
+      priority = CasAuthenticationAttributePriority.P14_SERVICE_TICKET_CACHE_TIME_TO_LIVE,
+      label = "Service ticket cache time to live",
+      description = "The time in milliseconds while a validated service ticket is kept in the "
+          + "service ticket cache.")
+  public void setServiceTicketCacheTimeToLive(final long serviceTicketCacheTimeToLive) {
+    this.serviceTicketCacheTimeToLive = serviceTicketCacheTimeToLive;
+  }
+
+  @StringAttribute(attributeId = CasAuthenticationConstants.ATTR_SESSION_INDEX_STORAGE,
+      defaultValue = CasAuthenticationConstants.DEFAULT_SESSION_INDEX_STORAGE,
+      priority = CasAuthenticationAttributePriority.P30_SESSION_INDEX_STORAGE,
+      label = "Session index storage",
+      description = "The storage of the service ticket to session mapping used by the single "
+          + "logout. HEAP: open addressing tables on the Java heap. OFF_HEAP: fixed size records "
+          + "in direct buffers outside of the Java heap, to reduce the GC pressure when millions "
+          + "of sessions are tracked. In OFF_HEAP mode no references to the sessions are kept: a "
+          + "session logged out by the CAS server is invalidated when it is used the next time, "
+          + "the sessions of a principal cannot be invalidated through JMX and the logout index "
+          + "snapshot contains only the passivated sessions.")
+  public void setSessionIndexStorage(final String sessionIndexStorage) {
+    this.sessionIndexStorage = sessionIndexStorage;
+  }
+
+  @LongAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_VALIDATION_ENDPOINT_EJECTION_DURATION,
+      defaultValue = CasAuthenticationConstants.DEFAULT_VALIDATION_ENDPOINT_EJECTION_DURATION,
+      priority = CasAuthenticationAttributePriority.P42_VALIDATION_ENDPOINT_EJECTION_DURATION,
+      label = "Validation endpoint ejection duration",
+      description = "The time in milliseconds while an ejected validation URL does not receive "
+          + "validations, unless all validation URLs are ejected.",
+      dynamic = true)
+  public void setValidationEndpointEjectionDuration(
+      final long validationEndpointEjectionDuration) {
+    this.validationEndpointEjectionDuration = validationEndpointEjectionDuration;
+  }
+
+  @IntegerAttribute(
+      attributeId = CasAuthenticationConstants.ATTR_VALIDATION_ENDPOINT_EJECTION_THRESHOLD,
+      defaultValue = CasAuthenticationConstants.DEFAULT_VALIDATION_ENDPOINT_EJECTION_THRESHOLD,
+      priority = CasAuthenticationAttributePriority.P41_VALIDATION_ENDPOINT_EJECTION_THRESHOLD,
+      label = "Validation endpoint ejection threshold",
+      description = "The number of consecutive failed validations after a validation URL is "
+          + "ejected. Zero disables the ejection.",
+      dynamic = true)
+  public void setValidationEndpointEjectionThreshold(
+      final int validationEndpointEjectionThreshold) {
+    this.validationEndpointEjectionThreshold = validationEndpointEjectionThreshold;
+  }
+
+  @IntegerAttribute(attributeId = CasAuthenticationConstants.ATTR_VALIDATION_MAX_CONCURRENT_CALLS,
+      defaultValue = CasAuthenticationConstants.DEFAULT_VALIDATION_MAX_CONCURRENT_CALLS,
+      priority = CasAuthenticationAttributePriority.P21_VALIDATION_MAX_CONCURRENT_CALLS,
+      label = "Max concurrent validations",
+      description = "The maximum number of service ticket validations in flight. The validations "
+          + "above this limit fail fast. Zero means unlimited.")
+  public void setValidationMaxConcurrentCalls(final int validationMaxConcurrentCalls) {
+    this.validationMaxConcurrentCalls = validationMaxConcurrentCalls;
+  }
+
+  /**
+   * Shuts down the validation executor and waits for the running validations, so they do not use
+   * the closed HTTP client.
+   */
+  private void shutdownValidationExecutor() {
+    validationExecutor.shutdown();
+    try {
+      if (!validationExecutor.awaitTermination(VALIDATION_EXECUTOR_TERMINATION_TIMEOUT,
+          TimeUnit.MILLISECONDS)) {
+        validationExecutor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      validationExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Applies the changes of the dynamic attributes. The configuration of the filter is replaced
+   * atomically, while the registered services, the session registry, the caches and the
+   * connections to the CAS server are kept.
+   */
+  @Update
+  public void update() {
+    CasAuthenticationFilterConfiguration filterConfiguration =
+        createFilterConfiguration(casAuthenticationFilter.getConfiguration());
+    casHttpClient.setRouteCount(filterConfiguration.getValidationEndpoints().size());
+    casAuthenticationFilter.updateConfiguration(filterConfiguration);
+    if (management != null) {
+      management.setConfiguration(componentContext.getProperties());
+    }
+    if (metricsServiceRegistration != null) {
+      metricsServiceRegistration.setProperties(
+          new Hashtable<>(componentContext.getProperties()));
+    }
+    if (userAttributesServiceRegistration != null) {
+      userAttributesServiceRegistration.setProperties(
+          new Hashtable<>(componentContext.getProperties()));
+    }
+    if (proxyCallbackServletRegistration != null) {
+      proxyCallbackServletRegistration.setProperties(
+          new Hashtable<>(componentContext.getProperties()));
+    }
+    if (proxyTicketProviderRegistration != null) {
+      proxyTicketProviderRegistration.setProperties(
+          new Hashtable<>(componentContext.getProperties()));
+    }
+    synchronized (this) {
+      Hashtable<String, Object> newServiceProperties =
+          new Hashtable<>(componentContext.getProperties());
+      copyServiceProperty(CasAuthenticationConstants.SERVICE_PROPERTY_FILTER_ASYNC_SUPPORTED,
+          newServiceProperties);
+      copyServiceProperty(CasAuthenticationConstants.SERVICE_PROPERTY_CIRCUIT_BREAKER_STATE,
+          newServiceProperties);
+      serviceProperties = newServiceProperties;
+      if (serviceRegistration != null) {
+        serviceRegistration.setProperties(serviceProperties);
+      }
+    }
+  }
+
+  /**
+   * Publishes the new state of the circuit breaker as service property.
+   */
+  private synchronized void updateCircuitBreakerState(final CircuitBreaker.State state) {
+    serviceProperties.put(CasAuthenticationConstants.SERVICE_PROPERTY_CIRCUIT_BREAKER_STATE,
+        state.name());
+    if (serviceRegistration != null) {
+      serviceRegistration.setProperties(serviceProperties);
+    }
   }
 
 }
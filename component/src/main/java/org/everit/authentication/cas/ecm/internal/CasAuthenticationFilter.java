@@ -0,0 +1,943 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionAttributeListener;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import org.everit.authentication.cas.ecm.CasLogoutRequestProcessor;
+import org.everit.authentication.cas.ecm.CasSessionState;
+import org.everit.authentication.http.session.AuthenticationSessionAttributeNames;
+import org.everit.resource.resolver.ResourceIdResolver;
+
+/**
+ * The CAS authentication {@link Filter} registered by the {@link CasAuthenticationComponent}. It
+ * validates the CAS service tickets on the CAS server through the pooled {@link CasHttpClient} of
+ * the component and processes the CAS logout requests. The mapping of the service tickets and the
+ * sessions is held by a {@link ServiceTicketSessionRegistry} and it is maintained by the
+ * {@link HttpSessionListener} and {@link HttpSessionAttributeListener} methods of this class.
+ * <p>
+ * If a validation {@link Executor} is provided and the request supports asynchronous processing,
+ * the service ticket validation is performed on the executor and the container thread is released
+ * while waiting for the CAS server.
+ * </p>
+ * <p>
+ * The number of concurrent validations is limited by a bulkhead and the validations fail fast while
+ * the {@link CircuitBreaker} of the CAS server is open, so a hanging CAS server does not block all
+ * threads of the application.
+ * </p>
+ * <p>
+ * If the parameter fast path is enabled, the raw query string is scanned for the service ticket and
+ * logout request parameters before asking the container for them, so the parameters of the
+ * ordinary requests are not parsed. See {@link RequestParameters}.
+ * </p>
+ * <p>
+ * If a {@link LogoutRequestQueue} is provided, the CAS logout requests are acknowledged as soon as
+ * they are queued and they are processed in batches by the worker of the queue.
+ * </p>
+ * <p>
+ * If a {@link ProxyGrantingTicketStore} is provided, the proxy callback URL is sent with the
+ * service ticket validations and the proxy granting ticket delivered to the callback URL is stored
+ * in the authenticated session.
+ * </p>
+ * <p>
+ * The CAS state of the authenticated sessions is stored in one {@link CasSessionAttribute} session
+ * attribute. The names and values of the released attributes are shared between the sessions
+ * through a {@link StringPool}. The sessions restored by the session manager are registered for the
+ * CAS logout requests lazily, when they are used the first time.
+ * </p>
+ * <p>
+ * The service tickets of the passivated sessions are kept as pending in the registry and they can
+ * be written to a {@link LogoutIndexSnapshot}, so a CAS logout request received while the session
+ * is not in memory is not lost: the session is invalidated and the request is redirected to itself
+ * when the session is used the first time.
+ * </p>
+ * <p>
+ * In gateway mode the unauthenticated browsers are redirected to the CAS login URL with
+ * <code>gateway=true</code> once per gateway window. The gateway request is remembered in a cookie
+ * with the lifetime of the window, so the guests are not redirected to the CAS server on every
+ * request and no session is created for them.
+ * </p>
+ * <p>
+ * The unauthenticated requests of the protected paths are redirected to the CAS login URL. The
+ * login URLs with the encoded service URLs are taken from the {@link LoginUrlCache} of the
+ * configuration.
+ * </p>
+ */
+public class CasAuthenticationFilter implements Filter, ServletContextListener,
+    HttpSessionListener, HttpSessionAttributeListener, CasLogoutRequestProcessor {
+
+  /**
+   * The name of the session attribute that stores the {@link CasSessionAttribute} or the
+   * {@link CasSessionState} restored by the session manager: the validated service ticket, the
+   * principal, the Resource ID, the released attributes and the proxy granting ticket.
+   */
+  public static final String SESSION_ATTR_NAME_STATE = "org.everit.authentication.cas.State";
+
+  /**
+   * The name of the cookie that marks the browsers redirected to the CAS server in gateway mode.
+   */
+  private static final String GATEWAY_COOKIE_NAME = "CAS_GATEWAY";
+
+  /**
+   * The maximum number of the messages kept until the servlet context is known.
+   */
+  private static final int MAX_PENDING_LOG_ENTRIES = 100;
+
+  private static final long MILLISECONDS_PER_SECOND = 1000;
+
+  private static String urlEncode(final String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final StringPool attributePool;
+
+  private final AuthenticationSessionAttributeNames authenticationSessionAttributeNames;
+
+  private final CasHttpClient casHttpClient;
+
+  private final CircuitBreaker circuitBreaker;
+
+  private volatile CasAuthenticationFilterConfiguration configuration;
+
+  /**
+   * The servlet context of the filter, <code>null</code> until the filter is initialized.
+   */
+  private volatile ServletContext filterServletContext;
+
+  private final LogoutPropagation logoutPropagation;
+
+  private final LogoutRequestQueue logoutRequestQueue;
+
+  private final CasAuthenticationMetricsCollector metrics;
+
+  /**
+   * The messages logged before the servlet context is known. Guarded by itself.
+   */
+  private final List<Map.Entry<String, Throwable>> pendingLogEntries = new ArrayList<>();
+
+  private final ProxyGrantingTicketStore proxyGrantingTicketStore;
+
+  private final ResourceIdResolver resourceIdResolver;
+
+  private final ServiceTicketCache serviceTicketCache;
+
+  private final ServiceTicketSessionRegistry serviceTicketSessionRegistry;
+
+  private final Semaphore validationBulkhead;
+
+  private final Executor validationExecutor;
+
+  /**
+   * Constructor.
+   */
+  public CasAuthenticationFilter(
+      final CasAuthenticationFilterConfiguration configuration,
+      final ResourceIdResolver resourceIdResolver,
+      final AuthenticationSessionAttributeNames authenticationSessionAttributeNames,
+      final CasHttpClient casHttpClient,
+      final ServiceTicketCache serviceTicketCache,
+      final ServiceTicketSessionRegistry serviceTicketSessionRegistry,
+      final LogoutPropagation logoutPropagation,
+      final LogoutRequestQueue logoutRequestQueue,
+      final Executor validationExecutor,
+      final Semaphore validationBulkhead,
+      final CircuitBreaker circuitBreaker,
+      final CasAuthenticationMetricsCollector metrics,
+      final ProxyGrantingTicketStore proxyGrantingTicketStore,
+      final StringPool attributePool) {
+    this.configuration = Objects.requireNonNull(configuration, "configuration cannot be null");
+    this.resourceIdResolver = Objects.requireNonNull(resourceIdResolver,
+        "resourceIdResolver cannot be null");
+    this.authenticationSessionAttributeNames = Objects.requireNonNull(
+        authenticationSessionAttributeNames, "authenticationSessionAttributeNames cannot be null");
+    this.casHttpClient = Objects.requireNonNull(casHttpClient, "casHttpClient cannot be null");
+    this.serviceTicketCache = Objects.requireNonNull(serviceTicketCache,
+        "serviceTicketCache cannot be null");
+    this.serviceTicketSessionRegistry = Objects.requireNonNull(serviceTicketSessionRegistry,
+        "serviceTicketSessionRegistry cannot be null");
+    this.logoutPropagation = logoutPropagation;
+    this.logoutRequestQueue = logoutRequestQueue;
+    this.validationExecutor = validationExecutor;
+    this.validationBulkhead = validationBulkhead;
+    this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker cannot be null");
+    this.metrics = Objects.requireNonNull(metrics, "metrics cannot be null");
+    this.proxyGrantingTicketStore = proxyGrantingTicketStore;
+    this.attributePool = Objects.requireNonNull(attributePool, "attributePool cannot be null");
+  }
+
+  @Override
+  public void attributeAdded(final HttpSessionBindingEvent event) {
+    // the service ticket is registered when the validation succeeds
+  }
+
+  @Override
+  public void attributeRemoved(final HttpSessionBindingEvent event) {
+    if (SESSION_ATTR_NAME_STATE.equals(event.getName())) {
+      Object casSessionAttribute = event.getValue();
+      if (!(casSessionAttribute instanceof CasSessionAttribute)) {
+        // a restored state is not registered until it is replaced
+        return;
+      }
+      CasSessionAttribute removedCasSessionAttribute = (CasSessionAttribute) casSessionAttribute;
+      removedCasSessionAttribute.markRegisteredIn(null);
+      String serviceTicket = removedCasSessionAttribute.getCasSessionState().getServiceTicket();
+      if (removedCasSessionAttribute.isPassivated()) {
+        serviceTicketSessionRegistry.passivate(serviceTicket, event.getSession());
+      } else {
+        serviceTicketSessionRegistry.unregister(serviceTicket, event.getSession());
+      }
+    }
+  }
+
+  @Override
+  public void attributeReplaced(final HttpSessionBindingEvent event) {
+    attributeRemoved(event);
+  }
+
+  @Override
+  public boolean awaitLogoutRequests(final long timeout, final TimeUnit unit)
+      throws InterruptedException {
+    if (logoutRequestQueue == null) {
+      return true;
+    }
+    return logoutRequestQueue.await(timeout, unit);
+  }
+
+  /**
+   * Stores the CAS state in the session of the request and registers the session with the service
+   * ticket.
+   *
+   * @return The authenticated session.
+   */
+  private HttpSession authenticateSession(final HttpServletRequest httpServletRequest,
+      final CasSessionState casSessionState) {
+    HttpSession httpSession = httpServletRequest.getSession();
+    CasSessionState previousCasSessionState = CasSessionAttribute.getCasSessionState(
+        httpSession.getAttribute(SESSION_ATTR_NAME_STATE));
+    if (previousCasSessionState != null) {
+      serviceTicketSessionRegistry.unregister(previousCasSessionState.getServiceTicket(),
+          httpSession);
+    }
+    httpSession.setAttribute(authenticationSessionAttributeNames.authenticatedResourceId(),
+        casSessionState.getResourceId());
+    setCasSessionAttribute(httpSession, casSessionState);
+    return httpSession;
+  }
+
+  /**
+   * Creates a snapshot of the single logout index: the service tickets of the registered and the
+   * pending sessions and the session IDs logged out while their sessions were pending.
+   */
+  public LogoutIndexSnapshot createLogoutIndexSnapshot() {
+    Map<String, String> sessionIdsByServiceTicket =
+        new HashMap<>(serviceTicketSessionRegistry.getPendingSessionIds());
+    for (HttpSession httpSession : serviceTicketSessionRegistry.getSessions()) {
+      try {
+        CasSessionState casSessionState = CasSessionAttribute.getCasSessionState(
+            httpSession.getAttribute(SESSION_ATTR_NAME_STATE));
+        if (casSessionState != null) {
+          sessionIdsByServiceTicket.put(casSessionState.getServiceTicket(), httpSession.getId());
+        }
+      } catch (IllegalStateException e) {
+        // the session is invalidated in the meantime
+      }
+    }
+    return new LogoutIndexSnapshot(sessionIdsByServiceTicket,
+        new HashSet<>(serviceTicketSessionRegistry.getLoggedOutSessionIds()));
+  }
+
+  @Override
+  public void contextDestroyed(final ServletContextEvent sce) {
+    serviceTicketSessionRegistry.clear();
+  }
+
+  @Override
+  public void contextInitialized(final ServletContextEvent sce) {
+    setServletContext(sce.getServletContext());
+  }
+
+  @Override
+  public void destroy() {
+    // nothing to destroy
+  }
+
+  @Override
+  public void doFilter(final ServletRequest request, final ServletResponse response,
+      final FilterChain chain) throws IOException, ServletException {
+
+    HttpServletRequest httpServletRequest = (HttpServletRequest) request;
+    HttpServletResponse httpServletResponse = (HttpServletResponse) response;
+
+    CasAuthenticationFilterConfiguration currentConfiguration = configuration;
+
+    // sessions logged out while pending or untracked must not pass through the excluded paths
+    if (!registerRestoredSession(httpServletRequest)) {
+      redirectToRequestUrl(httpServletRequest, httpServletResponse);
+      return;
+    }
+
+    if (!isCasProcessingRequired(httpServletRequest, currentConfiguration)) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    String serviceTicket = getRequestParameter(httpServletRequest,
+        currentConfiguration.getRequestParamNameServiceTicket(), currentConfiguration);
+    if (serviceTicket != null) {
+      if ((validationExecutor != null) && httpServletRequest.isAsyncSupported()) {
+        performAsyncServiceTicketValidation(httpServletRequest, serviceTicket,
+            currentConfiguration);
+      } else {
+        performServiceTicketValidation(httpServletRequest, httpServletResponse, serviceTicket,
+            currentConfiguration);
+      }
+      return;
+    }
+
+    String logoutRequest = getRequestParameter(httpServletRequest,
+        currentConfiguration.getRequestParamNameLogoutRequest(), currentConfiguration);
+    if (logoutRequest != null) {
+      performLogout(httpServletRequest, logoutRequest, currentConfiguration);
+      return;
+    }
+
+    if (isLoginRequired(httpServletRequest, currentConfiguration)) {
+      httpServletResponse.sendRedirect(currentConfiguration.getLoginUrlCache()
+          .getLoginUrl(getServiceUrl(httpServletRequest, currentConfiguration)));
+      return;
+    }
+
+    if (currentConfiguration.isGatewayEnabled() && isGatewayRequired(httpServletRequest)) {
+      redirectToGateway(httpServletRequest, httpServletResponse, currentConfiguration);
+      return;
+    }
+    chain.doFilter(request, response);
+  }
+
+  public CasAuthenticationFilterConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Returns the path of the request relative to the context path. The servlet path and the path
+   * info are decoded and normalized by the container, so path parameters (<code>;</code>), encoded
+   * characters and dot segments of the request URI cannot bypass the patterns.
+   */
+  private String getPath(final HttpServletRequest httpServletRequest) {
+    String servletPath = httpServletRequest.getServletPath();
+    String pathInfo = httpServletRequest.getPathInfo();
+    if (pathInfo == null) {
+      return servletPath == null ? "" : servletPath;
+    }
+    return servletPath == null ? pathInfo : servletPath + pathInfo;
+  }
+
+  private String getRequestParameter(final HttpServletRequest httpServletRequest,
+      final String name, final CasAuthenticationFilterConfiguration currentConfiguration) {
+    if (currentConfiguration.isParameterFastPathEnabled()) {
+      return RequestParameters.getParameter(httpServletRequest, name);
+    }
+    return httpServletRequest.getParameter(name);
+  }
+
+  public ServiceTicketCache getServiceTicketCache() {
+    return serviceTicketCache;
+  }
+
+  public ServiceTicketSessionRegistry getServiceTicketSessionRegistry() {
+    return serviceTicketSessionRegistry;
+  }
+
+  /**
+   * Returns the URL of the request with its query string but without the service ticket parameter.
+   * The CAS server accepts a service ticket only for the service URL it was issued for, so the
+   * same URL is sent to the login page, to the validation and is used for the redirect after the
+   * validation.
+   */
+  private String getServiceUrl(final HttpServletRequest httpServletRequest,
+      final CasAuthenticationFilterConfiguration currentConfiguration) {
+    StringBuffer serviceUrl = httpServletRequest.getRequestURL();
+    String queryString = RequestParameters.removeParameter(httpServletRequest.getQueryString(),
+        currentConfiguration.getRequestParamNameServiceTicket());
+    if (queryString != null) {
+      serviceUrl.append('?').append(queryString);
+    }
+    return serviceUrl.toString();
+  }
+
+  private boolean hasGatewayCookie(final HttpServletRequest httpServletRequest) {
+    Cookie[] cookies = httpServletRequest.getCookies();
+    if (cookies == null) {
+      return false;
+    }
+    for (Cookie cookie : cookies) {
+      if (GATEWAY_COOKIE_NAME.equals(cookie.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void init(final FilterConfig filterConfig) throws ServletException {
+    setServletContext(filterConfig.getServletContext());
+  }
+
+  /**
+   * Invalidates the session of the service ticket on this node. Called for the CAS logout requests
+   * received by this node and for the logouts propagated by the peer nodes.
+   *
+   * @param serviceTicket
+   *          The service ticket of the logged out session.
+   */
+  public void invalidateSession(final String serviceTicket) {
+    serviceTicketCache.remove(serviceTicket);
+    HttpSession httpSession = serviceTicketSessionRegistry.remove(serviceTicket);
+    if (httpSession != null) {
+      try {
+        httpSession.invalidate();
+      } catch (IllegalStateException e) {
+        // the session is already invalidated
+      }
+    }
+  }
+
+  /**
+   * Invalidates the sessions on this node that are authenticated with the Resource ID of the
+   * principal and removes the service tickets of the principal from the service ticket cache.
+   *
+   * @param principal
+   *          The principal (username) returned by the CAS server.
+   * @return The number of the invalidated sessions.
+   */
+  public int invalidateSessionsOfPrincipal(final String principal) {
+    Objects.requireNonNull(principal, "principal cannot be null");
+    serviceTicketCache.removePrincipal(principal);
+    Optional<Long> resourceId = resourceIdResolver.getResourceId(principal);
+    if (!resourceId.isPresent()) {
+      return 0;
+    }
+    String authenticatedResourceIdAttributeName =
+        authenticationSessionAttributeNames.authenticatedResourceId();
+    List<HttpSession> httpSessions = new ArrayList<>();
+    for (HttpSession httpSession : serviceTicketSessionRegistry.getSessions()) {
+      try {
+        if (resourceId.get().equals(
+            httpSession.getAttribute(authenticatedResourceIdAttributeName))) {
+          httpSessions.add(httpSession);
+        }
+      } catch (IllegalStateException e) {
+        // the session is already invalidated
+      }
+    }
+    int invalidatedSessionCount = 0;
+    for (HttpSession httpSession : httpSessions) {
+      try {
+        httpSession.invalidate();
+        invalidatedSessionCount++;
+      } catch (IllegalStateException e) {
+        // the session is already invalidated
+      }
+    }
+    return invalidatedSessionCount;
+  }
+
+  /**
+   * Checks if the session of the request is authenticated. A session invalidated concurrently is
+   * considered unauthenticated.
+   */
+  private boolean isAuthenticated(final HttpServletRequest httpServletRequest) {
+    HttpSession httpSession = httpServletRequest.getSession(false);
+    if (httpSession == null) {
+      return false;
+    }
+    try {
+      return httpSession.getAttribute(
+          authenticationSessionAttributeNames.authenticatedResourceId()) != null;
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Checks the path of the request against the include and exclude patterns. The path is not
+   * computed at all if no patterns are configured.
+   */
+  private boolean isCasProcessingRequired(final HttpServletRequest httpServletRequest,
+      final CasAuthenticationFilterConfiguration currentConfiguration) {
+    PathMatcher includePathMatcher = currentConfiguration.getIncludePathMatcher();
+    PathMatcher excludePathMatcher = currentConfiguration.getExcludePathMatcher();
+    if (includePathMatcher.isEmpty() && excludePathMatcher.isEmpty()) {
+      return true;
+    }
+    String path = getPath(httpServletRequest);
+    if (!includePathMatcher.isEmpty() && !includePathMatcher.matches(path)) {
+      return false;
+    }
+    return !excludePathMatcher.matches(path);
+  }
+
+  /**
+   * Checks if the request is a page navigation of an unauthenticated browser that was not sent to
+   * the CAS server in the current gateway window. Only the GET requests are redirected, because the
+   * body of the other requests would be lost, and the AJAX requests are not redirected, because
+   * they cannot follow the CAS login page.
+   */
+  private boolean isGatewayRequired(final HttpServletRequest httpServletRequest) {
+    return "GET".equals(httpServletRequest.getMethod())
+        && (httpServletRequest.getHeader("X-Requested-With") == null)
+        && !hasGatewayCookie(httpServletRequest)
+        && !isAuthenticated(httpServletRequest);
+  }
+
+  private boolean isLoginRequired(final HttpServletRequest httpServletRequest,
+      final CasAuthenticationFilterConfiguration currentConfiguration) {
+    PathMatcher protectedPathMatcher = currentConfiguration.getProtectedPathMatcher();
+    return !protectedPathMatcher.isEmpty()
+        && protectedPathMatcher.matches(getPath(httpServletRequest))
+        && !isAuthenticated(httpServletRequest);
+  }
+
+  /**
+   * Logs a message that is not related to a request (for e.g. a failure of a background task)
+   * through the servlet context of the filter. The messages logged before the filter is initialized
+   * are kept until the servlet context is known.
+   */
+  public void log(final String message, final Throwable throwable) {
+    ServletContext currentServletContext;
+    synchronized (pendingLogEntries) {
+      currentServletContext = filterServletContext;
+      if (currentServletContext == null) {
+        if (pendingLogEntries.size() < MAX_PENDING_LOG_ENTRIES) {
+          pendingLogEntries.add(new AbstractMap.SimpleImmutableEntry<>(message, throwable));
+        }
+        return;
+      }
+    }
+    currentServletContext.log(message, throwable);
+  }
+
+  private void logout(final String serviceTicket, final ServletContext servletContext) {
+    invalidateSession(serviceTicket);
+    if (logoutPropagation != null) {
+      logoutPropagation.submit(serviceTicket, servletContext);
+    }
+  }
+
+  private String parseLogoutRequest(final String logoutRequest,
+      final ServletContext servletContext, final CasResponseParser responseParser) {
+    try {
+      return responseParser.parseLogoutRequest(logoutRequest);
+    } catch (IOException e) {
+      servletContext.log("Failed to parse CAS logout request", e);
+      return null;
+    }
+  }
+
+  private void performAsyncServiceTicketValidation(final HttpServletRequest httpServletRequest,
+      final String serviceTicket, final CasAuthenticationFilterConfiguration currentConfiguration) {
+
+    AsyncContext asyncContext = httpServletRequest.startAsync();
+    Runnable validation = () -> {
+      try {
+        performServiceTicketValidation((HttpServletRequest) asyncContext.getRequest(),
+            (HttpServletResponse) asyncContext.getResponse(), serviceTicket,
+            currentConfiguration);
+      } catch (IOException | RuntimeException e) {
+        httpServletRequest.getServletContext().log(
+            "Failed to process service ticket [" + serviceTicket + "]", e);
+        sendFailureRedirect((HttpServletResponse) asyncContext.getResponse(),
+            currentConfiguration);
+      } finally {
+        asyncContext.complete();
+      }
+    };
+
+    try {
+      validationExecutor.execute(validation);
+    } catch (RejectedExecutionException e) {
+      // all validation threads are busy, the validation is performed on the container thread
+      validation.run();
+    }
+  }
+
+  private void performLogout(final HttpServletRequest httpServletRequest,
+      final String logoutRequest, final CasAuthenticationFilterConfiguration currentConfiguration) {
+
+    metrics.logoutRequestReceived();
+    ServletContext servletContext = httpServletRequest.getServletContext();
+    if ((logoutRequestQueue != null) && logoutRequestQueue.offer(logoutRequest, servletContext)) {
+      return;
+    }
+    String serviceTicket = parseLogoutRequest(logoutRequest, servletContext,
+        currentConfiguration.getResponseParser());
+    if (serviceTicket != null) {
+      logout(serviceTicket, servletContext);
+    }
+  }
+
+  private void performServiceTicketValidation(final HttpServletRequest httpServletRequest,
+      final HttpServletResponse httpServletResponse, final String serviceTicket,
+      final CasAuthenticationFilterConfiguration currentConfiguration) throws IOException {
+
+    String failureUrl = currentConfiguration.getFailureUrl();
+    String serviceUrl = getServiceUrl(httpServletRequest, currentConfiguration);
+
+    HttpSession currentHttpSession = httpServletRequest.getSession(false);
+    ServiceTicketCache.ValidatedServiceTicket validatedServiceTicket = serviceTicketCache.get(
+        serviceTicket, serviceUrl, currentHttpSession == null ? null : currentHttpSession.getId());
+    if (validatedServiceTicket != null) {
+      authenticateSession(httpServletRequest, new CasSessionState(serviceTicket,
+          validatedServiceTicket.getPrincipal(), validatedServiceTicket.getResourceId(),
+          validatedServiceTicket.getAttributes(),
+          validatedServiceTicket.getProxyGrantingTicket()));
+      metrics.validationSucceeded();
+      httpServletResponse.sendRedirect(serviceUrl);
+      return;
+    }
+
+    Optional<CasValidationResult> validationResult;
+    try {
+      validationResult = validateServiceTicketGuarded(serviceUrl, serviceTicket,
+          currentConfiguration);
+    } catch (IOException | RuntimeException e) {
+      httpServletRequest.getServletContext().log(
+          "Failed to validate service ticket [" + serviceTicket + "]", e);
+      metrics.validationFailed();
+      httpServletResponse.sendRedirect(failureUrl);
+      return;
+    }
+    if (!validationResult.isPresent()) {
+      metrics.validationFailed();
+      httpServletResponse.sendRedirect(failureUrl);
+      return;
+    }
+
+    String principal = validationResult.get().getPrincipal();
+    Optional<Long> resourceId = resourceIdResolver.getResourceId(principal);
+    if (!resourceId.isPresent()) {
+      httpServletRequest.getServletContext().log(
+          "Principal [" + principal + "] cannot be mapped to Resource ID");
+      metrics.principalUnmapped();
+      httpServletResponse.sendRedirect(failureUrl);
+      return;
+    }
+
+    Map<String, List<String>> attributes =
+        attributePool.internAttributes(validationResult.get().getAttributes());
+    String proxyGrantingTicket = takeProxyGrantingTicket(httpServletRequest,
+        validationResult.get().getProxyGrantingTicketIou());
+    HttpSession httpSession = authenticateSession(httpServletRequest, new CasSessionState(
+        serviceTicket, principal, resourceId.get(), attributes, proxyGrantingTicket));
+    serviceTicketCache.put(serviceTicket, serviceUrl, httpSession.getId(), principal,
+        resourceId.get(), attributes, proxyGrantingTicket);
+    metrics.validationSucceeded();
+    httpServletResponse.sendRedirect(serviceUrl);
+  }
+
+  /**
+   * Processes a batch of queued CAS logout requests. All logout requests are parsed first, then the
+   * sessions of the service tickets are invalidated.
+   *
+   * @param batch
+   *          The queued logout requests.
+   */
+  public void processLogoutRequests(final List<LogoutRequestQueue.PendingLogoutRequest> batch) {
+    CasResponseParser responseParser = configuration.getResponseParser();
+    Map<String, ServletContext> serviceTickets = new LinkedHashMap<>();
+    for (LogoutRequestQueue.PendingLogoutRequest pendingLogoutRequest : batch) {
+      String serviceTicket = parseLogoutRequest(pendingLogoutRequest.getLogoutRequest(),
+          pendingLogoutRequest.getServletContext(), responseParser);
+      if (serviceTicket != null) {
+        serviceTickets.put(serviceTicket, pendingLogoutRequest.getServletContext());
+      }
+    }
+    for (Map.Entry<String, ServletContext> serviceTicket : serviceTickets.entrySet()) {
+      logout(serviceTicket.getKey(), serviceTicket.getValue());
+    }
+  }
+
+  /**
+   * Redirects the browser to the CAS login URL with <code>gateway=true</code> and marks it with the
+   * gateway cookie. The CAS server redirects back to the service URL with a service ticket if the
+   * user has a single sign-on session and without a service ticket otherwise.
+   */
+  private void redirectToGateway(final HttpServletRequest httpServletRequest,
+      final HttpServletResponse httpServletResponse,
+      final CasAuthenticationFilterConfiguration currentConfiguration) throws IOException {
+    Cookie gatewayCookie = new Cookie(GATEWAY_COOKIE_NAME, "1");
+    String contextPath = httpServletRequest.getContextPath();
+    gatewayCookie.setPath((contextPath == null) || contextPath.isEmpty() ? "/" : contextPath);
+    long maxAge = currentConfiguration.getGatewayWindow() / MILLISECONDS_PER_SECOND;
+    gatewayCookie.setMaxAge((int) Math.max(1, Math.min(Integer.MAX_VALUE, maxAge)));
+    gatewayCookie.setHttpOnly(true);
+    gatewayCookie.setSecure(httpServletRequest.isSecure());
+    httpServletResponse.addCookie(gatewayCookie);
+
+    String loginUrl = currentConfiguration.getLoginUrlCache()
+        .getLoginUrl(getServiceUrl(httpServletRequest, currentConfiguration));
+    httpServletResponse.sendRedirect(loginUrl + "&gateway=true");
+  }
+
+  /**
+   * Redirects the request to its own URL, so it is processed again without the invalidated session.
+   */
+  private void redirectToRequestUrl(final HttpServletRequest httpServletRequest,
+      final HttpServletResponse httpServletResponse) throws IOException {
+    StringBuffer requestUrl = httpServletRequest.getRequestURL();
+    String queryString = httpServletRequest.getQueryString();
+    if (queryString != null) {
+      requestUrl.append('?').append(queryString);
+    }
+    httpServletResponse.sendRedirect(requestUrl.toString());
+  }
+
+  /**
+   * Registers the sessions restored by the session manager (for e.g. after restart) and the
+   * sessions authenticated by a previous instance of the filter. A restored state is replaced by a
+   * new state with the pooled instances of the attribute names and values. A session logged out
+   * while it was pending is invalidated instead. The attributes registered by this filter are
+   * recognized by their registration mark without looking up the index. Called before the include
+   * and exclude patterns are checked, so a logged out session cannot be used on any path.
+   *
+   * @return <code>false</code> if the session was invalidated.
+   */
+  private boolean registerRestoredSession(final HttpServletRequest httpServletRequest) {
+    HttpSession httpSession = httpServletRequest.getSession(false);
+    if (httpSession == null) {
+      return true;
+    }
+    Object state = httpSession.getAttribute(SESSION_ATTR_NAME_STATE);
+    CasSessionState casSessionState = CasSessionAttribute.getCasSessionState(state);
+    if (casSessionState == null) {
+      return true;
+    }
+    CasSessionAttribute casSessionAttribute =
+        state instanceof CasSessionAttribute ? (CasSessionAttribute) state : null;
+    if ((casSessionAttribute != null)
+        && casSessionAttribute.isRegisteredIn(serviceTicketSessionRegistry.getRegistrationToken())
+        && !serviceTicketSessionRegistry.isLoggedOut(httpSession.getId())) {
+      // registered by this filter since the state was created or restored
+      return true;
+    }
+    boolean registered =
+        serviceTicketSessionRegistry.isRegistered(casSessionState.getServiceTicket(), httpSession);
+    if (!registered && serviceTicketSessionRegistry.consumeLoggedOut(httpSession.getId())) {
+      try {
+        httpSession.invalidate();
+      } catch (IllegalStateException e) {
+        // the session is already invalidated
+      }
+      return false;
+    }
+    if (casSessionAttribute == null) {
+      setCasSessionAttribute(httpSession, new CasSessionState(
+          casSessionState.getServiceTicket(), casSessionState.getPrincipal(),
+          casSessionState.getResourceId(),
+          attributePool.internAttributes(casSessionState.getAttributes()),
+          casSessionState.getProxyGrantingTicket()));
+    } else {
+      if (!registered) {
+        serviceTicketSessionRegistry.register(casSessionState.getServiceTicket(), httpSession);
+      }
+      casSessionAttribute.markRegisteredIn(serviceTicketSessionRegistry.getRegistrationToken());
+    }
+    return true;
+  }
+
+  /**
+   * Redirects the request of a failed asynchronous validation to the failure URL like the
+   * synchronous validation does, unless the response is already sent.
+   */
+  private void sendFailureRedirect(final HttpServletResponse httpServletResponse,
+      final CasAuthenticationFilterConfiguration currentConfiguration) {
+    if (httpServletResponse.isCommitted()) {
+      return;
+    }
+    try {
+      httpServletResponse.sendRedirect(currentConfiguration.getFailureUrl());
+    } catch (IOException | IllegalStateException e) {
+      // the client is gone or the response is committed in the meantime
+    }
+  }
+
+  @Override
+  public void sessionCreated(final HttpSessionEvent se) {
+    // the session is registered when the service ticket validation succeeds
+  }
+
+  @Override
+  public void sessionDestroyed(final HttpSessionEvent se) {
+    HttpSession httpSession = se.getSession();
+    CasSessionState casSessionState = CasSessionAttribute.getCasSessionState(
+        httpSession.getAttribute(SESSION_ATTR_NAME_STATE));
+    if (casSessionState != null) {
+      serviceTicketSessionRegistry.unregister(casSessionState.getServiceTicket(), httpSession);
+    }
+  }
+
+  /**
+   * Stores the CAS state in the session and registers the session with the service ticket.
+   */
+  private void setCasSessionAttribute(final HttpSession httpSession,
+      final CasSessionState casSessionState) {
+    httpSession.setAttribute(SESSION_ATTR_NAME_STATE, new CasSessionAttribute(casSessionState,
+        serviceTicketSessionRegistry.getRegistrationToken()));
+    serviceTicketSessionRegistry.register(casSessionState.getServiceTicket(), httpSession);
+  }
+
+  private void setServletContext(final ServletContext servletContext) {
+    List<Map.Entry<String, Throwable>> logEntries;
+    synchronized (pendingLogEntries) {
+      filterServletContext = servletContext;
+      logEntries = new ArrayList<>(pendingLogEntries);
+      pendingLogEntries.clear();
+    }
+    for (Map.Entry<String, Throwable> logEntry : logEntries) {
+      servletContext.log(logEntry.getKey(), logEntry.getValue());
+    }
+  }
+
+  /**
+   * Takes the proxy granting ticket of the IOU out of the proxy granting ticket store.
+   *
+   * @return The proxy granting ticket or <code>null</code> if the proxy support is disabled or the
+   *         proxy granting ticket was not received.
+   */
+  private String takeProxyGrantingTicket(final HttpServletRequest httpServletRequest,
+      final String proxyGrantingTicketIou) {
+    if ((proxyGrantingTicketStore == null) || (proxyGrantingTicketIou == null)) {
+      return null;
+    }
+    String proxyGrantingTicket = proxyGrantingTicketStore.remove(proxyGrantingTicketIou);
+    if (proxyGrantingTicket == null) {
+      httpServletRequest.getServletContext().log("Proxy granting ticket of IOU ["
+          + proxyGrantingTicketIou + "] was not received by the proxy callback URL");
+    }
+    return proxyGrantingTicket;
+  }
+
+  /**
+   * Replaces the configuration of the filter. The requests in progress are finished with the
+   * configuration they started with.
+   */
+  public void updateConfiguration(final CasAuthenticationFilterConfiguration configuration) {
+    this.configuration = Objects.requireNonNull(configuration, "configuration cannot be null");
+  }
+
+  private Optional<CasValidationResult> validateServiceTicket(final String serviceUrl,
+      final String serviceTicket, final CasAuthenticationFilterConfiguration currentConfiguration)
+          throws IOException {
+
+    String validationQuery = "service=" + urlEncode(serviceUrl)
+        + "&ticket=" + urlEncode(serviceTicket)
+        + (proxyGrantingTicketStore == null ? ""
+            : "&pgtUrl=" + urlEncode(proxyGrantingTicketStore.getCallbackUrl()));
+
+    byte[] response = currentConfiguration.getValidationEndpoints().call(
+        (casServiceTicketValidatorUrl) -> casHttpClient.get(casServiceTicketValidatorUrl
+            + (casServiceTicketValidatorUrl.indexOf('?') < 0 ? "?" : "&") + validationQuery));
+
+    return Optional.ofNullable(
+        currentConfiguration.getResponseParser().parseServiceValidateResponse(response));
+  }
+
+  /**
+   * Validates the service ticket if the bulkhead and the circuit breaker permit it and records the
+   * outcome of the validation in the circuit breaker.
+   */
+  private Optional<CasValidationResult> validateServiceTicketGuarded(final String serviceUrl,
+      final String serviceTicket, final CasAuthenticationFilterConfiguration currentConfiguration)
+          throws IOException {
+
+    if ((validationBulkhead != null) && !validationBulkhead.tryAcquire()) {
+      throw new ValidationRejectedException(
+          "Maximum number of concurrent service ticket validations reached");
+    }
+    try {
+      long permission = circuitBreaker.tryAcquirePermission();
+      if (permission == CircuitBreaker.NO_PERMISSION) {
+        throw new ValidationRejectedException(
+            "Circuit breaker of the service ticket validation is open");
+      }
+      metrics.validationStarted();
+      long startTime = System.nanoTime();
+      boolean outcomeRecorded = false;
+      try {
+        Optional<CasValidationResult> validationResult = validateServiceTicket(serviceUrl,
+            serviceTicket, currentConfiguration);
+        outcomeRecorded = true;
+        circuitBreaker.onSuccess(permission, System.nanoTime() - startTime);
+        return validationResult;
+      } catch (IOException | RuntimeException e) {
+        outcomeRecorded = true;
+        circuitBreaker.onError(permission, System.nanoTime() - startTime);
+        throw e;
+      } finally {
+        if (!outcomeRecorded) {
+          // an Error interrupted the call, the half open trial must not stay in flight
+          circuitBreaker.releasePermission(permission);
+        }
+        // also after an Error, so the validations in flight gauge returns to zero
+        metrics.validationCompleted(System.nanoTime() - startTime);
+      }
+    } finally {
+      if (validationBulkhead != null) {
+        validationBulkhead.release();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the reconfigurable settings of a {@link CasAuthenticationFilter}. The
+ * filter reads the snapshot once per request, so a request is processed with a consistent
+ * configuration even if the configuration is replaced in the meantime.
+ */
+public final class CasAuthenticationFilterConfiguration {
+
+  private final PathMatcher excludePathMatcher;
+
+  private final String failureUrl;
+
+  private final boolean gatewayEnabled;
+
+  private final long gatewayWindow;
+
+  private final PathMatcher includePathMatcher;
+
+  private final LoginUrlCache loginUrlCache;
+
+  private final boolean parameterFastPathEnabled;
+
+  private final PathMatcher protectedPathMatcher;
+
+  private final String requestParamNameLogoutRequest;
+
+  private final String requestParamNameServiceTicket;
+
+  private final CasResponseParser responseParser;
+
+  private final ValidationEndpoints validationEndpoints;
+
+  /**
+   * Constructor.
+   *
+   * @param validationEndpoints
+   *          The service ticket validation URLs of the CAS servers.
+   * @param requestParamNameServiceTicket
+   *          The name of the request parameter of the service ticket.
+   * @param requestParamNameLogoutRequest
+   *          The name of the request parameter of the CAS logout request.
+   * @param parameterFastPathEnabled
+   *          Whether the query string is scanned before the request parameters are parsed.
+   * @param includePathMatcher
+   *          The paths processed by the filter, all paths are processed if it is empty.
+   * @param excludePathMatcher
+   *          The paths bypassing the filter.
+   * @param failureUrl
+   *          The URL where the user is redirected in case of failures.
+   * @param responseParser
+   *          The parser of the validation responses and the logout requests.
+   * @param loginUrlCache
+   *          The cache of the CAS login URLs by the service URLs.
+   * @param protectedPathMatcher
+   *          The paths where the unauthenticated users are redirected to the CAS login URL.
+   * @param gatewayEnabled
+   *          Whether the unauthenticated users are sent to the CAS server with
+   *          <code>gateway=true</code>.
+   * @param gatewayWindow
+   *          The time in milliseconds while a browser is not sent to the CAS server again after a
+   *          gateway request.
+   */
+  public CasAuthenticationFilterConfiguration(final ValidationEndpoints validationEndpoints,
+      final String requestParamNameServiceTicket, final String requestParamNameLogoutRequest,
+      final boolean parameterFastPathEnabled, final PathMatcher includePathMatcher,
+      final PathMatcher excludePathMatcher, final String failureUrl,
+      final CasResponseParser responseParser, final LoginUrlCache loginUrlCache,
+      final PathMatcher protectedPathMatcher, final boolean gatewayEnabled,
+      final long gatewayWindow) {
+    this.validationEndpoints = Objects.requireNonNull(validationEndpoints,
+        "validationEndpoints cannot be null");
+    this.requestParamNameServiceTicket = Objects.requireNonNull(requestParamNameServiceTicket,
+        "requestParamNameServiceTicket cannot be null");
+    this.requestParamNameLogoutRequest = Objects.requireNonNull(requestParamNameLogoutRequest,
+        "requestParamNameLogoutRequest cannot be null");
+    this.parameterFastPathEnabled = parameterFastPathEnabled;
+    this.includePathMatcher = Objects.requireNonNull(includePathMatcher,
+        "includePathMatcher cannot be null");
+    this.excludePathMatcher = Objects.requireNonNull(excludePathMatcher,
+        "excludePathMatcher cannot be null");
+    this.failureUrl = Objects.requireNonNull(failureUrl, "failureUrl cannot be null");
+    this.responseParser = Objects.requireNonNull(responseParser, "responseParser cannot be null");
+    this.loginUrlCache = Objects.requireNonNull(loginUrlCache, "loginUrlCache cannot be null");
+    this.protectedPathMatcher = Objects.requireNonNull(protectedPathMatcher,
+        "protectedPathMatcher cannot be null");
+    this.gatewayEnabled = gatewayEnabled;
+    this.gatewayWindow = gatewayWindow;
+  }
+
+  public PathMatcher getExcludePathMatcher() {
+    return excludePathMatcher;
+  }
+
+  public String getFailureUrl() {
+    return failureUrl;
+  }
+
+  public long getGatewayWindow() {
+    return gatewayWindow;
+  }
+
+  public PathMatcher getIncludePathMatcher() {
+    return includePathMatcher;
+  }
+
+  public LoginUrlCache getLoginUrlCache() {
+    return loginUrlCache;
+  }
+
+  public PathMatcher getProtectedPathMatcher() {
+    return protectedPathMatcher;
+  }
+
+  public String getRequestParamNameLogoutRequest() {
+    return requestParamNameLogoutRequest;
+  }
+
+  public String getRequestParamNameServiceTicket() {
+    return requestParamNameServiceTicket;
+  }
+
+  public CasResponseParser getResponseParser() {
+    return responseParser;
+  }
+
+  public ValidationEndpoints getValidationEndpoints() {
+    return validationEndpoints;
+  }
+
+  public boolean isGatewayEnabled() {
+    return gatewayEnabled;
+  }
+
+  public boolean isParameterFastPathEnabled() {
+    return parameterFastPathEnabled;
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Map;
+
+/**
+ * Management interface of a CAS authentication component instance registered in the platform
+ * MBean server. The times are in microseconds.
+ */
+public interface CasAuthenticationMXBean {
+
+  /**
+   * Clears the service ticket cache and the Resource ID cache.
+   */
+  void flushCaches();
+
+  String getCircuitBreakerState();
+
+  /**
+   * The configuration of the component instance.
+   */
+  Map<String, String> getConfiguration();
+
+  long getLogoutRequestCount();
+
+  long getResourceIdCacheEvictionCount();
+
+  /**
+   * The ratio of the Resource ID cache hits and lookups, or zero if there was no lookup.
+   */
+  double getResourceIdCacheHitRatio();
+
+  int getResourceIdCacheSize();
+
+  long getServiceTicketCacheEvictionCount();
+
+  /**
+   * The ratio of the service ticket cache hits and lookups, or zero if there was no lookup.
+   */
+  double getServiceTicketCacheHitRatio();
+
+  int getServiceTicketCacheSize();
+
+  /**
+   * The number of the CAS authenticated sessions tracked for the single logout.
+   */
+  int getSessionCount();
+
+  /**
+   * The estimated number of bytes occupied by the index of the tracked sessions.
+   */
+  long getSessionIndexFootprint();
+
+  long getUnmappedPrincipalCount();
+
+  /**
+   * The service ticket validation URLs with their outstanding calls, latency averages and ejection
+   * states.
+   */
+  String[] getValidationEndpoints();
+
+  long getValidationCount();
+
+  long getValidationFailureCount();
+
+  long getValidationsInFlight();
+
+  long getValidationSuccessCount();
+
+  long getValidationTimeMax();
+
+  double getValidationTimeMean();
+
+  long getValidationTimeP50();
+
+  long getValidationTimeP90();
+
+  long getValidationTimeP99();
+
+  long getValidationTimeP999();
+
+  /**
+   * Invalidates the sessions of the principal on this node. Only the tracked sessions are found,
+   * therefore nothing is invalidated if the session index is stored off-heap.
+   *
+   * @param principal
+   *          The principal (username) returned by the CAS server.
+   * @return The number of the invalidated sessions.
+   */
+  int invalidateSessionsOfPrincipal(String principal);
+
+}
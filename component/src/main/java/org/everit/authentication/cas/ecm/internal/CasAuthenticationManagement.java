@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.everit.authentication.cas.ecm.CasAuthenticationConstants;
+import org.everit.resource.resolver.ResourceIdResolver;
+import org.osgi.framework.Constants;
+
+/**
+ * {@link CasAuthenticationMXBean} of a {@link CasAuthenticationFilter}. The MXBean reads the live
+ * state of the filter, so nothing is copied or recorded for the management interface.
+ */
+public class CasAuthenticationManagement implements CasAuthenticationMXBean {
+
+  /**
+   * The domain of the object names of the MXBeans.
+   */
+  public static final String OBJECT_NAME_DOMAIN = "org.everit.authentication.cas.ecm";
+
+  /**
+   * The property of the component ID, used as the name of the MXBean if the component instance
+   * does not have a service PID.
+   */
+  public static final String PROP_COMPONENT_ID = "component.id";
+
+  private static final double P50 = 50;
+
+  private static final double P90 = 90;
+
+  private static final double P99 = 99;
+
+  private static final double P999 = 99.9;
+
+  /**
+   * Returns the name of the MXBean of a component instance: its service PID, its component ID or,
+   * if it has neither, the identity of the filter, so the MXBeans of the component instances do
+   * not collide.
+   *
+   * @param configuration
+   *          The configuration of the component instance.
+   * @param casAuthenticationFilter
+   *          The filter of the component instance.
+   */
+  public static String getName(final Map<String, Object> configuration,
+      final CasAuthenticationFilter casAuthenticationFilter) {
+    Object servicePid = configuration.get(Constants.SERVICE_PID);
+    if (servicePid != null) {
+      return servicePid.toString();
+    }
+    Object componentId = configuration.get(PROP_COMPONENT_ID);
+    if (componentId != null) {
+      return componentId.toString();
+    }
+    return CasAuthenticationConstants.SERVICE_FACTORYPID_CAS_AUTHENTICATION + "."
+        + Integer.toHexString(System.identityHashCode(casAuthenticationFilter));
+  }
+
+  private static double hitRatio(final long hitCount, final long missCount) {
+    long lookupCount = hitCount + missCount;
+    return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+  }
+
+  private static String toString(final Object value) {
+    if (value instanceof Object[]) {
+      return Arrays.toString((Object[]) value);
+    }
+    return String.valueOf(value);
+  }
+
+  private static Map<String, String> toStringMap(final Map<String, Object> configuration) {
+    Map<String, String> configurationStrings = new TreeMap<>();
+    configuration.forEach((key, value) -> configurationStrings.put(key, toString(value)));
+    return Collections.unmodifiableMap(configurationStrings);
+  }
+
+  private final CasAuthenticationFilter casAuthenticationFilter;
+
+  private final CircuitBreaker circuitBreaker;
+
+  private volatile Map<String, String> configuration;
+
+  private final CasAuthenticationMetricsCollector metrics;
+
+  private ObjectName objectName;
+
+  private final ResourceIdResolver resourceIdResolver;
+
+  /**
+   * Constructor.
+   *
+   * @param configuration
+   *          The configuration of the component instance.
+   * @param casAuthenticationFilter
+   *          The filter of the component instance.
+   * @param resourceIdResolver
+   *          The Resource ID resolver used by the filter, the cache statistics are available if it
+   *          is a {@link CachingResourceIdResolver}.
+   * @param circuitBreaker
+   *          The circuit breaker used by the filter.
+   * @param metrics
+   *          The metrics recorded by the filter.
+   */
+  public CasAuthenticationManagement(final Map<String, Object> configuration,
+      final CasAuthenticationFilter casAuthenticationFilter,
+      final ResourceIdResolver resourceIdResolver, final CircuitBreaker circuitBreaker,
+      final CasAuthenticationMetricsCollector metrics) {
+    this.configuration = toStringMap(configuration);
+    this.casAuthenticationFilter = Objects.requireNonNull(casAuthenticationFilter,
+        "casAuthenticationFilter cannot be null");
+    this.resourceIdResolver = Objects.requireNonNull(resourceIdResolver,
+        "resourceIdResolver cannot be null");
+    this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker cannot be null");
+    this.metrics = Objects.requireNonNull(metrics, "metrics cannot be null");
+  }
+
+  /**
+   * Sets the configuration shown by the MXBean after the component instance is reconfigured.
+   */
+  public void setConfiguration(final Map<String, Object> configuration) {
+    this.configuration = toStringMap(configuration);
+  }
+
+  @Override
+  public void flushCaches() {
+    casAuthenticationFilter.getServiceTicketCache().clear();
+    if (resourceIdResolver instanceof CachingResourceIdResolver) {
+      ((CachingResourceIdResolver) resourceIdResolver).clear();
+    }
+  }
+
+  @Override
+  public String getCircuitBreakerState() {
+    return circuitBreaker.getState().name();
+  }
+
+  @Override
+  public Map<String, String> getConfiguration() {
+    return configuration;
+  }
+
+  @Override
+  public long getLogoutRequestCount() {
+    return metrics.getLogoutRequestCount();
+  }
+
+  @Override
+  public long getResourceIdCacheEvictionCount() {
+    if (!(resourceIdResolver instanceof CachingResourceIdResolver)) {
+      return 0;
+    }
+    return ((CachingResourceIdResolver) resourceIdResolver).getEvictionCount();
+  }
+
+  @Override
+  public double getResourceIdCacheHitRatio() {
+    if (!(resourceIdResolver instanceof CachingResourceIdResolver)) {
+      return 0;
+    }
+    CachingResourceIdResolver cachingResourceIdResolver =
+        (CachingResourceIdResolver) resourceIdResolver;
+    return hitRatio(cachingResourceIdResolver.getHitCount(),
+        cachingResourceIdResolver.getMissCount());
+  }
+
+  @Override
+  public int getResourceIdCacheSize() {
+    if (!(resourceIdResolver instanceof CachingResourceIdResolver)) {
+      return 0;
+    }
+    return ((CachingResourceIdResolver) resourceIdResolver).size();
+  }
+
+  @Override
+  public long getServiceTicketCacheEvictionCount() {
+    return casAuthenticationFilter.getServiceTicketCache().getEvictionCount();
+  }
+
+  @Override
+  public double getServiceTicketCacheHitRatio() {
+    ServiceTicketCache serviceTicketCache = casAuthenticationFilter.getServiceTicketCache();
+    return hitRatio(serviceTicketCache.getHitCount(), serviceTicketCache.getMissCount());
+  }
+
+  @Override
+  public int getServiceTicketCacheSize() {
+    return casAuthenticationFilter.getServiceTicketCache().size();
+  }
+
+  @Override
+  public int getSessionCount() {
+    return casAuthenticationFilter.getServiceTicketSessionRegistry().size();
+  }
+
+  @Override
+  public long getSessionIndexFootprint() {
+    return casAuthenticationFilter.getServiceTicketSessionRegistry().getFootprint();
+  }
+
+  @Override
+  public long getUnmappedPrincipalCount() {
+    return metrics.getUnmappedPrincipalCount();
+  }
+
+  @Override
+  public long getValidationCount() {
+    return metrics.getValidationCount();
+  }
+
+  @Override
+  public String[] getValidationEndpoints() {
+    return casAuthenticationFilter.getConfiguration().getValidationEndpoints().toStrings();
+  }
+
+  @Override
+  public long getValidationFailureCount() {
+    return metrics.getValidationFailureCount();
+  }
+
+  @Override
+  public long getValidationsInFlight() {
+    return metrics.getValidationsInFlight();
+  }
+
+  @Override
+  public long getValidationSuccessCount() {
+    return metrics.getValidationSuccessCount();
+  }
+
+  @Override
+  public long getValidationTimeMax() {
+    return metrics.getValidationTimeMax();
+  }
+
+  @Override
+  public double getValidationTimeMean() {
+    return metrics.getValidationTimeMean();
+  }
+
+  @Override
+  public long getValidationTimeP50() {
+    return metrics.getValidationTimePercentile(P50);
+  }
+
+  @Override
+  public long getValidationTimeP90() {
+    return metrics.getValidationTimePercentile(P90);
+  }
+
+  @Override
+  public long getValidationTimeP99() {
+    return metrics.getValidationTimePercentile(P99);
+  }
+
+  @Override
+  public long getValidationTimeP999() {
+    return metrics.getValidationTimePercentile(P999);
+  }
+
+  @Override
+  public int invalidateSessionsOfPrincipal(final String principal) {
+    return casAuthenticationFilter.invalidateSessionsOfPrincipal(principal);
+  }
+
+  /**
+   * Registers the MXBean in the platform MBean server.
+   *
+   * @param name
+   *          The name of the component instance, see {@link #getName(Map,
+   *          CasAuthenticationFilter)}.
+   * @throws IllegalStateException
+   *           If the MXBean cannot be registered.
+   */
+  public synchronized void register(final String name) {
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName newObjectName = new ObjectName(OBJECT_NAME_DOMAIN
+          + ":type=CasAuthentication,name=" + ObjectName.quote(name));
+      mbeanServer.registerMBean(this, newObjectName);
+      objectName = newObjectName;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register the MXBean of CAS authentication ["
+          + name + "]", e);
+    }
+  }
+
+  /**
+   * Unregisters the MXBean from the platform MBean server if it is registered.
+   */
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException e) {
+      casAuthenticationFilter.log("Failed to unregister the MXBean [" + objectName + "]", e);
+    }
+    objectName = null;
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.everit.authentication.cas.ecm.CasAuthenticationMetrics;
+
+/**
+ * Collects the {@link CasAuthenticationMetrics} of a {@link CasAuthenticationFilter}. The counters
+ * are {@link LongAdder}s and the validation times are recorded in a {@link LatencyHistogram}, so
+ * recording is cheap and does not serialize the request threads.
+ */
+public class CasAuthenticationMetricsCollector implements CasAuthenticationMetrics {
+
+  private final LongAdder logoutRequestCount = new LongAdder();
+
+  private final LongAdder unmappedPrincipalCount = new LongAdder();
+
+  private final LongAdder validationFailureCount = new LongAdder();
+
+  private final LongAdder validationsInFlight = new LongAdder();
+
+  private final LongAdder validationSuccessCount = new LongAdder();
+
+  private final LatencyHistogram validationTimes = new LatencyHistogram();
+
+  @Override
+  public long getLogoutRequestCount() {
+    return logoutRequestCount.sum();
+  }
+
+  @Override
+  public long getUnmappedPrincipalCount() {
+    return unmappedPrincipalCount.sum();
+  }
+
+  @Override
+  public long getValidationCount() {
+    return validationTimes.getCount();
+  }
+
+  @Override
+  public long getValidationFailureCount() {
+    return validationFailureCount.sum();
+  }
+
+  @Override
+  public long getValidationsInFlight() {
+    return validationsInFlight.sum();
+  }
+
+  @Override
+  public long getValidationSuccessCount() {
+    return validationSuccessCount.sum();
+  }
+
+  @Override
+  public long getValidationTimeMax() {
+    return validationTimes.getMax();
+  }
+
+  @Override
+  public double getValidationTimeMean() {
+    return validationTimes.getMean();
+  }
+
+  @Override
+  public long getValidationTimePercentile(final double percentile) {
+    return validationTimes.getValueAtPercentile(percentile);
+  }
+
+  public void logoutRequestReceived() {
+    logoutRequestCount.increment();
+  }
+
+  public void principalUnmapped() {
+    unmappedPrincipalCount.increment();
+  }
+
+  /**
+   * Records the end of a service ticket validation call.
+   *
+   * @param durationNanos
+   *          The duration of the call in nanoseconds.
+   */
+  public void validationCompleted(final long durationNanos) {
+    validationsInFlight.decrement();
+    validationTimes.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+  }
+
+  public void validationFailed() {
+    validationFailureCount.increment();
+  }
+
+  public void validationStarted() {
+    validationsInFlight.increment();
+  }
+
+  public void validationSucceeded() {
+    validationSuccessCount.increment();
+  }
+
+}
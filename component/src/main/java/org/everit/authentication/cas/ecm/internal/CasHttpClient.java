@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Pooled HTTP client used to send the service ticket validation requests to the CAS server. The
+ * connections are kept alive and reused between the validations and every TLS connection is created
+ * from the same SSL context, so new connections can resume the cached TLS sessions instead of
+ * performing a full handshake.
+ */
+public class CasHttpClient {
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  private final CloseableHttpClient httpClient;
+
+  private final ScheduledExecutorService idleConnectionEvictor;
+
+  private final int maxConnectionsPerRoute;
+
+  /**
+   * Constructor.
+   *
+   * @param maxConnectionsPerRoute
+   *          The maximum number of pooled connections per CAS server.
+   * @param idleConnectionEvictionTime
+   *          The time in milliseconds after the idle connections are closed. Non-positive value
+   *          disables the eviction.
+   * @param connectTimeout
+   *          The connect timeout in milliseconds.
+   * @param readTimeout
+   *          The socket read timeout in milliseconds.
+   */
+  public CasHttpClient(final int maxConnectionsPerRoute, final long idleConnectionEvictionTime,
+      final int connectTimeout, final int readTimeout) {
+
+    Registry<ConnectionSocketFactory> socketFactoryRegistry =
+        RegistryBuilder.<ConnectionSocketFactory> create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", new SSLConnectionSocketFactory(
+                SSLContexts.createSystemDefault(),
+                SSLConnectionSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER))
+            .build();
+
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    connectionManager.setMaxTotal(maxConnectionsPerRoute);
+
+    RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectionRequestTimeout(connectTimeout)
+        .setConnectTimeout(connectTimeout)
+        .setSocketTimeout(readTimeout)
+        .build();
+
+    httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+        .disableConnectionState()
+        .disableCookieManagement()
+        .disableRedirectHandling()
+        .build();
+
+    if (idleConnectionEvictionTime > 0) {
+      idleConnectionEvictor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "cas-idle-connection-evictor");
+        thread.setDaemon(true);
+        return thread;
+      });
+      idleConnectionEvictor.scheduleWithFixedDelay(() -> {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleConnectionEvictionTime, TimeUnit.MILLISECONDS);
+      }, idleConnectionEvictionTime, idleConnectionEvictionTime, TimeUnit.MILLISECONDS);
+    } else {
+      idleConnectionEvictor = null;
+    }
+  }
+
+  /**
+   * Closes the pooled connections and stops the idle connection eviction.
+   */
+  public void close() {
+    if (idleConnectionEvictor != null) {
+      idleConnectionEvictor.shutdownNow();
+    }
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Sets the number of the CAS servers, so the total size of the connection pool allows the
+   * configured number of connections to each of them.
+   */
+  public void setRouteCount(final int routeCount) {
+    connectionManager.setMaxTotal(maxConnectionsPerRoute * Math.max(1, routeCount));
+  }
+
+  /**
+   * Sends a GET request to the given URL and returns the response body. The response is fully
+   * consumed, therefore the connection is released back to the pool.
+   *
+   * @param url
+   *          The URL to invoke.
+   * @return The body of the response.
+   * @throws IOException
+   *           If the request fails or the status of the response is not <code>200</code>.
+   */
+  public byte[] get(final String url) throws IOException {
+    HttpGet httpGet = new HttpGet(url);
+    try (CloseableHttpResponse httpResponse = httpClient.execute(httpGet)) {
+      HttpEntity httpEntity = httpResponse.getEntity();
+      byte[] body = httpEntity == null
+          ? new byte[0]
+          : EntityUtils.toByteArray(httpEntity);
+      int statusCode = httpResponse.getStatusLine().getStatusCode();
+      if (statusCode != HttpStatus.SC_OK) {
+        throw new IOException("Unexpected HTTP status [" + statusCode + "] received from ["
+            + url + "]");
+      }
+      return body;
+    }
+  }
+
+}
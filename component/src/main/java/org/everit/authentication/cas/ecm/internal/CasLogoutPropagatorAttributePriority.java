@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+/**
+ * Constants of CasLogoutPropagator attribute priority.
+ */
+public final class CasLogoutPropagatorAttributePriority {
+
+  public static final int P1_SERVICE_DESCRIPTION = 1;
+
+  public static final int P2_TRANSPORT = 2;
+
+  public static final int P3_MULTICAST_GROUP = 3;
+
+  public static final int P4_MULTICAST_PORT = 4;
+
+  public static final int P5_MULTICAST_TIME_TO_LIVE = 5;
+
+  private CasLogoutPropagatorAttributePriority() {
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.Hashtable;
+
+import org.everit.authentication.cas.ecm.CasLogoutPropagator;
+import org.everit.authentication.cas.ecm.CasLogoutPropagatorConstants;
+import org.everit.osgi.ecm.annotation.Activate;
+import org.everit.osgi.ecm.annotation.Component;
+import org.everit.osgi.ecm.annotation.ConfigurationPolicy;
+import org.everit.osgi.ecm.annotation.Deactivate;
+import org.everit.osgi.ecm.annotation.ManualService;
+import org.everit.osgi.ecm.annotation.attribute.IntegerAttribute;
+import org.everit.osgi.ecm.annotation.attribute.StringAttribute;
+import org.everit.osgi.ecm.annotation.attribute.StringAttributes;
+import org.everit.osgi.ecm.component.ComponentContext;
+import org.everit.osgi.ecm.extender.ECMExtenderConstants;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+
+import aQute.bnd.annotation.headers.ProvideCapability;
+
+/**
+ * ECM component for {@link CasLogoutPropagator} interface. It propagates the CAS logout requests
+ * between the nodes of a cluster, so the session of a service ticket is invalidated even if the CAS
+ * server sends the logout request to another node. The propagator must be referenced by the CAS
+ * Authentication components of the nodes.
+ */
+@Component(componentId = CasLogoutPropagatorConstants.SERVICE_FACTORYPID_CAS_LOGOUT_PROPAGATOR,
+    configurationPolicy = ConfigurationPolicy.FACTORY,
+    label = "Everit CAS Logout Propagator Component",
+    description = "This component propagates the CAS logout requests to the peer nodes of a "
+        + "cluster.")
+@ProvideCapability(ns = ECMExtenderConstants.CAPABILITY_NS_COMPONENT,
+    value = ECMExtenderConstants.CAPABILITY_ATTR_CLASS + "=${@class}")
+@StringAttributes({
+    @StringAttribute(attributeId = Constants.SERVICE_DESCRIPTION,
+        defaultValue = CasLogoutPropagatorConstants.DEFAULT_SERVICE_DESCRIPTION_CAS_LOGOUT_PROPAGATOR, // CS_DISABLE_LINE_LENGTH
+        priority = CasLogoutPropagatorAttributePriority.P1_SERVICE_DESCRIPTION,
+        label = "Service Description",
+        description = "The description of this component configuration. It is used to easily "
+            + "identify the service registered by this component.") })
+@ManualService(CasLogoutPropagator.class)
+public class CasLogoutPropagatorComponent {
+
+  private MulticastCasLogoutPropagator multicastCasLogoutPropagator;
+
+  private String multicastGroup;
+
+  private int multicastPort;
+
+  private int multicastTimeToLive;
+
+  private ServiceRegistration<CasLogoutPropagator> serviceRegistration;
+
+  private String transport;
+
+  /**
+   * Component activator method.
+   */
+  @Activate
+  public void activate(final ComponentContext<CasLogoutPropagatorComponent> componentContext) {
+    CasLogoutPropagator casLogoutPropagator;
+    if (CasLogoutPropagatorConstants.TRANSPORT_LOCAL.equals(transport)) {
+      casLogoutPropagator = new LocalCasLogoutPropagator();
+    } else if (CasLogoutPropagatorConstants.TRANSPORT_MULTICAST.equals(transport)) {
+      try {
+        multicastCasLogoutPropagator = new MulticastCasLogoutPropagator(
+            InetAddress.getByName(multicastGroup), multicastPort, multicastTimeToLive);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      casLogoutPropagator = multicastCasLogoutPropagator;
+    } else {
+      throw new IllegalArgumentException("Unknown transport [" + transport + "], supported "
+          + "values are " + CasLogoutPropagatorConstants.TRANSPORT_LOCAL + " and "
+          + CasLogoutPropagatorConstants.TRANSPORT_MULTICAST);
+    }
+
+    serviceRegistration = componentContext.registerService(CasLogoutPropagator.class,
+        casLogoutPropagator, new Hashtable<>(componentContext.getProperties()));
+  }
+
+  /**
+   * Component deactivate method.
+   */
+  @Deactivate
+  public void deactivate() {
+    if (serviceRegistration != null) {
+      serviceRegistration.unregister();
+      serviceRegistration = null;
+    }
+    if (multicastCasLogoutPropagator != null) {
+      multicastCasLogoutPropagator.close();
+      multicastCasLogoutPropagator = null;
+    }
+  }
+
+  @StringAttribute(attributeId = CasLogoutPropagatorConstants.ATTR_MULTICAST_GROUP,
+      defaultValue = CasLogoutPropagatorConstants.DEFAULT_MULTICAST_GROUP,
+      priority = CasLogoutPropagatorAttributePriority.P3_MULTICAST_GROUP,
+      label = "Multicast group",
+      description = "The multicast group address shared by the nodes of the cluster.")
+  public void setMulticastGroup(final String multicastGroup) {
+    this.multicastGroup = multicastGroup;
+  }
+
+  @IntegerAttribute(attributeId = CasLogoutPropagatorConstants.ATTR_MULTICAST_PORT,
+      defaultValue = CasLogoutPropagatorConstants.DEFAULT_MULTICAST_PORT,
+      priority = CasLogoutPropagatorAttributePriority.P4_MULTICAST_PORT,
+      label = "Multicast port",
+      description = "The UDP port of the multicast group.")
+  public void setMulticastPort(final int multicastPort) {
+    this.multicastPort = multicastPort;
+  }
+
+  @IntegerAttribute(attributeId = CasLogoutPropagatorConstants.ATTR_MULTICAST_TIME_TO_LIVE,
+      defaultValue = CasLogoutPropagatorConstants.DEFAULT_MULTICAST_TIME_TO_LIVE,
+      priority = CasLogoutPropagatorAttributePriority.P5_MULTICAST_TIME_TO_LIVE,
+      label = "Multicast time to live",
+      description = "The time to live of the multicast datagrams. 1 keeps the datagrams in the "
+          + "local network.")
+  public void setMulticastTimeToLive(final int multicastTimeToLive) {
+    this.multicastTimeToLive = multicastTimeToLive;
+  }
+
+  @StringAttribute(attributeId = CasLogoutPropagatorConstants.ATTR_TRANSPORT,
+      defaultValue = CasLogoutPropagatorConstants.DEFAULT_TRANSPORT,
+      priority = CasLogoutPropagatorAttributePriority.P2_TRANSPORT,
+      label = "Transport",
+      description = "MULTICAST: the logouts are sent to the peers in UDP multicast datagrams. "
+          + "LOCAL: the logouts are delivered only within the JVM, useful for testing.")
+  public void setTransport(final String transport) {
+    this.transport = transport;
+  }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+
+/**
+ * Parses the documents received from the CAS server: the responses of the service ticket
+ * validation and the proxy ticket requests and the logout requests.
+ */
+public interface CasResponseParser {
+
+  /**
+   * Returns the service ticket from the <code>SessionIndex</code> element of a logout request.
+   *
+   * @param logoutRequest
+   *          The logout request received from the CAS server.
+   * @return The service ticket or <code>null</code> if the request does not contain it.
+   * @throws IOException
+   *           If the logout request cannot be parsed.
+   */
+  String parseLogoutRequest(String logoutRequest) throws IOException;
+
+  /**
+   * Returns the proxy ticket from the response of a proxy ticket request.
+   *
+   * @param response
+   *          The body of the response.
+   * @return The proxy ticket or <code>null</code> if the response does not contain proxy success.
+   * @throws IOException
+   *           If the response cannot be parsed.
+   */
+  String parseProxyResponse(byte[] response) throws IOException;
+
+  /**
+   * Returns the principal (username) and the proxy granting ticket IOU from the response of the
+   * service ticket validation.
+   *
+   * @param response
+   *          The body of the response.
+   * @return The validation result or <code>null</code> if the response does not contain
+   *         authentication success.
+   * @throws IOException
+   *           If the response cannot be parsed.
+   */
+  CasValidationResult parseServiceValidateResponse(byte[] response) throws IOException;
+
+}
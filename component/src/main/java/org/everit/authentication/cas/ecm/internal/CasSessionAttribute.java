@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionEvent;
+
+import org.everit.authentication.cas.ecm.CasSessionState;
+
+/**
+ * The value of the CAS state session attribute stored by the {@link CasAuthenticationFilter}: the
+ * {@link CasSessionState} with the registration bookkeeping of the filter.
+ * <p>
+ * The attribute is notified when its session is passivated, so the removal of the attribute by the
+ * session manager while the session is saved can be told apart from a logout. It is serialized as
+ * its {@link CasSessionState}, so a session restored by the session manager holds a plain
+ * {@link CasSessionState} until the filter registers it again.
+ * </p>
+ */
+public final class CasSessionAttribute implements Serializable, HttpSessionActivationListener {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns the {@link CasSessionState} of a CAS state session attribute value.
+   *
+   * @param attributeValue
+   *          A {@link CasSessionAttribute}, a restored {@link CasSessionState} or any other value.
+   * @return The state or <code>null</code> if the value does not hold a {@link CasSessionState}.
+   */
+  public static CasSessionState getCasSessionState(final Object attributeValue) {
+    if (attributeValue instanceof CasSessionAttribute) {
+      return ((CasSessionAttribute) attributeValue).casSessionState;
+    }
+    if (attributeValue instanceof CasSessionState) {
+      return (CasSessionState) attributeValue;
+    }
+    return null;
+  }
+
+  private final CasSessionState casSessionState;
+
+  private transient volatile boolean passivated;
+
+  /**
+   * The registration token of the registry the session of the attribute is registered in. Cleared
+   * on passivation, so a session of a previous filter instance is registered again.
+   */
+  private transient volatile Object registrationToken;
+
+  /**
+   * Constructor.
+   *
+   * @param casSessionState
+   *          The CAS state of the session.
+   * @param registrationToken
+   *          The registration token of the registry the session is registered in.
+   */
+  public CasSessionAttribute(final CasSessionState casSessionState,
+      final Object registrationToken) {
+    this.casSessionState =
+        Objects.requireNonNull(casSessionState, "casSessionState cannot be null");
+    this.registrationToken = registrationToken;
+  }
+
+  public CasSessionState getCasSessionState() {
+    return casSessionState;
+  }
+
+  /**
+   * Returns <code>true</code> if the session of the attribute is being passivated or it is
+   * passivated.
+   */
+  public boolean isPassivated() {
+    return passivated;
+  }
+
+  /**
+   * Checks if the session of the attribute is registered with the registration token.
+   */
+  public boolean isRegisteredIn(final Object registrationToken) {
+    return (registrationToken != null) && (this.registrationToken == registrationToken);
+  }
+
+  /**
+   * Marks the session of the attribute as registered with the registration token of a registry,
+   * so the requests of the session do not have to look up the registration. <code>null</code>
+   * clears the mark.
+   */
+  public void markRegisteredIn(final Object registrationToken) {
+    this.registrationToken = registrationToken;
+  }
+
+  @Override
+  public void sessionDidActivate(final HttpSessionEvent se) {
+    passivated = false;
+  }
+
+  @Override
+  public void sessionWillPassivate(final HttpSessionEvent se) {
+    passivated = true;
+    registrationToken = null;
+  }
+
+  private Object writeReplace() {
+    return casSessionState;
+  }
+
+}
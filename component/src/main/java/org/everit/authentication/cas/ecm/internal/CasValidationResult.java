@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The content of a successful service ticket validation response.
+ */
+public final class CasValidationResult {
+
+  private final Map<String, List<String>> attributes;
+
+  private final String principal;
+
+  private final String proxyGrantingTicketIou;
+
+  /**
+   * Constructor.
+   *
+   * @param principal
+   *          The validated principal (username).
+   * @param proxyGrantingTicketIou
+   *          The proxy granting ticket IOU or <code>null</code> if the response does not contain
+   *          it.
+   * @param attributes
+   *          The attributes of the principal released by the CAS server in the order of the
+   *          response.
+   */
+  public CasValidationResult(final String principal, final String proxyGrantingTicketIou,
+      final Map<String, List<String>> attributes) {
+    this.principal = Objects.requireNonNull(principal, "principal cannot be null");
+    this.proxyGrantingTicketIou = proxyGrantingTicketIou;
+    this.attributes = Collections.unmodifiableMap(
+        Objects.requireNonNull(attributes, "attributes cannot be null"));
+  }
+
+  public Map<String, List<String>> getAttributes() {
+    return attributes;
+  }
+
+  public String getPrincipal() {
+    return principal;
+  }
+
+  /**
+   * Returns the IOU of the proxy granting ticket that the CAS server sent to the proxy callback URL
+   * or <code>null</code> if no proxy granting ticket was requested or issued.
+   */
+  public String getProxyGrantingTicketIou() {
+    return proxyGrantingTicketIou;
+  }
+
+}
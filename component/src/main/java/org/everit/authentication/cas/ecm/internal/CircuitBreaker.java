@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker of the CAS service ticket validation endpoint. The outcomes of the last
+ * validations are recorded in a fixed size window. If the rate of the failed or the slow calls
+ * reaches its threshold, the circuit opens and the validations fail fast for the configured time.
+ * After that time one trial call is permitted (half open state): if it succeeds the circuit closes,
+ * otherwise it opens again.
+ * <p>
+ * Every state transition starts a new generation. A permission is the generation it was acquired
+ * in and the outcome of a call is ignored if the circuit changed its state since the call was
+ * permitted, so a call permitted while the circuit was closed cannot decide the trial of the half
+ * open state.
+ * </p>
+ */
+public class CircuitBreaker {
+
+  /**
+   * The states of the circuit breaker.
+   */
+  public enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  /**
+   * Returned by {@link #tryAcquirePermission()} if the call is not permitted.
+   */
+  public static final long NO_PERMISSION = -1;
+
+  private static final byte OUTCOME_FAILURE = 1;
+
+  private static final byte OUTCOME_SLOW = 2;
+
+  private int failureCount;
+
+  private final int failureRateThreshold;
+
+  /**
+   * The number of the state transitions. Incremented before the state is written, so a permission
+   * acquired with the closed state of the previous generation is recorded in the open state of
+   * its generation, where it is ignored.
+   */
+  private volatile long generation;
+
+  private boolean halfOpenCallInFlight;
+
+  private long openedAt;
+
+  private final long openDurationNanos;
+
+  private int outcomeCount;
+
+  private int outcomeIndex;
+
+  private final byte[] outcomes;
+
+  private int slowCallCount;
+
+  private final long slowCallDurationThresholdNanos;
+
+  private final int slowCallRateThreshold;
+
+  private volatile State state = State.CLOSED;
+
+  private final Consumer<State> stateListener;
+
+  /**
+   * The generation of the last state passed to the state listener. Guarded by the
+   * {@link #stateListenerLock}.
+   */
+  private long stateListenerGeneration;
+
+  private final Object stateListenerLock = new Object();
+
+  /**
+   * Constructor.
+   *
+   * @param windowSize
+   *          The number of the recorded outcomes. Zero or negative value disables the circuit
+   *          breaker.
+   * @param failureRateThreshold
+   *          The percentage of failed calls in the window that opens the circuit.
+   * @param slowCallDurationThreshold
+   *          The duration in milliseconds above a call is considered slow.
+   * @param slowCallRateThreshold
+   *          The percentage of slow calls in the window that opens the circuit.
+   * @param openDuration
+   *          The time in milliseconds while the circuit stays open.
+   * @param stateListener
+   *          Notified about the state transitions, not called while holding the lock of the
+   *          circuit breaker. The notifications are serialized and a notification is skipped if a
+   *          later state is already notified, so the last notified state is the current one.
+   */
+  public CircuitBreaker(final int windowSize, final int failureRateThreshold,
+      final long slowCallDurationThreshold, final int slowCallRateThreshold,
+      final long openDuration, final Consumer<State> stateListener) {
+    outcomes = new byte[Math.max(0, windowSize)];
+    this.failureRateThreshold = failureRateThreshold;
+    slowCallDurationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationThreshold);
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDuration);
+    this.stateListener = stateListener;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public boolean isEnabled() {
+    return outcomes.length > 0;
+  }
+
+  private void notifyStateListener() {
+    if (stateListener == null) {
+      return;
+    }
+    synchronized (stateListenerLock) {
+      long currentGeneration;
+      State currentState;
+      synchronized (this) {
+        currentGeneration = generation;
+        currentState = state;
+      }
+      if (currentGeneration > stateListenerGeneration) {
+        stateListenerGeneration = currentGeneration;
+        stateListener.accept(currentState);
+      }
+    }
+  }
+
+  /**
+   * Records a failed call.
+   *
+   * @param permission
+   *          The permission returned by {@link #tryAcquirePermission()} for the call.
+   * @param durationNanos
+   *          The duration of the call in nanoseconds.
+   */
+  public void onError(final long permission, final long durationNanos) {
+    onResult(permission, true, durationNanos);
+  }
+
+  private void onResult(final long permission, final boolean failure, final long durationNanos) {
+    if (!isEnabled()) {
+      return;
+    }
+    boolean slow = durationNanos >= slowCallDurationThresholdNanos;
+    boolean transitioned;
+    synchronized (this) {
+      transitioned = (permission == generation) && recordResult(failure, slow);
+    }
+    if (transitioned) {
+      notifyStateListener();
+    }
+  }
+
+  /**
+   * Records a successful call.
+   *
+   * @param permission
+   *          The permission returned by {@link #tryAcquirePermission()} for the call.
+   * @param durationNanos
+   *          The duration of the call in nanoseconds.
+   */
+  public void onSuccess(final long permission, final long durationNanos) {
+    onResult(permission, false, durationNanos);
+  }
+
+  /**
+   * Records the outcome of a call permitted in the current generation.
+   *
+   * @return <code>true</code> if the state changed.
+   */
+  private boolean recordResult(final boolean failure, final boolean slow) {
+    if (state == State.HALF_OPEN) {
+      halfOpenCallInFlight = false;
+      return transitionTo((failure || slow) ? State.OPEN : State.CLOSED);
+    }
+    if (state == State.OPEN) {
+      // the call was permitted with the state read before the circuit opened
+      return false;
+    }
+
+    byte previousOutcome = outcomes[outcomeIndex];
+    if (outcomeCount == outcomes.length) {
+      failureCount -= previousOutcome & OUTCOME_FAILURE;
+      slowCallCount -= (previousOutcome & OUTCOME_SLOW) >> 1;
+    } else {
+      outcomeCount++;
+    }
+    byte outcome = (byte) ((failure ? OUTCOME_FAILURE : 0) | (slow ? OUTCOME_SLOW : 0));
+    outcomes[outcomeIndex] = outcome;
+    outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+    failureCount += failure ? 1 : 0;
+    slowCallCount += slow ? 1 : 0;
+
+    if ((outcomeCount == outcomes.length)
+        && (((failureCount * 100) >= (failureRateThreshold * outcomeCount))
+            || ((slowCallCount * 100) >= (slowCallRateThreshold * outcomeCount)))) {
+      return transitionTo(State.OPEN);
+    }
+    return false;
+  }
+
+  /**
+   * Releases a permission acquired by {@link #tryAcquirePermission()} without recording an
+   * outcome (for e.g. the call was interrupted by an {@link Error}). Clears the in-flight trial
+   * call of the half open state if the permission was acquired for it, so the next call can be
+   * permitted.
+   *
+   * @param permission
+   *          The permission returned by {@link #tryAcquirePermission()}.
+   */
+  public synchronized void releasePermission(final long permission) {
+    if ((state == State.HALF_OPEN) && (permission == generation)) {
+      halfOpenCallInFlight = false;
+    }
+  }
+
+  private boolean transitionTo(final State newState) {
+    if (state == newState) {
+      return false;
+    }
+    generation++;
+    state = newState;
+    if (newState == State.OPEN) {
+      openedAt = System.nanoTime();
+    } else if (newState == State.CLOSED) {
+      outcomeCount = 0;
+      outcomeIndex = 0;
+      failureCount = 0;
+      slowCallCount = 0;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a call is permitted. Every permitted call must be followed by
+   * {@link #onSuccess(long, long)}, {@link #onError(long, long)} or
+   * {@link #releasePermission(long)} with the returned permission.
+   *
+   * @return The permission of the call or {@link #NO_PERMISSION} if the circuit is open.
+   */
+  public long tryAcquirePermission() {
+    if (!isEnabled()) {
+      return 0;
+    }
+    long currentGeneration = generation;
+    if (state == State.CLOSED) {
+      return currentGeneration;
+    }
+    boolean transitioned = false;
+    long permission = NO_PERMISSION;
+    synchronized (this) {
+      if ((state == State.OPEN) && ((System.nanoTime() - openedAt) >= openDurationNanos)) {
+        transitioned = transitionTo(State.HALF_OPEN);
+      }
+      if ((state == State.HALF_OPEN) && !halfOpenCallInFlight) {
+        halfOpenCallInFlight = true;
+        permission = generation;
+      } else if (state == State.CLOSED) {
+        permission = generation;
+      }
+    }
+    if (transitioned) {
+      notifyStateListener();
+    }
+    return permission;
+  }
+
+}
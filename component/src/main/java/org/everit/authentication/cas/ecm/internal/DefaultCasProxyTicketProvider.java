@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpSession;
+
+import org.everit.authentication.cas.ecm.CasProxyTicketProvider;
+import org.everit.authentication.cas.ecm.CasSessionState;
+
+/**
+ * Requests the proxy tickets from the proxy URL of the CAS server with the proxy granting ticket
+ * of the {@link CasSessionState} stored in the session by the {@link CasAuthenticationFilter}.
+ */
+public class DefaultCasProxyTicketProvider implements CasProxyTicketProvider {
+
+  private static String urlEncode(final String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final CasHttpClient casHttpClient;
+
+  private final String casProxyUrl;
+
+  private final ProxyTicketCache proxyTicketCache;
+
+  private final Supplier<CasResponseParser> responseParser;
+
+  /**
+   * Constructor.
+   *
+   * @param casProxyUrl
+   *          The proxy URL of the CAS server.
+   * @param casHttpClient
+   *          The HTTP client used to call the CAS server.
+   * @param responseParser
+   *          Supplies the current parser of the proxy responses.
+   * @param proxyTicketCache
+   *          The cache of the issued proxy tickets.
+   */
+  public DefaultCasProxyTicketProvider(final String casProxyUrl,
+      final CasHttpClient casHttpClient, final Supplier<CasResponseParser> responseParser,
+      final ProxyTicketCache proxyTicketCache) {
+    this.casProxyUrl = Objects.requireNonNull(casProxyUrl, "casProxyUrl cannot be null");
+    this.casHttpClient = Objects.requireNonNull(casHttpClient, "casHttpClient cannot be null");
+    this.responseParser = Objects.requireNonNull(responseParser,
+        "responseParser cannot be null");
+    this.proxyTicketCache = Objects.requireNonNull(proxyTicketCache,
+        "proxyTicketCache cannot be null");
+  }
+
+  @Override
+  public String getProxyTicket(final HttpSession httpSession, final String targetService)
+      throws IOException {
+    Objects.requireNonNull(httpSession, "httpSession cannot be null");
+    Objects.requireNonNull(targetService, "targetService cannot be null");
+    CasSessionState casSessionState = CasSessionAttribute.getCasSessionState(
+        httpSession.getAttribute(CasAuthenticationFilter.SESSION_ATTR_NAME_STATE));
+    if (casSessionState == null) {
+      return null;
+    }
+    String proxyGrantingTicket = casSessionState.getProxyGrantingTicket();
+    if (proxyGrantingTicket == null) {
+      return null;
+    }
+    return getProxyTicket(proxyGrantingTicket, targetService);
+  }
+
+  private String getProxyTicket(final String proxyGrantingTicket, final String targetService)
+      throws IOException {
+    String proxyTicket = proxyTicketCache.get(proxyGrantingTicket, targetService);
+    if (proxyTicket != null) {
+      return proxyTicket;
+    }
+    byte[] response = casHttpClient.get(casProxyUrl
+        + (casProxyUrl.indexOf('?') < 0 ? "?" : "&")
+        + "targetService=" + urlEncode(targetService)
+        + "&pgt=" + urlEncode(proxyGrantingTicket));
+    proxyTicket = responseParser.get().parseProxyResponse(response);
+    if (proxyTicket != null) {
+      proxyTicketCache.put(proxyGrantingTicket, targetService, proxyTicket);
+    }
+    return proxyTicket;
+  }
+
+}
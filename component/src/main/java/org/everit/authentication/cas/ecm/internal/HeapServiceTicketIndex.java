@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+/**
+ * On-heap {@link ServiceTicketIndex}. The index is split into lock stripes selected by the hash of
+ * the service ticket, each stripe is an open addressing hash table stored in parallel arrays, so an
+ * entry costs an <code>int</code> and two references instead of a map entry object. The service
+ * tickets and the session IDs are not copied, the index refers to the instances held by the
+ * sessions.
+ */
+public class HeapServiceTicketIndex implements ServiceTicketIndex {
+
+  /**
+   * Open addressing hash table with linear probing of a lock stripe.
+   */
+  private static final class Stripe {
+
+    private int[] hashes;
+
+    private String[] serviceTickets;
+
+    private String[] sessionIds;
+
+    private int size;
+
+    Stripe() {
+      allocate(INITIAL_STRIPE_CAPACITY);
+    }
+
+    private void allocate(final int capacity) {
+      hashes = new int[capacity];
+      serviceTickets = new String[capacity];
+      sessionIds = new String[capacity];
+    }
+
+    void clear() {
+      allocate(INITIAL_STRIPE_CAPACITY);
+      size = 0;
+    }
+
+    String get(final String serviceTicket, final int hash) {
+      int index = indexOf(serviceTicket, hash);
+      return index < 0 ? null : sessionIds[index];
+    }
+
+    private int indexOf(final String serviceTicket, final int hash) {
+      int mask = serviceTickets.length - 1;
+      int index = hash & mask;
+      while (serviceTickets[index] != null) {
+        if ((hashes[index] == hash) && serviceTickets[index].equals(serviceTicket)) {
+          return index;
+        }
+        index = (index + 1) & mask;
+      }
+      return -1;
+    }
+
+    String put(final String serviceTicket, final int hash, final String sessionId) {
+      int index = indexOf(serviceTicket, hash);
+      if (index >= 0) {
+        String previousSessionId = sessionIds[index];
+        sessionIds[index] = sessionId;
+        return previousSessionId;
+      }
+      if ((size + 1) > (serviceTickets.length * MAX_LOAD_FACTOR_PERCENT / PERCENT)) {
+        resize(serviceTickets.length * 2);
+      }
+      insert(serviceTicket, hash, sessionId);
+      size++;
+      return null;
+    }
+
+    private void insert(final String serviceTicket, final int hash, final String sessionId) {
+      int mask = serviceTickets.length - 1;
+      int index = hash & mask;
+      while (serviceTickets[index] != null) {
+        index = (index + 1) & mask;
+      }
+      hashes[index] = hash;
+      serviceTickets[index] = serviceTicket;
+      sessionIds[index] = sessionId;
+    }
+
+    String remove(final String serviceTicket, final int hash, final String expectedSessionId) {
+      int index = indexOf(serviceTicket, hash);
+      if (index < 0) {
+        return null;
+      }
+      String sessionId = sessionIds[index];
+      if ((expectedSessionId != null) && !expectedSessionId.equals(sessionId)) {
+        return null;
+      }
+      removeAt(index);
+      size--;
+      return sessionId;
+    }
+
+    /**
+     * Removes the entry at the given index and shifts back the following entries of the probe
+     * sequence, so no tombstones are needed.
+     */
+    private void removeAt(final int removedIndex) {
+      int mask = serviceTickets.length - 1;
+      int gap = removedIndex;
+      int index = (removedIndex + 1) & mask;
+      while (serviceTickets[index] != null) {
+        int home = hashes[index] & mask;
+        if (((index - home) & mask) >= ((index - gap) & mask)) {
+          hashes[gap] = hashes[index];
+          serviceTickets[gap] = serviceTickets[index];
+          sessionIds[gap] = sessionIds[index];
+          gap = index;
+        }
+        index = (index + 1) & mask;
+      }
+      hashes[gap] = 0;
+      serviceTickets[gap] = null;
+      sessionIds[gap] = null;
+    }
+
+    private void resize(final int capacity) {
+      int[] oldHashes = hashes;
+      String[] oldServiceTickets = serviceTickets;
+      String[] oldSessionIds = sessionIds;
+      allocate(capacity);
+      for (int i = 0; i < oldServiceTickets.length; i++) {
+        if (oldServiceTickets[i] != null) {
+          insert(oldServiceTickets[i], oldHashes[i], oldSessionIds[i]);
+        }
+      }
+    }
+
+  }
+
+  private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+  private static final int MAX_LOAD_FACTOR_PERCENT = 75;
+
+  private static final int PERCENT = 100;
+
+  /**
+   * Estimated size of an object reference (compressed ordinary object pointers).
+   */
+  private static final int REFERENCE_SIZE = 4;
+
+  private static final int STRIPE_COUNT = 16;
+
+  static int hash(final String serviceTicket) {
+    int hash = serviceTicket.hashCode() * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private final Stripe[] stripes;
+
+  /**
+   * Constructor.
+   */
+  public HeapServiceTicketIndex() {
+    stripes = new Stripe[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  @Override
+  public String get(final String serviceTicket) {
+    int hash = hash(serviceTicket);
+    Stripe stripe = stripe(hash);
+    synchronized (stripe) {
+      return stripe.get(serviceTicket, hash);
+    }
+  }
+
+  @Override
+  public long getFootprint() {
+    long footprint = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        footprint += (long) stripe.serviceTickets.length * (Integer.BYTES + (2 * REFERENCE_SIZE));
+      }
+    }
+    return footprint;
+  }
+
+  @Override
+  public void put(final String serviceTicket, final String sessionId) {
+    int hash = hash(serviceTicket);
+    Stripe stripe = stripe(hash);
+    synchronized (stripe) {
+      stripe.put(serviceTicket, hash, sessionId);
+    }
+  }
+
+  @Override
+  public String remove(final String serviceTicket, final String expectedSessionId) {
+    int hash = hash(serviceTicket);
+    Stripe stripe = stripe(hash);
+    synchronized (stripe) {
+      return stripe.remove(serviceTicket, hash, expectedSessionId);
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  private Stripe stripe(final int hash) {
+    return stripes[(hash >>> 24) & (STRIPE_COUNT - 1)];
+  }
+
+}
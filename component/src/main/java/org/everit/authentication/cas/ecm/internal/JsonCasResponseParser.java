@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link CasResponseParser} of the JSON service ticket validation responses (CAS protocol 3,
+ * <code>format=JSON</code>). The response is read by a streaming {@link JsonReader} that stops
+ * after the authentication success object. The logout requests and the responses of the proxy
+ * ticket requests are always XML documents, therefore their parsing is delegated to an XML based
+ * parser.
+ */
+public class JsonCasResponseParser implements CasResponseParser {
+
+  private static final String MEMBER_ATTRIBUTES = "attributes";
+
+  private static final String MEMBER_AUTHENTICATION_FAILURE = "authenticationFailure";
+
+  private static final String MEMBER_AUTHENTICATION_SUCCESS = "authenticationSuccess";
+
+  private static final String MEMBER_PROXY_GRANTING_TICKET = "proxyGrantingTicket";
+
+  private static final String MEMBER_SERVICE_RESPONSE = "serviceResponse";
+
+  private static final String MEMBER_USER = "user";
+
+  private final CasResponseParser xmlParser;
+
+  public JsonCasResponseParser(final CasResponseParser xmlParser) {
+    this.xmlParser = Objects.requireNonNull(xmlParser, "xmlParser cannot be null");
+  }
+
+  /**
+   * Reads the released attributes. The value of an attribute is an array or a single value, the
+   * nested objects and arrays and the <code>null</code> values are skipped.
+   */
+  private static void readAttributes(final JsonReader reader,
+      final Map<String, List<String>> attributes) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      List<String> values = new ArrayList<>(1);
+      if (reader.peek() == '[') {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          readAttributeValue(reader, values);
+        }
+        reader.endArray();
+      } else {
+        readAttributeValue(reader, values);
+      }
+      if (!values.isEmpty()) {
+        attributes.computeIfAbsent(name, (key) -> new ArrayList<>(values.size())).addAll(values);
+      }
+    }
+    reader.endObject();
+  }
+
+  private static void readAttributeValue(final JsonReader reader, final List<String> values)
+      throws IOException {
+    int c = reader.peek();
+    if ((c == '{') || (c == '[')) {
+      reader.skipValue();
+      return;
+    }
+    String value = reader.nextScalar();
+    if (value != null) {
+      values.add(value);
+    }
+  }
+
+  @Override
+  public String parseLogoutRequest(final String logoutRequest) throws IOException {
+    return xmlParser.parseLogoutRequest(logoutRequest);
+  }
+
+  @Override
+  public String parseProxyResponse(final byte[] response) throws IOException {
+    return xmlParser.parseProxyResponse(response);
+  }
+
+  @Override
+  public CasValidationResult parseServiceValidateResponse(final byte[] response)
+      throws IOException {
+    JsonReader reader = new JsonReader(response);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (MEMBER_SERVICE_RESPONSE.equals(reader.nextName())) {
+        return readServiceResponse(reader);
+      }
+      reader.skipValue();
+    }
+    return null;
+  }
+
+  private CasValidationResult readAuthenticationSuccess(final JsonReader reader)
+      throws IOException {
+    reader.beginObject();
+    String user = null;
+    String proxyGrantingTicketIou = null;
+    Map<String, List<String>> attributes = new LinkedHashMap<>();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (MEMBER_USER.equals(name) && (reader.peek() == '"')) {
+        user = reader.nextString().trim();
+      } else if (MEMBER_PROXY_GRANTING_TICKET.equals(name) && (reader.peek() == '"')) {
+        proxyGrantingTicketIou = reader.nextString().trim();
+      } else if (MEMBER_ATTRIBUTES.equals(name) && (reader.peek() == '{')) {
+        readAttributes(reader, attributes);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return user == null ? null
+        : new CasValidationResult(user, proxyGrantingTicketIou, attributes);
+  }
+
+  private CasValidationResult readServiceResponse(final JsonReader reader) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (MEMBER_AUTHENTICATION_SUCCESS.equals(name)) {
+        return readAuthenticationSuccess(reader);
+      } else if (MEMBER_AUTHENTICATION_FAILURE.equals(name)) {
+        return null;
+      }
+      reader.skipValue();
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal pull based JSON reader working directly on the UTF-8 encoded bytes of a document. Only
+ * the values needed by the caller are decoded, the others are skipped without building any object
+ * tree.
+ */
+final class JsonReader {
+
+  private static final int HEX_RADIX = 16;
+
+  private static final int UNICODE_ESCAPE_LENGTH = 4;
+
+  private final byte[] json;
+
+  private int position;
+
+  JsonReader(final byte[] json) {
+    this.json = json;
+  }
+
+  void beginArray() throws IOException {
+    expect('[');
+  }
+
+  void beginObject() throws IOException {
+    expect('{');
+  }
+
+  void endArray() throws IOException {
+    expect(']');
+  }
+
+  void endObject() throws IOException {
+    expect('}');
+  }
+
+  private void expect(final char expected) throws IOException {
+    if (nextNonWhitespace() != expected) {
+      throw syntaxError("Expected '" + expected + "'");
+    }
+    position++;
+  }
+
+  /**
+   * Returns <code>true</code> if the current object or array has more members. The separator comma
+   * is consumed.
+   */
+  boolean hasNext() throws IOException {
+    int c = nextNonWhitespace();
+    if (c == ',') {
+      position++;
+      c = nextNonWhitespace();
+    }
+    return (c != '}') && (c != ']');
+  }
+
+  private boolean isWhitespace(final int c) {
+    return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\r');
+  }
+
+  /**
+   * Reads the name of the next member of the current object and consumes the colon after it.
+   */
+  String nextName() throws IOException {
+    String name = nextString();
+    expect(':');
+    return name;
+  }
+
+  private int nextNonWhitespace() throws IOException {
+    while (position < json.length) {
+      int c = json[position];
+      if (!isWhitespace(c)) {
+        return c;
+      }
+      position++;
+    }
+    throw syntaxError("Unexpected end of document");
+  }
+
+  /**
+   * Reads a string, number or boolean value as a string.
+   *
+   * @return The value or <code>null</code> if the value is the <code>null</code> literal.
+   */
+  String nextScalar() throws IOException {
+    if (nextNonWhitespace() == '"') {
+      return nextString();
+    }
+    int start = position;
+    skipLiteral();
+    String literal = new String(json, start, position - start, StandardCharsets.US_ASCII);
+    return "null".equals(literal) ? null : literal;
+  }
+
+  /**
+   * Reads a string value.
+   */
+  String nextString() throws IOException {
+    expect('"');
+    StringBuilder sb = null;
+    int start = position;
+    while (position < json.length) {
+      byte c = json[position];
+      if (c == '"') {
+        String segment = new String(json, start, position - start, StandardCharsets.UTF_8);
+        position++;
+        return sb == null ? segment : sb.append(segment).toString();
+      }
+      if (c == '\\') {
+        if (sb == null) {
+          sb = new StringBuilder();
+        }
+        sb.append(new String(json, start, position - start, StandardCharsets.UTF_8));
+        position++;
+        sb.append(readEscapedCharacter());
+        start = position;
+      } else {
+        position++;
+      }
+    }
+    throw syntaxError("Unterminated string");
+  }
+
+  /**
+   * Returns the first non whitespace character of the next token without consuming it.
+   */
+  int peek() throws IOException {
+    return nextNonWhitespace();
+  }
+
+  private char readEscapedCharacter() throws IOException {
+    if (position >= json.length) {
+      throw syntaxError("Unterminated escape sequence");
+    }
+    char escaped = (char) json[position++];
+    switch (escaped) {
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        if ((position + UNICODE_ESCAPE_LENGTH) > json.length) {
+          throw syntaxError("Unterminated escape sequence");
+        }
+        int codeUnit = 0;
+        for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++) {
+          int digit = Character.digit(json[position++], HEX_RADIX);
+          if (digit < 0) {
+            throw syntaxError("Invalid unicode escape sequence");
+          }
+          codeUnit = (codeUnit * HEX_RADIX) + digit;
+        }
+        return (char) codeUnit;
+      default:
+        return escaped;
+    }
+  }
+
+  /**
+   * Skips the next value including the nested objects and arrays.
+   */
+  void skipValue() throws IOException {
+    int c = nextNonWhitespace();
+    if (c == '{') {
+      beginObject();
+      while (hasNext()) {
+        nextName();
+        skipValue();
+      }
+      endObject();
+    } else if (c == '[') {
+      beginArray();
+      while (hasNext()) {
+        skipValue();
+      }
+      endArray();
+    } else if (c == '"') {
+      nextString();
+    } else {
+      skipLiteral();
+    }
+  }
+
+  private void skipLiteral() {
+    while ((position < json.length) && !isWhitespace(json[position])
+        && (json[position] != ',') && (json[position] != '}') && (json[position] != ']')) {
+      position++;
+    }
+  }
+
+  private IOException syntaxError(final String message) {
+    return new IOException(message + " at position " + position + " of the JSON document");
+  }
+
+}
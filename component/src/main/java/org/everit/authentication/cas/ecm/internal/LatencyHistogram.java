@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies in the style of HdrHistogram. The values are counted in log
+ * linear buckets: the values below {@value #SUB_BUCKET_COUNT} are counted exactly, above that every
+ * power of two range is split into {@value #HALF_SUB_BUCKET_COUNT} equal buckets, so the relative
+ * error of the percentiles is below 7% on the whole range. The bucket counters are
+ * {@link LongAdder}s, so the recording threads do not contend on the same memory.
+ */
+public class LatencyHistogram {
+
+  private static final int MAX_VALUE_BITS = 40;
+
+  /**
+   * The largest recorded value, the larger values are counted as this one.
+   */
+  public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+  private static final int HALF_SUB_BUCKET_COUNT = 16;
+
+  private static final int HALF_SUB_BUCKET_COUNT_BITS = 4;
+
+  private static final int SUB_BUCKET_COUNT = HALF_SUB_BUCKET_COUNT * 2;
+
+  private static final int PERCENT = 100;
+
+  private static int bucketIndex(final long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = shift(value);
+    return SUB_BUCKET_COUNT + ((shift - 1) * HALF_SUB_BUCKET_COUNT)
+        + (int) ((value >>> shift) - HALF_SUB_BUCKET_COUNT);
+  }
+
+  /**
+   * Returns the largest value that is counted in the bucket.
+   */
+  private static long highestValue(final int bucketIndex) {
+    if (bucketIndex < SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+    int shift = ((bucketIndex - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT) + 1;
+    long subBucket = ((bucketIndex - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT)
+        + HALF_SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  private static int shift(final long value) {
+    return (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - HALF_SUB_BUCKET_COUNT_BITS;
+  }
+
+  private final LongAdder[] buckets = new LongAdder[bucketIndex(MAX_VALUE) + 1];
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * Constructor.
+   */
+  public LatencyHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns the mean of the recorded values or zero if no value is recorded.
+   */
+  public double getMean() {
+    long currentCount = count.sum();
+    if (currentCount == 0) {
+      return 0;
+    }
+    return (double) sum.sum() / currentCount;
+  }
+
+  /**
+   * Returns the value at the percentile: the recorded values are less than or equal to the
+   * returned value in the given percent of the cases, within the precision of the buckets.
+   *
+   * @param percentile
+   *          The percentile between 0 and 100.
+   * @return The value at the percentile or zero if no value is recorded.
+   */
+  public long getValueAtPercentile(final double percentile) {
+    if ((percentile < 0) || (percentile > PERCENT)) {
+      throw new IllegalArgumentException(
+          "percentile must be between 0 and 100, got [" + percentile + "]");
+    }
+    long[] counts = new long[buckets.length];
+    long totalCount = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+      totalCount += counts[i];
+    }
+    if (totalCount == 0) {
+      return 0;
+    }
+    long targetCount = Math.max(1, (long) Math.ceil((percentile / PERCENT) * totalCount));
+    long cumulativeCount = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulativeCount += counts[i];
+      if (cumulativeCount >= targetCount) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Records a value. The negative values are recorded as zero.
+   */
+  public void record(final long value) {
+    long boundedValue = Math.min(Math.max(value, 0), MAX_VALUE);
+    buckets[bucketIndex(boundedValue)].increment();
+    count.increment();
+    sum.add(boundedValue);
+    max.accumulate(boundedValue);
+  }
+
+  /**
+   * Clears the recorded values. The values recorded concurrently with the reset may or may not be
+   * cleared.
+   */
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+    count.reset();
+    sum.reset();
+    max.reset();
+  }
+
+}
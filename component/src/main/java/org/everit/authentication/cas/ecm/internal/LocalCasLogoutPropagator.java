@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.everit.authentication.cas.ecm.CasLogoutListener;
+import org.everit.authentication.cas.ecm.CasLogoutPropagator;
+
+/**
+ * In-process {@link CasLogoutPropagator} that delivers the logouts to the listeners registered in
+ * the same JVM. It is a stand-in of a real cluster for testing with several applications in one
+ * JVM.
+ */
+public class LocalCasLogoutPropagator implements CasLogoutPropagator {
+
+  private final List<CasLogoutListener> casLogoutListeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void addCasLogoutListener(final CasLogoutListener casLogoutListener) {
+    casLogoutListeners.add(Objects.requireNonNull(casLogoutListener,
+        "casLogoutListener cannot be null"));
+  }
+
+  @Override
+  public void propagate(final Collection<String> serviceTickets) {
+    for (CasLogoutListener casLogoutListener : casLogoutListeners) {
+      casLogoutListener.logoutReceived(serviceTickets);
+    }
+  }
+
+  @Override
+  public void removeCasLogoutListener(final CasLogoutListener casLogoutListener) {
+    casLogoutListeners.remove(casLogoutListener);
+  }
+
+}
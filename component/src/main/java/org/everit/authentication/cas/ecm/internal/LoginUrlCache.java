@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of the CAS login URLs by the service URLs. The login URL is built from the
+ * configured CAS login URL and the encoded service URL, and the same few service URLs are requested
+ * by most of the unauthenticated users, so the cache spares the encoding and the concatenation of
+ * the strings on every redirect. The least recently used entry is evicted when the cache is full.
+ */
+public class LoginUrlCache {
+
+  private final String casLoginUrlWithServiceParameter;
+
+  private final Map<String, String> loginUrls;
+
+  private final int maxSize;
+
+  /**
+   * Constructor.
+   *
+   * @param casLoginUrl
+   *          The login URL of the CAS server.
+   * @param maxSize
+   *          The maximum number of cached login URLs. Zero or negative value disables the cache.
+   */
+  public LoginUrlCache(final String casLoginUrl, final int maxSize) {
+    Objects.requireNonNull(casLoginUrl, "casLoginUrl cannot be null");
+    casLoginUrlWithServiceParameter =
+        casLoginUrl + (casLoginUrl.indexOf('?') < 0 ? '?' : '&') + "service=";
+    this.maxSize = maxSize;
+    loginUrls = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+        return size() > LoginUrlCache.this.maxSize;
+      }
+
+    };
+  }
+
+  private String createLoginUrl(final String serviceUrl) {
+    try {
+      return casLoginUrlWithServiceParameter
+          + URLEncoder.encode(serviceUrl, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the CAS login URL with the encoded service URL in the <code>service</code> parameter.
+   *
+   * @param serviceUrl
+   *          The URL where the CAS server redirects the user with the service ticket.
+   * @return The login URL.
+   */
+  public String getLoginUrl(final String serviceUrl) {
+    if (maxSize <= 0) {
+      return createLoginUrl(serviceUrl);
+    }
+    String loginUrl;
+    synchronized (this) {
+      loginUrl = loginUrls.get(serviceUrl);
+    }
+    if (loginUrl != null) {
+      return loginUrl;
+    }
+    loginUrl = createLoginUrl(serviceUrl);
+    synchronized (this) {
+      loginUrls.put(serviceUrl, loginUrl);
+    }
+    return loginUrl;
+  }
+
+  public synchronized int size() {
+    return loginUrls.size();
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Snapshot of the single logout index that survives the restart of the component or the JVM: the
+ * session IDs by the service tickets and the session IDs that were logged out while their sessions
+ * were not in memory.
+ * <p>
+ * The snapshot file starts with a magic number and a version byte, followed by the count and the
+ * length prefixed UTF-8 strings of the entries. The file is written to a temporary file first and
+ * moved to its place atomically, and it is memory-mapped when it is read, so the activation of the
+ * component does not copy it through stream buffers.
+ * </p>
+ */
+public final class LogoutIndexSnapshot {
+
+  private static final int MAGIC = 0x43415349;
+
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private static final byte VERSION = 1;
+
+  /**
+   * Reads the snapshot from a file.
+   *
+   * @param file
+   *          The snapshot file.
+   * @return The snapshot or an empty snapshot if the file does not exist.
+   * @throws IOException
+   *           if the file cannot be read or it is not a snapshot of a known version.
+   */
+  public static LogoutIndexSnapshot read(final Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return new LogoutIndexSnapshot(Collections.emptyMap(), Collections.emptySet());
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if ((buffer.getInt() != MAGIC) || (buffer.get() != VERSION)) {
+        throw new IOException("Unknown logout index snapshot format: " + file);
+      }
+      int entryCount = buffer.getInt();
+      Map<String, String> sessionIdsByServiceTicket = new HashMap<>();
+      for (int i = 0; i < entryCount; i++) {
+        String serviceTicket = readString(buffer);
+        sessionIdsByServiceTicket.put(serviceTicket, readString(buffer));
+      }
+      int loggedOutCount = buffer.getInt();
+      Set<String> loggedOutSessionIds = new HashSet<>();
+      for (int i = 0; i < loggedOutCount; i++) {
+        loggedOutSessionIds.add(readString(buffer));
+      }
+      return new LogoutIndexSnapshot(sessionIdsByServiceTicket, loggedOutSessionIds);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Truncated logout index snapshot: " + file, e);
+    }
+  }
+
+  private static String readString(final MappedByteBuffer buffer) {
+    int length = buffer.getInt();
+    if ((length < 0) || (length > buffer.remaining())) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(final DataOutputStream out, final String value)
+      throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private final Set<String> loggedOutSessionIds;
+
+  private final Map<String, String> sessionIdsByServiceTicket;
+
+  /**
+   * Constructor.
+   *
+   * @param sessionIdsByServiceTicket
+   *          The session IDs by the service tickets.
+   * @param loggedOutSessionIds
+   *          The session IDs that must be invalidated when they are used the first time.
+   */
+  public LogoutIndexSnapshot(final Map<String, String> sessionIdsByServiceTicket,
+      final Set<String> loggedOutSessionIds) {
+    this.sessionIdsByServiceTicket = Collections.unmodifiableMap(Objects.requireNonNull(
+        sessionIdsByServiceTicket, "sessionIdsByServiceTicket cannot be null"));
+    this.loggedOutSessionIds = Collections.unmodifiableSet(
+        Objects.requireNonNull(loggedOutSessionIds, "loggedOutSessionIds cannot be null"));
+  }
+
+  public Set<String> getLoggedOutSessionIds() {
+    return loggedOutSessionIds;
+  }
+
+  public Map<String, String> getSessionIdsByServiceTicket() {
+    return sessionIdsByServiceTicket;
+  }
+
+  /**
+   * Writes the snapshot to a file. The content of the file is replaced atomically, a reader never
+   * sees a partially written snapshot.
+   *
+   * @param file
+   *          The snapshot file. The missing parent directories are created.
+   * @throws IOException
+   *           if the snapshot cannot be written.
+   */
+  public void write(final Path file) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path tempFile = Files.createTempFile(directory, file.getFileName().toString(),
+        TEMP_FILE_SUFFIX);
+    try {
+      try (OutputStream fileOut = Files.newOutputStream(tempFile);
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(sessionIdsByServiceTicket.size());
+        for (Map.Entry<String, String> entry : sessionIdsByServiceTicket.entrySet()) {
+          writeString(out, entry.getKey());
+          writeString(out, entry.getValue());
+        }
+        out.writeInt(loggedOutSessionIds.size());
+        for (String sessionId : loggedOutSessionIds) {
+          writeString(out, sessionId);
+        }
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+}
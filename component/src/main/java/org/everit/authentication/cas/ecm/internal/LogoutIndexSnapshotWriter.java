@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Writes the {@link LogoutIndexSnapshot} of a {@link CasAuthenticationFilter} periodically to a
+ * file and once more when it is closed. A failed write is logged and the previous snapshot is kept
+ * until the next write succeeds.
+ */
+public class LogoutIndexSnapshotWriter {
+
+  private final BiConsumer<String, Throwable> errorLog;
+
+  private final Path file;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Supplier<LogoutIndexSnapshot> snapshotSupplier;
+
+  /**
+   * Constructor. The periodic writes are started immediately.
+   *
+   * @param file
+   *          The snapshot file.
+   * @param interval
+   *          The time in milliseconds between the writes.
+   * @param snapshotSupplier
+   *          Creates the snapshot to write.
+   * @param errorLog
+   *          Logs the message and the exception of a failed write.
+   */
+  public LogoutIndexSnapshotWriter(final Path file, final long interval,
+      final Supplier<LogoutIndexSnapshot> snapshotSupplier,
+      final BiConsumer<String, Throwable> errorLog) {
+    this.file = Objects.requireNonNull(file, "file cannot be null");
+    this.snapshotSupplier =
+        Objects.requireNonNull(snapshotSupplier, "snapshotSupplier cannot be null");
+    this.errorLog = Objects.requireNonNull(errorLog, "errorLog cannot be null");
+    scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+      Thread thread = new Thread(runnable, "cas-logout-index-snapshot-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::write, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the periodic writes and writes the last snapshot.
+   */
+  public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    write();
+  }
+
+  private void write() {
+    try {
+      snapshotSupplier.get().write(file);
+    } catch (IOException | RuntimeException e) {
+      // an exception thrown to the scheduler would cancel the periodic writes
+      errorLog.accept("Failed to write the CAS logout index snapshot [" + file + "]", e);
+    }
+  }
+
+}
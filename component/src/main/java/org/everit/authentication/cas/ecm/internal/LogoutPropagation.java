@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletContext;
+
+import org.everit.authentication.cas.ecm.CasLogoutListener;
+import org.everit.authentication.cas.ecm.CasLogoutPropagator;
+
+/**
+ * Batches and deduplicates the CAS logouts exchanged with the peer nodes through a
+ * {@link CasLogoutPropagator}. The service tickets of the local logouts are collected and sent in
+ * one batch when the batch is full or when the flush interval elapses. The recently seen service
+ * tickets (sent or received) are remembered, so a service ticket is propagated and processed only
+ * once even if the CAS server or several peers send it. A failed send is logged to the servlet
+ * context of the last submitted logout and the service tickets of the batch are dropped, so the
+ * periodic flush and the callers of {@link #submit(String, ServletContext)} are not affected.
+ */
+public class LogoutPropagation implements CasLogoutListener {
+
+  private final int batchSize;
+
+  private final CasLogoutPropagator casLogoutPropagator;
+
+  private final ScheduledExecutorService flusher;
+
+  private volatile Consumer<String> localLogout;
+
+  private ServletContext pendingServletContext;
+
+  private List<String> pendingServiceTickets = new ArrayList<>();
+
+  private final Map<String, Boolean> recentServiceTickets;
+
+  /**
+   * Constructor.
+   *
+   * @param casLogoutPropagator
+   *          The channel to the peer nodes.
+   * @param batchSize
+   *          The maximum number of service tickets sent in one batch.
+   * @param flushInterval
+   *          The time in milliseconds after the pending service tickets are sent.
+   * @param deduplicationSize
+   *          The number of recently seen service tickets remembered for deduplication.
+   */
+  public LogoutPropagation(final CasLogoutPropagator casLogoutPropagator, final int batchSize,
+      final long flushInterval, final int deduplicationSize) {
+    this.casLogoutPropagator = Objects.requireNonNull(casLogoutPropagator,
+        "casLogoutPropagator cannot be null");
+    this.batchSize = Math.max(1, batchSize);
+    recentServiceTickets = new LinkedHashMap<String, Boolean>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+        return size() > deduplicationSize;
+      }
+
+    };
+    flusher = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+      Thread thread = new Thread(runnable, "cas-logout-propagation-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends the pending service tickets, stops the periodic flush and stops receiving the logouts of
+   * the peers.
+   */
+  public void close() {
+    casLogoutPropagator.removeCasLogoutListener(this);
+    flusher.shutdown();
+    flush();
+  }
+
+  /**
+   * Sends the pending service tickets to the peers.
+   */
+  public void flush() {
+    List<String> serviceTickets;
+    ServletContext servletContext;
+    synchronized (this) {
+      if (pendingServiceTickets.isEmpty()) {
+        return;
+      }
+      serviceTickets = pendingServiceTickets;
+      servletContext = pendingServletContext;
+      pendingServiceTickets = new ArrayList<>();
+      pendingServletContext = null;
+    }
+    try {
+      casLogoutPropagator.propagate(serviceTickets);
+    } catch (RuntimeException e) {
+      servletContext.log("Failed to propagate " + serviceTickets.size() + " CAS logouts", e);
+    }
+  }
+
+  @Override
+  public void logoutReceived(final Collection<String> serviceTickets) {
+    for (String serviceTicket : serviceTickets) {
+      boolean firstSeen;
+      synchronized (this) {
+        firstSeen = recentServiceTickets.put(serviceTicket, Boolean.TRUE) == null;
+      }
+      if (firstSeen) {
+        localLogout.accept(serviceTicket);
+      }
+    }
+  }
+
+  /**
+   * Starts receiving the logouts of the peers.
+   *
+   * @param localLogout
+   *          Invalidates the local session of a service ticket received from a peer.
+   */
+  public void open(final Consumer<String> localLogout) {
+    this.localLogout = Objects.requireNonNull(localLogout, "localLogout cannot be null");
+    casLogoutPropagator.addCasLogoutListener(this);
+  }
+
+  /**
+   * Queues the service ticket of a local logout to be sent to the peers. Service tickets seen
+   * recently are ignored.
+   *
+   * @param servletContext
+   *          The servlet context of the application that received the logout, used for logging.
+   */
+  public void submit(final String serviceTicket, final ServletContext servletContext) {
+    Objects.requireNonNull(servletContext, "servletContext cannot be null");
+    boolean batchFull;
+    synchronized (this) {
+      if (recentServiceTickets.put(serviceTicket, Boolean.TRUE) != null) {
+        return;
+      }
+      pendingServiceTickets.add(serviceTicket);
+      pendingServletContext = servletContext;
+      batchFull = pendingServiceTickets.size() >= batchSize;
+    }
+    if (batchFull) {
+      flush();
+    }
+  }
+
+}
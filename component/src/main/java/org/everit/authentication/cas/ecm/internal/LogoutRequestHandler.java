@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler that collects the service ticket from the <code>SessionIndex</code> element of a CAS
+ * logout request.
+ */
+public class LogoutRequestHandler extends DefaultHandler {
+
+  private static final String ELEMENT_SESSION_INDEX = "SessionIndex";
+
+  private String sessionIndex;
+
+  private StringBuilder text;
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) {
+    if (text != null) {
+      text.append(ch, start, length);
+    }
+  }
+
+  @Override
+  public void endElement(final String uri, final String localName, final String qName) {
+    if ((text != null)
+        && ELEMENT_SESSION_INDEX.equals(
+            ServiceValidateResponseHandler.localName(localName, qName))) {
+      sessionIndex = text.toString().trim();
+      text = null;
+    }
+  }
+
+  /**
+   * Returns the service ticket of the logout request or <code>null</code> if the request does not
+   * contain <code>SessionIndex</code>.
+   */
+  public String getSessionIndex() {
+    return sessionIndex;
+  }
+
+  @Override
+  public void startElement(final String uri, final String localName, final String qName,
+      final Attributes attributes) {
+    if ((sessionIndex == null)
+        && ELEMENT_SESSION_INDEX.equals(
+            ServiceValidateResponseHandler.localName(localName, qName))) {
+      text = new StringBuilder();
+    }
+  }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Bounded queue of the CAS logout requests. The logout requests are acknowledged to the CAS server
+ * as soon as they are queued and a background worker processes them in batches, so a logout storm
+ * does not occupy the container threads.
+ */
+public class LogoutRequestQueue {
+
+  /**
+   * A queued logout request.
+   */
+  public static final class PendingLogoutRequest {
+
+    private final String logoutRequest;
+
+    private final ServletContext servletContext;
+
+    PendingLogoutRequest(final String logoutRequest, final ServletContext servletContext) {
+      this.logoutRequest = logoutRequest;
+      this.servletContext = servletContext;
+    }
+
+    public String getLogoutRequest() {
+      return logoutRequest;
+    }
+
+    /**
+     * The servlet context of the application that received the logout request, used for logging.
+     */
+    public ServletContext getServletContext() {
+      return servletContext;
+    }
+
+  }
+
+  private static final long CLOSE_TIMEOUT = 5000;
+
+  private final int batchSize;
+
+  private Consumer<List<PendingLogoutRequest>> batchProcessor;
+
+  private volatile boolean closed;
+
+  private long processedCount;
+
+  private final BlockingQueue<PendingLogoutRequest> queue;
+
+  private long submittedCount;
+
+  private Thread worker;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          The maximum number of queued logout requests.
+   * @param batchSize
+   *          The maximum number of logout requests processed in one batch.
+   */
+  public LogoutRequestQueue(final int capacity, final int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+    queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Waits until the logout requests queued before the call are processed.
+   *
+   * @return <code>true</code> if the logout requests are processed, <code>false</code> if the
+   *         timeout elapsed before.
+   */
+  public synchronized boolean await(final long timeout, final TimeUnit unit)
+      throws InterruptedException {
+    long target = submittedCount;
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (processedCount < target) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return true;
+  }
+
+  /**
+   * Stops accepting new logout requests and waits for the processing of the queued ones.
+   */
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    if (worker == null) {
+      return;
+    }
+    worker.interrupt();
+    try {
+      worker.join(CLOSE_TIMEOUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Queues a logout request.
+   *
+   * @return <code>false</code> if the queue is full or closed, then the caller should process the
+   *         logout request itself.
+   */
+  public synchronized boolean offer(final String logoutRequest,
+      final ServletContext servletContext) {
+    if (closed || (worker == null)
+        || !queue.offer(new PendingLogoutRequest(logoutRequest, servletContext))) {
+      return false;
+    }
+    submittedCount++;
+    return true;
+  }
+
+  /**
+   * Processes a batch of logout requests. A failure is logged to the servlet context of the first
+   * logout request of the batch, so it does not stop the worker.
+   */
+  private void processBatch(final List<PendingLogoutRequest> batch) {
+    try {
+      batchProcessor.accept(batch);
+    } catch (RuntimeException e) {
+      batch.get(0).getServletContext().log(
+          "Failed to process a batch of " + batch.size() + " CAS logout requests", e);
+    } finally {
+      synchronized (this) {
+        processedCount += batch.size();
+        notifyAll();
+      }
+    }
+  }
+
+  private void processBatches() {
+    List<PendingLogoutRequest> batch = new ArrayList<>(batchSize);
+    while (!closed) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        continue;
+      }
+      queue.drainTo(batch, batchSize - 1);
+      processBatch(batch);
+      batch.clear();
+    }
+    while (queue.drainTo(batch, batchSize) > 0) {
+      processBatch(batch);
+      batch.clear();
+    }
+  }
+
+  public int size() {
+    return queue.size();
+  }
+
+  /**
+   * Starts the background worker.
+   *
+   * @param batchProcessor
+   *          Processes a batch of logout requests.
+   */
+  public synchronized void start(final Consumer<List<PendingLogoutRequest>> batchProcessor) {
+    this.batchProcessor = Objects.requireNonNull(batchProcessor, "batchProcessor cannot be null");
+    worker = new Thread(this::processBatches, "cas-logout-request-worker");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+}
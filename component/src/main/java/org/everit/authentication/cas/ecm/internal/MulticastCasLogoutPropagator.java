@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link org.everit.authentication.cas.ecm.CasLogoutPropagator} that sends the logouts to the peer
+ * nodes in UDP multicast datagrams. A batch of service tickets is split into as few datagrams as
+ * possible. The datagrams are tagged with a random node ID, so the node ignores its own datagrams.
+ * The logouts are delivered to the listeners of the same JVM directly.
+ * <p>
+ * Datagram layout: magic number (<code>int</code>), node ID (two <code>long</code>s), number of
+ * service tickets (<code>unsigned short</code>) and the service tickets in modified UTF-8.
+ * </p>
+ */
+public class MulticastCasLogoutPropagator extends LocalCasLogoutPropagator {
+
+  private static final int HEADER_SIZE = 22;
+
+  private static final int MAGIC = 0x4341534C;
+
+  /**
+   * Keeps the datagrams below the typical MTU to avoid IP fragmentation.
+   */
+  private static final int MAX_DATAGRAM_SIZE = 1400;
+
+  private static final int RECEIVE_BUFFER_SIZE = 65535;
+
+  private final InetAddress group;
+
+  private final UUID nodeId = UUID.randomUUID();
+
+  private final int port;
+
+  private final Thread receiverThread;
+
+  private final MulticastSocket socket;
+
+  /**
+   * Constructor. Joins the multicast group and starts receiving the datagrams of the peers.
+   *
+   * @param group
+   *          The multicast group address.
+   * @param port
+   *          The UDP port of the multicast group.
+   * @param timeToLive
+   *          The time to live of the sent datagrams.
+   * @throws IOException
+   *           If the multicast group cannot be joined.
+   */
+  public MulticastCasLogoutPropagator(final InetAddress group, final int port,
+      final int timeToLive) throws IOException {
+    this.group = group;
+    this.port = port;
+    socket = new MulticastSocket(port);
+    try {
+      socket.setTimeToLive(timeToLive);
+      socket.joinGroup(group);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+    receiverThread = new Thread(this::receive, "cas-logout-propagator-receiver");
+    receiverThread.setDaemon(true);
+    receiverThread.start();
+  }
+
+  /**
+   * Leaves the multicast group and stops receiving datagrams.
+   */
+  public void close() {
+    try {
+      socket.leaveGroup(group);
+    } catch (IOException e) {
+      // the socket is closed anyway
+    } finally {
+      socket.close();
+    }
+    receiverThread.interrupt();
+  }
+
+  private List<String> decode(final DatagramPacket packet) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()));
+    if (in.readInt() != MAGIC) {
+      return null;
+    }
+    long mostSigBits = in.readLong();
+    long leastSigBits = in.readLong();
+    if ((mostSigBits == nodeId.getMostSignificantBits())
+        && (leastSigBits == nodeId.getLeastSignificantBits())) {
+      return null;
+    }
+    int count = in.readUnsignedShort();
+    List<String> serviceTickets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      serviceTickets.add(in.readUTF());
+    }
+    return serviceTickets;
+  }
+
+  @Override
+  public void propagate(final Collection<String> serviceTickets) {
+    super.propagate(serviceTickets);
+    try {
+      List<String> datagramServiceTickets = new ArrayList<>();
+      ByteArrayOutputStream ticketsBuffer = new ByteArrayOutputStream();
+      DataOutputStream ticketsOut = new DataOutputStream(ticketsBuffer);
+      for (String serviceTicket : serviceTickets) {
+        int sizeBefore = ticketsBuffer.size();
+        ticketsOut.writeUTF(serviceTicket);
+        if (((HEADER_SIZE + ticketsBuffer.size()) > MAX_DATAGRAM_SIZE)
+            && !datagramServiceTickets.isEmpty()) {
+          send(datagramServiceTickets.size(), ticketsBuffer.toByteArray(), sizeBefore);
+          byte[] overflow = ticketsBuffer.toByteArray();
+          ticketsBuffer.reset();
+          ticketsBuffer.write(overflow, sizeBefore, overflow.length - sizeBefore);
+          datagramServiceTickets.clear();
+        }
+        datagramServiceTickets.add(serviceTicket);
+      }
+      if (!datagramServiceTickets.isEmpty()) {
+        send(datagramServiceTickets.size(), ticketsBuffer.toByteArray(), ticketsBuffer.size());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void receive() {
+    byte[] buffer = new byte[RECEIVE_BUFFER_SIZE];
+    while (!socket.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        socket.receive(packet);
+        List<String> serviceTickets = decode(packet);
+        if ((serviceTickets != null) && !serviceTickets.isEmpty()) {
+          super.propagate(serviceTickets);
+        }
+      } catch (IOException e) {
+        // the socket is closed or the datagram is malformed
+      }
+    }
+  }
+
+  private void send(final int serviceTicketCount, final byte[] serviceTickets, final int length)
+      throws IOException {
+    ByteArrayOutputStream datagramBuffer = new ByteArrayOutputStream(HEADER_SIZE + length);
+    DataOutputStream out = new DataOutputStream(datagramBuffer);
+    out.writeInt(MAGIC);
+    out.writeLong(nodeId.getMostSignificantBits());
+    out.writeLong(nodeId.getLeastSignificantBits());
+    out.writeShort(serviceTicketCount);
+    out.write(serviceTickets, 0, length);
+    byte[] datagram = datagramBuffer.toByteArray();
+    socket.send(new DatagramPacket(datagram, datagram.length, group, port));
+  }
+
+}
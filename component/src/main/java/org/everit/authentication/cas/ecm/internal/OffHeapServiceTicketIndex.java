@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link ServiceTicketIndex} that stores its entries outside of the Java heap, so millions of
+ * tracked sessions do not inflate the old generation. The index is split into lock stripes, each
+ * stripe is an open addressing hash table of fixed size records in a direct {@link ByteBuffer}.
+ * <p>
+ * A record holds a 128 bit fingerprint of the service ticket instead of the ticket itself and the
+ * UTF-8 encoded session ID. Session IDs that do not fit into a record are kept in a small on-heap
+ * overflow map of the stripe.
+ * </p>
+ */
+public class OffHeapServiceTicketIndex implements ServiceTicketIndex {
+
+  /**
+   * Fingerprint of a service ticket. The stripe is selected by the highest bits and the home slot
+   * by the lowest bits of {@link #high}.
+   */
+  static final class Fingerprint {
+
+    final long high;
+
+    final long low;
+
+    Fingerprint(final String serviceTicket) {
+      long h1 = FNV_OFFSET_BASIS;
+      long h2 = GOLDEN_RATIO;
+      for (int i = 0, n = serviceTicket.length(); i < n; i++) {
+        char c = serviceTicket.charAt(i);
+        h1 = (h1 ^ c) * FNV_PRIME;
+        h2 = (h2 ^ c) * MIX_MULTIPLIER;
+        h2 ^= h2 >>> 32;
+      }
+      high = mix(h1);
+      low = mix(h2 ^ serviceTicket.length());
+    }
+
+  }
+
+  /**
+   * Open addressing hash table with linear probing of a lock stripe.
+   */
+  private static final class Stripe {
+
+    private ByteBuffer buffer;
+
+    private int capacity;
+
+    private final int maxCapacity;
+
+    private final Map<String, String> overflowSessionIds = new HashMap<>();
+
+    private int size;
+
+    Stripe(final int maxCapacity) {
+      this.maxCapacity = maxCapacity;
+      allocate(INITIAL_STRIPE_CAPACITY);
+    }
+
+    private void allocate(final int newCapacity) {
+      capacity = newCapacity;
+      buffer = ByteBuffer.allocateDirect(newCapacity * RECORD_SIZE);
+    }
+
+    void clear() {
+      allocate(INITIAL_STRIPE_CAPACITY);
+      overflowSessionIds.clear();
+      size = 0;
+    }
+
+    private void copyRecord(final ByteBuffer source, final int sourceIndex, final int index) {
+      ByteBuffer record = source.duplicate();
+      record.limit((sourceIndex * RECORD_SIZE) + RECORD_SIZE);
+      record.position(sourceIndex * RECORD_SIZE);
+      ByteBuffer target = buffer.duplicate();
+      target.position(index * RECORD_SIZE);
+      target.put(record);
+    }
+
+    String get(final String serviceTicket, final Fingerprint fingerprint) {
+      int index = indexOf(fingerprint);
+      return index < 0 ? null : readSessionId(serviceTicket, index);
+    }
+
+    private int home(final long high) {
+      return (int) high & (capacity - 1);
+    }
+
+    private int indexOf(final Fingerprint fingerprint) {
+      int mask = capacity - 1;
+      int index = home(fingerprint.high);
+      while (isUsed(index)) {
+        int offset = index * RECORD_SIZE;
+        if ((buffer.getLong(offset + OFFSET_HIGH) == fingerprint.high)
+            && (buffer.getLong(offset + OFFSET_LOW) == fingerprint.low)) {
+          return index;
+        }
+        index = (index + 1) & mask;
+      }
+      return -1;
+    }
+
+    private boolean isUsed(final int index) {
+      return buffer.get((index * RECORD_SIZE) + OFFSET_STATE) != STATE_EMPTY;
+    }
+
+    void put(final String serviceTicket, final Fingerprint fingerprint, final String sessionId) {
+      int index = indexOf(fingerprint);
+      if (index < 0) {
+        if ((size + 1) > (capacity * MAX_LOAD_FACTOR_PERCENT / PERCENT)) {
+          resize();
+        }
+        int mask = capacity - 1;
+        index = home(fingerprint.high);
+        while (isUsed(index)) {
+          index = (index + 1) & mask;
+        }
+        size++;
+      }
+      writeRecord(serviceTicket, fingerprint, sessionId, index);
+    }
+
+    private String readSessionId(final String serviceTicket, final int index) {
+      int offset = index * RECORD_SIZE;
+      byte state = buffer.get(offset + OFFSET_STATE);
+      if (state == STATE_OVERFLOW) {
+        return overflowSessionIds.get(serviceTicket);
+      }
+      byte[] sessionIdBytes = new byte[buffer.get(offset + OFFSET_SESSION_ID_LENGTH) & BYTE_MASK];
+      for (int i = 0; i < sessionIdBytes.length; i++) {
+        sessionIdBytes[i] = buffer.get(offset + OFFSET_SESSION_ID + i);
+      }
+      return new String(sessionIdBytes, StandardCharsets.UTF_8);
+    }
+
+    String remove(final String serviceTicket, final Fingerprint fingerprint,
+        final String expectedSessionId) {
+      int index = indexOf(fingerprint);
+      if (index < 0) {
+        return null;
+      }
+      String sessionId = readSessionId(serviceTicket, index);
+      if ((expectedSessionId != null) && !expectedSessionId.equals(sessionId)) {
+        return null;
+      }
+      if (buffer.get((index * RECORD_SIZE) + OFFSET_STATE) == STATE_OVERFLOW) {
+        overflowSessionIds.remove(serviceTicket);
+      }
+      removeAt(index);
+      size--;
+      return sessionId;
+    }
+
+    /**
+     * Removes the record at the given index and shifts back the following records of the probe
+     * sequence, so no tombstones are needed.
+     */
+    private void removeAt(final int removedIndex) {
+      int mask = capacity - 1;
+      int gap = removedIndex;
+      int index = (removedIndex + 1) & mask;
+      while (isUsed(index)) {
+        int home = home(buffer.getLong((index * RECORD_SIZE) + OFFSET_HIGH));
+        if (((index - home) & mask) >= ((index - gap) & mask)) {
+          copyRecord(buffer, index, gap);
+          gap = index;
+        }
+        index = (index + 1) & mask;
+      }
+      buffer.put((gap * RECORD_SIZE) + OFFSET_STATE, STATE_EMPTY);
+    }
+
+    private void resize() {
+      if (capacity >= maxCapacity) {
+        throw new IllegalStateException("The off-heap service ticket index is full");
+      }
+      ByteBuffer oldBuffer = buffer;
+      int oldCapacity = capacity;
+      allocate(capacity * 2);
+      int mask = capacity - 1;
+      for (int i = 0; i < oldCapacity; i++) {
+        int oldOffset = i * RECORD_SIZE;
+        if (oldBuffer.get(oldOffset + OFFSET_STATE) != STATE_EMPTY) {
+          int index = home(oldBuffer.getLong(oldOffset + OFFSET_HIGH));
+          while (isUsed(index)) {
+            index = (index + 1) & mask;
+          }
+          copyRecord(oldBuffer, i, index);
+        }
+      }
+    }
+
+    private void writeRecord(final String serviceTicket, final Fingerprint fingerprint,
+        final String sessionId, final int index) {
+      int offset = index * RECORD_SIZE;
+      if (buffer.get(offset + OFFSET_STATE) == STATE_OVERFLOW) {
+        overflowSessionIds.remove(serviceTicket);
+      }
+      buffer.putLong(offset + OFFSET_HIGH, fingerprint.high);
+      buffer.putLong(offset + OFFSET_LOW, fingerprint.low);
+      byte[] sessionIdBytes = sessionId.getBytes(StandardCharsets.UTF_8);
+      if (sessionIdBytes.length > MAX_SESSION_ID_LENGTH) {
+        buffer.put(offset + OFFSET_STATE, STATE_OVERFLOW);
+        overflowSessionIds.put(serviceTicket, sessionId);
+        return;
+      }
+      buffer.put(offset + OFFSET_STATE, STATE_USED);
+      buffer.put(offset + OFFSET_SESSION_ID_LENGTH, (byte) sessionIdBytes.length);
+      for (int i = 0; i < sessionIdBytes.length; i++) {
+        buffer.put(offset + OFFSET_SESSION_ID + i, sessionIdBytes[i]);
+      }
+    }
+
+  }
+
+  private static final int BYTE_MASK = 0xFF;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+  private static final int INITIAL_STRIPE_CAPACITY = 256;
+
+  private static final int MAX_LOAD_FACTOR_PERCENT = 75;
+
+  private static final int MAX_SESSION_ID_LENGTH = 78;
+
+  private static final int MAX_STRIPE_CAPACITY = 1 << 24;
+
+  private static final long MIX_MULTIPLIER = 0xff51afd7ed558ccdL;
+
+  private static final long MIX_MULTIPLIER2 = 0xc4ceb9fe1a85ec53L;
+
+  private static final int OFFSET_HIGH = 0;
+
+  private static final int OFFSET_LOW = 8;
+
+  private static final int OFFSET_SESSION_ID = 18;
+
+  private static final int OFFSET_SESSION_ID_LENGTH = 17;
+
+  private static final int OFFSET_STATE = 16;
+
+  private static final int PERCENT = 100;
+
+  /**
+   * Fingerprint (16 bytes), state (1 byte), session ID length (1 byte) and session ID.
+   */
+  private static final int RECORD_SIZE = OFFSET_SESSION_ID + MAX_SESSION_ID_LENGTH;
+
+  private static final byte STATE_EMPTY = 0;
+
+  private static final byte STATE_OVERFLOW = 2;
+
+  private static final byte STATE_USED = 1;
+
+  private static final int STRIPE_COUNT = 16;
+
+  private static long mix(final long hash) {
+    long h = hash;
+    h ^= h >>> 33;
+    h *= MIX_MULTIPLIER;
+    h ^= h >>> 33;
+    h *= MIX_MULTIPLIER2;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private final Stripe[] stripes;
+
+  /**
+   * Constructor.
+   */
+  public OffHeapServiceTicketIndex() {
+    this(MAX_STRIPE_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maxStripeCapacity
+   *          The maximum number of records of a stripe, a power of two.
+   */
+  OffHeapServiceTicketIndex(final int maxStripeCapacity) {
+    stripes = new Stripe[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new Stripe(maxStripeCapacity);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  @Override
+  public String get(final String serviceTicket) {
+    Fingerprint fingerprint = new Fingerprint(serviceTicket);
+    Stripe stripe = stripe(fingerprint);
+    synchronized (stripe) {
+      return stripe.get(serviceTicket, fingerprint);
+    }
+  }
+
+  /**
+   * Returns the number of bytes allocated outside of the heap.
+   */
+  @Override
+  public long getFootprint() {
+    long footprint = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        footprint += (long) stripe.capacity * RECORD_SIZE;
+      }
+    }
+    return footprint;
+  }
+
+  @Override
+  public void put(final String serviceTicket, final String sessionId) {
+    Fingerprint fingerprint = new Fingerprint(serviceTicket);
+    Stripe stripe = stripe(fingerprint);
+    synchronized (stripe) {
+      stripe.put(serviceTicket, fingerprint, sessionId);
+    }
+  }
+
+  @Override
+  public String remove(final String serviceTicket, final String expectedSessionId) {
+    Fingerprint fingerprint = new Fingerprint(serviceTicket);
+    Stripe stripe = stripe(fingerprint);
+    synchronized (stripe) {
+      return stripe.remove(serviceTicket, fingerprint, expectedSessionId);
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  private Stripe stripe(final Fingerprint fingerprint) {
+    return stripes[(int) (fingerprint.high >>> 60) & (STRIPE_COUNT - 1)];
+  }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Arrays;
+
+/**
+ * Matches request paths against servlet style URL patterns:
+ * <ul>
+ * <li><code>/exact/path</code>: exact match,</li>
+ * <li><code>/prefix/*</code>: the path itself and every path below it (<code>/*</code> matches
+ * everything),</li>
+ * <li><code>*.extension</code>: paths ending with the extension.</li>
+ * </ul>
+ * The exact and prefix patterns are compiled into a character trie walked from the beginning of the
+ * path, the extension patterns into a trie of the reversed suffixes walked from the end of the
+ * path, so a path is matched in a single pass that is linear in the length of the path regardless
+ * of the number of the patterns.
+ */
+public final class PathMatcher {
+
+  /**
+   * Node of a character trie. The children are stored in arrays sorted by their character.
+   */
+  private static final class Node {
+
+    private Node[] children = new Node[0];
+
+    private boolean exact;
+
+    private char[] keys = new char[0];
+
+    private boolean prefix;
+
+    Node child(final char c) {
+      int index = Arrays.binarySearch(keys, c);
+      return index < 0 ? null : children[index];
+    }
+
+    Node getOrCreateChild(final char c) {
+      int index = Arrays.binarySearch(keys, c);
+      if (index >= 0) {
+        return children[index];
+      }
+      int insertionPoint = -(index + 1);
+      Node child = new Node();
+      char[] newKeys = new char[keys.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, insertionPoint);
+      System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+      newKeys[insertionPoint] = c;
+      newChildren[insertionPoint] = child;
+      System.arraycopy(keys, insertionPoint, newKeys, insertionPoint + 1,
+          keys.length - insertionPoint);
+      System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1,
+          children.length - insertionPoint);
+      keys = newKeys;
+      children = newChildren;
+      return child;
+    }
+
+  }
+
+  private static final String EXTENSION_PATTERN_START = "*.";
+
+  private static final String PREFIX_PATTERN_END = "/*";
+
+  /**
+   * Compiles the patterns into a matcher.
+   *
+   * @param patterns
+   *          The URL patterns. <code>null</code> and empty patterns are ignored.
+   * @return The matcher.
+   * @throws IllegalArgumentException
+   *           If a pattern is not a valid servlet style URL pattern.
+   */
+  public static PathMatcher compile(final String[] patterns) {
+    PathMatcher pathMatcher = new PathMatcher();
+    if (patterns == null) {
+      return pathMatcher;
+    }
+    for (String pattern : patterns) {
+      if ((pattern == null) || pattern.trim().isEmpty()) {
+        continue;
+      }
+      pathMatcher.add(pattern.trim());
+    }
+    return pathMatcher;
+  }
+
+  private boolean empty = true;
+
+  private final Node prefixRoot = new Node();
+
+  private final Node suffixRoot = new Node();
+
+  private PathMatcher() {
+  }
+
+  private void add(final String pattern) {
+    if (pattern.startsWith(EXTENSION_PATTERN_START)
+        && (pattern.indexOf('/') < 0) && (pattern.indexOf('*', 1) < 0)) {
+      Node node = suffixRoot;
+      for (int i = pattern.length() - 1; i > 0; i--) {
+        node = node.getOrCreateChild(pattern.charAt(i));
+      }
+      node.exact = true;
+    } else if (pattern.startsWith("/") && pattern.endsWith(PREFIX_PATTERN_END)
+        && (pattern.indexOf('*') == (pattern.length() - 1))) {
+      Node node = prefixRoot;
+      for (int i = 0, n = pattern.length() - PREFIX_PATTERN_END.length(); i < n; i++) {
+        node = node.getOrCreateChild(pattern.charAt(i));
+      }
+      node.prefix = true;
+    } else if (pattern.startsWith("/") && (pattern.indexOf('*') < 0)) {
+      Node node = prefixRoot;
+      for (int i = 0, n = pattern.length(); i < n; i++) {
+        node = node.getOrCreateChild(pattern.charAt(i));
+      }
+      node.exact = true;
+    } else {
+      throw new IllegalArgumentException("Invalid URL pattern [" + pattern + "], supported "
+          + "patterns are /exact/path, /prefix/* and *.extension");
+    }
+    empty = false;
+  }
+
+  /**
+   * Returns <code>true</code> if the matcher has no patterns.
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Checks if the path matches any of the patterns.
+   *
+   * @param path
+   *          The path of the request within the servlet context.
+   */
+  public boolean matches(final String path) {
+    return matchesPrefix(path) || matchesSuffix(path);
+  }
+
+  private boolean matchesPrefix(final String path) {
+    Node node = prefixRoot;
+    int length = path.length();
+    for (int i = 0; i < length; i++) {
+      char c = path.charAt(i);
+      if (node.prefix && (c == '/')) {
+        return true;
+      }
+      node = node.child(c);
+      if (node == null) {
+        return false;
+      }
+    }
+    return node.exact || node.prefix;
+  }
+
+  private boolean matchesSuffix(final String path) {
+    Node node = suffixRoot;
+    for (int i = path.length() - 1; i >= 0; i--) {
+      char c = path.charAt(i);
+      if (c == '/') {
+        return false;
+      }
+      node = node.child(c);
+      if (node == null) {
+        return false;
+      }
+      if (node.exact) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
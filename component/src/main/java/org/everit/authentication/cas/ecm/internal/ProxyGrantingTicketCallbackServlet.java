@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Receives the proxy granting tickets from the CAS server. The CAS server calls the proxy callback
+ * URL with the <code>pgtIou</code> and <code>pgtId</code> parameters before it responds to the
+ * service ticket validation. A call without these parameters only checks the availability of the
+ * callback URL.
+ */
+public class ProxyGrantingTicketCallbackServlet extends HttpServlet {
+
+  private static final String PARAM_PGT_ID = "pgtId";
+
+  private static final String PARAM_PGT_IOU = "pgtIou";
+
+  private static final byte[] RESPONSE = ("<?xml version=\"1.0\"?>"
+      + "<casClient:proxySuccess xmlns:casClient=\"http://www.yale.edu/tp/casClient\" />")
+          .getBytes(StandardCharsets.UTF_8);
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient ProxyGrantingTicketStore proxyGrantingTicketStore;
+
+  public ProxyGrantingTicketCallbackServlet(
+      final ProxyGrantingTicketStore proxyGrantingTicketStore) {
+    this.proxyGrantingTicketStore = Objects.requireNonNull(proxyGrantingTicketStore,
+        "proxyGrantingTicketStore cannot be null");
+  }
+
+  @Override
+  protected void doGet(final HttpServletRequest req, final HttpServletResponse resp)
+      throws IOException {
+    String proxyGrantingTicketIou = req.getParameter(PARAM_PGT_IOU);
+    String proxyGrantingTicket = req.getParameter(PARAM_PGT_ID);
+    if ((proxyGrantingTicketIou != null) && !proxyGrantingTicketIou.isEmpty()
+        && (proxyGrantingTicket != null) && !proxyGrantingTicket.isEmpty()) {
+      proxyGrantingTicketStore.put(proxyGrantingTicketIou, proxyGrantingTicket);
+    }
+    resp.setContentType("text/xml");
+    resp.setContentLength(RESPONSE.length);
+    resp.getOutputStream().write(RESPONSE);
+  }
+
+  @Override
+  protected void doPost(final HttpServletRequest req, final HttpServletResponse resp)
+      throws IOException {
+    doGet(req, resp);
+  }
+
+}
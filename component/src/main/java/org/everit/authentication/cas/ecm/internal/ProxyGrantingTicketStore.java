@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the proxy granting tickets delivered by the CAS server to the proxy callback URL until the
+ * response of the service ticket validation arrives with their IOUs. The CAS server calls the
+ * callback URL before it sends the validation response, so the entries are needed only for a short
+ * time. The expired entries are removed periodically while new entries are stored.
+ */
+public class ProxyGrantingTicketStore {
+
+  /**
+   * A stored proxy granting ticket.
+   */
+  private static final class StoredProxyGrantingTicket {
+
+    private final long expiresAt;
+
+    private final String proxyGrantingTicket;
+
+    StoredProxyGrantingTicket(final String proxyGrantingTicket, final long expiresAt) {
+      this.proxyGrantingTicket = proxyGrantingTicket;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  private static final int CLEANUP_INTERVAL = 1024;
+
+  private final String callbackUrl;
+
+  private final AtomicInteger putCount = new AtomicInteger();
+
+  private final long timeToLiveNanos;
+
+  private final ConcurrentMap<String, StoredProxyGrantingTicket> tickets =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param callbackUrl
+   *          The proxy callback URL sent to the CAS server with the service ticket validations.
+   * @param timeToLive
+   *          The time in milliseconds while a proxy granting ticket waits for the validation
+   *          response with its IOU.
+   */
+  public ProxyGrantingTicketStore(final String callbackUrl, final long timeToLive) {
+    this.callbackUrl = Objects.requireNonNull(callbackUrl, "callbackUrl cannot be null");
+    this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+  }
+
+  public String getCallbackUrl() {
+    return callbackUrl;
+  }
+
+  /**
+   * Stores a proxy granting ticket received by the callback URL.
+   */
+  public void put(final String proxyGrantingTicketIou, final String proxyGrantingTicket) {
+    long now = System.nanoTime();
+    if ((putCount.incrementAndGet() % CLEANUP_INTERVAL) == 0) {
+      tickets.values().removeIf((storedTicket) -> (storedTicket.expiresAt - now) <= 0);
+    }
+    tickets.put(proxyGrantingTicketIou,
+        new StoredProxyGrantingTicket(proxyGrantingTicket, now + timeToLiveNanos));
+  }
+
+  /**
+   * Removes and returns the proxy granting ticket of the IOU.
+   *
+   * @return The proxy granting ticket or <code>null</code> if it is not received or expired.
+   */
+  public String remove(final String proxyGrantingTicketIou) {
+    StoredProxyGrantingTicket storedTicket = tickets.remove(proxyGrantingTicketIou);
+    if ((storedTicket == null) || ((storedTicket.expiresAt - System.nanoTime()) <= 0)) {
+      return null;
+    }
+    return storedTicket.proxyGrantingTicket;
+  }
+
+  public int size() {
+    return tickets.size();
+  }
+
+}
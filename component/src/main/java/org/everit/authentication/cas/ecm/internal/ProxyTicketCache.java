@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the proxy tickets issued by the CAS server for a proxy granting ticket and
+ * target service. The CAS server accepts a proxy ticket only once by default, so the cache must be
+ * enabled only if the CAS server is configured to accept the proxy tickets several times within
+ * their lifetime. The entries expire after a fixed time to live, therefore the insertion order of
+ * the entries is also their expiration order.
+ */
+public class ProxyTicketCache {
+
+  /**
+   * A cached proxy ticket.
+   */
+  private static final class CachedProxyTicket {
+
+    private final long expiresAt;
+
+    private final String proxyTicket;
+
+    CachedProxyTicket(final String proxyTicket, final long expiresAt) {
+      this.proxyTicket = proxyTicket;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  private static String key(final String proxyGrantingTicket, final String targetService) {
+    return proxyGrantingTicket + ' ' + targetService;
+  }
+
+  private final int maxSize;
+
+  private final LinkedHashMap<String, CachedProxyTicket> proxyTickets;
+
+  private final long timeToLiveNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param maxSize
+   *          The maximum number of cached proxy tickets.
+   * @param timeToLive
+   *          The time in milliseconds while a proxy ticket is reused. Zero or negative value
+   *          disables the cache.
+   */
+  public ProxyTicketCache(final int maxSize, final long timeToLive) {
+    this.maxSize = maxSize;
+    timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    proxyTickets = new LinkedHashMap<String, CachedProxyTicket>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, CachedProxyTicket> eldest) {
+        return size() > ProxyTicketCache.this.maxSize;
+      }
+
+    };
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  public synchronized void clear() {
+    proxyTickets.clear();
+  }
+
+  /**
+   * Returns the proxy ticket issued for the proxy granting ticket and target service within the
+   * time to live.
+   *
+   * @return The proxy ticket or <code>null</code> if it is not cached.
+   */
+  public String get(final String proxyGrantingTicket, final String targetService) {
+    if (!isEnabled()) {
+      return null;
+    }
+    CachedProxyTicket cachedProxyTicket;
+    synchronized (this) {
+      removeExpiredEntries(System.nanoTime());
+      cachedProxyTicket = proxyTickets.get(key(proxyGrantingTicket, targetService));
+    }
+    return cachedProxyTicket == null ? null : cachedProxyTicket.proxyTicket;
+  }
+
+  public boolean isEnabled() {
+    return (maxSize > 0) && (timeToLiveNanos > 0);
+  }
+
+  /**
+   * Stores a proxy ticket issued by the CAS server.
+   */
+  public void put(final String proxyGrantingTicket, final String targetService,
+      final String proxyTicket) {
+    if (!isEnabled()) {
+      return;
+    }
+    long now = System.nanoTime();
+    String key = key(proxyGrantingTicket, targetService);
+    CachedProxyTicket cachedProxyTicket = new CachedProxyTicket(proxyTicket, now + timeToLiveNanos);
+    synchronized (this) {
+      removeExpiredEntries(now);
+      proxyTickets.remove(key);
+      proxyTickets.put(key, cachedProxyTicket);
+    }
+  }
+
+  private void removeExpiredEntries(final long now) {
+    Iterator<CachedProxyTicket> iterator = proxyTickets.values().iterator();
+    while (iterator.hasNext() && ((iterator.next().expiresAt - now) <= 0)) {
+      iterator.remove();
+    }
+  }
+
+  public synchronized int size() {
+    return proxyTickets.size();
+  }
+
+}
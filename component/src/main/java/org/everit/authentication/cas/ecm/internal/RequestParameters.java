@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Cheap checks of the request parameters that avoid the parsing of the whole query string and form
+ * body by the container when the parameter is surely missing.
+ */
+public final class RequestParameters {
+
+  private static final String CONTENT_TYPE_FORM = "application/x-www-form-urlencoded";
+
+  private static final String METHOD_POST = "POST";
+
+  /**
+   * Decodes and compares the parameter names of the query string that contain encoded characters.
+   */
+  private static boolean containsEncodedParameter(final String queryString, final String name) {
+    int queryStringLength = queryString.length();
+    int start = 0;
+    while (start < queryStringLength) {
+      int end = queryString.indexOf('&', start);
+      if (end < 0) {
+        end = queryStringLength;
+      }
+      int nameEnd = start;
+      boolean encoded = false;
+      while ((nameEnd < end) && (queryString.charAt(nameEnd) != '=')) {
+        char c = queryString.charAt(nameEnd);
+        encoded |= (c == '%') || (c == '+');
+        nameEnd++;
+      }
+      if (encoded && name.equals(decodeName(queryString.substring(start, nameEnd)))) {
+        return true;
+      }
+      start = end + 1;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the raw query string contains the parameter. The parameter name is matched only at
+   * parameter boundaries. The encoded parameter names (for e.g. <code>%74icket</code>) are decoded
+   * and compared only if the plain name is not found, so the common case does not allocate.
+   *
+   * @param queryString
+   *          The raw query string or <code>null</code>.
+   * @param name
+   *          The name of the parameter.
+   */
+  public static boolean containsParameter(final String queryString, final String name) {
+    if (queryString == null) {
+      return false;
+    }
+    int nameLength = name.length();
+    int queryStringLength = queryString.length();
+    int index = queryString.indexOf(name);
+    while (index >= 0) {
+      int end = index + nameLength;
+      if (((index == 0) || (queryString.charAt(index - 1) == '&'))
+          && ((end == queryStringLength) || (queryString.charAt(end) == '=')
+              || (queryString.charAt(end) == '&'))) {
+        return true;
+      }
+      index = queryString.indexOf(name, index + 1);
+    }
+    return containsEncodedParameter(queryString, name);
+  }
+
+  /**
+   * Decodes a raw parameter name of a query string. A malformed name is returned as is.
+   */
+  private static String decodeName(final String rawName) {
+    if ((rawName.indexOf('%') < 0) && (rawName.indexOf('+') < 0)) {
+      return rawName;
+    }
+    try {
+      return URLDecoder.decode(rawName, StandardCharsets.UTF_8.name());
+    } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+      return rawName;
+    }
+  }
+
+  /**
+   * Returns the value of a request parameter. The raw query string is scanned first and the
+   * parameters are parsed by the container only if the query string contains the parameter or the
+   * request is a form POST.
+   *
+   * @param httpServletRequest
+   *          The request.
+   * @param name
+   *          The name of the parameter.
+   * @return The value of the parameter or <code>null</code> if the request does not contain it.
+   */
+  public static String getParameter(final HttpServletRequest httpServletRequest,
+      final String name) {
+    if (containsParameter(httpServletRequest.getQueryString(), name)
+        || isFormPost(httpServletRequest)) {
+      return httpServletRequest.getParameter(name);
+    }
+    return null;
+  }
+
+  private static boolean isFormPost(final HttpServletRequest httpServletRequest) {
+    if (!METHOD_POST.equals(httpServletRequest.getMethod())) {
+      return false;
+    }
+    String contentType = httpServletRequest.getContentType();
+    return (contentType != null)
+        && contentType.toLowerCase(Locale.ENGLISH).startsWith(CONTENT_TYPE_FORM);
+  }
+
+  /**
+   * Removes every occurrence of a parameter from a raw query string. The parameter names are
+   * decoded before they are compared, the other parameters are kept unchanged.
+   *
+   * @param queryString
+   *          The raw query string or <code>null</code>.
+   * @param name
+   *          The name of the parameter.
+   * @return The query string without the parameter or <code>null</code> if no parameter remains.
+   */
+  public static String removeParameter(final String queryString, final String name) {
+    if ((queryString == null) || queryString.isEmpty()) {
+      return null;
+    }
+    StringBuilder result = new StringBuilder(queryString.length());
+    for (String parameter : queryString.split("&")) {
+      int equalsIndex = parameter.indexOf('=');
+      String rawName = equalsIndex < 0 ? parameter : parameter.substring(0, equalsIndex);
+      if (parameter.isEmpty() || name.equals(decodeName(rawName))) {
+        continue;
+      }
+      if (result.length() > 0) {
+        result.append('&');
+      }
+      result.append(parameter);
+    }
+    return result.length() == 0 ? null : result.toString();
+  }
+
+  private RequestParameters() {
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Objects;
+
+import org.xml.sax.InputSource;
+
+/**
+ * {@link CasResponseParser} based on the {@link javax.xml.parsers.SAXParserFactory} injected into
+ * the component. The parsers are borrowed from a {@link SaxParserPool}.
+ */
+public class SaxCasResponseParser implements CasResponseParser {
+
+  private final SaxParserPool saxParserPool;
+
+  public SaxCasResponseParser(final SaxParserPool saxParserPool) {
+    this.saxParserPool = Objects.requireNonNull(saxParserPool, "saxParserPool cannot be null");
+  }
+
+  @Override
+  public String parseLogoutRequest(final String logoutRequest) throws IOException {
+    LogoutRequestHandler logoutRequestHandler = new LogoutRequestHandler();
+    saxParserPool.parse(new InputSource(new StringReader(logoutRequest)), logoutRequestHandler);
+    return logoutRequestHandler.getSessionIndex();
+  }
+
+  @Override
+  public String parseProxyResponse(final byte[] response) throws IOException {
+    ServiceValidateResponseHandler responseHandler = new ServiceValidateResponseHandler();
+    saxParserPool.parse(new InputSource(new ByteArrayInputStream(response)), responseHandler);
+    return responseHandler.getProxyTicket();
+  }
+
+  @Override
+  public CasValidationResult parseServiceValidateResponse(final byte[] response)
+      throws IOException {
+    ServiceValidateResponseHandler responseHandler = new ServiceValidateResponseHandler();
+    saxParserPool.parse(new InputSource(new ByteArrayInputStream(response)), responseHandler);
+    String user = responseHandler.getUser();
+    if (user == null) {
+      return null;
+    }
+    return new CasValidationResult(user, responseHandler.getProxyGrantingTicketIou(),
+        responseHandler.getAttributes());
+  }
+
+}
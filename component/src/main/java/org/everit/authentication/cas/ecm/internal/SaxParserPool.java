@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Bounded pool of {@link SAXParser} instances created by a {@link SAXParserFactory}. The parsers
+ * are {@link SAXParser#reset() reset} before they are returned to the pool. If the factory is
+ * replaced, the parsers created by the previous factory are dropped.
+ */
+public class SaxParserPool {
+
+  /**
+   * A pooled parser and the factory that created it.
+   */
+  private static final class PooledSaxParser {
+
+    private final SAXParserFactory factory;
+
+    private final SAXParser saxParser;
+
+    PooledSaxParser(final SAXParserFactory factory, final SAXParser saxParser) {
+      this.factory = factory;
+      this.saxParser = saxParser;
+    }
+
+  }
+
+  private final BlockingQueue<PooledSaxParser> idleSaxParsers;
+
+  private volatile SAXParserFactory saxParserFactory;
+
+  /**
+   * Constructor.
+   *
+   * @param saxParserFactory
+   *          The factory of the pooled parsers.
+   * @param maxIdleSaxParsers
+   *          The maximum number of idle parsers kept in the pool. Zero or negative value disables
+   *          the pooling.
+   */
+  public SaxParserPool(final SAXParserFactory saxParserFactory, final int maxIdleSaxParsers) {
+    this.saxParserFactory = Objects.requireNonNull(saxParserFactory,
+        "saxParserFactory cannot be null");
+    idleSaxParsers = maxIdleSaxParsers > 0
+        ? new ArrayBlockingQueue<>(maxIdleSaxParsers)
+        : null;
+  }
+
+  private PooledSaxParser borrow() throws ParserConfigurationException, SAXException {
+    SAXParserFactory currentFactory = saxParserFactory;
+    if (idleSaxParsers != null) {
+      PooledSaxParser pooledSaxParser = idleSaxParsers.poll();
+      while ((pooledSaxParser != null) && (pooledSaxParser.factory != currentFactory)) {
+        pooledSaxParser = idleSaxParsers.poll();
+      }
+      if (pooledSaxParser != null) {
+        return pooledSaxParser;
+      }
+    }
+    return new PooledSaxParser(currentFactory, currentFactory.newSAXParser());
+  }
+
+  /**
+   * Returns the number of idle parsers in the pool.
+   */
+  public int getIdleCount() {
+    return idleSaxParsers == null ? 0 : idleSaxParsers.size();
+  }
+
+  /**
+   * Parses the input with a pooled parser.
+   *
+   * @throws IOException
+   *           If the parsing fails. The {@link SAXException} and the
+   *           {@link ParserConfigurationException} are wrapped.
+   */
+  public void parse(final InputSource inputSource, final DefaultHandler handler)
+      throws IOException {
+    PooledSaxParser pooledSaxParser;
+    try {
+      pooledSaxParser = borrow();
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException(e);
+    }
+    try {
+      pooledSaxParser.saxParser.parse(inputSource, handler);
+    } catch (SAXException e) {
+      throw new IOException(e);
+    } finally {
+      release(pooledSaxParser);
+    }
+  }
+
+  private void release(final PooledSaxParser pooledSaxParser) {
+    if ((idleSaxParsers == null) || (pooledSaxParser.factory != saxParserFactory)) {
+      return;
+    }
+    try {
+      pooledSaxParser.saxParser.reset();
+    } catch (UnsupportedOperationException e) {
+      // the parser cannot be reused
+      return;
+    }
+    idleSaxParsers.offer(pooledSaxParser);
+  }
+
+  /**
+   * Replaces the factory of the pool and drops the idle parsers created by the previous factory.
+   */
+  public void setSaxParserFactory(final SAXParserFactory saxParserFactory) {
+    this.saxParserFactory = Objects.requireNonNull(saxParserFactory,
+        "saxParserFactory cannot be null");
+    if (idleSaxParsers != null) {
+      idleSaxParsers.clear();
+    }
+  }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the successfully validated service tickets. A browser that repeats the redirect
+ * with the same service ticket in the session that validated it is authenticated from this cache,
+ * because the CAS server would reject the second validation of the single-use ticket.
+ * <p>
+ * A cached service ticket is served only to the session that validated it, so a replayed ticket
+ * cannot authenticate a second session. As a consequence the repeated requests that do not carry
+ * the session cookie, for e.g. a double submit sent before the response with the session cookie
+ * arrived or a retry after the cookie was lost, are not served from the cache: they are validated
+ * again and sent to the failure URL when the CAS server rejects the used ticket.
+ * </p>
+ * <p>
+ * The entries expire after a fixed time to live, therefore the insertion order of the entries is
+ * also their expiration order.
+ * </p>
+ */
+public class ServiceTicketCache {
+
+  /**
+   * The result of a successful service ticket validation.
+   */
+  public static final class ValidatedServiceTicket {
+
+    private final Map<String, List<String>> attributes;
+
+    private final long expiresAt;
+
+    private final String principal;
+
+    private final String proxyGrantingTicket;
+
+    private final long resourceId;
+
+    private final String serviceUrl;
+
+    private final String sessionId;
+
+    ValidatedServiceTicket(final String serviceUrl, final String sessionId,
+        final String principal, final long resourceId,
+        final Map<String, List<String>> attributes, final String proxyGrantingTicket,
+        final long expiresAt) {
+      this.serviceUrl = serviceUrl;
+      this.sessionId = sessionId;
+      this.principal = principal;
+      this.resourceId = resourceId;
+      this.attributes = attributes;
+      this.proxyGrantingTicket = proxyGrantingTicket;
+      this.expiresAt = expiresAt;
+    }
+
+    /**
+     * The attributes released for the principal.
+     */
+    public Map<String, List<String>> getAttributes() {
+      return attributes;
+    }
+
+    public String getPrincipal() {
+      return principal;
+    }
+
+    /**
+     * The proxy granting ticket received with the validation or <code>null</code>.
+     */
+    public String getProxyGrantingTicket() {
+      return proxyGrantingTicket;
+    }
+
+    public long getResourceId() {
+      return resourceId;
+    }
+
+  }
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final int maxSize;
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final LinkedHashMap<String, ValidatedServiceTicket> serviceTickets;
+
+  private final long timeToLiveNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param maxSize
+   *          The maximum number of cached service tickets. Zero or negative value disables the
+   *          cache.
+   * @param timeToLive
+   *          The time in milliseconds while a validated service ticket is kept in the cache.
+   */
+  public ServiceTicketCache(final int maxSize, final long timeToLive) {
+    this.maxSize = maxSize;
+    timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    serviceTickets = new LinkedHashMap<String, ValidatedServiceTicket>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<String, ValidatedServiceTicket> eldest) {
+        if (size() > ServiceTicketCache.this.maxSize) {
+          evictionCount.increment();
+          return true;
+        }
+        return false;
+      }
+
+    };
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  public synchronized void clear() {
+    serviceTickets.clear();
+  }
+
+  /**
+   * Returns the validation result of the service ticket if it was validated for the same service
+   * URL by the same session within the time to live.
+   *
+   * @param sessionId
+   *          The ID of the session of the request, <code>null</code> if the request has no session.
+   * @return The validation result or <code>null</code> if the service ticket is not cached for the
+   *         session.
+   */
+  public ValidatedServiceTicket get(final String serviceTicket, final String serviceUrl,
+      final String sessionId) {
+    if (!isEnabled()) {
+      return null;
+    }
+    ValidatedServiceTicket validatedServiceTicket;
+    synchronized (this) {
+      removeExpiredEntries(System.nanoTime());
+      validatedServiceTicket = serviceTickets.get(serviceTicket);
+    }
+    if ((validatedServiceTicket == null)
+        || !validatedServiceTicket.serviceUrl.equals(serviceUrl)
+        || !validatedServiceTicket.sessionId.equals(sessionId)) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    return validatedServiceTicket;
+  }
+
+  /**
+   * The number of the entries removed because of the size limit or the expiration.
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * Stores the result of a successful service ticket validation.
+   *
+   * @param sessionId
+   *          The ID of the session authenticated with the service ticket.
+   * @param proxyGrantingTicket
+   *          The proxy granting ticket stored in the session, so a replayed service ticket does not
+   *          drop it. The cached entries are served only to the same session.
+   */
+  public void put(final String serviceTicket, final String serviceUrl, final String sessionId,
+      final String principal, final long resourceId, final Map<String, List<String>> attributes,
+      final String proxyGrantingTicket) {
+    if (!isEnabled()) {
+      return;
+    }
+    long now = System.nanoTime();
+    ValidatedServiceTicket validatedServiceTicket =
+        new ValidatedServiceTicket(serviceUrl, sessionId, principal, resourceId, attributes,
+            proxyGrantingTicket, now + timeToLiveNanos);
+    synchronized (this) {
+      removeExpiredEntries(now);
+      serviceTickets.remove(serviceTicket);
+      serviceTickets.put(serviceTicket, validatedServiceTicket);
+    }
+  }
+
+  private void removeExpiredEntries(final long now) {
+    Iterator<ValidatedServiceTicket> iterator = serviceTickets.values().iterator();
+    while (iterator.hasNext() && ((iterator.next().expiresAt - now) <= 0)) {
+      iterator.remove();
+      evictionCount.increment();
+    }
+  }
+
+  /**
+   * Removes the service ticket from the cache (for e.g. when the CAS server logs out the ticket).
+   */
+  public synchronized void remove(final String serviceTicket) {
+    serviceTickets.remove(serviceTicket);
+  }
+
+  /**
+   * Removes the service tickets of the principal from the cache.
+   */
+  public synchronized void removePrincipal(final String principal) {
+    serviceTickets.values().removeIf(
+        (validatedServiceTicket) -> validatedServiceTicket.principal.equals(principal));
+  }
+
+  public synchronized int size() {
+    return serviceTickets.size();
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+/**
+ * Index of the session IDs by the service tickets used by the {@link ServiceTicketSessionRegistry}.
+ * The implementations must be thread-safe.
+ */
+public interface ServiceTicketIndex {
+
+  /**
+   * Removes all entries.
+   */
+  void clear();
+
+  /**
+   * Returns the session ID indexed by the service ticket or <code>null</code>.
+   */
+  String get(String serviceTicket);
+
+  /**
+   * Returns the estimated number of bytes occupied by the index. The service tickets and the
+   * session IDs are counted only if the index stores its own copy of them.
+   */
+  long getFootprint();
+
+  /**
+   * Indexes the session ID by the service ticket.
+   */
+  void put(String serviceTicket, String sessionId);
+
+  /**
+   * Removes the service ticket from the index.
+   *
+   * @param serviceTicket
+   *          The service ticket to remove.
+   * @param expectedSessionId
+   *          If not <code>null</code>, the service ticket is removed only if it is indexed with
+   *          this session ID.
+   * @return The removed session ID or <code>null</code> if nothing was removed.
+   */
+  String remove(String serviceTicket, String expectedSessionId);
+
+  /**
+   * Returns the number of the indexed service tickets.
+   */
+  int size();
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * Registry of the CAS authenticated sessions used to find the session of a service ticket when a
+ * CAS logout request is received. The session IDs are looked up by the service ticket in a
+ * {@link ServiceTicketIndex}, then the session is looked up by its ID.
+ * <p>
+ * The service tickets of the passivated sessions (for e.g. saved by the session manager when the
+ * application stops) and the entries restored from a {@link LogoutIndexSnapshot} are kept as
+ * pending until their sessions are used again. A logout request of a pending service ticket marks
+ * the session ID as logged out, and the session is invalidated when it is used the first time.
+ * </p>
+ * <p>
+ * If the sessions are not tracked (for e.g. to keep the Java heap free of per session entries when
+ * the index is stored off-heap), the registry holds only the session IDs. The session of a logged
+ * out service ticket is marked as logged out like a pending one and it is invalidated when it is
+ * used the next time. The untracked sessions are not returned by {@link #getSessions()}.
+ * </p>
+ */
+public class ServiceTicketSessionRegistry {
+
+  /**
+   * Estimated size of a {@link ConcurrentHashMap} entry including its slot in the table.
+   */
+  private static final int CONCURRENT_MAP_ENTRY_SIZE = 40;
+
+  private final Set<String> loggedOutSessionIds = ConcurrentHashMap.newKeySet();
+
+  private final ConcurrentMap<String, String> pendingSessionIds = new ConcurrentHashMap<>();
+
+  /**
+   * Identifies the registrations since the last {@link #clear()}.
+   */
+  private volatile Object registrationToken = new Object();
+
+  private final ConcurrentMap<String, HttpSession> sessionsById = new ConcurrentHashMap<>();
+
+  private final ServiceTicketIndex serviceTicketIndex;
+
+  private final boolean sessionsTracked;
+
+  /**
+   * Constructor.
+   *
+   * @param serviceTicketIndex
+   *          The index of the session IDs by the service tickets.
+   * @param sessionsTracked
+   *          Whether the registry keeps references to the registered sessions, so they can be
+   *          invalidated immediately when their service tickets are logged out.
+   */
+  public ServiceTicketSessionRegistry(final ServiceTicketIndex serviceTicketIndex,
+      final boolean sessionsTracked) {
+    this.serviceTicketIndex = Objects.requireNonNull(serviceTicketIndex,
+        "serviceTicketIndex cannot be null");
+    this.sessionsTracked = sessionsTracked;
+  }
+
+  /**
+   * Removes all registered sessions. The pending service tickets and the logged out session IDs are
+   * kept.
+   */
+  public void clear() {
+    registrationToken = new Object();
+    serviceTicketIndex.clear();
+    sessionsById.clear();
+  }
+
+  /**
+   * Checks if the session ID was logged out while its session was pending and forgets it.
+   *
+   * @return <code>true</code> if the session must be invalidated.
+   */
+  public boolean consumeLoggedOut(final String sessionId) {
+    return !loggedOutSessionIds.isEmpty() && loggedOutSessionIds.remove(sessionId);
+  }
+
+  /**
+   * Returns the estimated number of bytes occupied by the index and, if the sessions are tracked,
+   * by the references to the sessions. The sessions are not counted as they are owned by the
+   * container.
+   */
+  public long getFootprint() {
+    if (!sessionsTracked) {
+      return serviceTicketIndex.getFootprint();
+    }
+    return serviceTicketIndex.getFootprint()
+        + ((long) sessionsById.size() * CONCURRENT_MAP_ENTRY_SIZE);
+  }
+
+  /**
+   * Returns an unmodifiable view of the session IDs logged out while their sessions were pending.
+   */
+  public Set<String> getLoggedOutSessionIds() {
+    return Collections.unmodifiableSet(loggedOutSessionIds);
+  }
+
+  /**
+   * Returns an unmodifiable view of the session IDs of the pending service tickets.
+   */
+  public Map<String, String> getPendingSessionIds() {
+    return Collections.unmodifiableMap(pendingSessionIds);
+  }
+
+  /**
+   * Returns the token that identifies the registrations since the last {@link #clear()}. A session
+   * marked with the current token does not have to be looked up in the index.
+   */
+  public Object getRegistrationToken() {
+    return registrationToken;
+  }
+
+  /**
+   * Returns an unmodifiable view of the registered sessions. Empty if the sessions are not tracked.
+   */
+  public Collection<HttpSession> getSessions() {
+    return Collections.unmodifiableCollection(sessionsById.values());
+  }
+
+  /**
+   * Checks if the session ID was logged out while its session was pending or not tracked, without
+   * forgetting it.
+   */
+  public boolean isLoggedOut(final String sessionId) {
+    return !loggedOutSessionIds.isEmpty() && loggedOutSessionIds.contains(sessionId);
+  }
+
+  /**
+   * Checks if the session is registered with the service ticket.
+   */
+  public boolean isRegistered(final String serviceTicket, final HttpSession httpSession) {
+    String sessionId = serviceTicketIndex.get(serviceTicket);
+    if (!sessionsTracked) {
+      return httpSession.getId().equals(sessionId);
+    }
+    return (sessionId != null) && (sessionsById.get(sessionId) == httpSession);
+  }
+
+  /**
+   * Unregisters the session that is being passivated and keeps its service ticket as pending.
+   */
+  public void passivate(final String serviceTicket, final HttpSession httpSession) {
+    String sessionId = httpSession.getId();
+    if (serviceTicketIndex.remove(serviceTicket, sessionId) != null) {
+      sessionsById.remove(sessionId, httpSession);
+      pendingSessionIds.put(serviceTicket, sessionId);
+    }
+  }
+
+  /**
+   * Registers the session with the service ticket.
+   */
+  public void register(final String serviceTicket, final HttpSession httpSession) {
+    Objects.requireNonNull(serviceTicket, "serviceTicket cannot be null");
+    String sessionId = httpSession.getId();
+    if (sessionsTracked) {
+      sessionsById.put(sessionId, httpSession);
+    }
+    serviceTicketIndex.put(serviceTicket, sessionId);
+    if (!pendingSessionIds.isEmpty()) {
+      pendingSessionIds.remove(serviceTicket);
+    }
+  }
+
+  /**
+   * Removes the service ticket from the registry. If the service ticket is pending or its session
+   * is not tracked, the session ID is marked as logged out.
+   *
+   * @return The session registered with the service ticket or <code>null</code>.
+   */
+  public HttpSession remove(final String serviceTicket) {
+    String sessionId = serviceTicketIndex.remove(serviceTicket, null);
+    if (sessionId != null) {
+      if (!sessionsTracked) {
+        loggedOutSessionIds.add(sessionId);
+        return null;
+      }
+      return sessionsById.remove(sessionId);
+    }
+    String pendingSessionId = pendingSessionIds.remove(serviceTicket);
+    if (pendingSessionId != null) {
+      loggedOutSessionIds.add(pendingSessionId);
+    }
+    return null;
+  }
+
+  /**
+   * Adds the pending service tickets and the logged out session IDs of a snapshot.
+   */
+  public void restore(final LogoutIndexSnapshot snapshot) {
+    pendingSessionIds.putAll(snapshot.getSessionIdsByServiceTicket());
+    loggedOutSessionIds.addAll(snapshot.getLoggedOutSessionIds());
+  }
+
+  /**
+   * Returns the number of the registered service tickets.
+   */
+  public int size() {
+    return serviceTicketIndex.size();
+  }
+
+  /**
+   * Removes the service ticket from the registry if it is registered with the given session. The
+   * session is removed even if the service ticket is registered with another session.
+   */
+  public void unregister(final String serviceTicket, final HttpSession httpSession) {
+    String sessionId = httpSession.getId();
+    serviceTicketIndex.remove(serviceTicket, sessionId);
+    sessionsById.remove(sessionId, httpSession);
+    if (!pendingSessionIds.isEmpty()) {
+      pendingSessionIds.remove(serviceTicket, sessionId);
+    }
+    if (!loggedOutSessionIds.isEmpty()) {
+      loggedOutSessionIds.remove(sessionId);
+    }
+  }
+
+}
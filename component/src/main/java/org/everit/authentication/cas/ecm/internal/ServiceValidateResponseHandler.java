@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler that collects the principal (username), the released attributes and the proxy
+ * granting ticket IOU from the response of the CAS service ticket validation, and the proxy ticket
+ * from the response of a proxy ticket request. The handler works with both namespace aware and non
+ * namespace aware parsers.
+ */
+public class ServiceValidateResponseHandler extends DefaultHandler {
+
+  private static final String ELEMENT_ATTRIBUTES = "attributes";
+
+  private static final String ELEMENT_AUTHENTICATION_FAILURE = "authenticationFailure";
+
+  private static final String ELEMENT_AUTHENTICATION_SUCCESS = "authenticationSuccess";
+
+  private static final String ELEMENT_PROXY_GRANTING_TICKET = "proxyGrantingTicket";
+
+  private static final String ELEMENT_PROXY_SUCCESS = "proxySuccess";
+
+  private static final String ELEMENT_PROXY_TICKET = "proxyTicket";
+
+  private static final String ELEMENT_USER = "user";
+
+  static String localName(final String localName, final String qName) {
+    if ((localName != null) && !localName.isEmpty()) {
+      return localName;
+    }
+    int colonIndex = qName.indexOf(':');
+    return qName.substring(colonIndex + 1);
+  }
+
+  private String attributeName;
+
+  private final Map<String, List<String>> attributes = new LinkedHashMap<>();
+
+  private boolean authenticationSuccess;
+
+  private String failureCode;
+
+  private boolean inAttributes;
+
+  private String proxyGrantingTicketIou;
+
+  private boolean proxySuccess;
+
+  private String proxyTicket;
+
+  private StringBuilder text;
+
+  private String user;
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) {
+    if (text != null) {
+      text.append(ch, start, length);
+    }
+  }
+
+  @Override
+  public void endElement(final String uri, final String localName, final String qName) {
+    String name = localName(localName, qName);
+    if (text != null) {
+      if (attributeName != null) {
+        attributes.computeIfAbsent(attributeName, (key) -> new ArrayList<>(1))
+            .add(text.toString().trim());
+        attributeName = null;
+      } else if (ELEMENT_USER.equals(name)) {
+        user = text.toString().trim();
+      } else if (ELEMENT_PROXY_GRANTING_TICKET.equals(name)) {
+        proxyGrantingTicketIou = text.toString().trim();
+      } else if (ELEMENT_PROXY_TICKET.equals(name)) {
+        proxyTicket = text.toString().trim();
+      }
+      text = null;
+    } else if (inAttributes && ELEMENT_ATTRIBUTES.equals(name)) {
+      inAttributes = false;
+    } else if (ELEMENT_AUTHENTICATION_SUCCESS.equals(name)) {
+      authenticationSuccess = false;
+    } else if (ELEMENT_PROXY_SUCCESS.equals(name)) {
+      proxySuccess = false;
+    }
+  }
+
+  /**
+   * Returns the attributes of the principal released in the <code>attributes</code> element of the
+   * authentication success.
+   */
+  public Map<String, List<String>> getAttributes() {
+    return attributes;
+  }
+
+  public String getFailureCode() {
+    return failureCode;
+  }
+
+  /**
+   * Returns the proxy granting ticket IOU or <code>null</code> if the response does not contain
+   * it.
+   */
+  public String getProxyGrantingTicketIou() {
+    return proxyGrantingTicketIou;
+  }
+
+  /**
+   * Returns the proxy ticket or <code>null</code> if the response does not contain proxy success.
+   */
+  public String getProxyTicket() {
+    return proxyTicket;
+  }
+
+  /**
+   * Returns the validated principal or <code>null</code> if the response does not contain
+   * authentication success.
+   */
+  public String getUser() {
+    return user;
+  }
+
+  @Override
+  public void startElement(final String uri, final String localName, final String qName,
+      final Attributes attributes) {
+    String name = localName(localName, qName);
+    if (inAttributes) {
+      if (text == null) {
+        attributeName = name;
+        text = new StringBuilder();
+      }
+    } else if (ELEMENT_AUTHENTICATION_SUCCESS.equals(name)) {
+      authenticationSuccess = true;
+    } else if (authenticationSuccess && ELEMENT_ATTRIBUTES.equals(name)) {
+      inAttributes = true;
+    } else if (ELEMENT_AUTHENTICATION_FAILURE.equals(name)) {
+      failureCode = attributes.getValue("code");
+    } else if (ELEMENT_PROXY_SUCCESS.equals(name)) {
+      proxySuccess = true;
+    } else if (authenticationSuccess && ELEMENT_USER.equals(name) && (user == null)) {
+      text = new StringBuilder();
+    } else if (authenticationSuccess && ELEMENT_PROXY_GRANTING_TICKET.equals(name)
+        && (proxyGrantingTicketIou == null)) {
+      text = new StringBuilder();
+    } else if (proxySuccess && ELEMENT_PROXY_TICKET.equals(name) && (proxyTicket == null)) {
+      text = new StringBuilder();
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.servlet.http.HttpSession;
+
+import org.everit.authentication.cas.ecm.CasSessionState;
+import org.everit.authentication.cas.ecm.CasUserAttributes;
+
+/**
+ * {@link CasUserAttributes} that reads the attributes of the {@link CasSessionState} stored in the
+ * session by the {@link CasAuthenticationFilter}.
+ */
+public class SessionCasUserAttributes implements CasUserAttributes {
+
+  private static CasSessionState getCasSessionState(final HttpSession httpSession) {
+    Objects.requireNonNull(httpSession, "httpSession cannot be null");
+    return CasSessionAttribute.getCasSessionState(
+        httpSession.getAttribute(CasAuthenticationFilter.SESSION_ATTR_NAME_STATE));
+  }
+
+  @Override
+  public List<String> getAttribute(final HttpSession httpSession, final String name) {
+    Objects.requireNonNull(name, "name cannot be null");
+    CasSessionState casSessionState = getCasSessionState(httpSession);
+    return casSessionState == null ? Collections.emptyList()
+        : casSessionState.getAttribute(name);
+  }
+
+  @Override
+  public Map<String, List<String>> getAttributes(final HttpSession httpSession) {
+    CasSessionState casSessionState = getCasSessionState(httpSession);
+    return casSessionState == null ? Collections.emptyMap() : casSessionState.getAttributes();
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull based {@link CasResponseParser}. The parsing stops as soon as the needed elements are read,
+ * the rest of the document is not read. The {@link XMLInputFactory} is created and configured once
+ * per parser and it is shared by the threads: the creation of the readers is thread-safe after the
+ * factory is configured, and no per-thread instance is left behind in the pooled threads of the
+ * container.
+ */
+public class StaxCasResponseParser implements CasResponseParser {
+
+  private static final String ELEMENT_ATTRIBUTES = "attributes";
+
+  private static final String ELEMENT_AUTHENTICATION_FAILURE = "authenticationFailure";
+
+  private static final String ELEMENT_AUTHENTICATION_SUCCESS = "authenticationSuccess";
+
+  private static final String ELEMENT_PROXY_FAILURE = "proxyFailure";
+
+  private static final String ELEMENT_PROXY_GRANTING_TICKET = "proxyGrantingTicket";
+
+  private static final String ELEMENT_PROXY_SUCCESS = "proxySuccess";
+
+  private static final String ELEMENT_PROXY_TICKET = "proxyTicket";
+
+  private static final String ELEMENT_SESSION_INDEX = "SessionIndex";
+
+  private static final String ELEMENT_USER = "user";
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
+  }
+
+  /**
+   * Reads the released attributes until the end of the <code>attributes</code> element. The text
+   * of the nested elements of an attribute is concatenated.
+   */
+  private static void readAttributes(final XMLStreamReader reader,
+      final Map<String, List<String>> attributes) throws XMLStreamException {
+    String attributeName = null;
+    StringBuilder value = null;
+    int depth = 0;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (depth == 0) {
+          attributeName = reader.getLocalName();
+          value = new StringBuilder();
+        }
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if (depth == 0) {
+          return;
+        }
+        depth--;
+        if (depth == 0) {
+          attributes.computeIfAbsent(attributeName, (key) -> new ArrayList<>(1))
+              .add(value.toString().trim());
+        }
+      } else if ((depth > 0) && ((event == XMLStreamConstants.CHARACTERS)
+          || (event == XMLStreamConstants.CDATA))) {
+        value.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+      }
+    }
+  }
+
+  private final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+  @Override
+  public String parseLogoutRequest(final String logoutRequest) throws IOException {
+    try {
+      XMLStreamReader reader =
+          xmlInputFactory.createXMLStreamReader(new StringReader(logoutRequest));
+      try {
+        while (reader.hasNext()) {
+          if ((reader.next() == XMLStreamConstants.START_ELEMENT)
+              && ELEMENT_SESSION_INDEX.equals(reader.getLocalName())) {
+            return reader.getElementText().trim();
+          }
+        }
+        return null;
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public String parseProxyResponse(final byte[] response) throws IOException {
+    try {
+      XMLStreamReader reader =
+          xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(response));
+      try {
+        boolean proxySuccess = false;
+        while (reader.hasNext()) {
+          if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            continue;
+          }
+          String localName = reader.getLocalName();
+          if (ELEMENT_PROXY_SUCCESS.equals(localName)) {
+            proxySuccess = true;
+          } else if (ELEMENT_PROXY_FAILURE.equals(localName)) {
+            return null;
+          } else if (proxySuccess && ELEMENT_PROXY_TICKET.equals(localName)) {
+            return reader.getElementText().trim();
+          }
+        }
+        return null;
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public CasValidationResult parseServiceValidateResponse(final byte[] response)
+      throws IOException {
+    try {
+      XMLStreamReader reader =
+          xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(response));
+      try {
+        return readServiceValidateResponse(reader);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private CasValidationResult readServiceValidateResponse(final XMLStreamReader reader)
+      throws XMLStreamException {
+    boolean authenticationSuccess = false;
+    String user = null;
+    String proxyGrantingTicketIou = null;
+    Map<String, List<String>> attributes = new LinkedHashMap<>();
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if ((event == XMLStreamConstants.END_ELEMENT)
+          && ELEMENT_AUTHENTICATION_SUCCESS.equals(reader.getLocalName())) {
+        break;
+      }
+      if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+      String localName = reader.getLocalName();
+      if (ELEMENT_AUTHENTICATION_SUCCESS.equals(localName)) {
+        authenticationSuccess = true;
+      } else if (ELEMENT_AUTHENTICATION_FAILURE.equals(localName)) {
+        return null;
+      } else if (authenticationSuccess && ELEMENT_USER.equals(localName) && (user == null)) {
+        user = reader.getElementText().trim();
+      } else if (authenticationSuccess && ELEMENT_PROXY_GRANTING_TICKET.equals(localName)
+          && (proxyGrantingTicketIou == null)) {
+        proxyGrantingTicketIou = reader.getElementText().trim();
+      } else if (authenticationSuccess && ELEMENT_ATTRIBUTES.equals(localName)) {
+        readAttributes(reader, attributes);
+      }
+    }
+    return user == null ? null
+        : new CasValidationResult(user, proxyGrantingTicketIou, attributes);
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded pool of canonical string instances, so the attribute names and the frequently repeated
+ * attribute values (for e.g. group names) of many sessions share the same instances. When the pool
+ * is full or the string is too long, the string is returned without pooling.
+ */
+public class StringPool {
+
+  /**
+   * The maximum length of the pooled strings. Longer values are rarely repeated.
+   */
+  private static final int MAX_LENGTH = 256;
+
+  private final int maxSize;
+
+  private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param maxSize
+   *          The maximum number of pooled strings. Zero or negative value disables the pooling.
+   */
+  public StringPool(final int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Removes all strings from the pool.
+   */
+  public void clear() {
+    strings.clear();
+  }
+
+  /**
+   * Returns the pooled instance of the string, pooling it if the pool is not full yet.
+   */
+  public String intern(final String string) {
+    if ((maxSize <= 0) || (string.length() > MAX_LENGTH)) {
+      return string;
+    }
+    String pooled = strings.get(string);
+    if (pooled != null) {
+      return pooled;
+    }
+    if (strings.size() >= maxSize) {
+      return string;
+    }
+    pooled = strings.putIfAbsent(string, string);
+    return pooled == null ? string : pooled;
+  }
+
+  /**
+   * Returns a copy of the attributes with the pooled instances of the names and values.
+   */
+  public Map<String, List<String>> internAttributes(final Map<String, List<String>> attributes) {
+    Map<String, List<String>> internedAttributes = new LinkedHashMap<>(attributes.size() * 2);
+    for (Map.Entry<String, List<String>> attribute : attributes.entrySet()) {
+      List<String> values = attribute.getValue();
+      List<String> internedValues = new ArrayList<>(values.size());
+      for (String value : values) {
+        internedValues.add(intern(value));
+      }
+      internedAttributes.put(intern(attribute.getKey()), internedValues);
+    }
+    return internedAttributes;
+  }
+
+  public int size() {
+    return strings.size();
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * The service ticket validation URLs of a CAS cluster. Every call is sent to the endpoint with the
+ * lowest expected latency, that is the exponentially weighted moving average of its latency
+ * multiplied by the number of its outstanding calls, so a slow node gets less traffic as soon as
+ * its latency or its queue grows. An endpoint is ejected for a while after a number of consecutive
+ * failures. If a connection to an endpoint cannot be established, the call is repeated on the next
+ * endpoint. Other failures are not repeated, because the CAS server may have consumed the service
+ * ticket already.
+ */
+public class ValidationEndpoints {
+
+  /**
+   * A call to an endpoint.
+   *
+   * @param <T>
+   *          The type of the result.
+   */
+  @FunctionalInterface
+  public interface EndpointCall<T> {
+
+    T call(String url) throws IOException;
+
+  }
+
+  /**
+   * A validation URL and its statistics.
+   */
+  private static final class Endpoint {
+
+    private int consecutiveFailures;
+
+    private boolean ejected;
+
+    private long ejectedUntil;
+
+    /**
+     * The moving average of the latency in nanoseconds. Zero until the first call completes, so the
+     * new endpoints are tried first.
+     */
+    private double latencyEwma;
+
+    private final AtomicInteger outstandingCalls = new AtomicInteger();
+
+    private final String url;
+
+    Endpoint(final String url) {
+      this.url = url;
+    }
+
+    synchronized boolean isEjected(final long now) {
+      return ejected && ((ejectedUntil - now) > 0);
+    }
+
+    synchronized void onFailure(final long now, final int ejectionThreshold,
+        final long ejectionDurationNanos) {
+      consecutiveFailures++;
+      if ((ejectionThreshold > 0) && (consecutiveFailures >= ejectionThreshold)) {
+        ejected = true;
+        ejectedUntil = now + ejectionDurationNanos;
+        consecutiveFailures = 0;
+      }
+    }
+
+    synchronized void onSuccess(final long durationNanos) {
+      consecutiveFailures = 0;
+      ejected = false;
+      latencyEwma = latencyEwma == 0
+          ? durationNanos
+          : latencyEwma + (EWMA_WEIGHT * (durationNanos - latencyEwma));
+    }
+
+    synchronized double score() {
+      return (latencyEwma + 1) * (outstandingCalls.get() + 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+      return url + " [outstanding calls: " + outstandingCalls.get() + ", latency: "
+          + TimeUnit.NANOSECONDS.toMicros((long) latencyEwma) + " us"
+          + (isEjected(System.nanoTime()) ? ", ejected" : "") + "]";
+    }
+
+  }
+
+  private static final double EWMA_WEIGHT = 0.2;
+
+  /**
+   * Checks if the exception tells that the request did not reach the CAS server, so it is safe to
+   * repeat it on another endpoint.
+   */
+  private static boolean isConnectFailure(final IOException e) {
+    return (e instanceof ConnectException)
+        || (e instanceof ConnectTimeoutException)
+        || (e instanceof NoRouteToHostException)
+        || (e instanceof UnknownHostException);
+  }
+
+  private final long ejectionDurationNanos;
+
+  private final int ejectionThreshold;
+
+  private final Endpoint[] endpoints;
+
+  /**
+   * Constructor.
+   *
+   * @param urls
+   *          The validation URLs, at least one.
+   * @param ejectionThreshold
+   *          The number of consecutive failures after an endpoint is ejected. Non-positive value
+   *          disables the ejection.
+   * @param ejectionDuration
+   *          The time in milliseconds while an ejected endpoint does not receive calls unless all
+   *          endpoints are ejected.
+   */
+  public ValidationEndpoints(final String[] urls, final int ejectionThreshold,
+      final long ejectionDuration) {
+    Objects.requireNonNull(urls, "urls cannot be null");
+    if (urls.length == 0) {
+      throw new IllegalArgumentException("At least one validation URL must be specified");
+    }
+    endpoints = new Endpoint[urls.length];
+    for (int i = 0; i < urls.length; i++) {
+      endpoints[i] = new Endpoint(Objects.requireNonNull(urls[i], "url cannot be null"));
+    }
+    this.ejectionThreshold = ejectionThreshold;
+    this.ejectionDurationNanos = TimeUnit.MILLISECONDS.toNanos(ejectionDuration);
+  }
+
+  /**
+   * Calls the best endpoint and repeats the call on the next best endpoint if the connection cannot
+   * be established.
+   *
+   * @return The result of the call.
+   * @throws IOException
+   *           The failure of the last tried endpoint.
+   */
+  public <T> T call(final EndpointCall<T> endpointCall) throws IOException {
+    if (endpoints.length == 1) {
+      return call(endpoints[0], endpointCall);
+    }
+    boolean[] tried = new boolean[endpoints.length];
+    while (true) {
+      int index = select(tried);
+      tried[index] = true;
+      try {
+        return call(endpoints[index], endpointCall);
+      } catch (IOException e) {
+        if (!isConnectFailure(e) || (select(tried) < 0)) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private <T> T call(final Endpoint endpoint, final EndpointCall<T> endpointCall)
+      throws IOException {
+    endpoint.outstandingCalls.incrementAndGet();
+    long startTime = System.nanoTime();
+    try {
+      T result = endpointCall.call(endpoint.url);
+      endpoint.onSuccess(System.nanoTime() - startTime);
+      return result;
+    } catch (IOException | RuntimeException e) {
+      endpoint.onFailure(System.nanoTime(), ejectionThreshold, ejectionDurationNanos);
+      throw e;
+    } finally {
+      endpoint.outstandingCalls.decrementAndGet();
+    }
+  }
+
+  /**
+   * Checks if the endpoints were created with the given settings, so they can be kept with their
+   * statistics when the configuration is updated.
+   */
+  public boolean hasSettings(final String[] urls, final int ejectionThreshold,
+      final long ejectionDuration) {
+    if ((urls.length != endpoints.length) || (this.ejectionThreshold != ejectionThreshold)
+        || (ejectionDurationNanos != TimeUnit.MILLISECONDS.toNanos(ejectionDuration))) {
+      return false;
+    }
+    for (int i = 0; i < urls.length; i++) {
+      if (!endpoints[i].url.equals(urls[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of the endpoints.
+   */
+  public int size() {
+    return endpoints.length;
+  }
+
+  /**
+   * Selects the not yet tried endpoint with the lowest score. The ejected endpoints are selected
+   * only if all not yet tried endpoints are ejected. The search starts at a random index, so the
+   * endpoints with equal scores share the load.
+   *
+   * @return The index of the endpoint or <code>-1</code> if all endpoints are tried.
+   */
+  private int select(final boolean[] tried) {
+    long now = System.nanoTime();
+    int start = ThreadLocalRandom.current().nextInt(endpoints.length);
+    int selected = -1;
+    boolean selectedEjected = true;
+    double selectedScore = Double.MAX_VALUE;
+    for (int i = 0; i < endpoints.length; i++) {
+      int index = (start + i) % endpoints.length;
+      if ((tried != null) && tried[index]) {
+        continue;
+      }
+      Endpoint endpoint = endpoints[index];
+      boolean ejected = endpoint.isEjected(now);
+      double score = endpoint.score();
+      if ((selected < 0) || (selectedEjected && !ejected)
+          || ((selectedEjected == ejected) && (score < selectedScore))) {
+        selected = index;
+        selectedEjected = ejected;
+        selectedScore = score;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Returns the URLs and the statistics of the endpoints.
+   */
+  public String[] toStrings() {
+    String[] result = new String[endpoints.length];
+    for (int i = 0; i < endpoints.length; i++) {
+      result[i] = endpoints[i].toString();
+    }
+    return result;
+  }
+
+}
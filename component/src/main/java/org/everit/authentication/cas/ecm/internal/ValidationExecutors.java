@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory of the executors that run the asynchronous service ticket validations.
+ */
+public final class ValidationExecutors {
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * Creates a bounded executor with daemon threads. The executor rejects the tasks when all threads
+   * are busy and the queue is full.
+   *
+   * @param threadCount
+   *          The maximum number of validation threads.
+   * @param queueSize
+   *          The maximum number of waiting validations.
+   * @return The new executor.
+   */
+  public static ThreadPoolExecutor newValidationExecutor(final int threadCount,
+      final int queueSize) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadFactory threadFactory = (runnable) -> {
+      Thread thread = new Thread(runnable,
+          "cas-ticket-validation-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+        threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private ValidationExecutors() {
+  }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+
+/**
+ * Thrown if a service ticket validation is not sent to the CAS server, because the maximum number
+ * of concurrent validations is reached or the circuit breaker is open.
+ */
+public class ValidationRejectedException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public ValidationRejectedException(final String message) {
+    super(message);
+  }
+
+}
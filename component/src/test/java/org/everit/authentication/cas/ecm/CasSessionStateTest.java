@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CasSessionStateTest {
+
+  private static void readExternal(final byte[] bytes) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      new CasSessionState().readExternal(in);
+    }
+  }
+
+  private static CasSessionState roundTrip(final CasSessionState casSessionState)
+      throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(casSessionState);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (CasSessionState) in.readObject();
+    }
+  }
+
+  @Test
+  public void testNegativeAttributeCountIsRejected() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeByte(1);
+      out.writeInt(-1);
+      out.writeInt(-1);
+      out.writeLong(1L);
+      out.writeInt(-1);
+      out.writeInt(-3);
+    }
+
+    try {
+      readExternal(bytes.toByteArray());
+      Assert.fail("StreamCorruptedException expected");
+    } catch (StreamCorruptedException e) {
+      Assert.assertEquals("Invalid count [-3]", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testNegativeStringLengthIsRejected() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeByte(1);
+      out.writeInt(-2);
+    }
+
+    try {
+      readExternal(bytes.toByteArray());
+      Assert.fail("StreamCorruptedException expected");
+    } catch (StreamCorruptedException e) {
+      Assert.assertEquals("Invalid string length [-2]", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Map<String, List<String>> attributes = new LinkedHashMap<>();
+    attributes.put("mail", Collections.singletonList("johndoe@example.org"));
+    attributes.put("groups", Arrays.asList("admins", "users"));
+    attributes.put("empty", Collections.<String> emptyList());
+    CasSessionState casSessionState =
+        new CasSessionState("ST-1", "johndoe", 1L, attributes, "PGT-1");
+
+    CasSessionState restoredCasSessionState = roundTrip(casSessionState);
+
+    Assert.assertEquals("ST-1", restoredCasSessionState.getServiceTicket());
+    Assert.assertEquals("johndoe", restoredCasSessionState.getPrincipal());
+    Assert.assertEquals(1L, restoredCasSessionState.getResourceId());
+    Assert.assertEquals("PGT-1", restoredCasSessionState.getProxyGrantingTicket());
+    Assert.assertEquals(casSessionState.getAttributes(), restoredCasSessionState.getAttributes());
+    Assert.assertEquals(Arrays.asList("empty", "groups", "mail"),
+        Arrays.asList(restoredCasSessionState.getAttributes().keySet().toArray()));
+    Assert.assertEquals(Arrays.asList("admins", "users"),
+        restoredCasSessionState.getAttribute("groups"));
+    Assert.assertTrue(restoredCasSessionState.getAttribute("missing").isEmpty());
+  }
+
+  @Test
+  public void testRoundTripWithoutProxyGrantingTicket() throws Exception {
+    CasSessionState restoredCasSessionState = roundTrip(new CasSessionState("ST-1", "johndoe", 1L,
+        Collections.<String, List<String>> emptyMap(), null));
+
+    Assert.assertNull(restoredCasSessionState.getProxyGrantingTicket());
+    Assert.assertTrue(restoredCasSessionState.getAttributes().isEmpty());
+  }
+
+  @Test
+  public void testUnknownVersionIsRejected() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeByte(2);
+    }
+
+    try {
+      readExternal(bytes.toByteArray());
+      Assert.fail("InvalidClassException expected");
+    } catch (InvalidClassException e) {
+      Assert.assertTrue(e.getMessage().contains("Unsupported version [2]"));
+    }
+  }
+
+}
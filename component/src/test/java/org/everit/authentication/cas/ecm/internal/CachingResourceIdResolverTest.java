@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachingResourceIdResolverTest {
+
+  /**
+   * The unique identifiers have the same hash code, so they are cached in the same lock stripe.
+   */
+  private static final String[] COLLIDING_IDENTIFIERS = { "AaAa", "AaBB", "BBAa" };
+
+  private static final long LONG_TIME_TO_LIVE = 60000;
+
+  private static final String UNMAPPED = "unmapped";
+
+  private final List<String> resolvedIdentifiers = new ArrayList<>();
+
+  private CachingResourceIdResolver createResolver(final int maxSize, final long timeToLive,
+      final long negativeTimeToLive) {
+    return new CachingResourceIdResolver((uniqueIdentifier) -> {
+      resolvedIdentifiers.add(uniqueIdentifier);
+      return UNMAPPED.equals(uniqueIdentifier)
+          ? Optional.empty()
+          : Optional.of((long) uniqueIdentifier.length());
+    }, maxSize, timeToLive, negativeTimeToLive);
+  }
+
+  @Test
+  public void testClear() {
+    CachingResourceIdResolver resolver =
+        createResolver(100, LONG_TIME_TO_LIVE, LONG_TIME_TO_LIVE);
+    resolver.getResourceId("johndoe");
+    resolver.getResourceId(UNMAPPED);
+
+    resolver.clear();
+
+    Assert.assertEquals(0, resolver.size());
+    resolver.getResourceId("johndoe");
+    Assert.assertEquals(3, resolvedIdentifiers.size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryOfStripeIsEvicted() {
+    Assert.assertEquals(COLLIDING_IDENTIFIERS[0].hashCode(), COLLIDING_IDENTIFIERS[1].hashCode());
+    Assert.assertEquals(COLLIDING_IDENTIFIERS[0].hashCode(), COLLIDING_IDENTIFIERS[2].hashCode());
+    // 32 entries in 16 stripes: 2 entries per stripe
+    CachingResourceIdResolver resolver = createResolver(32, LONG_TIME_TO_LIVE, LONG_TIME_TO_LIVE);
+    resolver.getResourceId(COLLIDING_IDENTIFIERS[0]);
+    resolver.getResourceId(COLLIDING_IDENTIFIERS[1]);
+    resolver.getResourceId(COLLIDING_IDENTIFIERS[0]);
+
+    resolver.getResourceId(COLLIDING_IDENTIFIERS[2]);
+
+    Assert.assertEquals(1, resolver.getEvictionCount());
+    Assert.assertEquals(2, resolver.size());
+    resolvedIdentifiers.clear();
+    resolver.getResourceId(COLLIDING_IDENTIFIERS[0]);
+    Assert.assertTrue(resolvedIdentifiers.isEmpty());
+    resolver.getResourceId(COLLIDING_IDENTIFIERS[1]);
+    Assert.assertEquals(1, resolvedIdentifiers.size());
+  }
+
+  @Test
+  public void testResolvedResourceIdExpires() throws InterruptedException {
+    CachingResourceIdResolver resolver = createResolver(100, 1, LONG_TIME_TO_LIVE);
+    Assert.assertEquals(Optional.of(7L), resolver.getResourceId("johndoe"));
+    Assert.assertFalse(resolver.getResourceId(UNMAPPED).isPresent());
+
+    Thread.sleep(10);
+
+    Assert.assertEquals(Optional.of(7L), resolver.getResourceId("johndoe"));
+    Assert.assertFalse(resolver.getResourceId(UNMAPPED).isPresent());
+    Assert.assertEquals(3, resolvedIdentifiers.size());
+    Assert.assertEquals(1, resolver.getEvictionCount());
+    Assert.assertEquals(1, resolver.getHitCount());
+    Assert.assertEquals(3, resolver.getMissCount());
+  }
+
+  @Test
+  public void testResolvedResourceIdIsCached() {
+    CachingResourceIdResolver resolver =
+        createResolver(100, LONG_TIME_TO_LIVE, LONG_TIME_TO_LIVE);
+
+    Assert.assertEquals(Optional.of(7L), resolver.getResourceId("johndoe"));
+    Assert.assertEquals(Optional.of(7L), resolver.getResourceId("johndoe"));
+
+    Assert.assertEquals(1, resolvedIdentifiers.size());
+    Assert.assertEquals(1, resolver.getHitCount());
+    Assert.assertEquals(1, resolver.getMissCount());
+    Assert.assertEquals(0, resolver.getEvictionCount());
+    Assert.assertEquals(1, resolver.size());
+  }
+
+  @Test
+  public void testUnresolvedIdentifierExpiresWithNegativeTimeToLive()
+      throws InterruptedException {
+    CachingResourceIdResolver resolver = createResolver(100, LONG_TIME_TO_LIVE, 1);
+    Assert.assertFalse(resolver.getResourceId(UNMAPPED).isPresent());
+    Assert.assertEquals(Optional.of(7L), resolver.getResourceId("johndoe"));
+
+    Thread.sleep(10);
+
+    Assert.assertFalse(resolver.getResourceId(UNMAPPED).isPresent());
+    Assert.assertEquals(Optional.of(7L), resolver.getResourceId("johndoe"));
+    Assert.assertEquals(3, resolvedIdentifiers.size());
+    Assert.assertEquals(1, resolver.getEvictionCount());
+    Assert.assertEquals(1, resolver.getHitCount());
+    Assert.assertEquals(3, resolver.getMissCount());
+  }
+
+  @Test
+  public void testUnresolvedIdentifierIsCached() {
+    CachingResourceIdResolver resolver =
+        createResolver(100, LONG_TIME_TO_LIVE, LONG_TIME_TO_LIVE);
+
+    Assert.assertFalse(resolver.getResourceId(UNMAPPED).isPresent());
+    Assert.assertFalse(resolver.getResourceId(UNMAPPED).isPresent());
+
+    Assert.assertEquals(1, resolvedIdentifiers.size());
+    Assert.assertEquals(1, resolver.getHitCount());
+    Assert.assertEquals(1, resolver.getMissCount());
+  }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.everit.authentication.cas.ecm.CasLogoutPropagator;
+import org.everit.resource.resolver.ResourceIdResolver;
+
+/**
+ * A {@link CasAuthenticationFilter} connected to a {@link FakeCasServer}. The configuration can be
+ * changed with the setters before the filter is created by {@link #start()}. The requests are sent
+ * to the <code>/app</code> context of the <code>http://localhost:8080</code> server.
+ */
+public final class CasAuthenticationFilterFixture implements AutoCloseable {
+
+  public static final String AUTHENTICATED_RESOURCE_ID_ATTRIBUTE_NAME =
+      "org.everit.authentication.http.session.AuthenticatedResourceId";
+
+  public static final String CAS_LOGIN_URL = "https://cas.example.org/cas/login";
+
+  public static final String CONTEXT_PATH = "/app";
+
+  public static final String PRINCIPAL = "johndoe";
+
+  public static final long RESOURCE_ID = 1L;
+
+  public static final String SERVER_URL = "http://localhost:8080";
+
+  private static final int HTTP_TIMEOUT = 5000;
+
+  private boolean asyncValidationEnabled;
+
+  private final FakeCasServer casServer;
+
+  private CasHttpClient casHttpClient;
+
+  private CasLogoutPropagator casLogoutPropagator;
+
+  private String[] excludePathPatterns;
+
+  private CasAuthenticationFilter filter;
+
+  private boolean gatewayEnabled;
+
+  private long gatewayWindow;
+
+  private String[] includePathPatterns;
+
+  private LogoutPropagation logoutPropagation;
+
+  private LogoutRequestQueue logoutRequestQueue;
+
+  private boolean logoutRequestQueueEnabled;
+
+  private final CasAuthenticationMetricsCollector metrics = new CasAuthenticationMetricsCollector();
+
+  private boolean parameterFastPathEnabled;
+
+  private String[] protectedPathPatterns;
+
+  private ProxyGrantingTicketStore proxyGrantingTicketStore;
+
+  private ResourceIdResolver resourceIdResolver = (uniqueIdentifier) -> Optional.of(RESOURCE_ID);
+
+  private CasResponseParser responseParser;
+
+  private int serviceTicketCacheMaxSize;
+
+  private ServiceTicketIndex serviceTicketIndex = new HeapServiceTicketIndex();
+
+  private ServiceTicketSessionRegistry serviceTicketSessionRegistry;
+
+  private final AtomicInteger sessionCount = new AtomicInteger();
+
+  private boolean sessionsTracked = true;
+
+  private ExecutorService validationExecutor;
+
+  /**
+   * Constructor. Starts the CAS server, the filter is created by {@link #start()}.
+   */
+  public CasAuthenticationFilterFixture() throws IOException {
+    casServer = new FakeCasServer();
+  }
+
+  @Override
+  public void close() {
+    if (logoutRequestQueue != null) {
+      logoutRequestQueue.close();
+    }
+    if (logoutPropagation != null) {
+      logoutPropagation.close();
+    }
+    if (validationExecutor != null) {
+      validationExecutor.shutdownNow();
+    }
+    if (casHttpClient != null) {
+      casHttpClient.close();
+    }
+    casServer.close();
+  }
+
+  /**
+   * Creates a session that notifies the filter about its changes.
+   */
+  public FakeHttpSession createSession() {
+    return new FakeHttpSession("session-" + sessionCount.incrementAndGet(), filter);
+  }
+
+  /**
+   * Sends the request through the filter.
+   *
+   * @return The response of the filter or of the filter chain.
+   */
+  public FakeHttpServletResponse doFilter(final FakeHttpServletRequest request)
+      throws IOException, ServletException {
+    FakeHttpServletResponse response = new FakeHttpServletResponse();
+    request.response(response.get());
+    filter.doFilter(request.get(), response.get(),
+        (chainedRequest, chainedResponse) -> response.markChained());
+    return response;
+  }
+
+  public FakeCasServer getCasServer() {
+    return casServer;
+  }
+
+  public CasAuthenticationFilter getFilter() {
+    return filter;
+  }
+
+  public CasAuthenticationMetricsCollector getMetrics() {
+    return metrics;
+  }
+
+  public ServiceTicketSessionRegistry getServiceTicketSessionRegistry() {
+    return serviceTicketSessionRegistry;
+  }
+
+  /**
+   * Sends the service ticket issued by the CAS server to the <code>/secure</code> page in the
+   * session.
+   *
+   * @return The response of the filter.
+   */
+  public FakeHttpServletResponse login(final FakeHttpSession session, final String serviceTicket)
+      throws IOException, ServletException {
+    casServer.issueServiceTicket(serviceTicket, SERVER_URL + CONTEXT_PATH + "/secure", PRINCIPAL);
+    return doFilter(request("/secure").queryString("ticket=" + serviceTicket).session(session));
+  }
+
+  /**
+   * Sends a CAS logout request of the service ticket like the CAS server does.
+   */
+  public FakeHttpServletResponse logout(final String serviceTicket)
+      throws IOException, ServletException {
+    return doFilter(request("/").formPost(
+        "logoutRequest=" + URLEncoder.encode(FakeCasServer.createLogoutRequest(serviceTicket),
+            StandardCharsets.UTF_8.name())));
+  }
+
+  /**
+   * Creates a GET request of the path in the <code>/app</code> context. Sessions created by the
+   * request notify the filter.
+   */
+  public FakeHttpServletRequest request(final String servletPath) {
+    return new FakeHttpServletRequest()
+        .contextPath(CONTEXT_PATH)
+        .servletPath(servletPath)
+        .sessionFactory(this::createSession);
+  }
+
+  public CasAuthenticationFilterFixture setAsyncValidationEnabled(
+      final boolean asyncValidationEnabled) {
+    this.asyncValidationEnabled = asyncValidationEnabled;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setCasLogoutPropagator(
+      final CasLogoutPropagator casLogoutPropagator) {
+    this.casLogoutPropagator = casLogoutPropagator;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setExcludePathPatterns(
+      final String... excludePathPatterns) {
+    this.excludePathPatterns = excludePathPatterns;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setGatewayEnabled(final boolean gatewayEnabled) {
+    this.gatewayEnabled = gatewayEnabled;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setGatewayWindow(final long gatewayWindow) {
+    this.gatewayWindow = gatewayWindow;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setIncludePathPatterns(
+      final String... includePathPatterns) {
+    this.includePathPatterns = includePathPatterns;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setLogoutRequestQueueEnabled(
+      final boolean logoutRequestQueueEnabled) {
+    this.logoutRequestQueueEnabled = logoutRequestQueueEnabled;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setParameterFastPathEnabled(
+      final boolean parameterFastPathEnabled) {
+    this.parameterFastPathEnabled = parameterFastPathEnabled;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setProtectedPathPatterns(
+      final String... protectedPathPatterns) {
+    this.protectedPathPatterns = protectedPathPatterns;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setProxyGrantingTicketStore(
+      final ProxyGrantingTicketStore proxyGrantingTicketStore) {
+    this.proxyGrantingTicketStore = proxyGrantingTicketStore;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setResourceIdResolver(
+      final ResourceIdResolver resourceIdResolver) {
+    this.resourceIdResolver = resourceIdResolver;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setResponseParser(
+      final CasResponseParser responseParser) {
+    this.responseParser = responseParser;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setServiceTicketCacheMaxSize(
+      final int serviceTicketCacheMaxSize) {
+    this.serviceTicketCacheMaxSize = serviceTicketCacheMaxSize;
+    return this;
+  }
+
+  public CasAuthenticationFilterFixture setServiceTicketIndex(
+      final ServiceTicketIndex serviceTicketIndex, final boolean sessionsTracked) {
+    this.serviceTicketIndex = serviceTicketIndex;
+    this.sessionsTracked = sessionsTracked;
+    return this;
+  }
+
+  /**
+   * Creates the filter with the current configuration.
+   */
+  public CasAuthenticationFilter start() {
+    CasAuthenticationFilterConfiguration configuration = new CasAuthenticationFilterConfiguration(
+        new ValidationEndpoints(new String[] { casServer.getServiceValidateUrl() }, 0, 0),
+        "ticket",
+        "logoutRequest",
+        parameterFastPathEnabled,
+        PathMatcher.compile(includePathPatterns),
+        PathMatcher.compile(excludePathPatterns),
+        "/failed.html",
+        responseParser != null ? responseParser
+            : new SaxCasResponseParser(new SaxParserPool(SAXParserFactory.newInstance(), 1)),
+        new LoginUrlCache(CAS_LOGIN_URL, 0),
+        PathMatcher.compile(protectedPathPatterns),
+        gatewayEnabled,
+        gatewayWindow);
+    casHttpClient = new CasHttpClient(1, 0, HTTP_TIMEOUT, HTTP_TIMEOUT);
+    serviceTicketSessionRegistry =
+        new ServiceTicketSessionRegistry(serviceTicketIndex, sessionsTracked);
+    if (casLogoutPropagator != null) {
+      logoutPropagation = new LogoutPropagation(casLogoutPropagator, 1, Long.MAX_VALUE, 100);
+    }
+    if (logoutRequestQueueEnabled) {
+      logoutRequestQueue = new LogoutRequestQueue(100, 10);
+    }
+    if (asyncValidationEnabled) {
+      validationExecutor = ValidationExecutors.newValidationExecutor(1, 10);
+    }
+    filter = new CasAuthenticationFilter(
+        configuration,
+        resourceIdResolver,
+        () -> AUTHENTICATED_RESOURCE_ID_ATTRIBUTE_NAME,
+        casHttpClient,
+        new ServiceTicketCache(serviceTicketCacheMaxSize, Long.MAX_VALUE / 2),
+        serviceTicketSessionRegistry,
+        logoutPropagation,
+        logoutRequestQueue,
+        validationExecutor,
+        null,
+        new CircuitBreaker(0, 0, 0, 0, 0, (state) -> {
+        }),
+        metrics,
+        proxyGrantingTicketStore,
+        new StringPool(0));
+    if (logoutPropagation != null) {
+      logoutPropagation.open(filter::invalidateSession);
+    }
+    if (logoutRequestQueue != null) {
+      logoutRequestQueue.start(filter::processLogoutRequests);
+    }
+    return filter;
+  }
+
+}
@@ -0,0 +1,640 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.Cookie;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CasAuthenticationFilterTest {
+
+  private static final String FAILURE_URL = "/failed.html";
+
+  private static final String GATEWAY_COOKIE_NAME = "CAS_GATEWAY";
+
+  private static final String SECURE_URL =
+      CasAuthenticationFilterFixture.SERVER_URL + CasAuthenticationFilterFixture.CONTEXT_PATH
+          + "/secure";
+
+  private static final long TIMEOUT = 5000;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private CasAuthenticationFilterFixture fixture;
+
+  /**
+   * Restores the passivated attributes of the session the way a session manager does after a
+   * restart: the CAS state is deserialized.
+   */
+  private static void activate(final FakeHttpSession session,
+      final Map<String, Object> passivatedAttributes) throws Exception {
+    for (Map.Entry<String, Object> attribute : passivatedAttributes.entrySet()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(attribute.getValue());
+      }
+      try (ObjectInputStream in =
+          new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        session.get().setAttribute(attribute.getKey(), in.readObject());
+      }
+    }
+  }
+
+  private static CasResponseParser failingResponseParser(final Throwable throwable) {
+    return (CasResponseParser) Proxy.newProxyInstance(CasResponseParser.class.getClassLoader(),
+        new Class<?>[] { CasResponseParser.class }, (proxy, method, args) -> {
+          throw throwable;
+        });
+  }
+
+  private static String loginUrl(final String serviceUrl) throws Exception {
+    return CasAuthenticationFilterFixture.CAS_LOGIN_URL + "?service="
+        + URLEncoder.encode(serviceUrl, StandardCharsets.UTF_8.name());
+  }
+
+  private boolean isAuthenticated(final FakeHttpSession session) {
+    return !session.isInvalidated() && (session.getAttribute(
+        CasAuthenticationFilterFixture.AUTHENTICATED_RESOURCE_ID_ATTRIBUTE_NAME) != null);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new CasAuthenticationFilterFixture();
+  }
+
+  @After
+  public void tearDown() {
+    fixture.close();
+  }
+
+  @Test
+  public void testAsyncServiceTicketValidation() throws Exception {
+    fixture.setAsyncValidationEnabled(true).start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.getCasServer().issueServiceTicket("ST-1", SECURE_URL,
+        CasAuthenticationFilterFixture.PRINCIPAL);
+    FakeHttpServletRequest request =
+        fixture.request("/secure").queryString("ticket=ST-1").session(session).asyncSupported();
+
+    FakeHttpServletResponse response = fixture.doFilter(request);
+
+    Assert.assertTrue(request.isAsyncStarted());
+    Assert.assertTrue(request.awaitAsyncCompletion(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(SECURE_URL, response.getRedirectLocation());
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(isAuthenticated(session));
+  }
+
+  @Test
+  public void testAsyncServiceTicketValidationErrorRedirectsToFailureUrl() throws Exception {
+    fixture.setAsyncValidationEnabled(true).setResourceIdResolver((uniqueIdentifier) -> {
+      throw new IllegalStateException("Resource store is not available");
+    }).start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.getCasServer().issueServiceTicket("ST-1", SECURE_URL,
+        CasAuthenticationFilterFixture.PRINCIPAL);
+    FakeHttpServletRequest request =
+        fixture.request("/secure").queryString("ticket=ST-1").session(session).asyncSupported();
+
+    FakeHttpServletResponse response = fixture.doFilter(request);
+
+    Assert.assertTrue(request.awaitAsyncCompletion(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertEquals(1, request.getServletContext().getMessages().size());
+    Assert.assertFalse(isAuthenticated(session));
+    Assert.assertEquals(0, fixture.getMetrics().getValidationsInFlight());
+  }
+
+  @Test
+  public void testAsyncServiceTicketValidationFailureRedirectsToFailureUrl() throws Exception {
+    fixture.setAsyncValidationEnabled(true).start();
+    FakeHttpSession session = fixture.createSession();
+    FakeHttpServletRequest request =
+        fixture.request("/secure").queryString("ticket=ST-1").session(session).asyncSupported();
+
+    FakeHttpServletResponse response = fixture.doFilter(request);
+
+    Assert.assertTrue(request.awaitAsyncCompletion(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertEquals(1, fixture.getCasServer().getValidationCount());
+    Assert.assertFalse(isAuthenticated(session));
+  }
+
+  @Test
+  public void testAsyncServiceTicketValidationParserErrorRedirectsToFailureUrl()
+      throws Exception {
+    fixture.setAsyncValidationEnabled(true)
+        .setResponseParser(failingResponseParser(new IllegalStateException("Parser failure")))
+        .start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.getCasServer().issueServiceTicket("ST-1", SECURE_URL,
+        CasAuthenticationFilterFixture.PRINCIPAL);
+    FakeHttpServletRequest request =
+        fixture.request("/secure").queryString("ticket=ST-1").session(session).asyncSupported();
+
+    FakeHttpServletResponse response = fixture.doFilter(request);
+
+    Assert.assertTrue(request.awaitAsyncCompletion(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertFalse(isAuthenticated(session));
+    Assert.assertEquals(0, fixture.getMetrics().getValidationsInFlight());
+    Assert.assertEquals(1, fixture.getMetrics().getValidationCount());
+    Assert.assertEquals(1, fixture.getMetrics().getValidationFailureCount());
+  }
+
+  @Test
+  public void testExcludePatternIsMatchedAgainstServletPathAndPathInfo() throws Exception {
+    fixture.setExcludePathPatterns("/public/*").start();
+
+    FakeHttpServletResponse response = fixture.doFilter(fixture.request("/public")
+        .pathInfo("/page").queryString("ticket=ST-1"));
+
+    Assert.assertTrue(response.isChained());
+    Assert.assertEquals(0, fixture.getCasServer().getValidationCount());
+  }
+
+  @Test
+  public void testGatewayCookieExpiresWithGatewayWindow() throws Exception {
+    fixture.setGatewayEnabled(true).setGatewayWindow(500).start();
+
+    Cookie gatewayCookie =
+        fixture.doFilter(fixture.request("/page")).getCookie(GATEWAY_COOKIE_NAME);
+
+    Assert.assertEquals(1, gatewayCookie.getMaxAge());
+  }
+
+  @Test
+  public void testGatewayIsNotUsedForAjaxAndNonGetRequests() throws Exception {
+    fixture.setGatewayEnabled(true).start();
+
+    FakeHttpServletResponse postResponse =
+        fixture.doFilter(fixture.request("/page").method("POST"));
+    FakeHttpServletResponse ajaxResponse = fixture.doFilter(
+        fixture.request("/page").header("X-Requested-With", "XMLHttpRequest"));
+
+    Assert.assertTrue(postResponse.isChained());
+    Assert.assertNull(postResponse.getCookie(GATEWAY_COOKIE_NAME));
+    Assert.assertTrue(ajaxResponse.isChained());
+    Assert.assertNull(ajaxResponse.getCookie(GATEWAY_COOKIE_NAME));
+  }
+
+  @Test
+  public void testGatewayIsNotUsedForAuthenticatedSession() throws Exception {
+    fixture.setGatewayEnabled(true).start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/page").session(session));
+
+    Assert.assertTrue(response.isChained());
+  }
+
+  @Test
+  public void testGatewayRedirectsBrowserOncePerWindow() throws Exception {
+    fixture.setGatewayEnabled(true).setGatewayWindow(120000).start();
+
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/page").queryString("a=1&b=2"));
+
+    Assert.assertFalse(response.isChained());
+    Assert.assertEquals(loginUrl(CasAuthenticationFilterFixture.SERVER_URL
+        + CasAuthenticationFilterFixture.CONTEXT_PATH + "/page?a=1&b=2") + "&gateway=true",
+        response.getRedirectLocation());
+    Cookie gatewayCookie = response.getCookie(GATEWAY_COOKIE_NAME);
+    Assert.assertEquals(120, gatewayCookie.getMaxAge());
+    Assert.assertEquals(CasAuthenticationFilterFixture.CONTEXT_PATH, gatewayCookie.getPath());
+    Assert.assertTrue(gatewayCookie.isHttpOnly());
+
+    FakeHttpServletResponse returnResponse = fixture.doFilter(
+        fixture.request("/page").queryString("a=1&b=2").cookie(gatewayCookie));
+
+    Assert.assertTrue(returnResponse.isChained());
+    Assert.assertNull(returnResponse.getCookie(GATEWAY_COOKIE_NAME));
+  }
+
+  @Test
+  public void testIncludePatternIsMatchedAgainstDecodedPath() throws Exception {
+    fixture.setIncludePathPatterns("/secure/*").start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+    Assert.assertTrue(isAuthenticated(session));
+
+    FakeHttpServletResponse response = fixture.doFilter(fixture.request("/secure")
+        .pathInfo("/page").requestUri(CasAuthenticationFilterFixture.CONTEXT_PATH
+            + "/%73ecure;x/page")
+        .formPost("logoutRequest=" + URLEncoder.encode(
+            FakeCasServer.createLogoutRequest("ST-1"), StandardCharsets.UTF_8.name())));
+
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(session.isInvalidated());
+  }
+
+  @Test
+  public void testLogoutRequestIsPropagatedToPeerNode() throws Exception {
+    LocalCasLogoutPropagator casLogoutPropagator = new LocalCasLogoutPropagator();
+    fixture.setCasLogoutPropagator(casLogoutPropagator).start();
+    try (CasAuthenticationFilterFixture peerFixture = new CasAuthenticationFilterFixture()) {
+      peerFixture.setCasLogoutPropagator(casLogoutPropagator).start();
+      FakeHttpSession session = fixture.createSession();
+      FakeHttpSession peerSession = peerFixture.createSession();
+      fixture.login(session, "ST-1");
+      peerFixture.login(peerSession, "ST-2");
+
+      peerFixture.logout("ST-1");
+
+      Assert.assertTrue(session.isInvalidated());
+      Assert.assertTrue(isAuthenticated(peerSession));
+      Assert.assertEquals(0, fixture.getServiceTicketSessionRegistry().size());
+
+      fixture.logout("ST-2");
+
+      Assert.assertTrue(peerSession.isInvalidated());
+      Assert.assertEquals(0, peerFixture.getServiceTicketSessionRegistry().size());
+    }
+  }
+
+  @Test
+  public void testMessagesLoggedBeforeInitializationAreLoggedWithServletContext()
+      throws Exception {
+    fixture.start();
+    FakeServletContext servletContext = new FakeServletContext();
+
+    fixture.getFilter().log("Before initialization", null);
+    Assert.assertTrue(servletContext.getMessages().isEmpty());
+    fixture.getFilter().contextInitialized(new ServletContextEvent(servletContext.get()));
+    fixture.getFilter().log("After initialization", null);
+
+    Assert.assertEquals(Arrays.asList("Before initialization", "After initialization"),
+        servletContext.getMessages());
+  }
+
+  @Test
+  public void testParameterFastPathRecognizesEncodedParameterNames() throws Exception {
+    fixture.setParameterFastPathEnabled(true).start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.getCasServer().issueServiceTicket("ST-1", SECURE_URL,
+        CasAuthenticationFilterFixture.PRINCIPAL);
+
+    FakeHttpServletResponse response = fixture.doFilter(
+        fixture.request("/secure").queryString("%74icket=ST-1").session(session));
+
+    Assert.assertEquals(SECURE_URL, response.getRedirectLocation());
+    Assert.assertTrue(isAuthenticated(session));
+  }
+
+  @Test
+  public void testPendingServiceTicketIsRestoredFromSnapshot() throws Exception {
+    fixture.start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+    Map<String, Object> passivatedAttributes = session.passivate();
+    Path file = temporaryFolder.getRoot().toPath().resolve("logout-index.snapshot");
+    fixture.getFilter().createLogoutIndexSnapshot().write(file);
+    fixture.close();
+
+    fixture = new CasAuthenticationFilterFixture();
+    fixture.start();
+    fixture.getServiceTicketSessionRegistry().restore(LogoutIndexSnapshot.read(file));
+    fixture.logout("ST-1");
+    activate(session, passivatedAttributes);
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/page").session(session));
+
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(session.isInvalidated());
+  }
+
+  @Test
+  public void testPendingServiceTicketLogoutInvalidatesSessionOnExcludedPath() throws Exception {
+    fixture.setExcludePathPatterns("/public/*").start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+    Map<String, Object> passivatedAttributes = session.passivate();
+    fixture.logout("ST-1");
+
+    activate(session, passivatedAttributes);
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/public/page").session(session));
+
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(session.isInvalidated());
+    Assert.assertTrue(fixture.getServiceTicketSessionRegistry().getLoggedOutSessionIds().isEmpty());
+  }
+
+  @Test
+  public void testPendingServiceTicketLogoutInvalidatesSessionOnNextUse() throws Exception {
+    fixture.start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+    Map<String, Object> passivatedAttributes = session.passivate();
+
+    Assert.assertEquals("session-1",
+        fixture.getServiceTicketSessionRegistry().getPendingSessionIds().get("ST-1"));
+    fixture.logout("ST-1");
+    Assert.assertFalse(session.isInvalidated());
+
+    activate(session, passivatedAttributes);
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/page").session(session));
+
+    Assert.assertFalse(response.isChained());
+    Assert.assertEquals(CasAuthenticationFilterFixture.SERVER_URL
+        + CasAuthenticationFilterFixture.CONTEXT_PATH + "/page", response.getRedirectLocation());
+    Assert.assertTrue(session.isInvalidated());
+    Assert.assertTrue(fixture.getServiceTicketSessionRegistry().getLoggedOutSessionIds().isEmpty());
+  }
+
+  @Test
+  public void testPendingServiceTicketOfSnapshotIsLoggedOutOnExcludedPath() throws Exception {
+    fixture.start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+    Map<String, Object> passivatedAttributes = session.passivate();
+    Path file = temporaryFolder.getRoot().toPath().resolve("logout-index.snapshot");
+    fixture.getFilter().createLogoutIndexSnapshot().write(file);
+    fixture.close();
+
+    fixture = new CasAuthenticationFilterFixture();
+    fixture.setExcludePathPatterns("/public/*").start();
+    fixture.getServiceTicketSessionRegistry().restore(LogoutIndexSnapshot.read(file));
+    fixture.logout("ST-1");
+    activate(session, passivatedAttributes);
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/public/page").session(session));
+
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(session.isInvalidated());
+  }
+
+  @Test
+  public void testProtectedPathIsMatchedAgainstDecodedPath() throws Exception {
+    fixture.setProtectedPathPatterns("/secure/*").start();
+
+    FakeHttpServletResponse encodedResponse = fixture.doFilter(fixture.request("/secure")
+        .pathInfo("/page").requestUri(CasAuthenticationFilterFixture.CONTEXT_PATH
+            + "/%73ecure/page"));
+    FakeHttpServletResponse pathParameterResponse = fixture.doFilter(fixture.request("/secure")
+        .pathInfo("/page").requestUri(CasAuthenticationFilterFixture.CONTEXT_PATH
+            + "/secure;x/page"));
+
+    Assert.assertFalse(encodedResponse.isChained());
+    Assert.assertEquals(loginUrl(CasAuthenticationFilterFixture.SERVER_URL
+        + CasAuthenticationFilterFixture.CONTEXT_PATH + "/%73ecure/page"),
+        encodedResponse.getRedirectLocation());
+    Assert.assertFalse(pathParameterResponse.isChained());
+  }
+
+  @Test
+  public void testProtectedPathIsNotRedirectedWhenAuthenticated() throws Exception {
+    fixture.setProtectedPathPatterns("/secure").start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/secure").session(session));
+
+    Assert.assertTrue(response.isChained());
+  }
+
+  @Test
+  public void testProtectedPathRedirectKeepsQueryString() throws Exception {
+    fixture.setProtectedPathPatterns("/secure").start();
+
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/secure").queryString("page=2&sort=name%20asc"));
+
+    Assert.assertEquals(loginUrl(SECURE_URL + "?page=2&sort=name%20asc"),
+        response.getRedirectLocation());
+  }
+
+  @Test
+  public void testRegisteredSessionIsRegisteredAgainAfterRegistryIsCleared() throws Exception {
+    fixture.start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+
+    Assert.assertTrue(fixture.doFilter(fixture.request("/page").session(session)).isChained());
+    Assert.assertEquals(1, fixture.getServiceTicketSessionRegistry().size());
+
+    fixture.getServiceTicketSessionRegistry().clear();
+    Assert.assertTrue(fixture.doFilter(fixture.request("/page").session(session)).isChained());
+
+    Assert.assertEquals(1, fixture.getServiceTicketSessionRegistry().size());
+    fixture.logout("ST-1");
+    Assert.assertTrue(session.isInvalidated());
+  }
+
+  @Test
+  public void testServiceTicketIsValidatedWithQueryStringOfService() throws Exception {
+    fixture.start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.getCasServer().issueServiceTicket("ST-1", SECURE_URL + "?page=2&sort=name",
+        CasAuthenticationFilterFixture.PRINCIPAL);
+
+    FakeHttpServletResponse response = fixture.doFilter(fixture.request("/secure")
+        .queryString("page=2&ticket=ST-1&sort=name").session(session));
+
+    Assert.assertEquals(SECURE_URL + "?page=2&sort=name", response.getRedirectLocation());
+    Assert.assertTrue(isAuthenticated(session));
+  }
+
+  @Test
+  public void testServiceTicketReplayedBySameSessionIsServedFromCache() throws Exception {
+    fixture.setServiceTicketCacheMaxSize(10).start();
+    FakeHttpSession session = fixture.createSession();
+
+    Assert.assertEquals(SECURE_URL, fixture.login(session, "ST-1").getRedirectLocation());
+    FakeHttpServletResponse response = fixture.doFilter(
+        fixture.request("/secure").queryString("ticket=ST-1").session(session));
+
+    Assert.assertEquals(SECURE_URL, response.getRedirectLocation());
+    Assert.assertEquals(1, fixture.getCasServer().getValidationCount());
+    Assert.assertTrue(isAuthenticated(session));
+    Assert.assertEquals(1, fixture.getServiceTicketSessionRegistry().size());
+
+    fixture.logout("ST-1");
+
+    Assert.assertTrue(session.isInvalidated());
+    Assert.assertEquals(0, fixture.getServiceTicketSessionRegistry().size());
+    Assert.assertTrue(fixture.getServiceTicketSessionRegistry().getSessions().isEmpty());
+  }
+
+  @Test
+  public void testServiceTicketReplayedBySameSessionKeepsProxyGrantingTicket() throws Exception {
+    ProxyGrantingTicketStore proxyGrantingTicketStore =
+        new ProxyGrantingTicketStore("https://app.example.org/app/pgtCallback", 60000);
+    fixture.setServiceTicketCacheMaxSize(10)
+        .setProxyGrantingTicketStore(proxyGrantingTicketStore).start();
+    FakeHttpSession session = fixture.createSession();
+    proxyGrantingTicketStore.put("PGTIOU-ST-1", "PGT-1");
+
+    fixture.login(session, "ST-1");
+    Assert.assertEquals("PGT-1", CasSessionAttribute.getCasSessionState(session.getAttribute(
+        CasAuthenticationFilter.SESSION_ATTR_NAME_STATE)).getProxyGrantingTicket());
+    fixture.doFilter(fixture.request("/secure").queryString("ticket=ST-1").session(session));
+
+    Assert.assertEquals(1, fixture.getCasServer().getValidationCount());
+    Assert.assertEquals("PGT-1", CasSessionAttribute.getCasSessionState(session.getAttribute(
+        CasAuthenticationFilter.SESSION_ATTR_NAME_STATE)).getProxyGrantingTicket());
+  }
+
+  @Test
+  public void testServiceTicketReplayedByOtherSessionIsRejected() throws Exception {
+    fixture.setServiceTicketCacheMaxSize(10).start();
+    FakeHttpSession victimSession = fixture.createSession();
+    FakeHttpSession attackerSession = fixture.createSession();
+
+    fixture.login(victimSession, "ST-1");
+    FakeHttpServletResponse response = fixture.doFilter(
+        fixture.request("/secure").queryString("ticket=ST-1").session(attackerSession));
+
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertEquals(2, fixture.getCasServer().getValidationCount());
+    Assert.assertTrue(isAuthenticated(victimSession));
+    Assert.assertFalse(isAuthenticated(attackerSession));
+
+    fixture.logout("ST-1");
+
+    Assert.assertTrue(victimSession.isInvalidated());
+    Assert.assertEquals(0, fixture.getServiceTicketSessionRegistry().size());
+    Assert.assertTrue(fixture.getServiceTicketSessionRegistry().getSessions().isEmpty());
+  }
+
+  @Test
+  public void testServiceTicketReplayedWithoutSessionIsRejected() throws Exception {
+    fixture.setServiceTicketCacheMaxSize(10).start();
+    FakeHttpSession session = fixture.createSession();
+
+    fixture.login(session, "ST-1");
+    FakeHttpServletResponse response = fixture.doFilter(
+        fixture.request("/secure").queryString("ticket=ST-1"));
+
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertEquals(1, fixture.getServiceTicketSessionRegistry().getSessions().size());
+
+    fixture.logout("ST-1");
+
+    Assert.assertTrue(session.isInvalidated());
+    Assert.assertTrue(fixture.getServiceTicketSessionRegistry().getSessions().isEmpty());
+  }
+
+  @Test
+  public void testUnmappedPrincipalIsCounted() throws Exception {
+    fixture.setResourceIdResolver((uniqueIdentifier) -> Optional.empty()).start();
+    FakeHttpSession session = fixture.createSession();
+
+    FakeHttpServletResponse response = fixture.login(session, "ST-1");
+
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertFalse(isAuthenticated(session));
+    Assert.assertEquals(1, fixture.getMetrics().getUnmappedPrincipalCount());
+    Assert.assertEquals(1, fixture.getMetrics().getValidationCount());
+    Assert.assertEquals(0, fixture.getMetrics().getValidationSuccessCount());
+    Assert.assertEquals(0, fixture.getMetrics().getValidationsInFlight());
+  }
+
+  @Test
+  public void testUntrackedSessionIsInvalidatedOnExcludedPathAfterLogout() throws Exception {
+    fixture.setServiceTicketIndex(new OffHeapServiceTicketIndex(), false)
+        .setExcludePathPatterns("/public/*").start();
+    FakeHttpSession session = fixture.createSession();
+    fixture.login(session, "ST-1");
+
+    fixture.logout("ST-1");
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/public/page").session(session));
+
+    Assert.assertEquals(CasAuthenticationFilterFixture.SERVER_URL
+        + CasAuthenticationFilterFixture.CONTEXT_PATH + "/public/page",
+        response.getRedirectLocation());
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(session.isInvalidated());
+  }
+
+  @Test
+  public void testUntrackedSessionIsInvalidatedOnNextUseAfterLogout() throws Exception {
+    fixture.setServiceTicketIndex(new OffHeapServiceTicketIndex(), false).start();
+    FakeHttpSession session = fixture.createSession();
+
+    fixture.login(session, "ST-1");
+    Assert.assertTrue(isAuthenticated(session));
+    Assert.assertTrue(fixture.getServiceTicketSessionRegistry().getSessions().isEmpty());
+
+    fixture.logout("ST-1");
+
+    Assert.assertFalse(session.isInvalidated());
+    FakeHttpServletResponse response =
+        fixture.doFilter(fixture.request("/secure").session(session));
+
+    Assert.assertEquals(SECURE_URL, response.getRedirectLocation());
+    Assert.assertFalse(response.isChained());
+    Assert.assertTrue(session.isInvalidated());
+    Assert.assertEquals(0, fixture.getServiceTicketSessionRegistry().size());
+  }
+
+  @Test
+  public void testValidationErrorDoesNotLeaveValidationInFlight() throws Exception {
+    NoClassDefFoundError error = new NoClassDefFoundError("javax/xml/parsers/SAXParser");
+    fixture.setResponseParser(failingResponseParser(error)).start();
+    FakeHttpSession session = fixture.createSession();
+
+    try {
+      fixture.login(session, "ST-1");
+      Assert.fail("NoClassDefFoundError expected");
+    } catch (NoClassDefFoundError e) {
+      Assert.assertSame(error, e);
+    }
+
+    Assert.assertEquals(0, fixture.getMetrics().getValidationsInFlight());
+    Assert.assertEquals(1, fixture.getMetrics().getValidationCount());
+  }
+
+  @Test
+  public void testValidationParserErrorRedirectsToFailureUrl() throws Exception {
+    fixture.setResponseParser(failingResponseParser(new IllegalStateException("Parser failure")))
+        .start();
+    FakeHttpSession session = fixture.createSession();
+
+    FakeHttpServletResponse response = fixture.login(session, "ST-1");
+
+    Assert.assertEquals(FAILURE_URL, response.getRedirectLocation());
+    Assert.assertFalse(isAuthenticated(session));
+    Assert.assertEquals(1, fixture.getMetrics().getValidationFailureCount());
+    Assert.assertEquals(0, fixture.getMetrics().getValidationsInFlight());
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContextEvent;
+
+import org.everit.authentication.cas.ecm.CasAuthenticationConstants;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+
+public class CasAuthenticationManagementTest {
+
+  private static final String NAME = "org.everit.authentication.cas.ecm.test";
+
+  private CasAuthenticationFilterFixture fixture;
+
+  private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+  private CasAuthenticationManagement createManagement() {
+    return new CasAuthenticationManagement(Collections.<String, Object> emptyMap(),
+        fixture.getFilter(), (principal) -> Optional.of(CasAuthenticationFilterFixture.RESOURCE_ID),
+        new CircuitBreaker(0, 0, 0, 0, 0, null), new CasAuthenticationMetricsCollector());
+  }
+
+  private ObjectName objectName() throws Exception {
+    return new ObjectName(CasAuthenticationManagement.OBJECT_NAME_DOMAIN
+        + ":type=CasAuthentication,name=" + ObjectName.quote(NAME));
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new CasAuthenticationFilterFixture();
+    fixture.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (mbeanServer.isRegistered(objectName())) {
+      mbeanServer.unregisterMBean(objectName());
+    }
+    fixture.close();
+  }
+
+  @Test
+  public void testGetName() {
+    Map<String, Object> configuration = new HashMap<>();
+    configuration.put(CasAuthenticationManagement.PROP_COMPONENT_ID, 7L);
+
+    Assert.assertEquals("7",
+        CasAuthenticationManagement.getName(configuration, fixture.getFilter()));
+
+    configuration.put(Constants.SERVICE_PID, "cas.1");
+
+    Assert.assertEquals("cas.1",
+        CasAuthenticationManagement.getName(configuration, fixture.getFilter()));
+  }
+
+  @Test
+  public void testGetNameWithoutServicePidAndComponentId() throws Exception {
+    String name = CasAuthenticationManagement.getName(Collections.<String, Object> emptyMap(),
+        fixture.getFilter());
+
+    Assert.assertTrue(name.startsWith(
+        CasAuthenticationConstants.SERVICE_FACTORYPID_CAS_AUTHENTICATION + "."));
+    try (CasAuthenticationFilterFixture otherFixture = new CasAuthenticationFilterFixture()) {
+      otherFixture.start();
+
+      Assert.assertNotEquals(name, CasAuthenticationManagement.getName(
+          Collections.<String, Object> emptyMap(), otherFixture.getFilter()));
+    }
+  }
+
+  @Test
+  public void testInvalidateSessionsOfPrincipal() throws Exception {
+    FakeHttpSession session = fixture.createSession();
+    FakeHttpSession otherSession = fixture.createSession();
+    fixture.login(session, "ST-1");
+    fixture.login(otherSession, "ST-2");
+    CasAuthenticationManagement management = createManagement();
+    management.register(NAME);
+
+    Object invalidatedSessionCount = mbeanServer.invoke(objectName(),
+        "invalidateSessionsOfPrincipal", new Object[] { CasAuthenticationFilterFixture.PRINCIPAL },
+        new String[] { String.class.getName() });
+
+    Assert.assertEquals(2, invalidatedSessionCount);
+    Assert.assertTrue(session.isInvalidated());
+    Assert.assertTrue(otherSession.isInvalidated());
+    Assert.assertEquals(0, management.getSessionCount());
+    Assert.assertEquals(0, management.invalidateSessionsOfPrincipal(
+        CasAuthenticationFilterFixture.PRINCIPAL));
+  }
+
+  @Test
+  public void testRegisterAndUnregister() throws Exception {
+    fixture.login(fixture.createSession(), "ST-1");
+    CasAuthenticationManagement management = createManagement();
+
+    management.register(NAME);
+
+    Assert.assertTrue(mbeanServer.isRegistered(objectName()));
+    Assert.assertEquals(1, mbeanServer.getAttribute(objectName(), "SessionCount"));
+    try {
+      createManagement().register(NAME);
+      Assert.fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getMessage().contains(NAME));
+    }
+
+    management.unregister();
+
+    Assert.assertFalse(mbeanServer.isRegistered(objectName()));
+    management.unregister();
+  }
+
+  @Test
+  public void testUnregisterFailureIsLogged() throws Exception {
+    FakeServletContext servletContext = new FakeServletContext();
+    fixture.getFilter().contextInitialized(new ServletContextEvent(servletContext.get()));
+    CasAuthenticationManagement management = createManagement();
+    management.register(NAME);
+    mbeanServer.unregisterMBean(objectName());
+
+    management.unregister();
+
+    Assert.assertEquals(
+        Collections.singletonList("Failed to unregister the MXBean [" + objectName() + "]"),
+        servletContext.getMessages());
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CasAuthenticationMetricsCollectorTest {
+
+  @Test
+  public void testCounters() {
+    CasAuthenticationMetricsCollector metrics = new CasAuthenticationMetricsCollector();
+
+    metrics.logoutRequestReceived();
+    metrics.principalUnmapped();
+    metrics.principalUnmapped();
+    metrics.validationFailed();
+    metrics.validationSucceeded();
+    metrics.validationSucceeded();
+    metrics.validationSucceeded();
+
+    Assert.assertEquals(1, metrics.getLogoutRequestCount());
+    Assert.assertEquals(2, metrics.getUnmappedPrincipalCount());
+    Assert.assertEquals(1, metrics.getValidationFailureCount());
+    Assert.assertEquals(3, metrics.getValidationSuccessCount());
+  }
+
+  @Test
+  public void testValidationsInFlight() {
+    CasAuthenticationMetricsCollector metrics = new CasAuthenticationMetricsCollector();
+
+    metrics.validationStarted();
+    metrics.validationStarted();
+    Assert.assertEquals(2, metrics.getValidationsInFlight());
+
+    metrics.validationCompleted(0);
+    Assert.assertEquals(1, metrics.getValidationsInFlight());
+
+    metrics.validationCompleted(0);
+    Assert.assertEquals(0, metrics.getValidationsInFlight());
+    Assert.assertEquals(2, metrics.getValidationCount());
+  }
+
+  @Test
+  public void testValidationTimesAreRecordedInMicroseconds() {
+    CasAuthenticationMetricsCollector metrics = new CasAuthenticationMetricsCollector();
+
+    metrics.validationStarted();
+    metrics.validationCompleted(TimeUnit.MILLISECONDS.toNanos(2));
+    metrics.validationStarted();
+    metrics.validationCompleted(TimeUnit.MICROSECONDS.toNanos(20));
+
+    Assert.assertEquals(2000, metrics.getValidationTimeMax());
+    Assert.assertEquals(1010, metrics.getValidationTimeMean(), 0.000001);
+    Assert.assertEquals(20, metrics.getValidationTimePercentile(50));
+    Assert.assertEquals(2000, metrics.getValidationTimePercentile(100));
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.everit.authentication.cas.ecm.CasSessionState;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CasSessionAttributeTest {
+
+  private static Object roundTrip(final Object value) throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  private static CasSessionState state() {
+    return new CasSessionState("ST-1", "johndoe", 1L,
+        Collections.<String, List<String>> emptyMap(), "PGT-1");
+  }
+
+  @Test
+  public void testGetCasSessionState() {
+    CasSessionState casSessionState = state();
+
+    Assert.assertSame(casSessionState,
+        CasSessionAttribute.getCasSessionState(new CasSessionAttribute(casSessionState, null)));
+    Assert.assertSame(casSessionState, CasSessionAttribute.getCasSessionState(casSessionState));
+    Assert.assertNull(CasSessionAttribute.getCasSessionState("ST-1"));
+    Assert.assertNull(CasSessionAttribute.getCasSessionState(null));
+  }
+
+  @Test
+  public void testPassivationClearsRegistrationMark() {
+    Object registrationToken = new Object();
+    CasSessionAttribute casSessionAttribute = new CasSessionAttribute(state(), registrationToken);
+
+    casSessionAttribute.sessionWillPassivate(null);
+
+    Assert.assertTrue(casSessionAttribute.isPassivated());
+    Assert.assertFalse(casSessionAttribute.isRegisteredIn(registrationToken));
+
+    casSessionAttribute.sessionDidActivate(null);
+
+    Assert.assertFalse(casSessionAttribute.isPassivated());
+    Assert.assertFalse(casSessionAttribute.isRegisteredIn(registrationToken));
+  }
+
+  @Test
+  public void testRegistrationMark() {
+    Object registrationToken = new Object();
+    CasSessionAttribute casSessionAttribute = new CasSessionAttribute(state(), null);
+
+    Assert.assertFalse(casSessionAttribute.isRegisteredIn(registrationToken));
+    casSessionAttribute.markRegisteredIn(registrationToken);
+    Assert.assertTrue(casSessionAttribute.isRegisteredIn(registrationToken));
+    Assert.assertFalse(casSessionAttribute.isRegisteredIn(new Object()));
+    Assert.assertFalse(casSessionAttribute.isRegisteredIn(null));
+    casSessionAttribute.markRegisteredIn(null);
+    Assert.assertFalse(casSessionAttribute.isRegisteredIn(registrationToken));
+  }
+
+  @Test
+  public void testSerializedAsCasSessionState() throws Exception {
+    Object restored = roundTrip(new CasSessionAttribute(state(), new Object()));
+
+    Assert.assertEquals(CasSessionState.class, restored.getClass());
+    Assert.assertEquals("ST-1", ((CasSessionState) restored).getServiceTicket());
+    Assert.assertEquals("PGT-1", ((CasSessionState) restored).getProxyGrantingTicket());
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.everit.authentication.cas.ecm.CasAuthenticationConstants;
+import org.everit.authentication.cas.ecm.internal.CircuitBreaker.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private static final long FAST_CALL = 1000;
+
+  private static final long SLOW_CALL = 2000000;
+
+  private static final long TIMEOUT = 5000;
+
+  private static final int WINDOW_SIZE = 4;
+
+  private final List<State> stateTransitions = new ArrayList<>();
+
+  private static long acquirePermission(final CircuitBreaker circuitBreaker) {
+    long permission = circuitBreaker.tryAcquirePermission();
+    Assert.assertNotEquals(CircuitBreaker.NO_PERMISSION, permission);
+    return permission;
+  }
+
+  private CircuitBreaker openCircuitBreaker() {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker(WINDOW_SIZE, 50, 1000, 100, 0, stateTransitions::add);
+    for (int i = 0; i < WINDOW_SIZE; i++) {
+      long permission = acquirePermission(circuitBreaker);
+      if ((i % 2) == 0) {
+        circuitBreaker.onError(permission, FAST_CALL);
+      } else {
+        circuitBreaker.onSuccess(permission, FAST_CALL);
+      }
+    }
+    Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+    return circuitBreaker;
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(
+        CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE,
+        CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD,
+        CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION_THRESHOLD,
+        CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD,
+        CasAuthenticationConstants.DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION,
+        stateTransitions::add);
+
+    Assert.assertFalse(circuitBreaker.isEnabled());
+    for (int i = 0; i < 100; i++) {
+      circuitBreaker.onError(acquirePermission(circuitBreaker), Long.MAX_VALUE);
+    }
+    Assert.assertEquals(State.CLOSED, circuitBreaker.getState());
+    Assert.assertTrue(stateTransitions.isEmpty());
+  }
+
+  @Test
+  public void testHalfOpenTrialCallClosesCircuit() {
+    CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+    long permission = acquirePermission(circuitBreaker);
+    Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    Assert.assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+
+    circuitBreaker.onSuccess(permission, FAST_CALL);
+
+    Assert.assertEquals(State.CLOSED, circuitBreaker.getState());
+    acquirePermission(circuitBreaker);
+  }
+
+  @Test
+  public void testHalfOpenTrialFailureOpensCircuit() {
+    CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+    circuitBreaker.onError(acquirePermission(circuitBreaker), FAST_CALL);
+
+    Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+    Assert.assertEquals(3, stateTransitions.size());
+  }
+
+  @Test
+  public void testReleasedHalfOpenTrialPermitsNextCall() {
+    CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+    long permission = acquirePermission(circuitBreaker);
+    Assert.assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+
+    circuitBreaker.releasePermission(permission);
+
+    Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    acquirePermission(circuitBreaker);
+  }
+
+  @Test
+  public void testSlowCallsOpenCircuit() {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker(WINDOW_SIZE, 100, 1, 100, 60000, stateTransitions::add);
+    for (int i = 0; i < WINDOW_SIZE; i++) {
+      circuitBreaker.onSuccess(acquirePermission(circuitBreaker), SLOW_CALL);
+    }
+
+    Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+    Assert.assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void testStalePermissionDoesNotDecideHalfOpenTrial() {
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker(WINDOW_SIZE, 50, 1000, 100, 0, stateTransitions::add);
+    long closedPermission = acquirePermission(circuitBreaker);
+    for (int i = 0; i < WINDOW_SIZE; i++) {
+      circuitBreaker.onError(acquirePermission(circuitBreaker), FAST_CALL);
+    }
+    long trialPermission = acquirePermission(circuitBreaker);
+    Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+    circuitBreaker.onSuccess(closedPermission, FAST_CALL);
+    circuitBreaker.releasePermission(closedPermission);
+
+    Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    Assert.assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+
+    circuitBreaker.onError(trialPermission, FAST_CALL);
+
+    Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testStateListenerNotificationsAreSerialized() throws Exception {
+    CountDownLatch listenerEntered = new CountDownLatch(1);
+    CountDownLatch listenerReleased = new CountDownLatch(1);
+    AtomicInteger concurrentNotifications = new AtomicInteger();
+    List<State> notifiedStates = new CopyOnWriteArrayList<>();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(WINDOW_SIZE, 50, 1000, 100, 0, state -> {
+      Assert.assertEquals(1, concurrentNotifications.incrementAndGet());
+      notifiedStates.add(state);
+      if (state == State.OPEN) {
+        listenerEntered.countDown();
+        try {
+          listenerReleased.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      concurrentNotifications.decrementAndGet();
+    });
+    for (int i = 0; i < (WINDOW_SIZE - 1); i++) {
+      circuitBreaker.onError(acquirePermission(circuitBreaker), FAST_CALL);
+    }
+    long lastPermission = acquirePermission(circuitBreaker);
+    Thread openingThread = new Thread(() -> circuitBreaker.onError(lastPermission, FAST_CALL));
+    openingThread.start();
+    Assert.assertTrue(listenerEntered.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+    Thread trialThread = new Thread(() -> {
+      long permission = circuitBreaker.tryAcquirePermission();
+      circuitBreaker.onSuccess(permission, FAST_CALL);
+    });
+    trialThread.start();
+    trialThread.join(100);
+    Assert.assertEquals(Arrays.asList(State.OPEN), notifiedStates);
+    listenerReleased.countDown();
+    openingThread.join(TIMEOUT);
+    trialThread.join(TIMEOUT);
+
+    Assert.assertEquals(State.CLOSED, circuitBreaker.getState());
+    Assert.assertEquals(Arrays.asList(State.OPEN, State.HALF_OPEN, State.CLOSED), notifiedStates);
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process CAS server that validates the service tickets issued by the test. A service ticket can
+ * be validated only once, like on a real CAS server. If the validation request has a proxy
+ * callback URL, the response contains the <code>PGTIOU-</code> prefixed service ticket as the proxy
+ * granting ticket IOU.
+ */
+public final class FakeCasServer implements AutoCloseable {
+
+  private static final String SERVICE_VALIDATE_PATH = "/cas/serviceValidate";
+
+  private static final int STATUS_OK = 200;
+
+  /**
+   * Creates a CAS 2.0 logout request of the service ticket.
+   */
+  public static String createLogoutRequest(final String serviceTicket) {
+    return "<samlp:LogoutRequest xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" "
+        + "xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"LR-" + serviceTicket
+        + "\" Version=\"2.0\" IssueInstant=\"2015-01-01T00:00:00Z\">"
+        + "<saml:NameID>@NOT_USED@</saml:NameID>"
+        + "<samlp:SessionIndex>" + serviceTicket + "</samlp:SessionIndex>"
+        + "</samlp:LogoutRequest>";
+  }
+
+  private static String getQueryParameter(final String query, final String name)
+      throws UnsupportedEncodingException {
+    for (String parameter : query.split("&")) {
+      if (parameter.startsWith(name + "=")) {
+        return URLDecoder.decode(parameter.substring(name.length() + 1),
+            StandardCharsets.UTF_8.name());
+      }
+    }
+    return null;
+  }
+
+  private final HttpServer httpServer;
+
+  private final Map<String, String> principalsByServiceTicket = new ConcurrentHashMap<>();
+
+  private final Map<String, String> servicesByServiceTicket = new ConcurrentHashMap<>();
+
+  private final AtomicInteger validationCount = new AtomicInteger();
+
+  /**
+   * Constructor. Starts the server on a random port of the loopback interface.
+   */
+  public FakeCasServer() throws IOException {
+    httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    httpServer.createContext(SERVICE_VALIDATE_PATH, this::serviceValidate);
+    httpServer.start();
+  }
+
+  @Override
+  public void close() {
+    httpServer.stop(0);
+  }
+
+  public String getServiceValidateUrl() {
+    return "http://localhost:" + httpServer.getAddress().getPort() + SERVICE_VALIDATE_PATH;
+  }
+
+  /**
+   * The number of the service ticket validation requests received by the server.
+   */
+  public int getValidationCount() {
+    return validationCount.get();
+  }
+
+  /**
+   * Issues a service ticket for the principal and the service URL, like the CAS server does when
+   * the user logs in.
+   */
+  public void issueServiceTicket(final String serviceTicket, final String serviceUrl,
+      final String principal) {
+    servicesByServiceTicket.put(serviceTicket, serviceUrl);
+    principalsByServiceTicket.put(serviceTicket, principal);
+  }
+
+  private void serviceValidate(final HttpExchange httpExchange) throws IOException {
+    validationCount.incrementAndGet();
+    String query = httpExchange.getRequestURI().getRawQuery();
+    String serviceTicket = getQueryParameter(query, "ticket");
+    String serviceUrl = getQueryParameter(query, "service");
+    String proxyCallbackUrl = getQueryParameter(query, "pgtUrl");
+    String expectedServiceUrl = servicesByServiceTicket.remove(serviceTicket);
+    String principal = principalsByServiceTicket.remove(serviceTicket);
+    String response;
+    if ((expectedServiceUrl != null) && expectedServiceUrl.equals(serviceUrl)) {
+      response = "<cas:serviceResponse xmlns:cas=\"http://www.yale.edu/tp/cas\">"
+          + "<cas:authenticationSuccess><cas:user>" + principal + "</cas:user>"
+          + (proxyCallbackUrl == null ? ""
+              : "<cas:proxyGrantingTicket>PGTIOU-" + serviceTicket + "</cas:proxyGrantingTicket>")
+          + "</cas:authenticationSuccess></cas:serviceResponse>";
+    } else {
+      response = "<cas:serviceResponse xmlns:cas=\"http://www.yale.edu/tp/cas\">"
+          + "<cas:authenticationFailure code=\"INVALID_TICKET\">Ticket " + serviceTicket
+          + " not recognized</cas:authenticationFailure></cas:serviceResponse>";
+    }
+    byte[] body = response.getBytes(StandardCharsets.UTF_8);
+    httpExchange.getResponseHeaders().set("Content-Type", "application/xml;charset=UTF-8");
+    httpExchange.sendResponseHeaders(STATUS_OK, body.length);
+    try (OutputStream out = httpExchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Proxy;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Request of the <code>http://localhost:8080</code> server. The path of the request is given as the
+ * context path, the servlet path and the path info like they are decoded and normalized by the
+ * container, the raw request URI can be set separately. The parameters are parsed from the query
+ * string and the form body on demand. If asynchronous processing is supported, the request can be
+ * started in asynchronous mode once and its completion can be awaited.
+ */
+public final class FakeHttpServletRequest {
+
+  private static final String SERVER_URL = "http://localhost:8080";
+
+  private static String urlDecode(final String value) {
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final CountDownLatch asyncCompleted = new CountDownLatch(1);
+
+  private boolean asyncStarted;
+
+  private boolean asyncSupported;
+
+  private String contentType;
+
+  private String contextPath = "";
+
+  private final List<Cookie> cookies = new ArrayList<>();
+
+  private String formBody;
+
+  private final Map<String, String> headers = new HashMap<>();
+
+  private String method = "GET";
+
+  private String pathInfo;
+
+  private final HttpServletRequest proxy;
+
+  private String queryString;
+
+  private String requestUri;
+
+  private HttpServletResponse response;
+
+  private boolean secure;
+
+  private FakeHttpSession session;
+
+  private Supplier<FakeHttpSession> sessionFactory;
+
+  private FakeServletContext servletContext = new FakeServletContext();
+
+  private String servletPath = "";
+
+  /**
+   * Constructor.
+   */
+  public FakeHttpServletRequest() {
+    proxy = (HttpServletRequest) Proxy.newProxyInstance(
+        FakeHttpServletRequest.class.getClassLoader(),
+        new Class<?>[] { HttpServletRequest.class }, (proxyInstance, method, args) -> {
+          switch (method.getName()) {
+            case "getMethod":
+              return this.method;
+            case "getContentType":
+              return contentType;
+            case "getContextPath":
+              return contextPath;
+            case "getServletPath":
+              return servletPath;
+            case "getPathInfo":
+              return pathInfo;
+            case "getRequestURI":
+              return getRequestUri();
+            case "getRequestURL":
+              return new StringBuffer(SERVER_URL).append(getRequestUri());
+            case "getQueryString":
+              return queryString;
+            case "getParameter":
+              return getParameter((String) args[0]);
+            case "getHeader":
+              return headers.get(args[0]);
+            case "getCookies":
+              return cookies.isEmpty() ? null : cookies.toArray(new Cookie[cookies.size()]);
+            case "isSecure":
+              return secure;
+            case "getSession":
+              return getSession((args == null) || (Boolean) args[0]);
+            case "getServletContext":
+              return servletContext.get();
+            case "isAsyncSupported":
+              return asyncSupported;
+            case "startAsync":
+              return startAsync();
+            case "hashCode":
+              return System.identityHashCode(proxyInstance);
+            case "equals":
+              return proxyInstance == args[0];
+            case "toString":
+              return "FakeHttpServletRequest[" + getRequestUri() + "]";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * Makes the request support asynchronous processing.
+   */
+  public FakeHttpServletRequest asyncSupported() {
+    asyncSupported = true;
+    return this;
+  }
+
+  /**
+   * Waits until the asynchronous processing of the request is completed.
+   *
+   * @return <code>true</code> if the processing is completed within the timeout.
+   */
+  public boolean awaitAsyncCompletion(final long timeout, final TimeUnit unit)
+      throws InterruptedException {
+    return asyncCompleted.await(timeout, unit);
+  }
+
+  /**
+   * Adds a cookie sent by the browser.
+   */
+  public FakeHttpServletRequest cookie(final Cookie cookie) {
+    cookies.add(cookie);
+    return this;
+  }
+
+  public FakeHttpServletRequest contextPath(final String contextPath) {
+    this.contextPath = contextPath;
+    return this;
+  }
+
+  /**
+   * Makes the request a form POST with the given URL encoded body.
+   */
+  public FakeHttpServletRequest formPost(final String formBody) {
+    method = "POST";
+    contentType = "application/x-www-form-urlencoded";
+    this.formBody = formBody;
+    return this;
+  }
+
+  public HttpServletRequest get() {
+    return proxy;
+  }
+
+  private String getParameter(final String name) {
+    for (String parameters : new String[] { queryString, formBody }) {
+      if (parameters == null) {
+        continue;
+      }
+      for (String parameter : parameters.split("&")) {
+        int separatorIndex = parameter.indexOf('=');
+        String parameterName = separatorIndex < 0 ? parameter
+            : parameter.substring(0, separatorIndex);
+        if (urlDecode(parameterName).equals(name)) {
+          return separatorIndex < 0 ? "" : urlDecode(parameter.substring(separatorIndex + 1));
+        }
+      }
+    }
+    return null;
+  }
+
+  private String getRequestUri() {
+    if (requestUri != null) {
+      return requestUri;
+    }
+    return contextPath + servletPath + (pathInfo == null ? "" : pathInfo);
+  }
+
+  private HttpSession getSession(final boolean create) {
+    if ((session != null) && session.isInvalidated()) {
+      session = null;
+    }
+    if ((session == null) && create) {
+      if (sessionFactory == null) {
+        throw new IllegalStateException("Session cannot be created");
+      }
+      session = sessionFactory.get();
+    }
+    return session == null ? null : session.get();
+  }
+
+  public FakeServletContext getServletContext() {
+    return servletContext;
+  }
+
+  public synchronized boolean isAsyncStarted() {
+    return asyncStarted;
+  }
+
+  public FakeHttpServletRequest header(final String name, final String value) {
+    headers.put(name, value);
+    return this;
+  }
+
+  public FakeHttpServletRequest method(final String method) {
+    this.method = method;
+    return this;
+  }
+
+  public FakeHttpServletRequest pathInfo(final String pathInfo) {
+    this.pathInfo = pathInfo;
+    return this;
+  }
+
+  public FakeHttpServletRequest queryString(final String queryString) {
+    this.queryString = queryString;
+    return this;
+  }
+
+  /**
+   * Sets the raw request URI sent by the browser. By default the request URI is the concatenation
+   * of the context path, the servlet path and the path info.
+   */
+  public FakeHttpServletRequest requestUri(final String requestUri) {
+    this.requestUri = requestUri;
+    return this;
+  }
+
+  /**
+   * Sets the response that is returned by the asynchronous context of the request.
+   */
+  void response(final HttpServletResponse response) {
+    this.response = response;
+  }
+
+  public FakeHttpServletRequest secure(final boolean secure) {
+    this.secure = secure;
+    return this;
+  }
+
+  public FakeHttpServletRequest servletContext(final FakeServletContext servletContext) {
+    this.servletContext = servletContext;
+    return this;
+  }
+
+  public FakeHttpServletRequest servletPath(final String servletPath) {
+    this.servletPath = servletPath;
+    return this;
+  }
+
+  private synchronized AsyncContext startAsync() {
+    if (!asyncSupported || asyncStarted) {
+      throw new IllegalStateException("Asynchronous processing cannot be started");
+    }
+    asyncStarted = true;
+    return (AsyncContext) Proxy.newProxyInstance(FakeHttpServletRequest.class.getClassLoader(),
+        new Class<?>[] { AsyncContext.class }, (proxyInstance, method, args) -> {
+          switch (method.getName()) {
+            case "getRequest":
+              return proxy;
+            case "getResponse":
+              return response;
+            case "complete":
+              asyncCompleted.countDown();
+              return null;
+            case "hashCode":
+              return System.identityHashCode(proxyInstance);
+            case "equals":
+              return proxyInstance == args[0];
+            case "toString":
+              return "FakeAsyncContext";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  public FakeHttpServletRequest session(final FakeHttpSession session) {
+    this.session = session;
+    return this;
+  }
+
+  /**
+   * Sets the factory of the session created by {@link HttpServletRequest#getSession()} if the
+   * request has no session.
+   */
+  public FakeHttpServletRequest sessionFactory(final Supplier<FakeHttpSession> sessionFactory) {
+    this.sessionFactory = sessionFactory;
+    return this;
+  }
+
+}
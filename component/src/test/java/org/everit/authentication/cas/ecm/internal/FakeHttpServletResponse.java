@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Response that records the redirect, the cookies and whether the request was passed to the filter
+ * chain.
+ */
+public final class FakeHttpServletResponse {
+
+  private boolean chained;
+
+  private final List<Cookie> cookies = new ArrayList<>();
+
+  private final HttpServletResponse proxy;
+
+  private String redirectLocation;
+
+  /**
+   * Constructor.
+   */
+  public FakeHttpServletResponse() {
+    proxy = (HttpServletResponse) Proxy.newProxyInstance(
+        FakeHttpServletResponse.class.getClassLoader(),
+        new Class<?>[] { HttpServletResponse.class }, (proxyInstance, method, args) -> {
+          switch (method.getName()) {
+            case "sendRedirect":
+              if (redirectLocation != null) {
+                throw new IllegalStateException("Response is already committed");
+              }
+              redirectLocation = (String) args[0];
+              return null;
+            case "addCookie":
+              cookies.add((Cookie) args[0]);
+              return null;
+            case "isCommitted":
+              return redirectLocation != null;
+            case "hashCode":
+              return System.identityHashCode(proxyInstance);
+            case "equals":
+              return proxyInstance == args[0];
+            case "toString":
+              return "FakeHttpServletResponse";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  public HttpServletResponse get() {
+    return proxy;
+  }
+
+  /**
+   * Returns the cookie added to the response with the given name or <code>null</code>.
+   */
+  public Cookie getCookie(final String name) {
+    for (Cookie cookie : cookies) {
+      if (cookie.getName().equals(name)) {
+        return cookie;
+      }
+    }
+    return null;
+  }
+
+  public String getRedirectLocation() {
+    return redirectLocation;
+  }
+
+  public boolean isChained() {
+    return chained;
+  }
+
+  void markChained() {
+    chained = true;
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionAttributeListener;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+/**
+ * In-memory session that notifies the session and attribute listeners like a container does. The
+ * servlet API is implemented with a dynamic proxy, only the methods used by the CAS authentication
+ * filter are supported.
+ */
+public final class FakeHttpSession {
+
+  private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+  private final String id;
+
+  private boolean invalidated;
+
+  private final List<Object> listeners = new ArrayList<>();
+
+  private final HttpSession proxy;
+
+  /**
+   * Constructor.
+   *
+   * @param id
+   *          The ID of the session.
+   * @param listeners
+   *          The {@link HttpSessionListener}s and {@link HttpSessionAttributeListener}s notified
+   *          about the changes of the session.
+   */
+  public FakeHttpSession(final String id, final Object... listeners) {
+    this.id = id;
+    Collections.addAll(this.listeners, listeners);
+    proxy = (HttpSession) Proxy.newProxyInstance(FakeHttpSession.class.getClassLoader(),
+        new Class<?>[] { HttpSession.class }, (proxyInstance, method, args) -> {
+          switch (method.getName()) {
+            case "getId":
+              return id;
+            case "getAttribute":
+              checkValid();
+              return attributes.get(args[0]);
+            case "getAttributeNames":
+              checkValid();
+              return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+            case "setAttribute":
+              setAttribute((String) args[0], args[1]);
+              return null;
+            case "removeAttribute":
+              removeAttribute((String) args[0]);
+              return null;
+            case "invalidate":
+              invalidate();
+              return null;
+            case "isNew":
+              return Boolean.FALSE;
+            case "hashCode":
+              return System.identityHashCode(proxyInstance);
+            case "equals":
+              return proxyInstance == args[0];
+            case "toString":
+              return "FakeHttpSession[" + id + "]";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private void checkValid() {
+    if (invalidated) {
+      throw new IllegalStateException("Session [" + id + "] is invalidated");
+    }
+  }
+
+  public HttpSession get() {
+    return proxy;
+  }
+
+  public Object getAttribute(final String name) {
+    return attributes.get(name);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  private void invalidate() {
+    checkValid();
+    for (Object listener : listeners) {
+      if (listener instanceof HttpSessionListener) {
+        ((HttpSessionListener) listener).sessionDestroyed(new HttpSessionEvent(proxy));
+      }
+    }
+    for (String name : new ArrayList<>(attributes.keySet())) {
+      removeAttribute(name);
+    }
+    invalidated = true;
+  }
+
+  public boolean isInvalidated() {
+    return invalidated;
+  }
+
+  /**
+   * Saves the session like the session manager does when the application stops: the
+   * {@link HttpSessionActivationListener} attributes are notified, then the attributes are removed.
+   *
+   * @return The attributes of the session.
+   */
+  public Map<String, Object> passivate() {
+    Map<String, Object> savedAttributes = new LinkedHashMap<>(attributes);
+    for (Object value : savedAttributes.values()) {
+      if (value instanceof HttpSessionActivationListener) {
+        ((HttpSessionActivationListener) value).sessionWillPassivate(new HttpSessionEvent(proxy));
+      }
+    }
+    for (String name : savedAttributes.keySet()) {
+      removeAttribute(name);
+    }
+    return savedAttributes;
+  }
+
+  private void removeAttribute(final String name) {
+    checkValid();
+    Object value = attributes.remove(name);
+    if (value == null) {
+      return;
+    }
+    for (Object listener : listeners) {
+      if (listener instanceof HttpSessionAttributeListener) {
+        ((HttpSessionAttributeListener) listener).attributeRemoved(
+            new HttpSessionBindingEvent(proxy, name, value));
+      }
+    }
+  }
+
+  private void setAttribute(final String name, final Object value) {
+    checkValid();
+    if (value == null) {
+      removeAttribute(name);
+      return;
+    }
+    Object previousValue = attributes.put(name, value);
+    for (Object listener : listeners) {
+      if (listener instanceof HttpSessionAttributeListener) {
+        HttpSessionAttributeListener attributeListener = (HttpSessionAttributeListener) listener;
+        if (previousValue == null) {
+          attributeListener.attributeAdded(new HttpSessionBindingEvent(proxy, name, value));
+        } else {
+          attributeListener.attributeReplaced(
+              new HttpSessionBindingEvent(proxy, name, previousValue));
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Servlet context that records the logged messages.
+ */
+public final class FakeServletContext {
+
+  private final List<String> messages = new CopyOnWriteArrayList<>();
+
+  private final ServletContext proxy;
+
+  /**
+   * Constructor.
+   */
+  public FakeServletContext() {
+    proxy = (ServletContext) Proxy.newProxyInstance(FakeServletContext.class.getClassLoader(),
+        new Class<?>[] { ServletContext.class }, (proxyInstance, method, args) -> {
+          switch (method.getName()) {
+            case "log":
+              messages.add((String) args[0]);
+              return null;
+            case "hashCode":
+              return System.identityHashCode(proxyInstance);
+            case "equals":
+              return proxyInstance == args[0];
+            case "toString":
+              return "FakeServletContext";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  public ServletContext get() {
+    return proxy;
+  }
+
+  public List<String> getMessages() {
+    return messages;
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HeapServiceTicketIndexTest {
+
+  private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+  private static final int STRIPE_MASK = 0xF;
+
+  private static final int STRIPE_SHIFT = 24;
+
+  /**
+   * Finds a service ticket of the stripe with the given home slot in a stripe of the initial
+   * capacity.
+   */
+  private static String findServiceTicket(final int stripe, final int home,
+      final List<String> excluded) {
+    for (int i = 0;; i++) {
+      String serviceTicket = "ST-" + i;
+      int hash = HeapServiceTicketIndex.hash(serviceTicket);
+      if ((((hash >>> STRIPE_SHIFT) & STRIPE_MASK) == stripe)
+          && ((hash & (INITIAL_STRIPE_CAPACITY - 1)) == home)
+          && !excluded.contains(serviceTicket)) {
+        return serviceTicket;
+      }
+    }
+  }
+
+  private static List<String> findServiceTickets(final int... homes) {
+    List<String> serviceTickets = new ArrayList<>();
+    for (int home : homes) {
+      serviceTickets.add(findServiceTicket(0, home, serviceTickets));
+    }
+    return serviceTickets;
+  }
+
+  private static HeapServiceTicketIndex index(final List<String> serviceTickets) {
+    HeapServiceTicketIndex index = new HeapServiceTicketIndex();
+    for (String serviceTicket : serviceTickets) {
+      index.put(serviceTicket, "session-" + serviceTicket);
+    }
+    return index;
+  }
+
+  @Test
+  public void testBackwardShiftDeletion() {
+    // slots 10, 11 and 12 are taken by the tickets of home 10, slot 13 by the ticket of home 11
+    List<String> serviceTickets = findServiceTickets(10, 10, 10, 11, 14);
+    HeapServiceTicketIndex index = index(serviceTickets);
+
+    Assert.assertEquals("session-" + serviceTickets.get(0),
+        index.remove(serviceTickets.get(0), null));
+
+    Assert.assertNull(index.get(serviceTickets.get(0)));
+    for (String serviceTicket : serviceTickets.subList(1, serviceTickets.size())) {
+      Assert.assertEquals("session-" + serviceTicket, index.get(serviceTicket));
+    }
+
+    Assert.assertEquals("session-" + serviceTickets.get(2),
+        index.remove(serviceTickets.get(2), null));
+    Assert.assertEquals("session-" + serviceTickets.get(1), index.get(serviceTickets.get(1)));
+    Assert.assertEquals("session-" + serviceTickets.get(3), index.get(serviceTickets.get(3)));
+    Assert.assertEquals("session-" + serviceTickets.get(4), index.get(serviceTickets.get(4)));
+    Assert.assertEquals(3, index.size());
+  }
+
+  @Test
+  public void testBackwardShiftDeletionAtTableEnd() {
+    // the probe sequence of home 63 wraps around to the beginning of the table
+    List<String> serviceTickets = findServiceTickets(63, 63, 0);
+    HeapServiceTicketIndex index = index(serviceTickets);
+
+    Assert.assertEquals("session-" + serviceTickets.get(0),
+        index.remove(serviceTickets.get(0), null));
+
+    Assert.assertEquals("session-" + serviceTickets.get(1), index.get(serviceTickets.get(1)));
+    Assert.assertEquals("session-" + serviceTickets.get(2), index.get(serviceTickets.get(2)));
+
+    Assert.assertEquals("session-" + serviceTickets.get(1),
+        index.remove(serviceTickets.get(1), null));
+    Assert.assertEquals("session-" + serviceTickets.get(2), index.get(serviceTickets.get(2)));
+    Assert.assertEquals(1, index.size());
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    HeapServiceTicketIndex index = new HeapServiceTicketIndex();
+
+    index.put("ST-1", "session-1");
+    index.put("ST-1", "session-2");
+
+    Assert.assertEquals("session-2", index.get("ST-1"));
+    Assert.assertEquals(1, index.size());
+    Assert.assertNull(index.remove("ST-1", "session-1"));
+    Assert.assertEquals("session-2", index.remove("ST-1", "session-2"));
+    Assert.assertEquals(0, index.size());
+  }
+
+  @Test
+  public void testResize() {
+    HeapServiceTicketIndex index = new HeapServiceTicketIndex();
+    int count = 10000;
+    for (int i = 0; i < count; i++) {
+      index.put("ST-" + i, "session-" + i);
+    }
+    for (int i = 0; i < count; i += 3) {
+      index.remove("ST-" + i, null);
+    }
+
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals((i % 3) == 0 ? null : "session-" + i, index.get("ST-" + i));
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsonCasResponseParserTest {
+
+  private final JsonCasResponseParser parser =
+      new JsonCasResponseParser(new StaxCasResponseParser());
+
+  private CasValidationResult parse(final String json) throws IOException {
+    return parser.parseServiceValidateResponse(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testAuthenticationFailure() throws Exception {
+    Assert.assertNull(parse("{\"serviceResponse\": {\"authenticationFailure\": "
+        + "{\"code\": \"INVALID_TICKET\", \"description\": \"Ticket ST-1 not recognized\"}}}"));
+  }
+
+  @Test
+  public void testAuthenticationSuccess() throws Exception {
+    CasValidationResult validationResult = parse("{\"serviceResponse\": {"
+        + "\"authenticationSuccess\": {\"user\": \" johndoe \", "
+        + "\"proxyGrantingTicket\": \"PGTIOU-1\", "
+        + "\"attributes\": {\"mail\": \"johndoe@example.org\", "
+        + "\"groups\": [\"admins\", null, {\"nested\": true}, [1], \"users\"], "
+        + "\"age\": 42, \"active\": true, \"missing\": null, "
+        + "\"name\": \"J\\u00f6hn \\\"JD\\\" Doe\"}}}}");
+
+    Assert.assertEquals("johndoe", validationResult.getPrincipal());
+    Assert.assertEquals("PGTIOU-1", validationResult.getProxyGrantingTicketIou());
+    Assert.assertEquals(Collections.singletonList("johndoe@example.org"),
+        validationResult.getAttributes().get("mail"));
+    Assert.assertEquals(Arrays.asList("admins", "users"),
+        validationResult.getAttributes().get("groups"));
+    Assert.assertEquals(Collections.singletonList("42"),
+        validationResult.getAttributes().get("age"));
+    Assert.assertEquals(Collections.singletonList("true"),
+        validationResult.getAttributes().get("active"));
+    Assert.assertFalse(validationResult.getAttributes().containsKey("missing"));
+    Assert.assertEquals(Collections.singletonList("J\u00f6hn \"JD\" Doe"),
+        validationResult.getAttributes().get("name"));
+  }
+
+  @Test
+  public void testAuthenticationSuccessWithoutUser() throws Exception {
+    Assert.assertNull(parse("{\"serviceResponse\": {\"authenticationSuccess\": "
+        + "{\"user\": null, \"attributes\": {}}}}"));
+  }
+
+  @Test
+  public void testInvalidDocument() {
+    try {
+      parse("{\"serviceResponse\": {\"authenticationSuccess\": {\"user\": \"johndoe");
+      Assert.fail("IOException expected");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Unterminated string"));
+    }
+  }
+
+  @Test
+  public void testLogoutRequestAndProxyResponseAreParsedAsXml() throws Exception {
+    Assert.assertEquals("ST-1", parser.parseLogoutRequest("<samlp:LogoutRequest "
+        + "xmlns:samlp='urn:oasis:names:tc:SAML:2.0:protocol'>"
+        + "<samlp:SessionIndex>ST-1</samlp:SessionIndex></samlp:LogoutRequest>"));
+    Assert.assertEquals("PT-1", parser.parseProxyResponse(("<cas:serviceResponse "
+        + "xmlns:cas='http://www.yale.edu/tp/cas'><cas:proxySuccess>"
+        + "<cas:proxyTicket>PT-1</cas:proxyTicket></cas:proxySuccess></cas:serviceResponse>")
+            .getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testUnknownMembersAreSkipped() throws Exception {
+    CasValidationResult validationResult = parse("{\"version\": 3, \"meta\": {\"a\": [1, {}]}, "
+        + "\"serviceResponse\": {\"extra\": [\"x\"], \"authenticationSuccess\": "
+        + "{\"extensions\": {\"b\": [null]}, \"user\": \"johndoe\"}}}");
+
+    Assert.assertEquals("johndoe", validationResult.getPrincipal());
+    Assert.assertNull(validationResult.getProxyGrantingTicketIou());
+    Assert.assertTrue(validationResult.getAttributes().isEmpty());
+  }
+
+  @Test
+  public void testWithoutServiceResponse() throws Exception {
+    Assert.assertNull(parse("{\"other\": {}}"));
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsonReaderTest {
+
+  private static void assertSyntaxError(final String json) {
+    try {
+      reader(json).nextString();
+      Assert.fail("IOException expected for " + json);
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("of the JSON document"));
+    }
+  }
+
+  private static JsonReader reader(final String json) {
+    return new JsonReader(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEscapes() throws Exception {
+    Assert.assertEquals("a\"b\\c/d\be\ff\ng\rh\ti",
+        reader("\"a\\\"b\\\\c\\/d\\be\\ff\\ng\\rh\\ti\"").nextString());
+  }
+
+  @Test
+  public void testInvalidStrings() {
+    assertSyntaxError("\"abc");
+    assertSyntaxError("\"abc\\");
+    assertSyntaxError("\"\\u12\"");
+    assertSyntaxError("\"\\u12G4\"");
+    assertSyntaxError("\"\\u+123\"");
+    assertSyntaxError("abc\"");
+    assertSyntaxError("");
+  }
+
+  @Test
+  public void testObject() throws Exception {
+    JsonReader reader = reader(" { \"a\" : 1 , \"b\":\"x\" } ");
+
+    reader.beginObject();
+    Assert.assertTrue(reader.hasNext());
+    Assert.assertEquals("a", reader.nextName());
+    Assert.assertEquals("1", reader.nextScalar());
+    Assert.assertTrue(reader.hasNext());
+    Assert.assertEquals("b", reader.nextName());
+    Assert.assertEquals('"', reader.peek());
+    Assert.assertEquals("x", reader.nextScalar());
+    Assert.assertFalse(reader.hasNext());
+    reader.endObject();
+  }
+
+  @Test
+  public void testScalars() throws Exception {
+    JsonReader reader = reader("[null, true, -1.5e3, \"null\"]");
+
+    reader.beginArray();
+    Assert.assertNull(reader.nextScalar());
+    Assert.assertTrue(reader.hasNext());
+    Assert.assertEquals("true", reader.nextScalar());
+    Assert.assertTrue(reader.hasNext());
+    Assert.assertEquals("-1.5e3", reader.nextScalar());
+    Assert.assertTrue(reader.hasNext());
+    Assert.assertEquals("null", reader.nextScalar());
+    Assert.assertFalse(reader.hasNext());
+    reader.endArray();
+  }
+
+  @Test
+  public void testSkipNestedValues() throws Exception {
+    JsonReader reader = reader("{\"skipped\": {\"a\": [1, {\"b\": [[], {}]}, \"]}\"], "
+        + "\"c\": null}, \"kept\": \"value\"}");
+
+    reader.beginObject();
+    Assert.assertEquals("skipped", reader.nextName());
+    reader.skipValue();
+    Assert.assertTrue(reader.hasNext());
+    Assert.assertEquals("kept", reader.nextName());
+    Assert.assertEquals("value", reader.nextString());
+    Assert.assertFalse(reader.hasNext());
+    reader.endObject();
+  }
+
+  @Test
+  public void testUnexpectedEndOfDocument() {
+    JsonReader reader = reader("{\"a\": [1, 2");
+    try {
+      reader.beginObject();
+      reader.nextName();
+      reader.skipValue();
+      Assert.fail("IOException expected");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Unexpected end of document"));
+    }
+  }
+
+  @Test
+  public void testUnicodeEscapes() throws Exception {
+    Assert.assertEquals("\u00e9t\u00e9 \ud83d\ude00",
+        reader("\"\\u00e9t\\u00E9 \\ud83d\\ude00\"").nextString());
+    Assert.assertEquals("\u00e9t\u00e9", reader("\"\u00e9t\u00e9\"").nextString());
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  private static final double DELTA = 0.000001;
+
+  @Test
+  public void testEmptyHistogram() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    Assert.assertEquals(0, latencyHistogram.getCount());
+    Assert.assertEquals(0, latencyHistogram.getMax());
+    Assert.assertEquals(0, latencyHistogram.getMean(), DELTA);
+    Assert.assertEquals(0, latencyHistogram.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void testInvalidPercentileIsRejected() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    for (double percentile : new double[] { -1, 100.1 }) {
+      try {
+        latencyHistogram.getValueAtPercentile(percentile);
+        Assert.fail("IllegalArgumentException expected");
+      } catch (IllegalArgumentException e) {
+        Assert.assertTrue(e.getMessage().contains(String.valueOf(percentile)));
+      }
+    }
+  }
+
+  @Test
+  public void testLargeValuesAreCountedInLogLinearBuckets() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      latencyHistogram.record(i);
+    }
+
+    // 500 is counted in the bucket 496-511, 990 in 960-991 and 1000 in 992-1023
+    Assert.assertEquals(511, latencyHistogram.getValueAtPercentile(50));
+    Assert.assertEquals(991, latencyHistogram.getValueAtPercentile(99));
+    Assert.assertEquals(1000, latencyHistogram.getValueAtPercentile(99.9));
+    Assert.assertEquals(1000, latencyHistogram.getValueAtPercentile(100));
+    Assert.assertEquals(1000, latencyHistogram.getMax());
+    Assert.assertEquals(500.5, latencyHistogram.getMean(), DELTA);
+    Assert.assertEquals(1000, latencyHistogram.getCount());
+  }
+
+  @Test
+  public void testOutOfRangeValuesAreBounded() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    latencyHistogram.record(-5);
+    latencyHistogram.record(Long.MAX_VALUE);
+
+    Assert.assertEquals(0, latencyHistogram.getValueAtPercentile(0));
+    Assert.assertEquals(0, latencyHistogram.getValueAtPercentile(50));
+    Assert.assertEquals(LatencyHistogram.MAX_VALUE, latencyHistogram.getValueAtPercentile(100));
+    Assert.assertEquals(LatencyHistogram.MAX_VALUE, latencyHistogram.getMax());
+  }
+
+  @Test
+  public void testPercentileRelativeError() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    for (long value = 1; value < LatencyHistogram.MAX_VALUE; value = (value * 3) + 1) {
+      latencyHistogram.reset();
+      latencyHistogram.record(value);
+      latencyHistogram.record(value + 1);
+
+      long percentileValue = latencyHistogram.getValueAtPercentile(50);
+
+      Assert.assertTrue(percentileValue >= value);
+      Assert.assertTrue((percentileValue - value) <= (value * 0.07));
+    }
+  }
+
+  @Test
+  public void testReset() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    latencyHistogram.record(100);
+
+    latencyHistogram.reset();
+
+    Assert.assertEquals(0, latencyHistogram.getCount());
+    Assert.assertEquals(0, latencyHistogram.getMax());
+    Assert.assertEquals(0, latencyHistogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    for (int i = 10; i >= 1; i--) {
+      latencyHistogram.record(i);
+    }
+
+    Assert.assertEquals(1, latencyHistogram.getValueAtPercentile(0));
+    Assert.assertEquals(5, latencyHistogram.getValueAtPercentile(50));
+    Assert.assertEquals(9, latencyHistogram.getValueAtPercentile(90));
+    Assert.assertEquals(10, latencyHistogram.getValueAtPercentile(100));
+    Assert.assertEquals(5.5, latencyHistogram.getMean(), DELTA);
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoginUrlCacheTest {
+
+  private static final String CAS_LOGIN_URL = "https://cas.example.org/cas/login";
+
+  private static final String LOGIN_URL =
+      CAS_LOGIN_URL + "?service=http%3A%2F%2Flocalhost%2Fapp%2Fpage%3Fa%3D1%26b%3D2";
+
+  private static final String SERVICE_URL = "http://localhost/app/page?a=1&b=2";
+
+  @Test
+  public void testCasLoginUrlWithQuery() {
+    LoginUrlCache loginUrlCache = new LoginUrlCache(CAS_LOGIN_URL + "?renew=true", 10);
+
+    Assert.assertEquals(CAS_LOGIN_URL + "?renew=true&service=http%3A%2F%2Flocalhost%2Fapp%2F",
+        loginUrlCache.getLoginUrl("http://localhost/app/"));
+  }
+
+  @Test
+  public void testDisabledCache() {
+    LoginUrlCache loginUrlCache = new LoginUrlCache(CAS_LOGIN_URL, 0);
+
+    Assert.assertEquals(LOGIN_URL, loginUrlCache.getLoginUrl(SERVICE_URL));
+    Assert.assertEquals(0, loginUrlCache.size());
+  }
+
+  @Test
+  public void testGetLoginUrl() {
+    LoginUrlCache loginUrlCache = new LoginUrlCache(CAS_LOGIN_URL, 10);
+    String loginUrl = loginUrlCache.getLoginUrl(SERVICE_URL);
+
+    Assert.assertEquals(LOGIN_URL, loginUrl);
+    Assert.assertSame(loginUrl, loginUrlCache.getLoginUrl(SERVICE_URL));
+    Assert.assertEquals(1, loginUrlCache.size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() {
+    LoginUrlCache loginUrlCache = new LoginUrlCache(CAS_LOGIN_URL, 2);
+    String loginUrl1 = loginUrlCache.getLoginUrl("http://localhost/app/1");
+    String loginUrl2 = loginUrlCache.getLoginUrl("http://localhost/app/2");
+    loginUrlCache.getLoginUrl("http://localhost/app/1");
+    loginUrlCache.getLoginUrl("http://localhost/app/3");
+
+    Assert.assertEquals(2, loginUrlCache.size());
+    Assert.assertSame(loginUrl1, loginUrlCache.getLoginUrl("http://localhost/app/1"));
+    Assert.assertNotSame(loginUrl2, loginUrlCache.getLoginUrl("http://localhost/app/2"));
+  }
+
+}
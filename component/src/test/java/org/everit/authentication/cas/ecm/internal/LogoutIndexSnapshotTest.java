@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogoutIndexSnapshotTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testMissingFileIsReadAsEmptySnapshot() throws Exception {
+    LogoutIndexSnapshot snapshot =
+        LogoutIndexSnapshot.read(temporaryFolder.getRoot().toPath().resolve("missing.snapshot"));
+
+    Assert.assertTrue(snapshot.getSessionIdsByServiceTicket().isEmpty());
+    Assert.assertTrue(snapshot.getLoggedOutSessionIds().isEmpty());
+  }
+
+  @Test
+  public void testTruncatedFileIsRejected() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("logout-index.snapshot");
+    new LogoutIndexSnapshot(Collections.singletonMap("ST-1", "session-1"),
+        Collections.<String> emptySet()).write(file);
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 6));
+
+    try {
+      LogoutIndexSnapshot.read(file);
+      Assert.fail("IOException expected");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Truncated logout index snapshot"));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownFormatIsRejected() throws Exception {
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, new byte[] { 1, 2, 3, 4, 5, 0, 0, 0, 0, 0, 0, 0, 0 });
+
+    LogoutIndexSnapshot.read(file);
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    Map<String, String> sessionIdsByServiceTicket = new HashMap<>();
+    sessionIdsByServiceTicket.put("ST-1", "session-1");
+    sessionIdsByServiceTicket.put("ST-\u00e9", "session-2");
+    Set<String> loggedOutSessionIds = new HashSet<>(Arrays.asList("session-3", "session-4"));
+    Path file = temporaryFolder.getRoot().toPath().resolve("snapshots/logout-index.snapshot");
+
+    new LogoutIndexSnapshot(sessionIdsByServiceTicket, loggedOutSessionIds).write(file);
+    new LogoutIndexSnapshot(sessionIdsByServiceTicket, loggedOutSessionIds).write(file);
+    LogoutIndexSnapshot snapshot = LogoutIndexSnapshot.read(file);
+
+    Assert.assertEquals(sessionIdsByServiceTicket, snapshot.getSessionIdsByServiceTicket());
+    Assert.assertEquals(loggedOutSessionIds, snapshot.getLoggedOutSessionIds());
+    Assert.assertEquals(1, temporaryFolder.getRoot().toPath().resolve("snapshots").toFile()
+        .list().length);
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogoutIndexSnapshotWriterTest {
+
+  private static final long TIMEOUT = 5000;
+
+  private final List<String> errors = new CopyOnWriteArrayList<>();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private LogoutIndexSnapshotWriter writer;
+
+  @After
+  public void tearDown() {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
+  @Test
+  public void testFailedWriteDoesNotStopPeriodicWrites() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("logout-index.snapshot");
+    AtomicInteger callCount = new AtomicInteger();
+    CountDownLatch written = new CountDownLatch(1);
+    writer = new LogoutIndexSnapshotWriter(file, 10, () -> {
+      if (callCount.incrementAndGet() == 1) {
+        throw new IllegalStateException("Session manager is not available");
+      }
+      written.countDown();
+      return new LogoutIndexSnapshot(Collections.singletonMap("ST-1", "session-1"),
+          Collections.<String> emptySet());
+    }, (message, throwable) -> errors.add(message + ": " + throwable.getMessage()));
+
+    Assert.assertTrue(written.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    writer.close();
+    writer = null;
+
+    Assert.assertEquals(Collections.singletonList("Failed to write the CAS logout index snapshot ["
+        + file + "]: Session manager is not available"), errors);
+    Assert.assertEquals("session-1",
+        LogoutIndexSnapshot.read(file).getSessionIdsByServiceTicket().get("ST-1"));
+  }
+
+  @Test
+  public void testWriteFailureIsLogged() throws Exception {
+    Path directory = temporaryFolder.newFile("not-a-directory").toPath();
+    writer = new LogoutIndexSnapshotWriter(directory.resolve("logout-index.snapshot"),
+        TimeUnit.HOURS.toMillis(1),
+        () -> new LogoutIndexSnapshot(Collections.emptyMap(), Collections.<String> emptySet()),
+        (message, throwable) -> errors.add(message));
+
+    writer.close();
+    writer = null;
+
+    Assert.assertEquals(1, errors.size());
+    Assert.assertFalse(Files.isDirectory(directory));
+  }
+
+}
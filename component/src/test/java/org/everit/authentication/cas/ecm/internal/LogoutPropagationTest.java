@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogoutPropagationTest {
+
+  /**
+   * Propagator that fails the first sends and records the propagated service tickets.
+   */
+  private static class FailingCasLogoutPropagator extends LocalCasLogoutPropagator {
+
+    private final AtomicInteger failureCount;
+
+    private final CountDownLatch propagated = new CountDownLatch(1);
+
+    private final List<String> propagatedServiceTickets =
+        Collections.synchronizedList(new ArrayList<>());
+
+    FailingCasLogoutPropagator(final int failureCount) {
+      this.failureCount = new AtomicInteger(failureCount);
+    }
+
+    @Override
+    public void propagate(final Collection<String> serviceTickets) {
+      if (failureCount.getAndDecrement() > 0) {
+        throw new UncheckedIOException(new IOException("Network is unreachable"));
+      }
+      propagatedServiceTickets.addAll(serviceTickets);
+      propagated.countDown();
+    }
+
+  }
+
+  private static final long TIMEOUT = 5000;
+
+  private LogoutPropagation logoutPropagation;
+
+  private final FakeServletContext servletContext = new FakeServletContext();
+
+  @After
+  public void tearDown() {
+    if (logoutPropagation != null) {
+      logoutPropagation.close();
+    }
+  }
+
+  @Test
+  public void testFailedFlushDoesNotStopPeriodicFlush() throws Exception {
+    FailingCasLogoutPropagator casLogoutPropagator = new FailingCasLogoutPropagator(1);
+    logoutPropagation = new LogoutPropagation(casLogoutPropagator, 100, 10, 100);
+
+    logoutPropagation.submit("ST-1", servletContext.get());
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+    while (servletContext.getMessages().isEmpty() && ((deadline - System.nanoTime()) > 0)) {
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+    Assert.assertEquals(1, servletContext.getMessages().size());
+    logoutPropagation.submit("ST-2", servletContext.get());
+
+    Assert.assertTrue(casLogoutPropagator.propagated.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(Arrays.asList("ST-2"), casLogoutPropagator.propagatedServiceTickets);
+  }
+
+  @Test
+  public void testFailedFlushIsNotThrownToSubmitter() {
+    FailingCasLogoutPropagator casLogoutPropagator = new FailingCasLogoutPropagator(1);
+    logoutPropagation = new LogoutPropagation(casLogoutPropagator, 1, TIMEOUT, 100);
+
+    logoutPropagation.submit("ST-1", servletContext.get());
+    logoutPropagation.submit("ST-2", servletContext.get());
+
+    Assert.assertEquals(1, servletContext.getMessages().size());
+    Assert.assertEquals(Arrays.asList("ST-2"), casLogoutPropagator.propagatedServiceTickets);
+  }
+
+  @Test
+  public void testReceivedServiceTicketIsProcessedOnceAndNotSentBack() {
+    FailingCasLogoutPropagator casLogoutPropagator = new FailingCasLogoutPropagator(0);
+    logoutPropagation = new LogoutPropagation(casLogoutPropagator, 1, TIMEOUT, 100);
+    List<String> localLogouts = new ArrayList<>();
+    logoutPropagation.open(localLogouts::add);
+
+    logoutPropagation.logoutReceived(Arrays.asList("ST-1", "ST-1"));
+    logoutPropagation.logoutReceived(Arrays.asList("ST-1"));
+    logoutPropagation.submit("ST-1", servletContext.get());
+
+    Assert.assertEquals(Arrays.asList("ST-1"), localLogouts);
+    Assert.assertTrue(casLogoutPropagator.propagatedServiceTickets.isEmpty());
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogoutRequestQueueTest {
+
+  private static final long TIMEOUT = 5000;
+
+  private final List<String> processedLogoutRequests =
+      Collections.synchronizedList(new ArrayList<>());
+
+  private final LogoutRequestQueue queue = new LogoutRequestQueue(100, 10);
+
+  private final FakeServletContext servletContext = new FakeServletContext();
+
+  @After
+  public void tearDown() {
+    queue.close();
+  }
+
+  @Test
+  public void testFailedBatchDoesNotStopWorker() throws Exception {
+    queue.start((batch) -> {
+      for (LogoutRequestQueue.PendingLogoutRequest pendingLogoutRequest : batch) {
+        if ("failing".equals(pendingLogoutRequest.getLogoutRequest())) {
+          throw new IllegalStateException("Batch failed");
+        }
+        processedLogoutRequests.add(pendingLogoutRequest.getLogoutRequest());
+      }
+    });
+
+    Assert.assertTrue(queue.offer("failing", servletContext.get()));
+    Assert.assertTrue(queue.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(1, servletContext.getMessages().size());
+
+    Assert.assertTrue(queue.offer("LR-1", servletContext.get()));
+    Assert.assertTrue(queue.offer("LR-2", servletContext.get()));
+    Assert.assertTrue(queue.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(2, processedLogoutRequests.size());
+    Assert.assertTrue(processedLogoutRequests.contains("LR-1"));
+    Assert.assertTrue(processedLogoutRequests.contains("LR-2"));
+  }
+
+  @Test
+  public void testOfferIsRejectedBeforeStartAndAfterClose() {
+    Assert.assertFalse(queue.offer("LR-1", servletContext.get()));
+
+    queue.start((batch) -> {
+    });
+    queue.close();
+
+    Assert.assertFalse(queue.offer("LR-1", servletContext.get()));
+  }
+
+  @Test
+  public void testQueuedLogoutRequestsAreProcessedOnClose() throws Exception {
+    queue.start((batch) -> {
+      for (LogoutRequestQueue.PendingLogoutRequest pendingLogoutRequest : batch) {
+        processedLogoutRequests.add(pendingLogoutRequest.getLogoutRequest());
+      }
+    });
+    for (int i = 0; i < 50; i++) {
+      Assert.assertTrue(queue.offer("LR-" + i, servletContext.get()));
+    }
+
+    queue.close();
+
+    Assert.assertEquals(50, processedLogoutRequests.size());
+    Assert.assertTrue(queue.await(0, TimeUnit.MILLISECONDS));
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapServiceTicketIndexTest {
+
+  private static final int INITIAL_STRIPE_CAPACITY = 256;
+
+  private static final int STRIPE_SHIFT = 60;
+
+  /**
+   * Finds service tickets that fall into the same stripe and have the same home slot in a stripe
+   * of the initial capacity, so they occupy consecutive slots of one probe sequence.
+   */
+  private static List<String> findCollidingServiceTickets(final int count) {
+    List<String> serviceTickets = new ArrayList<>();
+    long target = 0;
+    for (int i = 0; serviceTickets.size() < count; i++) {
+      String serviceTicket = "ST-" + i;
+      long high = new OffHeapServiceTicketIndex.Fingerprint(serviceTicket).high;
+      long slot = (high >>> STRIPE_SHIFT) * INITIAL_STRIPE_CAPACITY
+          + (high & (INITIAL_STRIPE_CAPACITY - 1));
+      if (serviceTickets.isEmpty()) {
+        target = slot;
+      }
+      if (slot == target) {
+        serviceTickets.add(serviceTicket);
+      }
+    }
+    return serviceTickets;
+  }
+
+  @Test
+  public void testCollidingServiceTicketsAfterRemoval() {
+    OffHeapServiceTicketIndex index = new OffHeapServiceTicketIndex();
+    List<String> serviceTickets = findCollidingServiceTickets(4);
+    for (String serviceTicket : serviceTickets) {
+      index.put(serviceTicket, "session-" + serviceTicket);
+    }
+
+    Assert.assertEquals("session-" + serviceTickets.get(0),
+        index.remove(serviceTickets.get(0), null));
+    Assert.assertEquals("session-" + serviceTickets.get(2),
+        index.remove(serviceTickets.get(2), null));
+
+    Assert.assertNull(index.get(serviceTickets.get(0)));
+    Assert.assertEquals("session-" + serviceTickets.get(1), index.get(serviceTickets.get(1)));
+    Assert.assertNull(index.get(serviceTickets.get(2)));
+    Assert.assertEquals("session-" + serviceTickets.get(3), index.get(serviceTickets.get(3)));
+    Assert.assertEquals(2, index.size());
+
+    index.put(serviceTickets.get(0), "session-new");
+    Assert.assertEquals("session-new", index.get(serviceTickets.get(0)));
+    Assert.assertEquals(3, index.size());
+  }
+
+  @Test
+  public void testFullIndex() {
+    OffHeapServiceTicketIndex index = new OffHeapServiceTicketIndex(INITIAL_STRIPE_CAPACITY);
+    int putCount = 0;
+    try {
+      while (putCount <= 16 * INITIAL_STRIPE_CAPACITY) {
+        index.put("ST-" + putCount, "session-" + putCount);
+        putCount++;
+      }
+      Assert.fail("The index should be full");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("The off-heap service ticket index is full", e.getMessage());
+    }
+
+    Assert.assertEquals(putCount, index.size());
+    for (int i = 0; i < putCount; i++) {
+      Assert.assertEquals("session-" + i, index.get("ST-" + i));
+    }
+  }
+
+  @Test
+  public void testLongSessionIdIsStoredInOverflowMap() {
+    OffHeapServiceTicketIndex index = new OffHeapServiceTicketIndex();
+    StringBuilder longSessionId = new StringBuilder();
+    while (longSessionId.length() <= 100) {
+      longSessionId.append("session-");
+    }
+    long footprint = index.getFootprint();
+
+    index.put("ST-1", longSessionId.toString());
+    index.put("ST-2", "session-2");
+
+    Assert.assertEquals(longSessionId.toString(), index.get("ST-1"));
+    Assert.assertEquals(footprint, index.getFootprint());
+
+    index.put("ST-1", "session-1");
+    Assert.assertEquals("session-1", index.get("ST-1"));
+
+    index.put("ST-1", longSessionId.toString());
+    Assert.assertNull(index.remove("ST-1", "session-1"));
+    Assert.assertEquals(longSessionId.toString(), index.remove("ST-1", longSessionId.toString()));
+    Assert.assertNull(index.get("ST-1"));
+    Assert.assertEquals("session-2", index.get("ST-2"));
+    Assert.assertEquals(1, index.size());
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    OffHeapServiceTicketIndex index = new OffHeapServiceTicketIndex();
+
+    index.put("ST-1", "session-1");
+    index.put("ST-2", "session-2");
+    index.put("ST-1", "session-3");
+
+    Assert.assertEquals("session-3", index.get("ST-1"));
+    Assert.assertEquals("session-2", index.get("ST-2"));
+    Assert.assertNull(index.get("ST-3"));
+    Assert.assertEquals(2, index.size());
+
+    Assert.assertNull(index.remove("ST-1", "session-1"));
+    Assert.assertEquals("session-3", index.remove("ST-1", "session-3"));
+    Assert.assertEquals("session-2", index.remove("ST-2", null));
+    Assert.assertNull(index.remove("ST-2", null));
+    Assert.assertEquals(0, index.size());
+
+    index.put("ST-1", "session-1");
+    index.clear();
+    Assert.assertNull(index.get("ST-1"));
+    Assert.assertEquals(0, index.size());
+  }
+
+  @Test
+  public void testResize() {
+    OffHeapServiceTicketIndex index = new OffHeapServiceTicketIndex();
+    long initialFootprint = index.getFootprint();
+    int count = 10000;
+    for (int i = 0; i < count; i++) {
+      index.put("ST-" + i, "session-" + i);
+    }
+
+    Assert.assertEquals(count, index.size());
+    Assert.assertTrue(index.getFootprint() > initialFootprint);
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals("session-" + i, index.get("ST-" + i));
+    }
+
+    for (int i = 0; i < count; i += 2) {
+      Assert.assertEquals("session-" + i, index.remove("ST-" + i, "session-" + i));
+    }
+    Assert.assertEquals(count / 2, index.size());
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals((i % 2) == 0 ? null : "session-" + i, index.get("ST-" + i));
+    }
+  }
+
+}
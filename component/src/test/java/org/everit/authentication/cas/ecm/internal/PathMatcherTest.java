@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PathMatcherTest {
+
+  @Test
+  public void testEmpty() {
+    Assert.assertTrue(PathMatcher.compile(null).isEmpty());
+    PathMatcher pathMatcher = PathMatcher.compile(new String[] { null, "", " " });
+
+    Assert.assertTrue(pathMatcher.isEmpty());
+    Assert.assertFalse(pathMatcher.matches("/"));
+  }
+
+  @Test
+  public void testExactPattern() {
+    PathMatcher pathMatcher = PathMatcher.compile(new String[] { "/login", " /logout " });
+
+    Assert.assertFalse(pathMatcher.isEmpty());
+    Assert.assertTrue(pathMatcher.matches("/login"));
+    Assert.assertTrue(pathMatcher.matches("/logout"));
+    Assert.assertFalse(pathMatcher.matches("/log"));
+    Assert.assertFalse(pathMatcher.matches("/login/"));
+    Assert.assertFalse(pathMatcher.matches("/loginx"));
+    Assert.assertFalse(pathMatcher.matches(""));
+  }
+
+  @Test
+  public void testExtensionPattern() {
+    PathMatcher pathMatcher = PathMatcher.compile(new String[] { "*.css", "*.min.js" });
+
+    Assert.assertTrue(pathMatcher.matches("/style.css"));
+    Assert.assertTrue(pathMatcher.matches("/static/app.min.js"));
+    Assert.assertFalse(pathMatcher.matches("/static/app.js"));
+    Assert.assertFalse(pathMatcher.matches("/style.css/page"));
+    Assert.assertFalse(pathMatcher.matches("/css"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPattern() {
+    PathMatcher.compile(new String[] { "/static/*.css" });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRelativePattern() {
+    PathMatcher.compile(new String[] { "static" });
+  }
+
+  @Test
+  public void testPrefixPattern() {
+    PathMatcher pathMatcher = PathMatcher.compile(new String[] { "/static/*", "/static/img/*" });
+
+    Assert.assertTrue(pathMatcher.matches("/static"));
+    Assert.assertTrue(pathMatcher.matches("/static/"));
+    Assert.assertTrue(pathMatcher.matches("/static/app.js"));
+    Assert.assertTrue(pathMatcher.matches("/static/img/logo.png"));
+    Assert.assertFalse(pathMatcher.matches("/staticx"));
+    Assert.assertFalse(pathMatcher.matches("/stat"));
+    Assert.assertFalse(pathMatcher.matches("/other/static/app.js"));
+  }
+
+  @Test
+  public void testRootPrefixPatternMatchesEverything() {
+    PathMatcher pathMatcher = PathMatcher.compile(new String[] { "/*" });
+
+    Assert.assertTrue(pathMatcher.matches(""));
+    Assert.assertTrue(pathMatcher.matches("/"));
+    Assert.assertTrue(pathMatcher.matches("/any/path"));
+  }
+
+}
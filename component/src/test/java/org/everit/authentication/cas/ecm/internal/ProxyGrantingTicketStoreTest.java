@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProxyGrantingTicketStoreTest {
+
+  private static final String CALLBACK_URL = "https://app.example.org/app/pgtCallback";
+
+  @Test
+  public void testExpiredTicketIsNotReturned() throws InterruptedException {
+    ProxyGrantingTicketStore proxyGrantingTicketStore =
+        new ProxyGrantingTicketStore(CALLBACK_URL, 1);
+    proxyGrantingTicketStore.put("PGTIOU-1", "PGT-1");
+    Thread.sleep(10);
+
+    Assert.assertNull(proxyGrantingTicketStore.remove("PGTIOU-1"));
+    Assert.assertEquals(0, proxyGrantingTicketStore.size());
+  }
+
+  @Test
+  public void testExpiredTicketsAreRemovedPeriodically() throws InterruptedException {
+    ProxyGrantingTicketStore proxyGrantingTicketStore =
+        new ProxyGrantingTicketStore(CALLBACK_URL, 1);
+    for (int i = 0; i < 1023; i++) {
+      proxyGrantingTicketStore.put("PGTIOU-" + i, "PGT-" + i);
+    }
+    Thread.sleep(10);
+    proxyGrantingTicketStore.put("PGTIOU-1023", "PGT-1023");
+
+    Assert.assertEquals(1, proxyGrantingTicketStore.size());
+  }
+
+  @Test
+  public void testRemove() {
+    ProxyGrantingTicketStore proxyGrantingTicketStore =
+        new ProxyGrantingTicketStore(CALLBACK_URL, 60000);
+    proxyGrantingTicketStore.put("PGTIOU-1", "PGT-1");
+
+    Assert.assertEquals(CALLBACK_URL, proxyGrantingTicketStore.getCallbackUrl());
+    Assert.assertEquals("PGT-1", proxyGrantingTicketStore.remove("PGTIOU-1"));
+    Assert.assertNull(proxyGrantingTicketStore.remove("PGTIOU-1"));
+    Assert.assertNull(proxyGrantingTicketStore.remove("PGTIOU-2"));
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProxyTicketCacheTest {
+
+  private static final String TARGET_SERVICE = "https://backend.example.org/api";
+
+  private static final long TIME_TO_LIVE = 60000;
+
+  @Test
+  public void testDisabledCache() {
+    ProxyTicketCache proxyTicketCache = new ProxyTicketCache(10, 0);
+    proxyTicketCache.put("PGT-1", TARGET_SERVICE, "PT-1");
+
+    Assert.assertFalse(proxyTicketCache.isEnabled());
+    Assert.assertFalse(new ProxyTicketCache(0, TIME_TO_LIVE).isEnabled());
+    Assert.assertNull(proxyTicketCache.get("PGT-1", TARGET_SERVICE));
+    Assert.assertEquals(0, proxyTicketCache.size());
+  }
+
+  @Test
+  public void testEntriesAreEvictedAboveMaxSize() {
+    ProxyTicketCache proxyTicketCache = new ProxyTicketCache(2, TIME_TO_LIVE);
+    proxyTicketCache.put("PGT-1", TARGET_SERVICE, "PT-1");
+    proxyTicketCache.put("PGT-2", TARGET_SERVICE, "PT-2");
+    proxyTicketCache.put("PGT-3", TARGET_SERVICE, "PT-3");
+
+    Assert.assertEquals(2, proxyTicketCache.size());
+    Assert.assertNull(proxyTicketCache.get("PGT-1", TARGET_SERVICE));
+    Assert.assertEquals("PT-3", proxyTicketCache.get("PGT-3", TARGET_SERVICE));
+
+    proxyTicketCache.clear();
+    Assert.assertEquals(0, proxyTicketCache.size());
+  }
+
+  @Test
+  public void testExpiredEntriesAreRemoved() throws InterruptedException {
+    ProxyTicketCache proxyTicketCache = new ProxyTicketCache(10, 1);
+    proxyTicketCache.put("PGT-1", TARGET_SERVICE, "PT-1");
+    Thread.sleep(10);
+
+    Assert.assertNull(proxyTicketCache.get("PGT-1", TARGET_SERVICE));
+    Assert.assertEquals(0, proxyTicketCache.size());
+  }
+
+  @Test
+  public void testGet() {
+    ProxyTicketCache proxyTicketCache = new ProxyTicketCache(10, TIME_TO_LIVE);
+    proxyTicketCache.put("PGT-1", TARGET_SERVICE, "PT-1");
+    proxyTicketCache.put("PGT-1", TARGET_SERVICE, "PT-2");
+
+    Assert.assertEquals("PT-2", proxyTicketCache.get("PGT-1", TARGET_SERVICE));
+    Assert.assertNull(proxyTicketCache.get("PGT-1", "https://other.example.org/api"));
+    Assert.assertNull(proxyTicketCache.get("PGT-2", TARGET_SERVICE));
+    Assert.assertEquals(1, proxyTicketCache.size());
+  }
+
+}
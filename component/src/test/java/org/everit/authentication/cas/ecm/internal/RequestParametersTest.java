@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestParametersTest {
+
+  @Test
+  public void testContainsEncodedParameter() {
+    Assert.assertTrue(RequestParameters.containsParameter("%74icket=ST-1", "ticket"));
+    Assert.assertTrue(RequestParameters.containsParameter("a=1&logout%52equest=x",
+        "logoutRequest"));
+    Assert.assertTrue(RequestParameters.containsParameter("a=%20&my+name=1", "my name"));
+    Assert.assertFalse(RequestParameters.containsParameter("a=%74icket", "ticket"));
+    Assert.assertFalse(RequestParameters.containsParameter("%zz=1&%74icketx=1", "ticket"));
+  }
+
+  @Test
+  public void testContainsParameter() {
+    Assert.assertTrue(RequestParameters.containsParameter("ticket=ST-1", "ticket"));
+    Assert.assertTrue(RequestParameters.containsParameter("a=1&ticket=ST-1&b=2", "ticket"));
+    Assert.assertTrue(RequestParameters.containsParameter("a=1&ticket", "ticket"));
+    Assert.assertTrue(RequestParameters.containsParameter("ticket&a=1", "ticket"));
+    Assert.assertTrue(RequestParameters.containsParameter("xticket=1&ticket=2", "ticket"));
+    Assert.assertFalse(RequestParameters.containsParameter(null, "ticket"));
+    Assert.assertFalse(RequestParameters.containsParameter("", "ticket"));
+    Assert.assertFalse(RequestParameters.containsParameter("xticket=1", "ticket"));
+    Assert.assertFalse(RequestParameters.containsParameter("ticketx=1", "ticket"));
+    Assert.assertFalse(RequestParameters.containsParameter("a=ticket", "ticket"));
+  }
+
+  @Test
+  public void testGetParameter() {
+    Assert.assertEquals("ST-1", RequestParameters.getParameter(
+        new FakeHttpServletRequest().queryString("%74icket=ST-1").get(), "ticket"));
+    Assert.assertEquals("<xml/>", RequestParameters.getParameter(
+        new FakeHttpServletRequest().formPost("logoutRequest=%3Cxml%2F%3E").get(),
+        "logoutRequest"));
+    Assert.assertNull(RequestParameters.getParameter(
+        new FakeHttpServletRequest().queryString("a=1").get(), "ticket"));
+    Assert.assertNull(RequestParameters.getParameter(
+        new FakeHttpServletRequest().method("POST").get(), "ticket"));
+  }
+
+  @Test
+  public void testRemoveParameter() {
+    Assert.assertEquals("a=1&b=2", RequestParameters.removeParameter("a=1&ticket=ST-1&b=2",
+        "ticket"));
+    Assert.assertEquals("a=1", RequestParameters.removeParameter("ticket=ST-1&a=1", "ticket"));
+    Assert.assertEquals("a=1", RequestParameters.removeParameter("a=1&ticket", "ticket"));
+    Assert.assertEquals("a=%20&ticketx=1&xticket=2",
+        RequestParameters.removeParameter("a=%20&ticketx=1&xticket=2", "ticket"));
+  }
+
+  @Test
+  public void testRemoveParameterWithEncodedName() {
+    Assert.assertEquals("a=1",
+        RequestParameters.removeParameter("%74icket=ST-1&a=1&ti%63ket=ST-2", "ticket"));
+    Assert.assertEquals("%zz=1", RequestParameters.removeParameter("%zz=1&ticket=ST-1", "ticket"));
+  }
+
+  @Test
+  public void testRemoveParameterWithoutRemainingParameters() {
+    Assert.assertNull(RequestParameters.removeParameter(null, "ticket"));
+    Assert.assertNull(RequestParameters.removeParameter("", "ticket"));
+    Assert.assertNull(RequestParameters.removeParameter("ticket=ST-1&ticket=ST-2", "ticket"));
+    Assert.assertNull(RequestParameters.removeParameter("&&", "ticket"));
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class SaxParserPoolTest {
+
+  /**
+   * Counts the started elements.
+   */
+  private static final class ElementCounter extends DefaultHandler {
+
+    private int count;
+
+    @Override
+    public void startElement(final String uri, final String localName, final String qName,
+        final Attributes attributes) {
+      count++;
+    }
+
+  }
+
+  private static int parse(final SaxParserPool saxParserPool, final String xml)
+      throws IOException {
+    ElementCounter elementCounter = new ElementCounter();
+    saxParserPool.parse(new InputSource(new StringReader(xml)), elementCounter);
+    return elementCounter.count;
+  }
+
+  @Test
+  public void testDisabledPool() throws IOException {
+    SaxParserPool saxParserPool = new SaxParserPool(SAXParserFactory.newInstance(), 0);
+
+    Assert.assertEquals(2, parse(saxParserPool, "<a><b/></a>"));
+    Assert.assertEquals(0, saxParserPool.getIdleCount());
+  }
+
+  @Test
+  public void testFailedParserIsReturnedToPool() throws IOException {
+    SaxParserPool saxParserPool = new SaxParserPool(SAXParserFactory.newInstance(), 2);
+    try {
+      parse(saxParserPool, "<a><b></a>");
+      Assert.fail("IOException expected");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof SAXParseException);
+    }
+
+    Assert.assertEquals(1, saxParserPool.getIdleCount());
+    Assert.assertEquals(3, parse(saxParserPool, "<a><b/><c/></a>"));
+  }
+
+  @Test
+  public void testParsersAreReused() throws IOException {
+    SaxParserPool saxParserPool = new SaxParserPool(SAXParserFactory.newInstance(), 2);
+
+    Assert.assertEquals(2, parse(saxParserPool, "<a><b/></a>"));
+    Assert.assertEquals(1, saxParserPool.getIdleCount());
+    Assert.assertEquals(1, parse(saxParserPool, "<a/>"));
+    Assert.assertEquals(1, saxParserPool.getIdleCount());
+  }
+
+  @Test
+  public void testParsersOfReplacedFactoryAreDropped() throws IOException {
+    SaxParserPool saxParserPool = new SaxParserPool(SAXParserFactory.newInstance(), 2);
+    parse(saxParserPool, "<a/>");
+
+    saxParserPool.setSaxParserFactory(SAXParserFactory.newInstance());
+
+    Assert.assertEquals(0, saxParserPool.getIdleCount());
+    Assert.assertEquals(1, parse(saxParserPool, "<a/>"));
+    Assert.assertEquals(1, saxParserPool.getIdleCount());
+  }
+
+}
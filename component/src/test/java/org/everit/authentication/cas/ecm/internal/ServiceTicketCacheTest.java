@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.everit.authentication.cas.ecm.internal.ServiceTicketCache.ValidatedServiceTicket;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceTicketCacheTest {
+
+  private static final Map<String, List<String>> ATTRIBUTES =
+      Collections.singletonMap("mail", Collections.singletonList("johndoe@example.org"));
+
+  private static final String SERVICE_URL = "http://localhost/app/";
+
+  private static final long TIME_TO_LIVE = 60000;
+
+  @Test
+  public void testDisabledCache() {
+    ServiceTicketCache serviceTicketCache = new ServiceTicketCache(0, TIME_TO_LIVE);
+    serviceTicketCache.put("ST-1", SERVICE_URL, "session1", "johndoe", 1, ATTRIBUTES, null);
+
+    Assert.assertFalse(serviceTicketCache.isEnabled());
+    Assert.assertNull(serviceTicketCache.get("ST-1", SERVICE_URL, "session1"));
+    Assert.assertEquals(0, serviceTicketCache.size());
+    Assert.assertEquals(0, serviceTicketCache.getMissCount());
+  }
+
+  @Test
+  public void testEntriesAreEvictedAboveMaxSize() {
+    ServiceTicketCache serviceTicketCache = new ServiceTicketCache(2, TIME_TO_LIVE);
+    serviceTicketCache.put("ST-1", SERVICE_URL, "session1", "johndoe", 1, ATTRIBUTES, null);
+    serviceTicketCache.put("ST-2", SERVICE_URL, "session2", "johndoe", 1, ATTRIBUTES, null);
+    serviceTicketCache.put("ST-3", SERVICE_URL, "session3", "janedoe", 2, ATTRIBUTES, null);
+
+    Assert.assertEquals(2, serviceTicketCache.size());
+    Assert.assertEquals(1, serviceTicketCache.getEvictionCount());
+    Assert.assertNull(serviceTicketCache.get("ST-1", SERVICE_URL, "session1"));
+    Assert.assertNotNull(serviceTicketCache.get("ST-2", SERVICE_URL, "session2"));
+    Assert.assertNotNull(serviceTicketCache.get("ST-3", SERVICE_URL, "session3"));
+  }
+
+  @Test
+  public void testExpiredEntriesAreRemoved() throws InterruptedException {
+    ServiceTicketCache serviceTicketCache = new ServiceTicketCache(10, 1);
+    serviceTicketCache.put("ST-1", SERVICE_URL, "session1", "johndoe", 1, ATTRIBUTES, null);
+    Thread.sleep(10);
+
+    Assert.assertNull(serviceTicketCache.get("ST-1", SERVICE_URL, "session1"));
+    Assert.assertEquals(0, serviceTicketCache.size());
+    Assert.assertEquals(1, serviceTicketCache.getEvictionCount());
+  }
+
+  @Test
+  public void testGet() {
+    ServiceTicketCache serviceTicketCache = new ServiceTicketCache(10, TIME_TO_LIVE);
+    serviceTicketCache.put("ST-1", SERVICE_URL, "session1", "johndoe", 1, ATTRIBUTES, "PGT-1");
+
+    ValidatedServiceTicket validatedServiceTicket =
+        serviceTicketCache.get("ST-1", SERVICE_URL, "session1");
+    Assert.assertEquals("johndoe", validatedServiceTicket.getPrincipal());
+    Assert.assertEquals(1, validatedServiceTicket.getResourceId());
+    Assert.assertEquals(ATTRIBUTES, validatedServiceTicket.getAttributes());
+    Assert.assertEquals("PGT-1", validatedServiceTicket.getProxyGrantingTicket());
+    Assert.assertEquals(1, serviceTicketCache.getHitCount());
+    Assert.assertEquals(0, serviceTicketCache.getMissCount());
+  }
+
+  @Test
+  public void testGetWithOtherServiceUrlOrSession() {
+    ServiceTicketCache serviceTicketCache = new ServiceTicketCache(10, TIME_TO_LIVE);
+    serviceTicketCache.put("ST-1", SERVICE_URL, "session1", "johndoe", 1, ATTRIBUTES, null);
+
+    Assert.assertNull(serviceTicketCache.get("ST-1", "http://localhost/other/", "session1"));
+    Assert.assertNull(serviceTicketCache.get("ST-1", SERVICE_URL, "session2"));
+    Assert.assertNull(serviceTicketCache.get("ST-1", SERVICE_URL, null));
+    Assert.assertNull(serviceTicketCache.get("ST-2", SERVICE_URL, "session1"));
+    Assert.assertEquals(0, serviceTicketCache.getHitCount());
+    Assert.assertEquals(4, serviceTicketCache.getMissCount());
+  }
+
+  @Test
+  public void testRemove() {
+    ServiceTicketCache serviceTicketCache = new ServiceTicketCache(10, TIME_TO_LIVE);
+    serviceTicketCache.put("ST-1", SERVICE_URL, "session1", "johndoe", 1, ATTRIBUTES, null);
+    serviceTicketCache.put("ST-2", SERVICE_URL, "session2", "johndoe", 1, ATTRIBUTES, null);
+    serviceTicketCache.put("ST-3", SERVICE_URL, "session3", "janedoe", 2, ATTRIBUTES, null);
+
+    serviceTicketCache.remove("ST-1");
+    Assert.assertNull(serviceTicketCache.get("ST-1", SERVICE_URL, "session1"));
+    Assert.assertEquals(2, serviceTicketCache.size());
+
+    serviceTicketCache.removePrincipal("johndoe");
+    Assert.assertNull(serviceTicketCache.get("ST-2", SERVICE_URL, "session2"));
+    Assert.assertNotNull(serviceTicketCache.get("ST-3", SERVICE_URL, "session3"));
+
+    serviceTicketCache.clear();
+    Assert.assertEquals(0, serviceTicketCache.size());
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceTicketSessionRegistryTest {
+
+  @Test
+  public void testUnregisterRemovesSessionOfOverwrittenServiceTicket() {
+    ServiceTicketSessionRegistry registry =
+        new ServiceTicketSessionRegistry(new HeapServiceTicketIndex(), true);
+    HttpSession firstSession = new FakeHttpSession("session-1").get();
+    HttpSession secondSession = new FakeHttpSession("session-2").get();
+
+    registry.register("ST-1", firstSession);
+    registry.register("ST-1", secondSession);
+    registry.unregister("ST-1", firstSession);
+
+    Assert.assertFalse(registry.getSessions().contains(firstSession));
+    Assert.assertTrue(registry.isRegistered("ST-1", secondSession));
+
+    registry.unregister("ST-1", secondSession);
+
+    Assert.assertTrue(registry.getSessions().isEmpty());
+    Assert.assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void testUntrackedSessionIsMarkedLoggedOutOnRemove() {
+    OffHeapServiceTicketIndex index = new OffHeapServiceTicketIndex();
+    ServiceTicketSessionRegistry registry = new ServiceTicketSessionRegistry(index, false);
+    HttpSession session = new FakeHttpSession("session-1").get();
+
+    registry.register("ST-1", session);
+
+    Assert.assertTrue(registry.isRegistered("ST-1", session));
+    Assert.assertTrue(registry.getSessions().isEmpty());
+    Assert.assertEquals(index.getFootprint(), registry.getFootprint());
+
+    Assert.assertNull(registry.remove("ST-1"));
+
+    Assert.assertFalse(registry.isRegistered("ST-1", session));
+    Assert.assertTrue(registry.consumeLoggedOut("session-1"));
+    Assert.assertFalse(registry.consumeLoggedOut("session-1"));
+    Assert.assertEquals(0, registry.size());
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringPoolTest {
+
+  private static String copy(final String string) {
+    return new String(string.toCharArray());
+  }
+
+  @Test
+  public void testDisabledPool() {
+    StringPool stringPool = new StringPool(0);
+    String string = copy("admins");
+
+    Assert.assertSame(string, stringPool.intern(string));
+    Assert.assertNotSame(string, stringPool.intern(copy("admins")));
+    Assert.assertEquals(0, stringPool.size());
+  }
+
+  @Test
+  public void testFullPool() {
+    StringPool stringPool = new StringPool(1);
+    String admins = stringPool.intern(copy("admins"));
+    String users = copy("users");
+
+    Assert.assertSame(users, stringPool.intern(users));
+    Assert.assertNotSame(users, stringPool.intern(copy("users")));
+    Assert.assertSame(admins, stringPool.intern(copy("admins")));
+    Assert.assertEquals(1, stringPool.size());
+
+    stringPool.clear();
+    Assert.assertEquals(0, stringPool.size());
+  }
+
+  @Test
+  public void testIntern() {
+    StringPool stringPool = new StringPool(10);
+    String string = copy("admins");
+
+    Assert.assertSame(string, stringPool.intern(string));
+    Assert.assertSame(string, stringPool.intern(copy("admins")));
+    Assert.assertEquals(1, stringPool.size());
+  }
+
+  @Test
+  public void testInternAttributes() {
+    StringPool stringPool = new StringPool(10);
+    Map<String, List<String>> attributes = new LinkedHashMap<>();
+    attributes.put(copy("groups"), Arrays.asList(copy("admins"), copy("users")));
+    attributes.put(copy("mail"), Collections.singletonList(copy("johndoe@example.org")));
+    Map<String, List<String>> otherAttributes = new LinkedHashMap<>();
+    otherAttributes.put(copy("groups"), Collections.singletonList(copy("users")));
+
+    Map<String, List<String>> internedAttributes = stringPool.internAttributes(attributes);
+    Map<String, List<String>> otherInternedAttributes =
+        stringPool.internAttributes(otherAttributes);
+
+    Assert.assertEquals(attributes, internedAttributes);
+    Assert.assertEquals(Arrays.asList("groups", "mail"),
+        Arrays.asList(internedAttributes.keySet().toArray()));
+    Assert.assertSame(internedAttributes.keySet().iterator().next(),
+        otherInternedAttributes.keySet().iterator().next());
+    Assert.assertSame(internedAttributes.get("groups").get(1),
+        otherInternedAttributes.get("groups").get(0));
+    Assert.assertEquals(5, stringPool.size());
+  }
+
+  @Test
+  public void testLongStringsAreNotPooled() {
+    StringPool stringPool = new StringPool(10);
+    char[] chars = new char[257];
+    Arrays.fill(chars, 'a');
+    String string = new String(chars);
+
+    Assert.assertSame(string, stringPool.intern(string));
+    Assert.assertEquals(0, stringPool.size());
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ValidationEndpointsTest {
+
+  private static final long EJECTION_DURATION = 60000;
+
+  private static final String URL1 = "https://cas1.example.org/cas/serviceValidate";
+
+  private static final String URL2 = "https://cas2.example.org/cas/serviceValidate";
+
+  private static final String[] URLS = new String[] { URL1, URL2 };
+
+  @Test
+  public void testAllEndpointsFailToConnect() {
+    ValidationEndpoints validationEndpoints = new ValidationEndpoints(URLS, 0, EJECTION_DURATION);
+    List<String> calledUrls = new ArrayList<>();
+    try {
+      validationEndpoints.call((url) -> {
+        calledUrls.add(url);
+        throw new ConnectException(url);
+      });
+      Assert.fail("ConnectException expected");
+    } catch (IOException e) {
+      Assert.assertEquals(calledUrls.get(1), e.getMessage());
+    }
+    Collections.sort(calledUrls);
+    Assert.assertEquals(Arrays.asList(URL1, URL2), calledUrls);
+  }
+
+  @Test
+  public void testCallIsNotRepeatedOnOtherFailures() {
+    ValidationEndpoints validationEndpoints = new ValidationEndpoints(URLS, 0, EJECTION_DURATION);
+    List<String> calledUrls = new ArrayList<>();
+    try {
+      validationEndpoints.call((url) -> {
+        calledUrls.add(url);
+        throw new IOException("Read timed out");
+      });
+      Assert.fail("IOException expected");
+    } catch (IOException e) {
+      Assert.assertEquals("Read timed out", e.getMessage());
+    }
+    Assert.assertEquals(1, calledUrls.size());
+  }
+
+  @Test
+  public void testCallIsRepeatedOnConnectFailure() throws IOException {
+    ValidationEndpoints validationEndpoints = new ValidationEndpoints(URLS, 0, EJECTION_DURATION);
+    for (int i = 0; i < 10; i++) {
+      String result = validationEndpoints.call((url) -> {
+        if (URL1.equals(url)) {
+          throw new ConnectException(url);
+        }
+        return url;
+      });
+      Assert.assertEquals(URL2, result);
+    }
+  }
+
+  @Test
+  public void testEjectedEndpointDoesNotReceiveCalls() throws IOException {
+    ValidationEndpoints validationEndpoints = new ValidationEndpoints(URLS, 1, EJECTION_DURATION);
+    List<String> calledUrls = new ArrayList<>();
+    ValidationEndpoints.EndpointCall<String> endpointCall = (url) -> {
+      calledUrls.add(url);
+      if (URL1.equals(url)) {
+        throw new ConnectException(url);
+      }
+      return url;
+    };
+    while (!calledUrls.contains(URL1)) {
+      validationEndpoints.call(endpointCall);
+    }
+    calledUrls.clear();
+
+    for (int i = 0; i < 10; i++) {
+      validationEndpoints.call(endpointCall);
+    }
+    Assert.assertEquals(Collections.nCopies(10, URL2), calledUrls);
+    Assert.assertTrue(validationEndpoints.toStrings()[0].endsWith(", ejected]"));
+    Assert.assertFalse(validationEndpoints.toStrings()[1].endsWith(", ejected]"));
+  }
+
+  @Test
+  public void testHasSettings() {
+    ValidationEndpoints validationEndpoints = new ValidationEndpoints(URLS, 3, EJECTION_DURATION);
+
+    Assert.assertTrue(validationEndpoints.hasSettings(
+        new String[] { URL1, URL2 }, 3, EJECTION_DURATION));
+    Assert.assertFalse(validationEndpoints.hasSettings(
+        new String[] { URL2, URL1 }, 3, EJECTION_DURATION));
+    Assert.assertFalse(validationEndpoints.hasSettings(
+        new String[] { URL1 }, 3, EJECTION_DURATION));
+    Assert.assertFalse(validationEndpoints.hasSettings(URLS, 2, EJECTION_DURATION));
+    Assert.assertFalse(validationEndpoints.hasSettings(URLS, 3, EJECTION_DURATION + 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoUrls() {
+    new ValidationEndpoints(new String[0], 0, EJECTION_DURATION);
+  }
+
+  @Test
+  public void testSingleEndpoint() throws IOException {
+    ValidationEndpoints validationEndpoints =
+        new ValidationEndpoints(new String[] { URL1 }, 1, EJECTION_DURATION);
+
+    Assert.assertEquals(1, validationEndpoints.size());
+    Assert.assertEquals(URL1, validationEndpoints.call((url) -> url));
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011 Everit Kft. (http://www.everit.biz)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everit.authentication.cas.ecm.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class XmlCasResponseParserTest {
+
+  private static final String CAS_NAMESPACE = "xmlns:cas='http://www.yale.edu/tp/cas'";
+
+  private static final String LOGOUT_REQUEST = "<samlp:LogoutRequest "
+      + "xmlns:samlp='urn:oasis:names:tc:SAML:2.0:protocol' "
+      + "xmlns:saml='urn:oasis:names:tc:SAML:2.0:assertion' ID='LR-1' Version='2.0'>"
+      + "<saml:NameID>@NOT_USED@</saml:NameID>"
+      + "<samlp:SessionIndex> ST-1 </samlp:SessionIndex></samlp:LogoutRequest>";
+
+  private static final int THREAD_COUNT = 4;
+
+  private static byte[] bytes(final String document) {
+    return document.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The parsers under test.
+   */
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> parsers() {
+    SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+    saxParserFactory.setNamespaceAware(true);
+    return Arrays.asList(
+        new Object[] { "SAX", new SaxCasResponseParser(new SaxParserPool(saxParserFactory, 2)) },
+        new Object[] { "STAX", new StaxCasResponseParser() });
+  }
+
+  private final CasResponseParser parser;
+
+  public XmlCasResponseParserTest(final String name, final CasResponseParser parser) {
+    this.parser = parser;
+  }
+
+  @Test
+  public void testAuthenticationFailure() throws Exception {
+    Assert.assertNull(parser.parseServiceValidateResponse(bytes("<cas:serviceResponse "
+        + CAS_NAMESPACE + "><cas:authenticationFailure code='INVALID_TICKET'>"
+        + "Ticket ST-1 not recognized</cas:authenticationFailure></cas:serviceResponse>")));
+  }
+
+  @Test
+  public void testAuthenticationSuccess() throws Exception {
+    CasValidationResult validationResult = parser.parseServiceValidateResponse(bytes(
+        "<cas:serviceResponse " + CAS_NAMESPACE + "><cas:authenticationSuccess>"
+            + "<cas:user>johndoe</cas:user>"
+            + "<cas:attributes><cas:mail>johndoe@example.org</cas:mail>"
+            + "<cas:groups>admins</cas:groups><cas:groups><![CDATA[users & guests]]></cas:groups>"
+            + "</cas:attributes>"
+            + "<cas:proxyGrantingTicket>PGTIOU-1</cas:proxyGrantingTicket>"
+            + "</cas:authenticationSuccess></cas:serviceResponse>"));
+
+    Assert.assertEquals("johndoe", validationResult.getPrincipal());
+    Assert.assertEquals("PGTIOU-1", validationResult.getProxyGrantingTicketIou());
+    Assert.assertEquals(Collections.singletonList("johndoe@example.org"),
+        validationResult.getAttributes().get("mail"));
+    Assert.assertEquals(Arrays.asList("admins", "users & guests"),
+        validationResult.getAttributes().get("groups"));
+  }
+
+  @Test
+  public void testAuthenticationSuccessWithoutAttributes() throws Exception {
+    CasValidationResult validationResult = parser.parseServiceValidateResponse(bytes(
+        "<cas:serviceResponse " + CAS_NAMESPACE + "><cas:authenticationSuccess>"
+            + "<cas:user>johndoe</cas:user></cas:authenticationSuccess></cas:serviceResponse>"));
+
+    Assert.assertEquals("johndoe", validationResult.getPrincipal());
+    Assert.assertNull(validationResult.getProxyGrantingTicketIou());
+    Assert.assertTrue(validationResult.getAttributes().isEmpty());
+  }
+
+  @Test
+  public void testConcurrentParsing() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < (THREAD_COUNT * 50); i++) {
+        results.add(executor.submit(() -> parser.parseLogoutRequest(LOGOUT_REQUEST)));
+      }
+      for (Future<String> result : results) {
+        Assert.assertEquals("ST-1", result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidDocument() throws Exception {
+    parser.parseServiceValidateResponse(bytes("<cas:serviceResponse " + CAS_NAMESPACE + ">"
+        + "<cas:authenticationSuccess><cas:user>johndoe"));
+  }
+
+  @Test
+  public void testLogoutRequest() throws Exception {
+    Assert.assertEquals("ST-1", parser.parseLogoutRequest(LOGOUT_REQUEST));
+    Assert.assertNull(parser.parseLogoutRequest("<samlp:LogoutRequest "
+        + "xmlns:samlp='urn:oasis:names:tc:SAML:2.0:protocol'/>"));
+  }
+
+  @Test
+  public void testProxyResponse() throws Exception {
+    Assert.assertEquals("PT-1", parser.parseProxyResponse(bytes("<cas:serviceResponse "
+        + CAS_NAMESPACE + "><cas:proxySuccess><cas:proxyTicket>PT-1</cas:proxyTicket>"
+        + "</cas:proxySuccess></cas:serviceResponse>")));
+    Assert.assertNull(parser.parseProxyResponse(bytes("<cas:serviceResponse " + CAS_NAMESPACE
+        + "><cas:proxyFailure code='INVALID_REQUEST'>PGT missing</cas:proxyFailure>"
+        + "</cas:serviceResponse>")));
+  }
+
+}
@@ -326,7 +326,21 @@ public class CasAuthenticationTestComponent {
     Assert.assertFalse(johndoe.isLoggedIn());
 
     sampleApp1.assertHello(johndoe, HelloWorldServlet.GUEST);
-    sampleApp2.assertHello(johndoe, HelloWorldServlet.GUEST);
+    sampleApp2.awaitHello(johndoe, HelloWorldServlet.GUEST);
+  }
+
+  @Test
+  public void test07MultipleAppLogoutRequestPropagated() throws Exception {
+    sampleApp1.assertHello(johndoe, HelloWorldServlet.GUEST);
+
+    sampleApp1.casLogin(johndoe);
+    Assert.assertTrue(johndoe.isLoggedIn());
+    sampleApp1.assertHello(johndoe, CasResourceIdResolver.JOHNDOE);
+
+    // the logout request of the service ticket of SampleApp1 is received by SampleApp2 and it is
+    // propagated to SampleApp1 by the LOCAL CAS logout propagator referenced by both filters
+    sampleApp2.sendCasLogoutRequest(janedoe, johndoe.getServiceTicket());
+    sampleApp1.awaitHello(johndoe, HelloWorldServlet.GUEST);
   }
 
 }
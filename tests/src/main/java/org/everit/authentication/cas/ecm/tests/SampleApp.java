@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.EventListener;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Filter;
 import javax.servlet.Servlet;
@@ -52,6 +53,7 @@ import org.eclipse.jetty.server.session.SessionHandler;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.everit.authentication.cas.ecm.CasLogoutRequestProcessor;
 import org.everit.authentication.context.AuthenticationContext;
 import org.junit.Assert;
 import org.osgi.framework.BundleContext;
@@ -86,7 +88,11 @@ public class SampleApp {
 
   private static final String LOGOUT_SERVLET_ALIAS = "/logout";
 
-  private static final int WAIT_CAS_LOGOUT_REQUEST = 1000;
+  private static final int POLL_CAS_LOGOUT_REQUEST = 50;
+
+  private static final String TICKET_PARAM = "ticket=";
+
+  private static final int WAIT_CAS_LOGOUT_REQUEST = 5000;
 
   /**
    * Ping CAS login URL.
@@ -111,6 +117,8 @@ public class SampleApp {
     }
   }
 
+  private final Filter casAuthenticationFilter;
+
   private final String failedUrl;
 
   private final String helloServiceUrl;
@@ -137,6 +145,7 @@ public class SampleApp {
       final AuthenticationContext authenticationContext) throws Exception {
     super();
     this.hostname = hostname;
+    this.casAuthenticationFilter = casAuthenticationFilter;
     server = new Server(0);
 
     // Initialize servlet context
@@ -187,22 +196,32 @@ public class SampleApp {
    */
   public void assertHello(final SecureHttpClient secureHttpClient, final String expectedPrincipal)
       throws Exception {
+    Assert.assertEquals(expectedPrincipal + "@" + hostname, getHello(secureHttpClient));
+  }
 
-    CloseableHttpClient httpClient = secureHttpClient.getHttpClient();
-    HttpClientContext httpClientContext = secureHttpClient.getHttpClientContext();
-
-    HttpGet httpGet = new HttpGet(helloServiceUrl);
-    HttpResponse httpResponse = httpClient.execute(httpGet, httpClientContext);
-    Assert.assertEquals("Failed to access URL [" + helloServiceUrl + "]", HttpServletResponse.SC_OK,
-        httpResponse
-            .getStatusLine().getStatusCode());
-    HttpEntity responseEntity = httpResponse.getEntity();
-    InputStream inputStream = responseEntity.getContent();
-    StringWriter writer = new StringWriter();
-    IOUtils.copy(inputStream, writer);
-    String responseBodyAsString = writer.toString();
-    Assert.assertEquals(expectedPrincipal + "@" + hostname, responseBodyAsString);
-    EntityUtils.consume(responseEntity);
+  /**
+   * Waits until the hello world servlet greets the expected principal. The CAS server sends the
+   * logout requests asynchronously and the filter may queue them, so the session is logged out some
+   * time after the CAS logout URL is called.
+   */
+  public void awaitHello(final SecureHttpClient secureHttpClient, final String expectedPrincipal)
+      throws Exception {
+    String expectedHello = expectedPrincipal + "@" + hostname;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_CAS_LOGOUT_REQUEST);
+    String hello = getHello(secureHttpClient);
+    while (!expectedHello.equals(hello) && ((deadline - System.nanoTime()) > 0)) {
+      if (casAuthenticationFilter instanceof CasLogoutRequestProcessor) {
+        // wait for the queued CAS logout requests to be processed
+        ((CasLogoutRequestProcessor) casAuthenticationFilter)
+            .awaitLogoutRequests(WAIT_CAS_LOGOUT_REQUEST, TimeUnit.MILLISECONDS);
+      }
+      hello = getHello(secureHttpClient);
+      if (!expectedHello.equals(hello)) {
+        // the CAS logout request is not received yet
+        TimeUnit.MILLISECONDS.sleep(POLL_CAS_LOGOUT_REQUEST);
+      }
+    }
+    Assert.assertEquals(expectedHello, hello);
   }
 
   public void casLogin(final SecureHttpClient secureHttpClient) throws Exception {
@@ -239,6 +258,11 @@ public class SampleApp {
     Assert.assertNotNull(locationHeader);
     String ticketValidationUrl = locationHeader.getValue();
     Assert.assertTrue(ticketValidationUrl.startsWith(helloServiceUrl));
+    int serviceTicketBegin = ticketValidationUrl.indexOf(TICKET_PARAM) + TICKET_PARAM.length();
+    int serviceTicketEnd = ticketValidationUrl.indexOf('&', serviceTicketBegin);
+    secureHttpClient.setServiceTicket(serviceTicketEnd < 0
+        ? ticketValidationUrl.substring(serviceTicketBegin)
+        : ticketValidationUrl.substring(serviceTicketBegin, serviceTicketEnd));
     String locale = getLocale(httpClientContext);
     Assert.assertNotNull(locale);
     EntityUtils.consume(httpResponse.getEntity());
@@ -326,8 +350,7 @@ public class SampleApp {
     Assert.assertEquals("Failed to access URL [" + CAS_LOGOUT_URL + "]",
         HttpServletResponse.SC_OK, httpResponse.getStatusLine().getStatusCode());
     EntityUtils.consume(httpResponse.getEntity());
-    Thread.sleep(WAIT_CAS_LOGOUT_REQUEST); // wait for the CAS logout request to be processed
-                                           // asynchronously
+    awaitHello(secureHttpClient, HelloWorldServlet.GUEST);
 
     secureHttpClient.setLoggedIn(false);
   }
@@ -357,6 +380,24 @@ public class SampleApp {
     return failedUrl;
   }
 
+  private String getHello(final SecureHttpClient secureHttpClient) throws Exception {
+    CloseableHttpClient httpClient = secureHttpClient.getHttpClient();
+    HttpClientContext httpClientContext = secureHttpClient.getHttpClientContext();
+
+    HttpGet httpGet = new HttpGet(helloServiceUrl);
+    HttpResponse httpResponse = httpClient.execute(httpGet, httpClientContext);
+    Assert.assertEquals("Failed to access URL [" + helloServiceUrl + "]", HttpServletResponse.SC_OK,
+        httpResponse
+            .getStatusLine().getStatusCode());
+    HttpEntity responseEntity = httpResponse.getEntity();
+    InputStream inputStream = responseEntity.getContent();
+    StringWriter writer = new StringWriter();
+    IOUtils.copy(inputStream, writer);
+    String responseBodyAsString = writer.toString();
+    EntityUtils.consume(responseEntity);
+    return responseBodyAsString;
+  }
+
   public String getHelloServiceUrl() {
     return helloServiceUrl;
   }
@@ -400,6 +441,33 @@ public class SampleApp {
     return sessionLogoutUrl;
   }
 
+  /**
+   * Sends a CAS logout request of the service ticket to the application like the CAS server does.
+   *
+   * @param secureHttpClient
+   *          The client used to send the logout request, its session is not affected.
+   */
+  public void sendCasLogoutRequest(final SecureHttpClient secureHttpClient,
+      final String serviceTicket) throws Exception {
+    String logoutRequest = "<samlp:LogoutRequest "
+        + "xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" "
+        + "xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"LR-" + serviceTicket + "\" "
+        + "Version=\"2.0\" IssueInstant=\"2015-01-01T00:00:00Z\">"
+        + "<saml:NameID>@NOT_USED@</saml:NameID>"
+        + "<samlp:SessionIndex>" + serviceTicket + "</samlp:SessionIndex>"
+        + "</samlp:LogoutRequest>";
+    List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+    parameters.add(new BasicNameValuePair("logoutRequest", logoutRequest));
+    HttpPost httpPost = new HttpPost(helloServiceUrl);
+    httpPost.setEntity(new UrlEncodedFormEntity(parameters));
+
+    HttpResponse httpResponse = secureHttpClient.getHttpClient().execute(httpPost,
+        secureHttpClient.getHttpClientContext());
+    Assert.assertEquals("Failed to send CAS logout request to URL [" + helloServiceUrl + "]",
+        HttpServletResponse.SC_OK, httpResponse.getStatusLine().getStatusCode());
+    EntityUtils.consume(httpResponse.getEntity());
+  }
+
   /**
    * Call session logout URL.
    */
@@ -43,6 +43,8 @@ public class SecureHttpClient {
 
   private final String principal;
 
+  private String serviceTicket;
+
   /**
    * Constructor.
    */
@@ -88,6 +90,13 @@ public class SecureHttpClient {
     return principal;
   }
 
+  /**
+   * The service ticket of the last CAS login.
+   */
+  public String getServiceTicket() {
+    return serviceTicket;
+  }
+
   public boolean isLoggedIn() {
     return loggedIn;
   }
@@ -96,4 +105,8 @@ public class SecureHttpClient {
     this.loggedIn = loggedIn;
   }
 
+  public void setServiceTicket(final String serviceTicket) {
+    this.serviceTicket = serviceTicket;
+  }
+
 }